@@ -0,0 +1,50 @@
+package backend.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Punkt wejścia {@code benchmarks.jar}.
+ * <p>
+ * Przyjmuje te same argumenty co {@code org.openjdk.jmh.Main} (np. filtr nazw, {@code -f}, {@code -wi}, {@code -i}),
+ * ale domyślnie zapisuje wyniki w formacie JSON do {@code jmh-result.json}, żeby przebiegi bez interfejsu
+ * (np. na serwerze CI) można było porównywać automatycznie.
+ * </p>
+ */
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        CommandLineOptions cmdOptions;
+        try {
+            cmdOptions = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("[ERROR] Niepoprawne argumenty: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        if (cmdOptions.shouldHelp()) {
+            cmdOptions.showHelp();
+            return;
+        }
+        if (cmdOptions.shouldList()) {
+            new Runner(cmdOptions).list();
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+        if (!cmdOptions.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        if (!cmdOptions.getResult().hasValue()) options.result(DEFAULT_RESULT_FILE);
+
+        new Runner(options.build()).run();
+    }
+}
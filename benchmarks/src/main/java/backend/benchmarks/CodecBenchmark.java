@@ -0,0 +1,184 @@
+package backend.benchmarks;
+
+import backend.klasy.Appointment;
+import backend.klasy.Doctor;
+import backend.klasy.Patient;
+import backend.klasy.PatientSummary;
+import backend.klasy.Room;
+import backend.mongo.DataLoader;
+import backend.mongo.DomainCodecs;
+import backend.mongo.SummaryCodecs;
+import backend.status.AppointmentStatus;
+import backend.status.Day;
+import backend.status.Diagnosis;
+import backend.status.Specialization;
+import backend.status.TypeOfRoom;
+import com.mongodb.MongoClientSettings;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Kodowanie i dekodowanie encji kodekiem POJO ({@code codecs=pojo}) oraz ręcznymi kodekami {@link DomainCodecs}
+ * ({@code codecs=domain}), których używa {@code MongoDatabaseConnector}.
+ * Dokument trafia do bufora BSON ({@link RawBsonDocument}), więc mierzony jest ten sam koszt,
+ * który sterownik ponosi przy wysyłaniu i odbieraniu dokumentów – bez sieci. {@link #decodeBatch} odpowiada
+ * odczytowi jednej partii kursora; alokacje na operację pokazuje profiler {@code -prof gc}.
+ * Dla porównania mierzony jest też odczyt pacjenta kodekiem {@link SummaryCodecs.PatientSummaryCodec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"Patient", "Doctor", "Appointment", "Room"})
+    public String entity;
+
+    @Param({"pojo", "domain"})
+    public String codecs;
+
+    private Codec<Object> codec;
+    private Object value;
+    private RawBsonDocument encoded;
+    private final List<RawBsonDocument> batch = new ArrayList<>(BATCH_SIZE);
+    private RawBsonDocument encodedPatient;
+    private Codec<PatientSummary> summaryCodec;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        CodecRegistry pojo = fromRegistries(
+                MongoClientSettings.getDefaultCodecRegistry(),
+                fromProviders(PojoCodecProvider.builder().automatic(true).build())
+        );
+        CodecRegistry registry = switch (codecs) {
+            case "pojo" -> pojo;
+            case "domain" -> DomainCodecs.withDomainCodecs(pojo);
+            default -> throw new IllegalArgumentException("Nieznane kodeki: " + codecs);
+        };
+
+        value = switch (entity) {
+            case "Patient" -> samplePatient();
+            case "Doctor" -> sampleDoctor();
+            case "Appointment" -> sampleAppointment();
+            case "Room" -> sampleRoom();
+            default -> throw new IllegalArgumentException("Nieznana encja: " + entity);
+        };
+        codec = (Codec<Object>) registry.get(value.getClass());
+        encoded = new RawBsonDocument(value, codec);
+        batch.clear();
+        for (int i = 0; i < BATCH_SIZE; i++) batch.add(new RawBsonDocument(value, codec));
+
+        encodedPatient = new RawBsonDocument(samplePatient(), registry.get(Patient.class));
+        summaryCodec = SummaryCodecs.withSummaryCodecs(registry).get(PatientSummary.class);
+    }
+
+    @Benchmark
+    public RawBsonDocument encode() {
+        return new RawBsonDocument(value, codec);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return encoded.decode(codec);
+    }
+
+    /**
+     * Odczyt partii {@value #BATCH_SIZE} dokumentów (osobne bufory, jak w odpowiedzi {@code getMore}); wynik na dokument.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decodeBatch(Blackhole blackhole) {
+        for (RawBsonDocument document : batch) blackhole.consume(document.decode(codec));
+    }
+
+    /**
+     * Niezależne od parametru {@code entity}: strumieniowy odczyt tego samego dokumentu pacjenta do modelu tylko do odczytu.
+     */
+    @Benchmark
+    public PatientSummary decodePatientSummary() {
+        return encodedPatient.decode(summaryCodec);
+    }
+
+    private static Patient samplePatient() throws Exception {
+        LocalDate birthDate = LocalDate.of(1985, 7, 14);
+        return new Patient.Builder()
+                .withId(new ObjectId())
+                .firstName("Anna")
+                .lastName("Kowalczyk")
+                .pesel(DataLoader.generateRandomPesel(birthDate, new SplittableRandom(1)))
+                .birthDate(birthDate)
+                .address("ul. Słoneczna 12/4, 00-123 Warszawa")
+                .age(Patient.calculateAge(birthDate))
+                .plainPassword("haslo")
+                .diagnosis(Diagnosis.AWAITING)
+                .build();
+    }
+
+    private static Doctor sampleDoctor() throws Exception {
+        LocalDate birthDate = LocalDate.of(1970, 2, 3);
+        return new Doctor.Builder()
+                .withId(new ObjectId())
+                .firstName("Piotr")
+                .lastName("Wiśniewski")
+                .birthDate(birthDate)
+                .age(Doctor.calculateAge(birthDate))
+                .pesel(DataLoader.generateRandomPesel(birthDate, new SplittableRandom(2)))
+                .specialization(Specialization.CARDIOLOGY)
+                .availableDays(List.of(Day.MONDAY, Day.WEDNESDAY, Day.FRIDAY))
+                .room("105")
+                .contactInformation("600123456")
+                .plainPassword("haslo")
+                .build();
+    }
+
+    private static Appointment sampleAppointment() {
+        return new Appointment.Builder()
+                .withId(new ObjectId())
+                .patientId(new ObjectId())
+                .doctorId(new ObjectId())
+                .room(new ObjectId())
+                .date(LocalDateTime.of(2025, 3, 12, 10, 30))
+                .description("Konsultacja")
+                .status(AppointmentStatus.SCHEDULED)
+                .build();
+    }
+
+    private static Room sampleRoom() {
+        List<ObjectId> patientIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) patientIds.add(new ObjectId());
+        Room room = new Room("ul. Szpitalna 1", 2, 214, 6, TypeOfRoom.CARDIOLOGY, patientIds);
+        room.setId(new ObjectId());
+        return room;
+    }
+}
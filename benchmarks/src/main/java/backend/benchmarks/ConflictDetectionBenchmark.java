@@ -0,0 +1,129 @@
+package backend.benchmarks;
+
+import backend.klasy.Appointment;
+import backend.mongo.AppointmentIntervalIndex;
+import backend.status.AppointmentStatus;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wykrywanie kolizji terminów z {@code AppointmentRepository}: sprawdzenie wolnego terminu lekarza
+ * w załadowanym harmonogramie ({@link AppointmentIntervalIndex}), to samo przy zimnym indeksie
+ * (harmonogram budowany od zera przy każdym pytaniu, bez kosztu samej bazy) oraz przełożenie wizyty w indeksie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConflictDetectionBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 6);
+    private static final LocalTime FIRST_SLOT = LocalTime.of(8, 0);
+    private static final int SLOTS_PER_DAY = 16;
+    private static final int DOCTORS = 100;
+
+    /**
+     * Liczba niezakończonych wizyt w harmonogramie jednego lekarza.
+     */
+    @Param({"10", "100", "1000"})
+    public int appointmentsPerDoctor;
+
+    private ObjectId[] doctorIds;
+    private List<List<Appointment>> schedules;
+    private AppointmentIntervalIndex warmIndex;
+    private AppointmentIntervalIndex coldIndex;
+    private Appointment moved;
+    private int horizonSlots;
+
+    /**
+     * Stan wątku – osobny generator, żeby wątki nie rywalizowały o jeden licznik.
+     */
+    @State(Scope.Thread)
+    public static class Probe {
+        private final SplittableRandom rnd = new SplittableRandom(42);
+    }
+
+    @Setup
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(7);
+        horizonSlots = Math.max(appointmentsPerDoctor * 2, SLOTS_PER_DAY);
+        doctorIds = new ObjectId[DOCTORS];
+        schedules = new ArrayList<>(DOCTORS);
+
+        warmIndex = new AppointmentIntervalIndex(Duration.ofDays(1));
+        warmIndex.setLiveUpdates(() -> true);
+        coldIndex = new AppointmentIntervalIndex(Duration.ZERO);
+
+        for (int d = 0; d < DOCTORS; d++) {
+            doctorIds[d] = new ObjectId();
+            List<Appointment> schedule = new ArrayList<>(appointmentsPerDoctor);
+            for (int i = 0; i < appointmentsPerDoctor; i++) {
+                schedule.add(new Appointment.Builder()
+                        .withId(new ObjectId())
+                        .doctorId(doctorIds[d])
+                        .patientId(new ObjectId())
+                        .date(slot(rnd.nextInt(horizonSlots)))
+                        .status(AppointmentStatus.SCHEDULED)
+                        .build());
+            }
+            schedules.add(schedule);
+            List<Appointment> loaded = schedule;
+            warmIndex.isDoctorFree(doctorIds[d], slot(0), null, () -> loaded);
+        }
+        moved = schedules.getFirst().getFirst();
+    }
+
+    @Benchmark
+    public boolean warmCheck(Probe probe) {
+        int doctor = probe.rnd.nextInt(DOCTORS);
+        return warmIndex.isDoctorFree(doctorIds[doctor], slot(probe.rnd.nextInt(horizonSlots)), null,
+                () -> schedules.get(doctor));
+    }
+
+    @Benchmark
+    public boolean coldCheck(Probe probe) {
+        int doctor = probe.rnd.nextInt(DOCTORS);
+        return coldIndex.isDoctorFree(doctorIds[doctor], slot(probe.rnd.nextInt(horizonSlots)), null,
+                () -> schedules.get(doctor));
+    }
+
+    /**
+     * Przełożenie wizyty: usunięcie starego terminu i dodanie nowego w harmonogramach lekarza i pacjenta.
+     */
+    @Benchmark
+    public Appointment reschedule(Probe probe) {
+        moved.setDate(slot(probe.rnd.nextInt(horizonSlots)));
+        warmIndex.put(moved);
+        return moved;
+    }
+
+    /**
+     * Kolejne półgodzinne terminy dni roboczych (8:00–16:00), pon–pt.
+     */
+    private static LocalDateTime slot(int index) {
+        int day = index / SLOTS_PER_DAY;
+        LocalDate date = FIRST_DAY.plusWeeks(day / 5).plusDays(day % 5);
+        return LocalDateTime.of(date, FIRST_SLOT.plusMinutes(30L * (index % SLOTS_PER_DAY)));
+    }
+}
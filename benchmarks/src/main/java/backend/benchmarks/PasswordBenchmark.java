@@ -0,0 +1,57 @@
+package backend.benchmarks;
+
+import backend.klasy.Password;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Koszt hashowania hasła (tworzenie konta) i jego weryfikacji (każde logowanie).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordBenchmark {
+
+    private static final String PLAIN_TEXT = "haslo";
+
+    private Password stored;
+
+    @Setup
+    public void setUp() {
+        stored = new Password(PLAIN_TEXT);
+    }
+
+    /**
+     * Nowe hasło: losowa sól z {@code SecureRandom} i skrót SHA-256.
+     */
+    @Benchmark
+    public Password hash() {
+        return new Password(PLAIN_TEXT);
+    }
+
+    /**
+     * Odtworzenie hasła z bazy (sól + skrót) i weryfikacja poprawnego hasła.
+     */
+    @Benchmark
+    public boolean verifyCorrect() {
+        return new Password(stored.getSalt(), stored.getHashedPassword()).verify(PLAIN_TEXT);
+    }
+
+    @Benchmark
+    public boolean verifyWrong() {
+        return stored.verify("niepoprawne");
+    }
+}
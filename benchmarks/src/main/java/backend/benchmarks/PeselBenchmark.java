@@ -0,0 +1,76 @@
+package backend.benchmarks;
+
+import backend.klasy.Person;
+import backend.mongo.DataLoader;
+import backend.wyjatki.PeselException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generowanie PESEL-u (przy wypełnianiu bazy) i jego walidacja w {@link Person#setPesel(long)}
+ * (przy każdym odczycie osoby przez kodek POJO).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PeselBenchmark {
+
+    private SplittableRandom rnd;
+    private LocalDate birthDate20th;
+    private LocalDate birthDate21st;
+    private long validPesel;
+    private Person person;
+
+    @Setup
+    public void setUp() {
+        rnd = new SplittableRandom(42);
+        birthDate20th = LocalDate.of(1985, 7, 14);
+        birthDate21st = LocalDate.of(2012, 3, 2);
+        validPesel = DataLoader.generateRandomPesel(birthDate20th, rnd);
+        person = new Person();
+    }
+
+    @Benchmark
+    public long generate20thCentury() {
+        return DataLoader.generateRandomPesel(birthDate20th, rnd);
+    }
+
+    @Benchmark
+    public long generate21stCentury() {
+        return DataLoader.generateRandomPesel(birthDate21st, rnd);
+    }
+
+    @Benchmark
+    public Person setValidPesel() throws PeselException {
+        person.setPesel(validPesel);
+        return person;
+    }
+
+    /**
+     * Odrzucenie niepoprawnego numeru – głównie koszt utworzenia wyjątku ze stosem wywołań.
+     */
+    @Benchmark
+    public Exception setInvalidPesel() {
+        try {
+            person.setPesel(123L);
+            return null;
+        } catch (PeselException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package backend.benchmarks;
+
+import backend.klasy.Room;
+import backend.status.TypeOfRoom;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operacje na liście pacjentów sali: {@link Room#getPatientIds()} zwraca kopię listy przy każdym wywołaniu,
+ * a {@link Room#addPatientId(ObjectId)} przed dodaniem przeszukuje ją liniowo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomBenchmark {
+
+    /**
+     * Liczba pacjentów już przypisanych do sali.
+     */
+    @Param({"4", "32", "256"})
+    public int occupancy;
+
+    private Room room;
+    private ObjectId present;
+    private ObjectId newcomer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ObjectId> ids = new ArrayList<>(occupancy);
+        for (int i = 0; i < occupancy; i++) ids.add(new ObjectId());
+        // Jedno wolne miejsce na pacjenta dodawanego w benchmarku
+        room = new Room("Szpitalna 1", 1, 101, occupancy + 1, TypeOfRoom.INTERNAL, ids);
+        present = ids.getLast();
+        newcomer = new ObjectId();
+    }
+
+    @Benchmark
+    public List<ObjectId> getPatientIds() {
+        return room.getPatientIds();
+    }
+
+    /**
+     * Pacjent już jest w sali – pełne przeszukanie listy i brak zmian.
+     */
+    @Benchmark
+    public Room addExisting() {
+        room.addPatientId(present);
+        return room;
+    }
+
+    /**
+     * Dodanie i usunięcie nowego pacjenta (tak wygląda utworzenie i odwołanie wizyty w tej sali).
+     */
+    @Benchmark
+    public boolean addAndRemove() {
+        room.addPatientId(newcomer);
+        return room.removePatientId(newcomer);
+    }
+
+    /**
+     * Wzorzec z {@code AppointmentRepository}: kopia listy, zmiana i zapis całej listy z powrotem.
+     */
+    @Benchmark
+    public Room copyModifyReplace() {
+        List<ObjectId> ids = room.getPatientIds();
+        ids.add(newcomer);
+        room.setPatientIds(ids);
+        ids = room.getPatientIds();
+        ids.remove(newcomer);
+        room.setPatientIds(ids);
+        return room;
+    }
+}
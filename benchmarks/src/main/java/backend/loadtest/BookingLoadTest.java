@@ -0,0 +1,660 @@
+package backend.loadtest;
+
+import backend.klasy.Appointment;
+import backend.klasy.DoctorSummary;
+import backend.klasy.PatientSummary;
+import backend.klasy.Room;
+import backend.metrics.LatencyHistogram;
+import backend.metrics.MongoMetrics;
+import backend.mongo.AppointmentIntervalIndex;
+import backend.mongo.AppointmentReferenceResolver;
+import backend.mongo.AppointmentRepository;
+import backend.mongo.CredentialRepository;
+import backend.mongo.MongoDatabaseConnector;
+import backend.mongo.PatientRepository;
+import backend.mongo.RepositoryContext;
+import backend.status.AppointmentStatus;
+import backend.status.Day;
+import backend.status.TypeOfRoom;
+import backend.wyjatki.DoctorIsNotAvailableException;
+import backend.wyjatki.InappropriateRoomException;
+import backend.wyjatki.PatientIsNotAvailableException;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Generator obciążenia warstwy repozytoriów bez interfejsu graficznego.
+ * <p>
+ * Każdy wirtualny użytkownik (osobny wątek wirtualny) w pętli losuje operację według zadanych wag –
+ * rezerwację, przełożenie lub odwołanie własnej wizyty, logowanie albo listę dzisiejszych wizyt lekarza –
+ * wykonuje ją na lokalnej bazie i odczekuje losowy czas namysłu. Dla każdej operacji zbierany jest
+ * histogram opóźnień ({@link LatencyHistogram}) oraz liczba konfliktów (lekarz/pacjent zajęty, zła sala)
+ * i błędów. Pomiary z rozgrzewki są pomijane.
+ * </p>
+ * <p>
+ * Repozytoria pochodzą ze wspólnego {@link RepositoryContext} aplikacji, więc test mierzy te same instancje,
+ * pamięci podręczne i rejestr kodeków co ekrany. Operacje przypisane są do ekranów, z których pochodzą
+ * ({@link Operation#getScreen()}); raport podaje dla każdego ekranu także średnią liczbę kilobajtów
+ * zaalokowanych na operację i czas budowania kodeków (JVM może nie mierzyć alokacji wątków wirtualnych –
+ * wtedy kolumna zawiera {@code n/d}).
+ * </p>
+ * <p>
+ * Baza musi być wcześniej wypełniona, np. {@code DataLoader benchmark patients=100000 appointments=1000000}.
+ * Generator jest częścią modułu {@code benchmarks} (nie trafia do aplikacji). Uruchomienie:
+ * {@code java -cp benchmarks/target/benchmarks.jar backend.loadtest.BookingLoadTest users=200 duration=120 think=250
+ * mix=book:40,reschedule:10,cancel:10,login:20,list:20}.
+ * </p>
+ */
+public class BookingLoadTest {
+
+    /**
+     * Operacje wykonywane przez wirtualnych użytkowników.
+     */
+    public enum Operation {
+        BOOK("book", "AppointmentForm"),
+        RESCHEDULE("reschedule", "AppointmentForm"),
+        CANCEL("cancel", "AdminPanel"),
+        LOGIN("login", "LoginPanel"),
+        LIST_TODAY("list", "DoctorPanel");
+
+        private final String key;
+        private final String screen;
+
+        Operation(String key, String screen) {
+            this.key = key;
+            this.screen = screen;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return ekran aplikacji wykonujący tę operację (nazwa jak w metrykach {@code Screen})
+         */
+        public String getScreen() {
+            return screen;
+        }
+
+        public static Operation fromKey(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equals(key)) return operation;
+            }
+            throw new IllegalArgumentException("Nieznana operacja: " + key);
+        }
+    }
+
+    /**
+     * Parametry testu.
+     */
+    public static class Config {
+        private int users = 50;
+        private Duration duration = Duration.ofSeconds(60);
+        private Duration warmup = Duration.ofSeconds(10);
+        private Duration thinkTime = Duration.ofMillis(500);
+        private final Map<Operation, Integer> mix = new EnumMap<>(Map.of(
+                Operation.BOOK, 30,
+                Operation.RESCHEDULE, 15,
+                Operation.CANCEL, 15,
+                Operation.LOGIN, 20,
+                Operation.LIST_TODAY, 20));
+        private int horizonDays = 30;
+        private int patientSample = 10_000;
+        private String password = "haslo";
+        private long seed = 42;
+        private Path output = Path.of("loadtest-results.hgrm");
+        private boolean keepAppointments = false;
+
+        public Config users(int users) {
+            if (users <= 0) throw new IllegalArgumentException("Liczba użytkowników musi być dodatnia");
+            this.users = users;
+            return this;
+        }
+
+        public Config duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        public Config warmup(Duration warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        /**
+         * Średni czas namysłu między operacjami jednego użytkownika (rozkład wykładniczy; 0 – bez przerw).
+         */
+        public Config thinkTime(Duration thinkTime) {
+            this.thinkTime = thinkTime;
+            return this;
+        }
+
+        /**
+         * Względna waga operacji w losowaniu (0 wyłącza operację).
+         */
+        public Config weight(Operation operation, int weight) {
+            if (weight < 0) throw new IllegalArgumentException("Waga nie może być ujemna");
+            mix.put(operation, weight);
+            return this;
+        }
+
+        /**
+         * Liczba dni naprzód, w których losowane są terminy rezerwacji.
+         */
+        public Config horizonDays(int horizonDays) {
+            if (horizonDays <= 0) throw new IllegalArgumentException("Horyzont musi być dodatni");
+            this.horizonDays = horizonDays;
+            return this;
+        }
+
+        /**
+         * Liczba pacjentów pobieranych z bazy jako pula, z której użytkownicy losują pacjentów.
+         */
+        public Config patientSample(int patientSample) {
+            if (patientSample <= 0) throw new IllegalArgumentException("Próbka pacjentów musi być dodatnia");
+            this.patientSample = patientSample;
+            return this;
+        }
+
+        /**
+         * Hasło używane przy logowaniu (domyślnie hasło kont demonstracyjnych z {@code DataLoader}).
+         */
+        public Config password(String password) {
+            this.password = password;
+            return this;
+        }
+
+        public Config seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Plik, do którego zapisywane są rozkłady percentyli w formacie {@code .hgrm}.
+         */
+        public Config output(Path output) {
+            this.output = output;
+            return this;
+        }
+
+        /**
+         * Czy pozostawić w bazie wizyty utworzone podczas testu.
+         */
+        public Config keepAppointments(boolean keepAppointments) {
+            this.keepAppointments = keepAppointments;
+            return this;
+        }
+
+        /**
+         * Tworzy konfigurację z argumentów {@code klucz=wartość}; czasy podaje się w sekundach
+         * ({@code duration}, {@code warmup}) lub milisekundach ({@code think}).
+         */
+        public static Config fromArgs(String... args) {
+            Config config = new Config();
+            for (String arg : args) {
+                String[] pair = arg.split("=", 2);
+                if (pair.length != 2) throw new IllegalArgumentException("Oczekiwano klucz=wartość: " + arg);
+                String value = pair[1];
+                switch (pair[0]) {
+                    case "users" -> config.users(Integer.parseInt(value));
+                    case "duration" -> config.duration(Duration.ofSeconds(Long.parseLong(value)));
+                    case "warmup" -> config.warmup(Duration.ofSeconds(Long.parseLong(value)));
+                    case "think" -> config.thinkTime(Duration.ofMillis(Long.parseLong(value)));
+                    case "mix" -> {
+                        // np. mix=book:40,cancel:10 – pominięte operacje zachowują domyślne wagi
+                        for (String entry : value.split(",")) {
+                            String[] weight = entry.split(":", 2);
+                            if (weight.length != 2) throw new IllegalArgumentException("Oczekiwano operacja:waga: " + entry);
+                            config.weight(Operation.fromKey(weight[0]), Integer.parseInt(weight[1]));
+                        }
+                    }
+                    case "horizon" -> config.horizonDays(Integer.parseInt(value));
+                    case "patients" -> config.patientSample(Integer.parseInt(value));
+                    case "password" -> config.password(value);
+                    case "seed" -> config.seed(Long.parseLong(value));
+                    case "out" -> config.output(Path.of(value));
+                    case "keep" -> config.keepAppointments(Boolean.parseBoolean(value));
+                    default -> throw new IllegalArgumentException("Nieznany parametr: " + pair[0]);
+                }
+            }
+            if (config.mix.values().stream().mapToInt(Integer::intValue).sum() == 0)
+                throw new IllegalArgumentException("Co najmniej jedna operacja musi mieć dodatnią wagę");
+            return config;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("użytkownicy=%d, czas=%ds, rozgrzewka=%ds, namysł=%dms, mix=%s, horyzont=%d dni, "
+                            + "pacjenci=%,d, ziarno=%d, wynik=%s, zachowaj=%b",
+                    users, duration.toSeconds(), warmup.toSeconds(), thinkTime.toMillis(),
+                    mix.entrySet().stream().map(e -> e.getKey().getKey() + ":" + e.getValue())
+                            .collect(Collectors.joining(",")),
+                    horizonDays, patientSample, seed, output, keepAppointments);
+        }
+    }
+
+    /**
+     * Wyniki jednej operacji; współdzielone przez wszystkich użytkowników.
+     */
+    private static final class OperationStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder measuredAllocations = new LongAdder();
+        private final LongAdder codecNanos = new LongAdder();
+    }
+
+    /**
+     * Wynik pojedynczego wywołania.
+     */
+    private enum Outcome {SUCCESS, CONFLICT, ERROR}
+
+    private static final LocalTime FIRST_SLOT = LocalTime.of(8, 0);
+    private static final int SLOTS_PER_DAY = 16;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final Config config;
+    private final AppointmentRepository appointmentRepo;
+    private final CredentialRepository credentialRepo;
+    private final AppointmentReferenceResolver referenceResolver;
+    private final List<DoctorSummary> doctors;
+    private final List<PatientSummary> patients;
+    private final Map<TypeOfRoom, List<Room>> roomsByType;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final ConcurrentLinkedQueue<ObjectId> leftovers = new ConcurrentLinkedQueue<>();
+    private final LongAdder unexpectedFailures = new LongAdder();
+
+    /**
+     * Pobiera z bazy pulę lekarzy, pacjentów i sal, z której losują użytkownicy.
+     *
+     * @param repositories wspólne repozytoria aplikacji ({@link MongoDatabaseConnector#repositories()})
+     * @throws IllegalStateException gdy baza nie zawiera danych potrzebnych do testu
+     */
+    public BookingLoadTest(RepositoryContext repositories, Config config) {
+        this.config = config;
+        this.appointmentRepo = repositories.appointments();
+        this.credentialRepo = repositories.credentials();
+        this.referenceResolver = repositories.referenceResolver();
+
+        this.doctors = repositories.doctors().findAllSummaries().stream()
+                .filter(d -> d.getSpecialization() != null && !d.getAvailableDays().isEmpty())
+                .toList();
+        this.patients = repositories.patients().findSummaryPage(PatientRepository.SORT_BY_LAST_NAME, true, null,
+                config.patientSample).getItems();
+        this.roomsByType = repositories.rooms().getAllRooms().stream()
+                .filter(r -> r.getType() != null)
+                .collect(Collectors.groupingBy(Room::getType, () -> new EnumMap<>(TypeOfRoom.class), Collectors.toList()));
+
+        if (doctors.isEmpty() || patients.isEmpty() || roomsByType.isEmpty()) {
+            throw new IllegalStateException("Brak lekarzy, pacjentów lub sal w bazie – uruchom najpierw DataLoader benchmark");
+        }
+        for (Operation operation : Operation.values()) stats.put(operation, new OperationStats());
+    }
+
+    /**
+     * Uruchamia użytkowników, czeka na koniec testu i zwraca wyniki po rozgrzewce.
+     */
+    public void run() throws InterruptedException {
+        System.out.println("[INFO] Test obciążenia: " + config);
+        System.out.println("[INFO] Pula: " + doctors.size() + " lekarzy, " + patients.size() + " pacjentów, "
+                + roomsByType.values().stream().mapToInt(List::size).sum() + " sal");
+
+        long measureStart = System.nanoTime() + config.warmup.toNanos();
+        long end = measureStart + config.duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int user = 0; user < config.users; user++) {
+                int userIndex = user;
+                executor.submit(() -> runUser(userIndex, measureStart, end));
+            }
+        }
+
+        if (unexpectedFailures.sum() > 0) {
+            System.err.println("[ERROR] " + unexpectedFailures.sum() + " użytkowników zakończyło pracę przedwcześnie");
+        }
+    }
+
+    /**
+     * Pętla jednego wirtualnego użytkownika. Użytkownik pamięta własne rezerwacje, więc przekłada i odwołuje
+     * tylko to, co sam utworzył; bez rezerwacji zamiast przełożenia/odwołania wykonuje rezerwację.
+     */
+    private void runUser(int userIndex, long measureStart, long end) {
+        SplittableRandom rnd = new SplittableRandom(config.seed * 0x9E3779B97F4A7C15L + userIndex);
+        Deque<Appointment> booked = new ArrayDeque<>();
+        try {
+            while (System.nanoTime() < end) {
+                Operation operation = pickOperation(rnd);
+                if ((operation == Operation.RESCHEDULE || operation == Operation.CANCEL) && booked.isEmpty()) {
+                    operation = Operation.BOOK;
+                }
+
+                long allocatedAtStart = MongoMetrics.allocatedBytes();
+                long codecNanosAtStart = MongoMetrics.codecIntrospectionNanos();
+                long started = System.nanoTime();
+                Outcome outcome = execute(operation, rnd, booked);
+                long finished = System.nanoTime();
+                long allocatedAtEnd = MongoMetrics.allocatedBytes();
+
+                if (started >= measureStart && finished <= end) {
+                    long allocated = allocatedAtStart < 0 || allocatedAtEnd < 0 ? -1 : allocatedAtEnd - allocatedAtStart;
+                    record(operation, finished - started, outcome, allocated,
+                            MongoMetrics.codecIntrospectionNanos() - codecNanosAtStart);
+                }
+                think(rnd);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            unexpectedFailures.increment();
+            System.err.println("[ERROR] Użytkownik " + userIndex + ": " + e.getMessage());
+        } finally {
+            for (Appointment appointment : booked) leftovers.add(appointment.getId());
+        }
+    }
+
+    private Outcome execute(Operation operation, SplittableRandom rnd, Deque<Appointment> booked) {
+        try {
+            switch (operation) {
+                case BOOK -> book(rnd, booked);
+                case RESCHEDULE -> reschedule(rnd, booked);
+                case CANCEL -> cancel(rnd, booked);
+                case LOGIN -> login(rnd);
+                case LIST_TODAY -> listToday(rnd);
+            }
+            return Outcome.SUCCESS;
+        } catch (DoctorIsNotAvailableException | PatientIsNotAvailableException | InappropriateRoomException e) {
+            return Outcome.CONFLICT;
+        } catch (RuntimeException e) {
+            return Outcome.ERROR;
+        }
+    }
+
+    private void book(SplittableRandom rnd, Deque<Appointment> booked)
+            throws DoctorIsNotAvailableException, PatientIsNotAvailableException, InappropriateRoomException {
+        DoctorSummary doctor = doctors.get(rnd.nextInt(doctors.size()));
+        PatientSummary patient = patients.get(rnd.nextInt(patients.size()));
+
+        Appointment appointment = new Appointment.Builder()
+                .patientId(patient.getId())
+                .doctorId(doctor.getId())
+                .room(pickRoom(rnd, doctor))
+                .date(pickSlot(rnd, doctor))
+                .description("Test obciążenia")
+                .status(AppointmentStatus.SCHEDULED)
+                .build();
+        appointmentRepo.createAppointment(appointment);
+        booked.addLast(appointment);
+    }
+
+    private void reschedule(SplittableRandom rnd, Deque<Appointment> booked)
+            throws DoctorIsNotAvailableException, PatientIsNotAvailableException, InappropriateRoomException {
+        Appointment appointment = takeRandom(rnd, booked);
+        DoctorSummary doctor = doctors.stream()
+                .filter(d -> d.getId().equals(appointment.getDoctorId()))
+                .findFirst()
+                .orElseThrow();
+        LocalDateTime previousDate = appointment.getDate();
+        AppointmentStatus previousStatus = appointment.getStatus();
+        appointment.setDate(pickSlot(rnd, doctor));
+        appointment.setStatus(AppointmentStatus.RESCHEDULED);
+        try {
+            appointmentRepo.updateAppointment(appointment);
+        } catch (DoctorIsNotAvailableException | PatientIsNotAvailableException | InappropriateRoomException e) {
+            appointment.setDate(previousDate);
+            appointment.setStatus(previousStatus);
+            throw e;
+        } finally {
+            booked.addLast(appointment);
+        }
+    }
+
+    private void cancel(SplittableRandom rnd, Deque<Appointment> booked) {
+        Appointment appointment = takeRandom(rnd, booked);
+        appointmentRepo.deleteAppointment(appointment.getId());
+    }
+
+    private void login(SplittableRandom rnd) {
+        PatientSummary patient = patients.get(rnd.nextInt(patients.size()));
+        CredentialRepository.Credentials credentials = credentialRepo.findByPesel(patient.getPesel());
+        if (credentials == null || !credentials.verify(config.password)) {
+            throw new IllegalStateException("Nieudane logowanie dla PESEL " + patient.getPesel());
+        }
+    }
+
+    private void listToday(SplittableRandom rnd) {
+        DoctorSummary doctor = doctors.get(rnd.nextInt(doctors.size()));
+        referenceResolver.resolve(appointmentRepo.findAppointmentsByDoctorIdOn(doctor.getId(), LocalDate.now()));
+    }
+
+    /**
+     * Losuje wizytę z listy użytkownika i usuwa ją z listy (wywołujący może ją dodać z powrotem).
+     */
+    private static Appointment takeRandom(SplittableRandom rnd, Deque<Appointment> booked) {
+        int skip = rnd.nextInt(booked.size());
+        for (int i = 0; i < skip; i++) booked.addLast(booked.removeFirst());
+        return booked.removeFirst();
+    }
+
+    /**
+     * Termin w jednym z dni przyjęć lekarza w horyzoncie testu, co pół godziny od 8:00.
+     */
+    private LocalDateTime pickSlot(SplittableRandom rnd, DoctorSummary doctor) {
+        List<Day> days = doctor.getAvailableDays();
+        LocalDate date = LocalDate.now().plusDays(1 + rnd.nextInt(config.horizonDays));
+        DayOfWeek dayOfWeek = DayOfWeek.of(days.get(rnd.nextInt(days.size())).ordinal() + 1);
+        while (date.getDayOfWeek() != dayOfWeek) date = date.plusDays(1);
+        return LocalDateTime.of(date, FIRST_SLOT.plusMinutes(30L * rnd.nextInt(SLOTS_PER_DAY)));
+    }
+
+    /**
+     * Sala zgodna ze specjalizacją lekarza; jeśli takiej nie ma, dowolna (rezerwacja zakończy się konfliktem).
+     */
+    private ObjectId pickRoom(SplittableRandom rnd, DoctorSummary doctor) {
+        List<Room> rooms = roomsByType.get(doctor.getSpecialization().getCompatibleRoomType());
+        if (rooms == null) rooms = roomsByType.values().iterator().next();
+        return rooms.get(rnd.nextInt(rooms.size())).getId();
+    }
+
+    private Operation pickOperation(SplittableRandom rnd) {
+        int total = 0;
+        for (int weight : config.mix.values()) total += weight;
+        int roll = rnd.nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : config.mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) return entry.getKey();
+        }
+        return Operation.LIST_TODAY;
+    }
+
+    /**
+     * Czas namysłu z rozkładu wykładniczego – przy wielu użytkownikach daje napływ żądań zbliżony do procesu Poissona.
+     */
+    private void think(SplittableRandom rnd) throws InterruptedException {
+        long meanNanos = config.thinkTime.toNanos();
+        if (meanNanos <= 0) return;
+        long pause = (long) (-meanNanos * Math.log(1.0 - rnd.nextDouble()));
+        Thread.sleep(Duration.ofNanos(pause));
+    }
+
+    private void record(Operation operation, long nanos, Outcome outcome, long allocated, long codecNanos) {
+        OperationStats operationStats = stats.get(operation);
+        operationStats.latency.record(nanos);
+        operationStats.totalNanos.add(nanos);
+        operationStats.codecNanos.add(codecNanos);
+        if (allocated >= 0) {
+            operationStats.allocatedBytes.add(allocated);
+            operationStats.measuredAllocations.increment();
+        }
+        switch (outcome) {
+            case SUCCESS -> operationStats.succeeded.increment();
+            case CONFLICT -> operationStats.conflicts.increment();
+            case ERROR -> operationStats.errors.increment();
+        }
+    }
+
+    /**
+     * Wypisuje tabelę wyników operacji i ekranów, a rozkłady opóźnień (w milisekundach) zapisuje
+     * do pliku {@code .hgrm}.
+     */
+    public void report() throws IOException {
+        double seconds = config.duration.toNanos() / 1e9;
+        System.out.println();
+        System.out.printf("%-12s %10s %10s %9s %9s %9s %9s %8s %8s%n",
+                "operacja", "liczba", "op/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "konfl.%", "błędy%");
+
+        long allOperations = 0;
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats s = entry.getValue();
+            long count = s.latency.getTotalCount();
+            allOperations += count;
+            System.out.printf("%-12s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %8.2f %8.2f%n",
+                    entry.getKey().getKey(), count, count / seconds,
+                    s.latency.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                    s.latency.getValueAtPercentile(95) / NANOS_PER_MILLI,
+                    s.latency.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                    s.latency.getMaxValue() / NANOS_PER_MILLI,
+                    percent(s.conflicts.sum(), count), percent(s.errors.sum(), count));
+        }
+        System.out.printf("%-12s %10d %10.1f%n", "razem", allOperations, allOperations / seconds);
+        reportScreens();
+
+        Path parent = config.output.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(config.output), false, "UTF-8")) {
+            out.println("# " + config);
+            for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+                OperationStats s = entry.getValue();
+                out.println();
+                out.printf("# Operation: %s, ok=%d, conflicts=%d, errors=%d, unit=ms%n",
+                        entry.getKey().getKey(), s.succeeded.sum(), s.conflicts.sum(), s.errors.sum());
+                s.latency.outputPercentileDistribution(out, NANOS_PER_MILLI);
+            }
+        }
+        System.out.println("[SUCCESS] Rozkłady opóźnień zapisano do " + config.output.toAbsolutePath());
+    }
+
+    /**
+     * Usuwa wizyty utworzone przez test (chyba że ustawiono {@code keep=true}).
+     */
+    public void cleanUp() {
+        if (config.keepAppointments) {
+            System.out.println("[INFO] Pozostawiono " + leftovers.size() + " wizyt utworzonych podczas testu");
+            return;
+        }
+        int removed = 0;
+        for (ObjectId id : leftovers) {
+            appointmentRepo.deleteAppointment(id);
+            removed++;
+        }
+        leftovers.clear();
+        System.out.println("[INFO] Usunięto " + removed + " wizyt utworzonych podczas testu");
+    }
+
+    /**
+     * Sprawdza, czy wśród wizyt utworzonych przez test są dwie niezakończone wizyty tego samego lekarza
+     * lub pacjenta w odstępie krótszym niż 30 minut – przy poprawnej rezerwacji nie może ich być.
+     *
+     * @return liczba nakładających się par
+     */
+    public long verifyNoOverlaps() {
+        List<Appointment> created = appointmentRepo.findByIds(new ArrayList<>(leftovers)).stream()
+                .filter(a -> a.getStatus() == null || a.getStatus().isActive())
+                .toList();
+        long overlaps = countOverlaps(created, Appointment::getDoctorId) + countOverlaps(created, Appointment::getPatientId);
+        if (overlaps == 0) {
+            System.out.println("[SUCCESS] Brak nakładających się wizyt wśród " + created.size() + " utworzonych");
+        } else {
+            System.err.println("[ERROR] Nakładające się wizyty: " + overlaps + " par wśród " + created.size() + " utworzonych");
+        }
+        return overlaps;
+    }
+
+    private static long countOverlaps(List<Appointment> appointments, Function<Appointment, ObjectId> owner) {
+        long overlaps = 0;
+        for (List<Appointment> ofOwner : appointments.stream().collect(Collectors.groupingBy(owner)).values()) {
+            List<Appointment> sorted = ofOwner.stream().sorted(Comparator.comparing(Appointment::getDate)).toList();
+            for (int i = 1; i < sorted.size(); i++) {
+                Duration gap = Duration.between(sorted.get(i - 1).getDate(), sorted.get(i).getDate());
+                if (gap.compareTo(AppointmentIntervalIndex.APPOINTMENT_DURATION) < 0) overlaps++;
+            }
+        }
+        return overlaps;
+    }
+
+    /**
+     * Tabela ekranów: liczba operacji, średni czas, kilobajty zaalokowane na operację i czas budowania kodeków
+     * (po rozgrzewce kodeki są już w rejestrze, więc niezerowy czas oznacza rejestr lub kodek tworzony na nowo).
+     */
+    private void reportScreens() {
+        Map<String, OperationStats> screens = new LinkedHashMap<>();
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats s = entry.getValue();
+            OperationStats screen = screens.computeIfAbsent(entry.getKey().getScreen(), name -> new OperationStats());
+            screen.succeeded.add(s.latency.getTotalCount());
+            screen.totalNanos.add(s.totalNanos.sum());
+            screen.allocatedBytes.add(s.allocatedBytes.sum());
+            screen.measuredAllocations.add(s.measuredAllocations.sum());
+            screen.codecNanos.add(s.codecNanos.sum());
+        }
+
+        System.out.println();
+        System.out.printf("%-16s %10s %10s %10s %12s%n", "ekran", "operacje", "śr. ms", "KB/op", "kodeki µs/op");
+        for (Map.Entry<String, OperationStats> entry : screens.entrySet()) {
+            OperationStats s = entry.getValue();
+            long count = s.succeeded.sum();
+            long measured = s.measuredAllocations.sum();
+            System.out.printf("%-16s %10d %10.2f %10s %12.1f%n", entry.getKey(), count,
+                    count == 0 ? 0 : s.totalNanos.sum() / NANOS_PER_MILLI / count,
+                    measured == 0 ? "n/d" : String.format("%.1f", s.allocatedBytes.sum() / 1024.0 / measured),
+                    count == 0 ? 0 : s.codecNanos.sum() / 1_000.0 / count);
+        }
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        RepositoryContext repositories = MongoDatabaseConnector.repositories();
+        if (repositories == null) {
+            System.err.println("[ERROR] Brak połączenia z bazą danych – test obciążenia przerwany");
+            return;
+        }
+        try {
+            BookingLoadTest test = new BookingLoadTest(repositories, Config.fromArgs(args));
+            test.run();
+            test.report();
+            test.verifyNoOverlaps();
+            test.cleanUp();
+        } finally {
+            MongoDatabaseConnector.close();
+        }
+    }
+}
@@ -152,6 +152,16 @@ public class Appointment {
             return this;
         }
 
+        public Builder patientId(ObjectId patientId) {
+            this.patientId = patientId;
+            return this;
+        }
+
+        public Builder doctorId(ObjectId doctorId) {
+            this.doctorId = doctorId;
+            return this;
+        }
+
         public Builder date(LocalDateTime date) {
             this.date = date;
             return this;
@@ -177,7 +187,7 @@ public class Appointment {
          */
         public Appointment build() {
             Appointment appointment = new Appointment();
-            appointment.setId(id);
+            appointment.setId(id != null ? id : new ObjectId());
             appointment.setPatientId(patientId);
             appointment.setDoctorId(doctorId);
             appointment.setDate(date);
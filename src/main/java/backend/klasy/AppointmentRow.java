@@ -0,0 +1,88 @@
+package backend.klasy;
+
+import backend.status.AppointmentStatus;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+
+/**
+ * Klasa {@code AppointmentRow} to wiersz tabeli wizyt z już rozwiązanymi referencjami
+ * do lekarza, pacjenta i sali. Dzięki temu komórki tabeli nie odpytują bazy danych.
+ * Lekarz i pacjent przechowywani są jako lekkie podsumowania ({@link DoctorSummary}, {@link PatientSummary}).
+ */
+public class AppointmentRow {
+
+    private final Appointment appointment;
+    private final DoctorSummary doctor;
+    private final PatientSummary patient;
+    private final Room room;
+
+    /**
+     * Tworzy wiersz wizyty.
+     *
+     * @param appointment wizyta
+     * @param doctor      lekarz przypisany do wizyty (może być null, jeśli nie istnieje)
+     * @param patient     pacjent przypisany do wizyty (może być null, jeśli nie istnieje)
+     * @param room        sala wizyty (może być null, jeśli nie istnieje)
+     */
+    public AppointmentRow(Appointment appointment, DoctorSummary doctor, PatientSummary patient, Room room) {
+        if (appointment == null) throw new IllegalArgumentException("Wizyta nie może być nullem");
+        this.appointment = appointment;
+        this.doctor = doctor;
+        this.patient = patient;
+        this.room = room;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public ObjectId getId() {
+        return appointment.getId();
+    }
+
+    public LocalDateTime getDate() {
+        return appointment.getDate();
+    }
+
+    public String getDescription() {
+        return appointment.getDescription();
+    }
+
+    public AppointmentStatus getStatus() {
+        return appointment.getStatus();
+    }
+
+    public DoctorSummary getDoctor() {
+        return doctor;
+    }
+
+    public PatientSummary getPatient() {
+        return patient;
+    }
+
+    public Room getRoom() {
+        return room;
+    }
+
+    /**
+     * Zwraca imię i nazwisko lekarza lub tekst zastępczy.
+     */
+    public String getDoctorName() {
+        return doctor != null ? doctor.getFirstName() + " " + doctor.getLastName() : "Nieznany lekarz";
+    }
+
+    /**
+     * Zwraca imię i nazwisko pacjenta lub tekst zastępczy.
+     */
+    public String getPatientName() {
+        return patient != null ? patient.getFirstName() + " " + patient.getLastName() : "Nieznany pacjent";
+    }
+
+    /**
+     * Zwraca uproszczony opis sali lub tekst zastępczy.
+     */
+    public String getRoomLabel() {
+        return room != null ? room.toString2() : "Nieznana sala";
+    }
+}
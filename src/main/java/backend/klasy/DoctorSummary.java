@@ -0,0 +1,93 @@
+package backend.klasy;
+
+import backend.status.Day;
+import backend.status.Specialization;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+
+/**
+ * Klasa {@code DoctorSummary} to lekki model lekarza do list, tabel i pól wyboru.
+ * <p>
+ * Zawiera tylko pola wyświetlane w interfejsie – bez hasła, soli, PESEL-u ani daty urodzenia.
+ * Odczytywana z bazy z projekcją, więc po sieci przesyłane są wyłącznie te pola.
+ * Do edycji danych lekarza należy pobrać pełny obiekt {@link Doctor}.
+ * </p>
+ */
+public class DoctorSummary {
+
+    private final ObjectId id;
+    private final String firstName;
+    private final String lastName;
+    private final Specialization specialization;
+    private final List<Day> availableDays;
+    private final String room;
+    private final String contactInformation;
+
+    public DoctorSummary(ObjectId id, String firstName, String lastName, Specialization specialization,
+                         List<Day> availableDays, String room, String contactInformation) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.specialization = specialization;
+        this.availableDays = availableDays != null ? List.copyOf(availableDays) : List.of();
+        this.room = room;
+        this.contactInformation = contactInformation;
+    }
+
+    /**
+     * Tworzy podsumowanie z pełnego obiektu lekarza (np. z pamięci podręcznej lub strumienia zmian).
+     */
+    public static DoctorSummary of(Doctor doctor) {
+        return new DoctorSummary(doctor.getId(), doctor.getFirstName(), doctor.getLastName(), doctor.getSpecialization(),
+                doctor.getAvailableDays(), doctor.getRoom(), doctor.getContactInformation());
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public Specialization getSpecialization() {
+        return specialization;
+    }
+
+    public List<Day> getAvailableDays() {
+        return availableDays;
+    }
+
+    public String getRoom() {
+        return room;
+    }
+
+    public String getContactInformation() {
+        return contactInformation;
+    }
+
+    /**
+     * Porównuje podsumowania na podstawie identyfikatora lekarza.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DoctorSummary)) return false;
+        return id != null && id.equals(((DoctorSummary) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return firstName + " " + lastName + " (" + (specialization != null ? specialization.getDescription() : "") + ")";
+    }
+}
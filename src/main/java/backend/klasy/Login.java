@@ -1,6 +1,7 @@
 package backend.klasy;
 
 import backend.mongo.*;
+import backend.status.Specialization;
 
 import java.util.Optional;
 
@@ -26,17 +27,25 @@ public class Login {
 
     private final DoctorRepository doctorRepo;
     private final PatientRepository patientRepo;
+    private final CredentialRepository credentialRepo;
 
     private Doctor authenticatedDoctor;
     private Patient authenticatedPatient;
 
     /**
-     * Konstruktor tworzy instancję klasy {@code Login} i inicjalizuje repozytoria na podstawie połączenia z bazą danych MongoDB.
+     * Konstruktor tworzy instancję klasy {@code Login} korzystającą ze wspólnych repozytoriów aplikacji.
      */
     public Login() {
-        var db = MongoDatabaseConnector.connectToDatabase();
-        this.doctorRepo = new DoctorRepository(db);
-        this.patientRepo = new PatientRepository(db);
+        this(MongoDatabaseConnector.repositories());
+    }
+
+    /**
+     * @param repositories wspólny kontekst repozytoriów
+     */
+    public Login(RepositoryContext repositories) {
+        this.doctorRepo = repositories.doctors();
+        this.patientRepo = repositories.patients();
+        this.credentialRepo = repositories.credentials();
     }
 
     /**
@@ -62,29 +71,25 @@ public class Login {
             return null;
         }
 
-        // Próba logowania jako lekarz
-        Optional<Doctor> doc = doctorRepo.findAll().stream()
-                .filter(d -> d.getPesel() == pesel)
-                .findFirst();
-        if (doc.isPresent()) {
-            doc.get().reconstructPasswordObject();
-            if (doc.get().getPassword().verify(password)) {
-                authenticatedDoctor = doc.get();
-                return doc.get().isFirstContact() ? Role.DOCTOR_FIRST : Role.DOCTOR;
-            }
+        // Jedno zapytanie po indeksie PESEL w kolekcjach lekarzy i pacjentów
+        CredentialRepository.Credentials credentials = credentialRepo.findByPesel(pesel);
+        if (credentials == null || !credentials.verify(password)) {
             return null;
         }
 
-        // Próba logowania jako pacjent
-        Optional<Patient> pat = patientRepo.findAll().stream()
-                .filter(p -> p.getPesel() == pesel)
-                .findFirst();
+        if (credentials.isDoctor()) {
+            Doctor doctor = doctorRepo.findDoctorById(credentials.getId());
+            if (doctor == null) return null;
+            doctor.reconstructPasswordObject();
+            authenticatedDoctor = doctor;
+            return credentials.getSpecialization() == Specialization.FIRST_CONTACT ? Role.DOCTOR_FIRST : Role.DOCTOR;
+        }
+
+        Optional<Patient> pat = patientRepo.findPatientById(credentials.getId()).stream().findFirst();
         if (pat.isPresent()) {
             pat.get().reconstructPasswordObject();
-            if (pat.get().getPassword().verify(password)) {
-                authenticatedPatient = pat.get();
-                return Role.PATIENT;
-            }
+            authenticatedPatient = pat.get();
+            return Role.PATIENT;
         }
 
         return null;
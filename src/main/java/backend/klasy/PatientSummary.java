@@ -0,0 +1,92 @@
+package backend.klasy;
+
+import backend.status.Diagnosis;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+
+/**
+ * Klasa {@code PatientSummary} to lekki model pacjenta do list i tabel.
+ * <p>
+ * Zawiera tylko pola wyświetlane w interfejsie – bez hasła, soli ani obiektu {@link Password}.
+ * Odczytywana z bazy z projekcją, więc po sieci przesyłane są wyłącznie te pola.
+ * Do edycji danych pacjenta należy pobrać pełny obiekt {@link Patient}.
+ * </p>
+ */
+public class PatientSummary {
+
+    private final ObjectId id;
+    private final String firstName;
+    private final String lastName;
+    private final long pesel;
+    private final LocalDate birthDate;
+    private final String address;
+    private final Diagnosis diagnosis;
+
+    public PatientSummary(ObjectId id, String firstName, String lastName, long pesel,
+                          LocalDate birthDate, String address, Diagnosis diagnosis) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.pesel = pesel;
+        this.birthDate = birthDate;
+        this.address = address;
+        this.diagnosis = diagnosis;
+    }
+
+    /**
+     * Tworzy podsumowanie z pełnego obiektu pacjenta (np. z pamięci podręcznej lub strumienia zmian).
+     */
+    public static PatientSummary of(Patient patient) {
+        return new PatientSummary(patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getPesel(),
+                patient.getBirthDate(), patient.getAddress(), patient.getDiagnosis());
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public long getPesel() {
+        return pesel;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public Diagnosis getDiagnosis() {
+        return diagnosis;
+    }
+
+    /**
+     * Porównuje podsumowania na podstawie identyfikatora pacjenta.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PatientSummary)) return false;
+        return id != null && id.equals(((PatientSummary) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return firstName + " " + lastName + " (" + pesel + ")";
+    }
+}
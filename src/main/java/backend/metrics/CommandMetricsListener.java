@@ -0,0 +1,132 @@
+package backend.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mierzy czas każdego polecenia wysłanego przez sterownik i zapisuje go w {@link MongoMetrics}
+ * pod kluczem „polecenie kolekcja” (np. {@code find patients}, {@code aggregate appointments}).
+ * Zapytania trafiają dodatkowo do {@link SlowQueryLog} ze swoim znormalizowanym kształtem.
+ * <p>
+ * Nazwa kolekcji jest tylko w zdarzeniu rozpoczęcia, a czas trwania – w zdarzeniu zakończenia,
+ * dlatego klucz zapamiętywany jest na czas trwania polecenia pod jego {@code requestId}.
+ * Kolejne porcje kursora ({@code getMore}) są doliczane do kształtu zapytania, które kursor otworzyło.
+ * </p>
+ */
+class CommandMetricsListener implements CommandListener {
+
+    private static final String NO_COLLECTION = "-";
+    private static final int OPEN_CURSORS_LIMIT = 10_000;
+
+    private final Map<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, QueryShape> openCursors = new ConcurrentHashMap<>();
+
+    /**
+     * Polecenie w trakcie wykonania: klucz metryki, kształt zapytania (lub {@code null})
+     * i – dla {@code getMore} – identyfikator kontynuowanego kursora.
+     */
+    private static final class InFlight {
+        private final String key;
+        private final QueryShape shape;
+        private final long continuedCursor;
+
+        private InFlight(String key, QueryShape shape, long continuedCursor) {
+            this.key = key;
+            this.shape = shape;
+            this.continuedCursor = continuedCursor;
+        }
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String name = event.getCommandName();
+        BsonDocument command = event.getCommand();
+        String collection = collectionOf(command);
+
+        QueryShape shape = null;
+        long continuedCursor = 0;
+        switch (name) {
+            case "getMore" -> {
+                continuedCursor = cursorId(command.get("getMore"));
+                shape = openCursors.get(continuedCursor);
+            }
+            case "killCursors" -> {
+                BsonValue cursors = command.get("cursors");
+                if (cursors != null && cursors.isArray()) {
+                    cursors.asArray().forEach(id -> openCursors.remove(cursorId(id)));
+                }
+            }
+            default -> shape = QueryShape.capture(event.getDatabaseName(), name, collection, command,
+                    SlowQueryLog.isExplainEnabled());
+        }
+        inFlight.put(event.getRequestId(), new InFlight(name + " " + collection, shape, continuedCursor));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        InFlight command = inFlight.remove(event.getRequestId());
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        if (command == null) {
+            MongoMetrics.command(event.getCommandName() + " " + NO_COLLECTION).record(nanos);
+            return;
+        }
+        MongoMetrics.command(command.key).record(nanos);
+        if (command.shape == null) return;
+
+        BsonDocument response = event.getResponse();
+        long docs = SlowQueryLog.returnedDocuments(event.getCommandName(), response);
+        if (command.continuedCursor != 0) {
+            SlowQueryLog.recordContinuation(command.shape, nanos, docs);
+        } else {
+            SlowQueryLog.record(command.shape, nanos, docs);
+        }
+        trackCursor(command, response);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        InFlight command = inFlight.remove(event.getRequestId());
+        String key = command != null ? command.key : event.getCommandName() + " " + NO_COLLECTION;
+        MongoMetrics.command(key).recordFailure(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        MongoMetrics.commandFailedOnCurrentThread();
+    }
+
+    /**
+     * Zapamiętuje otwarty kursor do czasu, aż serwer zwróci identyfikator 0 (kursor wyczerpany).
+     * Limit chroni przed wyciekiem, gdy kursory nie są domykane.
+     */
+    private void trackCursor(InFlight command, BsonDocument response) {
+        if (response == null || !response.isDocument("cursor")) return;
+        long id = cursorId(response.getDocument("cursor").get("id"));
+        if (id == 0) {
+            if (command.continuedCursor != 0) openCursors.remove(command.continuedCursor);
+        } else if (openCursors.size() < OPEN_CURSORS_LIMIT) {
+            openCursors.put(id, command.shape);
+        }
+    }
+
+    private static long cursorId(BsonValue value) {
+        return value != null && value.isNumber() ? value.asNumber().longValue() : 0;
+    }
+
+    /**
+     * Polecenia CRUD mają nazwę kolekcji jako wartość pierwszego pola ({@code {find: "patients", ...}}),
+     * {@code getMore} – w polu {@code collection}; polecenia administracyjne nie mają kolekcji.
+     */
+    private static String collectionOf(BsonDocument command) {
+        if (command == null || command.isEmpty()) return NO_COLLECTION;
+        BsonValue first = command.get(command.getFirstKey());
+        if (first != null && first.isString()) return first.asString().getValue();
+        BsonValue collection = command.get("collection");
+        if (collection != null && collection.isString()) return collection.asString().getValue();
+        return NO_COLLECTION;
+    }
+}
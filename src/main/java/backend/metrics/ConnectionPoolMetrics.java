@@ -0,0 +1,139 @@
+package backend.metrics;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClearedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Śledzi pulę połączeń: liczbę otwartych i wypożyczonych połączeń, kolejkę oczekujących wątków
+ * oraz czas oczekiwania na połączenie. Długie oczekiwanie oznacza, że pula jest za mała
+ * dla liczby równoległych zapytań – opóźnienie nie wynika wtedy z pracy serwera.
+ * <p>
+ * Sterownik synchroniczny pobiera połączenie w wątku wywołującym, więc początek oczekiwania
+ * zapamiętywany jest w zmiennej wątku.
+ * </p>
+ */
+class ConnectionPoolMetrics implements ConnectionPoolListener, ConnectionPoolMetricsMXBean {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger checkedOut = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder checkOutFailed = new LongAdder();
+    private final LongAdder poolCleared = new LongAdder();
+    private final LatencyHistogram checkOutWait = new LatencyHistogram();
+    private final ThreadLocal<Long> checkOutStarted = new ThreadLocal<>();
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        open.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        open.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waiting.incrementAndGet();
+        checkOutStarted.set(System.nanoTime());
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        checkedOut.incrementAndGet();
+        finishWaiting();
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        checkOutFailed.increment();
+        finishWaiting();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOut.decrementAndGet();
+    }
+
+    @Override
+    public void connectionPoolCleared(ConnectionPoolClearedEvent event) {
+        poolCleared.increment();
+    }
+
+    private void finishWaiting() {
+        Long started = checkOutStarted.get();
+        if (started == null) return;
+        checkOutStarted.remove();
+        waiting.decrementAndGet();
+        checkOutWait.record(System.nanoTime() - started);
+    }
+
+    @Override
+    public int getOpenConnections() {
+        return open.get();
+    }
+
+    @Override
+    public int getCheckedOutConnections() {
+        return checkedOut.get();
+    }
+
+    @Override
+    public int getWaitingThreads() {
+        return waiting.get();
+    }
+
+    @Override
+    public long getCheckOutCount() {
+        return checkOutWait.getTotalCount();
+    }
+
+    @Override
+    public long getCheckOutFailedCount() {
+        return checkOutFailed.sum();
+    }
+
+    @Override
+    public long getPoolClearedCount() {
+        return poolCleared.sum();
+    }
+
+    @Override
+    public double getCheckOutWaitP50Millis() {
+        return checkOutWait.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getCheckOutWaitP99Millis() {
+        return checkOutWait.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getCheckOutWaitMaxMillis() {
+        return checkOutWait.getMaxValue() / NANOS_PER_MILLI;
+    }
+
+    void writeDistribution(PrintStream out) {
+        out.printf("# connection check-out wait: open=%d, checkedOut=%d, failed=%d, cleared=%d, unit=ms%n",
+                getOpenConnections(), getCheckedOutConnections(), getCheckOutFailedCount(), getPoolClearedCount());
+        checkOutWait.outputPercentileDistribution(out, NANOS_PER_MILLI);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pula połączeń: otwarte=%d, zajęte=%d, oczekiwanie p99=%.2f ms, nieudane=%d",
+                getOpenConnections(), getCheckedOutConnections(), getCheckOutWaitP99Millis(), getCheckOutFailedCount());
+    }
+}
@@ -0,0 +1,37 @@
+package backend.metrics;
+
+/**
+ * Widok JMX stanu puli połączeń sterownika MongoDB.
+ */
+public interface ConnectionPoolMetricsMXBean {
+
+    /**
+     * @return liczba otwartych połączeń (wolnych i zajętych)
+     */
+    int getOpenConnections();
+
+    /**
+     * @return liczba połączeń aktualnie wypożyczonych przez wątki aplikacji
+     */
+    int getCheckedOutConnections();
+
+    /**
+     * @return liczba wątków czekających na wolne połączenie
+     */
+    int getWaitingThreads();
+
+    long getCheckOutCount();
+
+    /**
+     * @return liczba nieudanych prób pobrania połączenia (np. przekroczony czas oczekiwania)
+     */
+    long getCheckOutFailedCount();
+
+    long getPoolClearedCount();
+
+    double getCheckOutWaitP50Millis();
+
+    double getCheckOutWaitP99Millis();
+
+    double getCheckOutWaitMaxMillis();
+}
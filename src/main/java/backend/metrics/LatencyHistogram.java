@@ -0,0 +1,195 @@
+package backend.metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram opóźnień w układzie log-liniowym, zgodny z ideą HdrHistogram.
+ * <p>
+ * Wartości (w nanosekundach) trafiają do kubełków o stałej względnej szerokości: każdy przedział
+ * {@code [2^k, 2^(k+1))} podzielony jest na 128 równych części, więc błąd względny wyniku nie przekracza ~0,8%
+ * niezależnie od tego, czy opóźnienie wynosi mikrosekundę, czy minutę. Zapis to jeden {@code incrementAndGet}
+ * na tablicy liczników – histogram może być współdzielony przez wiele wątków bez blokad.
+ * </p>
+ * <p>
+ * Zakres kubełków kończy się na godzinie ({@link #HIGHEST_TRACKABLE_VALUE}); dłuższe pomiary trafiają do ostatniego
+ * kubełka, a dokładną wartość zachowuje tylko maksimum. Tablica liczników ma dzięki temu ok. 4,6 tys. pozycji
+ * (~37 KB), a odczyty percentyli przeglądają ją tylko do kubełka największego pomiaru.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    /**
+     * Największa rozróżniana wartość: godzina w nanosekundach.
+     */
+    public static final long HIGHEST_TRACKABLE_VALUE = 3_600_000_000_000L;
+
+    private static final int SUB_BUCKET_HALF_COUNT = 128;
+    private static final int SUB_BUCKET_COUNT = 2 * SUB_BUCKET_HALF_COUNT;
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int COUNTS_LENGTH = indexOf(HIGHEST_TRACKABLE_VALUE) + 1;
+    private static final int BUCKET_COUNT = COUNTS_LENGTH / SUB_BUCKET_HALF_COUNT - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(COUNTS_LENGTH);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Zapisuje pojedynczy pomiar.
+     *
+     * @param nanos czas trwania w nanosekundach (wartości ujemne traktowane są jak 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        // Maksimum przed licznikiem: odczyty przeglądają kubełki tylko do kubełka maksimum
+        maxValue.accumulateAndGet(value, Math::max);
+        counts.incrementAndGet(indexOf(Math.min(value, HIGHEST_TRACKABLE_VALUE)));
+        totalCount.incrementAndGet();
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * Zwraca wartość, poniżej której (włącznie) leży podany procent pomiarów.
+     *
+     * @param percentile percentyl w zakresie 0–100
+     * @return górna granica kubełka zawierającego percentyl (w nanosekundach) lub 0 dla pustego histogramu
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long seen = 0;
+        int last = lastUsedIndex();
+        for (int i = 0; i <= last; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(highestEquivalentValue(i), maxValue.get());
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * @return średnia w nanosekundach (liczona ze środków kubełków)
+     */
+    public double getMean() {
+        long total = totalCount.get();
+        if (total == 0) return 0;
+        double sum = 0;
+        int last = lastUsedIndex();
+        for (int i = 0; i <= last; i++) {
+            long count = counts.get(i);
+            if (count > 0) sum += count * medianEquivalentValue(i);
+        }
+        return sum / total;
+    }
+
+    /**
+     * @return odchylenie standardowe w nanosekundach
+     */
+    public double getStdDeviation() {
+        long total = totalCount.get();
+        if (total == 0) return 0;
+        double mean = getMean();
+        double squares = 0;
+        int last = lastUsedIndex();
+        for (int i = 0; i <= last; i++) {
+            long count = counts.get(i);
+            if (count > 0) {
+                double deviation = medianEquivalentValue(i) - mean;
+                squares += count * deviation * deviation;
+            }
+        }
+        return Math.sqrt(squares / total);
+    }
+
+    /**
+     * Wypisuje rozkład percentyli w formacie pliku {@code .hgrm} (jak {@code outputPercentileDistribution}
+     * z HdrHistogram), dzięki czemu wynik można wczytać do istniejących narzędzi do wykresów.
+     *
+     * @param out          strumień wyjściowy
+     * @param scalingRatio dzielnik wartości (np. 1e6 dla milisekund)
+     */
+    public void outputPercentileDistribution(PrintStream out, double scalingRatio) {
+        long total = totalCount.get();
+        out.println("       Value     Percentile TotalCount 1/(1-Percentile)");
+        out.println();
+
+        if (total > 0) {
+            int ticksPerHalfDistance = 5;
+            int lastHalving = 64 - Long.numberOfLeadingZeros(total) + 1;
+            double percentile = 0;
+            for (int halving = 0; halving <= lastHalving; ) {
+                printLine(out, percentile, scalingRatio, total);
+                double remaining = 100.0 / (1L << (halving + 1));
+                percentile += remaining / ticksPerHalfDistance;
+                if (percentile >= 100.0 - remaining - 1e-9) halving++;
+            }
+            printLine(out, 100.0, scalingRatio, total);
+        }
+
+        out.printf("#[Mean    = %12.3f, StdDeviation   = %12.3f]%n", getMean() / scalingRatio, getStdDeviation() / scalingRatio);
+        out.printf("#[Max     = %12.3f, Total count    = %12d]%n", maxValue.get() / scalingRatio, total);
+        out.printf("#[Buckets = %12d, SubBuckets     = %12d]%n", BUCKET_COUNT, SUB_BUCKET_COUNT);
+    }
+
+    private void printLine(PrintStream out, double percentile, double scalingRatio, long total) {
+        long value = getValueAtPercentile(percentile);
+        long countAtValue = countAtOrBelow(value);
+        double fraction = percentile / 100.0;
+        if (fraction < 1.0) {
+            out.printf("%12.3f %2.12f %10d %14.2f%n", value / scalingRatio, fraction, countAtValue, 1 / (1 - fraction));
+        } else {
+            out.printf("%12.3f %2.12f %10d%n", value / scalingRatio, fraction, total);
+        }
+    }
+
+    private long countAtOrBelow(long value) {
+        int last = indexOf(Math.min(value, HIGHEST_TRACKABLE_VALUE));
+        long seen = 0;
+        for (int i = 0; i <= last; i++) seen += counts.get(i);
+        return seen;
+    }
+
+    /**
+     * Ostatni kubełek, w którym mogą być pomiary – kubełek maksimum; dalsze liczniki są zerowe.
+     */
+    private int lastUsedIndex() {
+        return indexOf(Math.min(maxValue.get(), HIGHEST_TRACKABLE_VALUE));
+    }
+
+    /**
+     * Indeks kubełka: wartości poniżej 256 mają własne liczniki, większe – kubełek (wykładnik)
+     * i jedną ze 128 części w jego obrębie.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+        int bucket = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> bucket);
+        return bucket * SUB_BUCKET_HALF_COUNT + subBucket;
+    }
+
+    private static long lowestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+        int bucket = index / SUB_BUCKET_HALF_COUNT - 1;
+        long subBucket = index - (long) bucket * SUB_BUCKET_HALF_COUNT;
+        return subBucket << bucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+        int bucket = index / SUB_BUCKET_HALF_COUNT - 1;
+        return lowestEquivalentValue(index) + (1L << bucket) - 1;
+    }
+
+    private static double medianEquivalentValue(int index) {
+        return (lowestEquivalentValue(index) + highestEquivalentValue(index)) / 2.0;
+    }
+}
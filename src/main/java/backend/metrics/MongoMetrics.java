@@ -0,0 +1,286 @@
+package backend.metrics;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.ConnectionPoolListener;
+import org.bson.codecs.configuration.CodecProvider;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metryki dostępu do bazy: czas każdego polecenia MongoDB (per polecenie i kolekcja), czas publicznych
+ * metod repozytoriów oraz stan puli połączeń.
+ * <p>
+ * Każda operacja ma własny {@link LatencyHistogram} i jest widoczna w JMX (np. w JConsole lub VisualVM)
+ * w domenie {@code backend} – typy {@code MongoCommand}, {@code Repository} i {@code ConnectionPool}.
+ * Porównanie czasu metody repozytorium z czasem jej poleceń pokazuje, czy koszt leży po stronie serwera,
+ * czy w aplikacji (dekodowanie, pętle, kolejne zapytania). Rozkłady można zapisać do pliku
+ * metodą {@link #dump(Path)} lub operacją JMX {@code dumpToFile}.
+ * </p>
+ * <p>
+ * Typ {@code Screen} opisuje koszt otwierania ekranów ({@link #screen(String)}): czas, alokacje wątku
+ * i czas budowania kodeków przez dostawcę z {@link #timedCodecProvider(CodecProvider)}.
+ * </p>
+ */
+public final class MongoMetrics {
+
+    private static final String DOMAIN = "backend";
+
+    private static final Map<String, OperationMetrics> COMMANDS = new ConcurrentHashMap<>();
+    private static final Map<String, OperationMetrics> REPOSITORY_METHODS = new ConcurrentHashMap<>();
+    private static final Map<String, ScreenMetrics> SCREENS = new ConcurrentHashMap<>();
+    private static final CommandMetricsListener COMMAND_LISTENER = new CommandMetricsListener();
+    private static final ConnectionPoolMetrics CONNECTION_POOL = new ConnectionPoolMetrics();
+
+    /**
+     * Liczba nieudanych poleceń MongoDB wykonanych przez bieżący wątek – sterownik synchroniczny zgłasza
+     * zdarzenia poleceń w wątku wywołującym, więc {@link Timer} wie, czy w trakcie pomiaru któreś polecenie zawiodło.
+     */
+    private static final ThreadLocal<long[]> FAILED_COMMANDS = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Łączny czas budowania kodeków w bieżącym wątku [0] i głębokość zagnieżdżenia wywołań dostawcy [1].
+     */
+    private static final ThreadLocal<long[]> CODEC_INTROSPECTION = ThreadLocal.withInitial(() -> new long[2]);
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    static {
+        register(objectName("Metrics", "MongoMetrics"), new Control());
+        register(objectName("ConnectionPool", "default"), CONNECTION_POOL);
+    }
+
+    private MongoMetrics() {
+    }
+
+    /**
+     * Pomiar czasu metody repozytorium, zamykany w bloku try-with-resources:
+     * <pre>{@code
+     * try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findAll")) {
+     *     return collection.find().into(new ArrayList<>());
+     * }
+     * }</pre>
+     * Wywołanie, w którym zawiodło polecenie MongoDB (także przechwycone i obsłużone w repozytorium),
+     * liczone jest jako nieudane ({@link OperationMetricsMXBean#getFailedCount()}).
+     */
+    public static final class Timer implements AutoCloseable {
+        private final OperationMetrics metrics;
+        private final long[] failedCommands = FAILED_COMMANDS.get();
+        private final long failedAtStart = failedCommands[0];
+        private final long startedAt = System.nanoTime();
+
+        private Timer(OperationMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - startedAt;
+            if (failedCommands[0] != failedAtStart) metrics.recordFailure(elapsed);
+            else metrics.record(elapsed);
+        }
+    }
+
+    /**
+     * Pomiar otwarcia ekranu, zamykany w bloku try-with-resources wokół kodu budującego ekran w wątku FX.
+     * Zapytania uruchamiane przez ekran w tle nie wliczają się do pomiaru – mierzone są osobno jako metody repozytoriów.
+     */
+    public static final class ScreenTimer implements AutoCloseable {
+        private final ScreenMetrics metrics;
+        private final long allocatedAtStart = allocatedBytes();
+        private final long codecNanosAtStart = codecIntrospectionNanos();
+        private final long startedAt = System.nanoTime();
+
+        private ScreenTimer(ScreenMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - startedAt;
+            long allocatedAtEnd = allocatedBytes();
+            long allocated = allocatedAtStart < 0 || allocatedAtEnd < 0 ? -1 : allocatedAtEnd - allocatedAtStart;
+            metrics.record(elapsed, allocated, codecIntrospectionNanos() - codecNanosAtStart);
+        }
+    }
+
+    /**
+     * Rozpoczyna pomiar otwarcia ekranu.
+     *
+     * @param screen nazwa ekranu, np. {@code DoctorPanel}
+     */
+    public static ScreenTimer screen(String screen) {
+        return new ScreenTimer(SCREENS.computeIfAbsent(screen, name -> register("Screen", name, new ScreenMetrics(name))));
+    }
+
+    /**
+     * Opakowuje dostawcę kodeków tak, aby czas budowania kodeków trafiał do pomiarów ekranów.
+     *
+     * @param provider dostawca, np. {@code PojoCodecProvider}
+     */
+    public static CodecProvider timedCodecProvider(CodecProvider provider) {
+        return new TimedCodecProvider(provider);
+    }
+
+    /**
+     * @return łączny czas (ns) budowania kodeków przez dostawców z {@link #timedCodecProvider(CodecProvider)}
+     * w bieżącym wątku
+     */
+    public static long codecIntrospectionNanos() {
+        return CODEC_INTROSPECTION.get()[0];
+    }
+
+    /**
+     * @return liczba bajtów zaalokowanych dotąd przez bieżący wątek albo -1, gdy JVM tego nie mierzy
+     */
+    public static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    static long[] codecIntrospection() {
+        return CODEC_INTROSPECTION.get();
+    }
+
+    /**
+     * Rozpoczyna pomiar metody repozytorium.
+     *
+     * @param method nazwa w postaci {@code Klasa.metoda}
+     */
+    public static Timer time(String method) {
+        return new Timer(REPOSITORY_METHODS.computeIfAbsent(method, name -> create("Repository", name)));
+    }
+
+    /**
+     * @return nasłuchiwacz poleceń do {@code MongoClientSettings.Builder#addCommandListener}
+     */
+    public static CommandListener commandListener() {
+        return COMMAND_LISTENER;
+    }
+
+    /**
+     * @return nasłuchiwacz puli połączeń do {@code ConnectionPoolSettings.Builder#addConnectionPoolListener}
+     */
+    public static ConnectionPoolListener connectionPoolListener() {
+        return CONNECTION_POOL;
+    }
+
+    /**
+     * Odnotowuje nieudane polecenie w bieżącym wątku (wywoływane przez {@link CommandMetricsListener}).
+     */
+    static void commandFailedOnCurrentThread() {
+        FAILED_COMMANDS.get()[0]++;
+    }
+
+    static OperationMetrics command(String key) {
+        return COMMANDS.computeIfAbsent(key, name -> create("MongoCommand", name));
+    }
+
+    /**
+     * Zapisuje rozkłady opóźnień wszystkich poleceń, metod repozytoriów i oczekiwania na połączenie
+     * w formacie {@code .hgrm} (wartości w milisekundach), a na końcu tabelę kształtów zapytań.
+     *
+     * @param file plik wynikowy (nadpisywany)
+     */
+    public static void dump(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            out.println("# Metryki MongoDB z " + LocalDateTime.now());
+            for (OperationMetrics metrics : new TreeMap<>(COMMANDS).values()) {
+                out.println();
+                metrics.writeDistribution(out, "MongoCommand");
+            }
+            for (OperationMetrics metrics : new TreeMap<>(REPOSITORY_METHODS).values()) {
+                out.println();
+                metrics.writeDistribution(out, "Repository");
+            }
+            for (ScreenMetrics metrics : new TreeMap<>(SCREENS).values()) {
+                out.println();
+                metrics.writeDistribution(out);
+            }
+            out.println();
+            CONNECTION_POOL.writeDistribution(out);
+            out.println();
+            SlowQueryLog.writeTable(out);
+        }
+        System.out.println("[SUCCESS] Metryki MongoDB zapisano do " + file.toAbsolutePath());
+    }
+
+    /**
+     * Wypisuje krótkie podsumowanie: pulę połączeń, koszt otwierania ekranów i dziesięć poleceń o najwyższym p99.
+     */
+    public static void printSummary() {
+        System.out.println("[INFO] Metryki: " + CONNECTION_POOL);
+        new TreeMap<>(SCREENS).values().forEach(metrics -> System.out.println("[INFO] Ekran: " + metrics));
+        COMMANDS.values().stream()
+                .sorted((a, b) -> Double.compare(b.getP99Millis(), a.getP99Millis()))
+                .limit(10)
+                .forEach(metrics -> System.out.println("[INFO] Metryki: " + metrics));
+    }
+
+    private static OperationMetrics create(String type, String name) {
+        return register(type, name, new OperationMetrics(name));
+    }
+
+    private static <M> M register(String type, String name, M metrics) {
+        register(objectName(type, name), metrics);
+        return metrics;
+    }
+
+    private static ObjectName objectName(String type, String name) {
+        try {
+            return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Niepoprawna nazwa metryki: " + name, e);
+        }
+    }
+
+    /**
+     * Rejestruje obiekt w serwerze MBean. Błąd rejestracji nie przerywa pracy – metryki nadal są zbierane
+     * i trafiają do pliku, tylko nie są widoczne w JMX.
+     */
+    private static void register(ObjectName name, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(bean, name);
+        } catch (JMException | RuntimeException e) {
+            System.err.println("[ERROR] Nie udało się zarejestrować metryki " + name + " w JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obiekt JMX z operacjami na całym zbiorze metryk.
+     */
+    private static final class Control implements MongoMetricsMXBean {
+
+        @Override
+        public String[] getOperationNames() {
+            TreeSet<String> names = new TreeSet<>();
+            COMMANDS.keySet().forEach(name -> names.add("MongoCommand " + name));
+            REPOSITORY_METHODS.keySet().forEach(name -> names.add("Repository " + name));
+            SCREENS.keySet().forEach(name -> names.add("Screen " + name));
+            return names.toArray(new String[0]);
+        }
+
+        @Override
+        public void dumpToFile(String path) throws IOException {
+            dump(Path.of(path));
+        }
+    }
+}
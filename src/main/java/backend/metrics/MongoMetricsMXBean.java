@@ -0,0 +1,21 @@
+package backend.metrics;
+
+import java.io.IOException;
+
+/**
+ * Operacje JMX na całym zbiorze metryk.
+ */
+public interface MongoMetricsMXBean {
+
+    /**
+     * @return nazwy operacji, dla których zebrano pomiary
+     */
+    String[] getOperationNames();
+
+    /**
+     * Zapisuje rozkłady opóźnień wszystkich operacji do pliku.
+     *
+     * @param path ścieżka pliku wynikowego
+     */
+    void dumpToFile(String path) throws IOException;
+}
@@ -0,0 +1,89 @@
+package backend.metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram opóźnień i licznik błędów jednej operacji; rejestrowany w JMX przez {@link MongoMetrics}.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder failed = new LongAdder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Zapisuje czas udanego wywołania.
+     */
+    public void record(long nanos) {
+        latency.record(nanos);
+    }
+
+    /**
+     * Zapisuje czas nieudanego wywołania (wlicza się także do rozkładu opóźnień).
+     */
+    public void recordFailure(long nanos) {
+        latency.record(nanos);
+        failed.increment();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getTotalCount();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP95Millis() {
+        return latency.getValueAtPercentile(95) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxValue() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Wypisuje nagłówek i rozkład percentyli (w milisekundach) w formacie {@code .hgrm}.
+     */
+    void writeDistribution(PrintStream out, String type) {
+        out.printf("# %s %s: count=%d, failed=%d, unit=ms%n", type, name, getCount(), getFailedCount());
+        latency.outputPercentileDistribution(out, NANOS_PER_MILLI);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d wywołań (%d błędów), p50=%.2f ms, p99=%.2f ms, max=%.2f ms",
+                name, getCount(), getFailedCount(), getP50Millis(), getP99Millis(), getMaxMillis());
+    }
+}
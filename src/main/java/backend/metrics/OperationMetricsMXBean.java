@@ -0,0 +1,27 @@
+package backend.metrics;
+
+/**
+ * Widok JMX statystyk jednej operacji (polecenia MongoDB lub metody repozytorium).
+ * Czasy podawane są w milisekundach.
+ */
+public interface OperationMetricsMXBean {
+
+    String getName();
+
+    long getCount();
+
+    /**
+     * @return liczba nieudanych wywołań (dla metod repozytoriów – wywołań, w których zawiodło polecenie MongoDB)
+     */
+    long getFailedCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
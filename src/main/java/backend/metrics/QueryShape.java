@@ -0,0 +1,199 @@
+package backend.metrics;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Set;
+
+/**
+ * Znormalizowany „kształt” zapytania: polecenie, kolekcja i struktura filtra bez konkretnych wartości,
+ * np. {@code find appointments {room: ?}} – wszystkie wywołania {@code findAppointmentsByRoom} mają
+ * ten sam kształt niezależnie od identyfikatora sali (jak zapytania sparametryzowane w pg_stat_statements).
+ * <p>
+ * Dla kształtów, które okazały się wolne i czekają na plan ({@link SlowQueryLog#wantsCommand(String)}),
+ * przechowywana jest też kopia polecenia do {@code explain} – dokument ze zdarzenia sterownika jest ważny tylko
+ * w czasie obsługi zdarzenia. Pozostałe wykonania nie kopiują polecenia.
+ * </p>
+ */
+public final class QueryShape {
+
+    /**
+     * Polecenia zapisywane w statystykach kształtów; pozostałe (insert, polecenia administracyjne,
+     * sam explain) są pomijane.
+     */
+    private static final Set<String> QUERY_COMMANDS =
+            Set.of("find", "aggregate", "count", "distinct", "update", "delete", "findAndModify");
+
+    /**
+     * Pola dodawane przez sterownik do każdego polecenia – nie należą do zapytania i nie mogą trafić do explain.
+     */
+    private static final Set<String> DRIVER_FIELDS =
+            Set.of("lsid", "txnNumber", "autocommit", "startTransaction", "apiVersion", "apiStrict", "apiDeprecationErrors");
+
+    private final String database;
+    private final String commandName;
+    private final String collection;
+    private final String shape;
+    private final BsonDocument command;
+
+    private QueryShape(String database, String commandName, String collection, String shape, BsonDocument command) {
+        this.database = database;
+        this.commandName = commandName;
+        this.collection = collection;
+        this.shape = shape;
+        this.command = command;
+    }
+
+    /**
+     * Tworzy kształt polecenia lub zwraca {@code null}, jeśli polecenie nie jest zapytaniem.
+     *
+     * @param database    baza danych polecenia
+     * @param commandName nazwa polecenia
+     * @param collection  kolekcja
+     * @param command     dokument polecenia ze zdarzenia sterownika
+     * @param keepCommand czy explain jest włączony – kopia polecenia powstaje tylko dla kształtów czekających na plan
+     */
+    static QueryShape capture(String database, String commandName, String collection, BsonDocument command,
+                              boolean keepCommand) {
+        if (!QUERY_COMMANDS.contains(commandName) || command == null) return null;
+
+        StringBuilder shape = new StringBuilder(commandName).append(' ').append(collection);
+        switch (commandName) {
+            case "find" -> {
+                appendFilter(shape, command.get("filter"));
+                appendVerbatim(shape, "sort", command.get("sort"));
+            }
+            case "aggregate" -> appendPipeline(shape, command.get("pipeline"));
+            case "count" -> appendFilter(shape, command.get("query"));
+            case "distinct" -> {
+                shape.append(' ').append(command.get("key"));
+                appendFilter(shape, command.get("query"));
+            }
+            case "update" -> appendFilter(shape, firstStatement(command.get("updates"), "q"));
+            case "delete" -> appendFilter(shape, firstStatement(command.get("deletes"), "q"));
+            case "findAndModify" -> {
+                appendFilter(shape, command.get("query"));
+                appendVerbatim(shape, "sort", command.get("sort"));
+            }
+            default -> {
+            }
+        }
+        String text = shape.toString();
+        return new QueryShape(database, commandName, collection, text,
+                keepCommand && SlowQueryLog.wantsCommand(text) ? explainable(command) : null);
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getCommandName() {
+        return commandName;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    /**
+     * @return znormalizowany tekst zapytania (klucz statystyk)
+     */
+    public String getShape() {
+        return shape;
+    }
+
+    /**
+     * @return kopia polecenia bez pól sterownika, gotowa do opakowania w {@code explain}, lub {@code null}
+     */
+    BsonDocument getCommand() {
+        return command;
+    }
+
+    private static BsonDocument explainable(BsonDocument command) {
+        BsonDocument copy = new BsonDocument();
+        for (String key : command.keySet()) {
+            if (key.startsWith("$") || DRIVER_FIELDS.contains(key)) continue;
+            BsonValue value = command.get(key);
+            // BsonValue.clone() nie jest publiczne; dokumenty i tablice kopiujemy głęboko, reszta jest niezmienna
+            copy.put(key, value.isDocument() ? value.asDocument().clone()
+                    : value.isArray() ? value.asArray().clone()
+                    : value);
+        }
+        return copy;
+    }
+
+    private static BsonValue firstStatement(BsonValue statements, String field) {
+        if (statements == null || !statements.isArray() || statements.asArray().isEmpty()) return null;
+        BsonValue first = statements.asArray().get(0);
+        return first.isDocument() ? first.asDocument().get(field) : null;
+    }
+
+    private static void appendPipeline(StringBuilder shape, BsonValue pipeline) {
+        if (pipeline == null || !pipeline.isArray()) return;
+        shape.append(" [");
+        boolean first = true;
+        for (BsonValue stage : pipeline.asArray()) {
+            if (!first) shape.append(", ");
+            first = false;
+            if (!stage.isDocument() || stage.asDocument().isEmpty()) {
+                shape.append('?');
+                continue;
+            }
+            String name = stage.asDocument().getFirstKey();
+            BsonValue body = stage.asDocument().get(name);
+            shape.append(name).append(": ");
+            // Sortowanie, projekcja i limity opisują kształt, a nie parametry zapytania
+            if (name.equals("$sort") || name.equals("$project") || name.equals("$limit") || name.equals("$group")) {
+                shape.append(body);
+            } else {
+                normalize(shape, body);
+            }
+        }
+        shape.append(']');
+    }
+
+    private static void appendFilter(StringBuilder shape, BsonValue filter) {
+        if (filter == null) return;
+        shape.append(' ');
+        normalize(shape, filter);
+    }
+
+    private static void appendVerbatim(StringBuilder shape, String label, BsonValue value) {
+        if (value == null || (value.isDocument() && value.asDocument().isEmpty())) return;
+        shape.append(' ').append(label).append('=').append(value);
+    }
+
+    /**
+     * Zastępuje wartości znakiem {@code ?}, zachowując nazwy pól i operatory. Tablice wartości
+     * (np. w {@code $in}) stają się {@code [?]}, a tablice warunków ({@code $and}, {@code $or}) są rozwijane.
+     */
+    private static void normalize(StringBuilder out, BsonValue value) {
+        if (value.isDocument()) {
+            BsonDocument document = value.asDocument();
+            out.append('{');
+            boolean first = true;
+            for (String key : document.keySet()) {
+                if (!first) out.append(", ");
+                first = false;
+                out.append(key).append(": ");
+                normalize(out, document.get(key));
+            }
+            out.append('}');
+        } else if (value.isArray()) {
+            BsonArray array = value.asArray();
+            if (!array.isEmpty() && array.get(0).isDocument()) {
+                out.append('[');
+                for (int i = 0; i < array.size(); i++) {
+                    if (i > 0) out.append(", ");
+                    normalize(out, array.get(i));
+                }
+                out.append(']');
+            } else {
+                out.append("[?]");
+            }
+        } else {
+            out.append('?');
+        }
+    }
+}
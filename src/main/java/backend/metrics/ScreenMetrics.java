@@ -0,0 +1,94 @@
+package backend.metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Koszt otwierania jednego ekranu; rejestrowany w JMX przez {@link MongoMetrics#screen(String)}.
+ * <p>
+ * Alokacje i czas introspekcji kodeków liczone są w wątku otwierającym ekran, więc obejmują repozytoria
+ * i rejestry kodeków tworzone przy otwarciu, a nie zapytania wykonywane później w tle.
+ * </p>
+ */
+public class ScreenMetrics implements ScreenMetricsMXBean {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder measuredAllocations = new LongAdder();
+    private final LongAdder codecNanos = new LongAdder();
+
+    ScreenMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Zapisuje jedno otwarcie ekranu.
+     *
+     * @param nanos          czas otwarcia
+     * @param allocated      bajty zaalokowane przez wątek (ujemne – pomiar niedostępny)
+     * @param codecNanosUsed czas budowania kodeków
+     */
+    void record(long nanos, long allocated, long codecNanosUsed) {
+        latency.record(nanos);
+        if (allocated >= 0) {
+            allocatedBytes.add(allocated);
+            measuredAllocations.increment();
+        }
+        codecNanos.add(codecNanosUsed);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getTotalCount();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxValue() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMeanAllocatedKilobytes() {
+        long measured = measuredAllocations.sum();
+        return measured == 0 ? -1 : allocatedBytes.sum() / 1024.0 / measured;
+    }
+
+    @Override
+    public double getMeanCodecIntrospectionMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : codecNanos.sum() / NANOS_PER_MILLI / count;
+    }
+
+    /**
+     * Wypisuje nagłówek i rozkład percentyli czasu otwarcia (w milisekundach) w formacie {@code .hgrm}.
+     */
+    void writeDistribution(PrintStream out) {
+        out.printf("# Screen %s: count=%d, allocatedKB=%.1f, codecMs=%.3f, unit=ms%n",
+                name, getCount(), getMeanAllocatedKilobytes(), getMeanCodecIntrospectionMillis());
+        latency.outputPercentileDistribution(out, NANOS_PER_MILLI);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d otwarć, średnio %.2f ms, %.1f KB, kodeki %.3f ms",
+                name, getCount(), getMeanMillis(), getMeanAllocatedKilobytes(), getMeanCodecIntrospectionMillis());
+    }
+}
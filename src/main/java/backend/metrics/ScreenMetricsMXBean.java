@@ -0,0 +1,31 @@
+package backend.metrics;
+
+/**
+ * Widok JMX kosztu otwierania jednego ekranu: czas, alokacje i czas wyznaczania kodeków w wątku,
+ * który ekran otworzył. Czasy podawane są w milisekundach.
+ */
+public interface ScreenMetricsMXBean {
+
+    String getName();
+
+    /**
+     * @return liczba otwarć ekranu
+     */
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    /**
+     * @return średnia liczba kilobajtów zaalokowanych przy otwarciu (-1, gdy JVM nie mierzy alokacji wątku)
+     */
+    double getMeanAllocatedKilobytes();
+
+    /**
+     * @return średni czas budowania kodeków (introspekcja klas POJO) przypadający na jedno otwarcie
+     */
+    double getMeanCodecIntrospectionMillis();
+}
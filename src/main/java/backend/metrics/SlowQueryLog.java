@@ -0,0 +1,468 @@
+package backend.metrics;
+
+import com.mongodb.client.MongoClient;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dziennik wolnych zapytań i statystyki zapytań pogrupowanych według kształtu ({@link QueryShape}).
+ * <p>
+ * Dla każdego kształtu zbierana jest liczba wykonań, łączny, średni i maksymalny czas oraz liczba zwróconych
+ * dokumentów (na wzór pg_stat_statements). Zapytanie wolniejsze niż próg ({@code -Dhospital.slowQueryMillis},
+ * domyślnie 100 ms) jest w tle analizowane przez {@code explain("executionStats")}: dziennik zapisuje plan,
+ * liczbę przejrzanych dokumentów i oznacza pełne przeglądanie kolekcji (COLLSCAN). Explain tego samego
+ * kształtu wykonywany jest najwyżej raz na minutę, żeby seria wolnych zapytań nie dokładała serwerowi pracy.
+ * Polecenie do explain kopiowane jest dopiero od wykonania następującego po pierwszym wolnym, więc pierwsze
+ * wolne wykonanie kształtu trafia do dziennika bez planu, a szybkie zapytania nie płacą za kopię.
+ * </p>
+ */
+public final class SlowQueryLog {
+
+    public static final long DEFAULT_THRESHOLD_MILLIS = 100;
+
+    private static final String THRESHOLD_PROPERTY = "hospital.slowQueryMillis";
+    private static final int RECENT_LIMIT = 200;
+    private static final long EXPLAIN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final Map<String, ShapeStats> SHAPES = new ConcurrentHashMap<>();
+    private static final Deque<SlowQuery> RECENT = new ArrayDeque<>();
+
+    /**
+     * Jeden wątek w tle z krótką kolejką – gdy explain nie nadąża, kolejne wolne zapytania są logowane bez planu.
+     */
+    private static final ThreadPoolExecutor EXPLAINER = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(32),
+            runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-explain");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardPolicy());
+
+    private static volatile long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD_MILLIS));
+    private static volatile MongoClient client;
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * Statystyki jednego kształtu zapytania.
+     */
+    public static final class ShapeStats {
+        private final String shape;
+        private final String collection;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder docsReturned = new LongAdder();
+        private final LongAdder slowCount = new LongAdder();
+        private final AtomicLong lastExplainAt = new AtomicLong(Long.MIN_VALUE);
+        private volatile Plan lastPlan;
+        private volatile boolean planWanted;
+
+        private ShapeStats(String shape, String collection) {
+            this.shape = shape;
+            this.collection = collection;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSlowCount() {
+            return slowCount.sum();
+        }
+
+        public double getTotalMillis() {
+            return totalNanos.sum() / NANOS_PER_MILLI;
+        }
+
+        public double getMeanMillis() {
+            long executions = count.sum();
+            return executions == 0 ? 0 : getTotalMillis() / executions;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / NANOS_PER_MILLI;
+        }
+
+        /**
+         * @return dokumenty zwrócone łącznie przez wszystkie wykonania (z kolejnymi porcjami kursora)
+         */
+        public long getDocsReturned() {
+            return docsReturned.sum();
+        }
+
+        /**
+         * @return plan z ostatniego explain lub {@code null}, jeśli zapytanie nie było jeszcze wolne
+         */
+        public Plan getLastPlan() {
+            return lastPlan;
+        }
+
+        /**
+         * Pozwala na explain, jeśli od poprzedniego minęła co najmniej minuta.
+         */
+        private boolean claimExplain(long now) {
+            long last = lastExplainAt.get();
+            return (last == Long.MIN_VALUE || now - last >= EXPLAIN_INTERVAL_NANOS) && lastExplainAt.compareAndSet(last, now);
+        }
+
+        /**
+         * Czy kolejne wykonanie powinno nieść kopię polecenia: kształt był już wolny bez kopii,
+         * a od ostatniego explain minęła co najmniej minuta.
+         */
+        private boolean wantsCommand(long now) {
+            long last = lastExplainAt.get();
+            return planWanted && (last == Long.MIN_VALUE || now - last >= EXPLAIN_INTERVAL_NANOS);
+        }
+    }
+
+    /**
+     * Podsumowanie planu z {@code explain("executionStats")}.
+     */
+    public static final class Plan {
+        private final String stages;
+        private final boolean collectionScan;
+        private final long docsExamined;
+        private final long keysExamined;
+        private final long docsReturned;
+        private final String explain;
+
+        private Plan(String stages, boolean collectionScan, long docsExamined, long keysExamined,
+                     long docsReturned, String explain) {
+            this.stages = stages;
+            this.collectionScan = collectionScan;
+            this.docsExamined = docsExamined;
+            this.keysExamined = keysExamined;
+            this.docsReturned = docsReturned;
+            this.explain = explain;
+        }
+
+        /**
+         * @return etapy zwycięskiego planu, np. {@code FETCH > IXSCAN(room_1_date_1)}
+         */
+        public String getStages() {
+            return stages;
+        }
+
+        public boolean isCollectionScan() {
+            return collectionScan;
+        }
+
+        public long getDocsExamined() {
+            return docsExamined;
+        }
+
+        public long getKeysExamined() {
+            return keysExamined;
+        }
+
+        public long getDocsReturned() {
+            return docsReturned;
+        }
+
+        /**
+         * @return pełny wynik explain w formacie JSON
+         */
+        public String getExplain() {
+            return explain;
+        }
+
+        @Override
+        public String toString() {
+            return stages + (collectionScan ? " – COLLSCAN, brak indeksu" : "")
+                    + " (przejrzano " + docsExamined + " dok., " + keysExamined + " kluczy, zwrócono " + docsReturned + ")";
+        }
+    }
+
+    /**
+     * Pojedyncze wolne wykonanie zapytania.
+     */
+    public static final class SlowQuery {
+        private final LocalDateTime time;
+        private final String shape;
+        private final double durationMillis;
+        private final long docsReturned;
+        private final Plan plan;
+
+        private SlowQuery(LocalDateTime time, String shape, double durationMillis, long docsReturned, Plan plan) {
+            this.time = time;
+            this.shape = shape;
+            this.durationMillis = durationMillis;
+            this.docsReturned = docsReturned;
+            this.plan = plan;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public double getDurationMillis() {
+            return durationMillis;
+        }
+
+        public long getDocsReturned() {
+            return docsReturned;
+        }
+
+        /**
+         * @return plan zapytania lub {@code null}, jeśli explain się nie powiódł albo został pominięty
+         */
+        public Plan getPlan() {
+            return plan;
+        }
+    }
+
+    /**
+     * Udostępnia klienta, przez którego wykonywany jest explain wolnych zapytań.
+     * Bez klienta zbierane są tylko statystyki kształtów.
+     */
+    public static void attach(MongoClient mongoClient) {
+        client = mongoClient;
+    }
+
+    public static long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    /**
+     * Ustawia próg wolnego zapytania; wartość 0 lub ujemna wyłącza dziennik (statystyki kształtów są nadal zbierane).
+     */
+    public static void setThresholdMillis(long millis) {
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * @return czy polecenia powinny być kopiowane na potrzeby explain
+     */
+    static boolean isExplainEnabled() {
+        return thresholdNanos > 0 && client != null;
+    }
+
+    /**
+     * Czy polecenie o podanym kształcie należy skopiować na potrzeby explain. Dokument polecenia ze zdarzenia
+     * sterownika jest zwalniany jeszcze przed zdarzeniem zakończenia, więc kopię trzeba zrobić na starcie –
+     * robiona jest tylko dla kształtów, które już okazały się wolne i czekają na plan.
+     *
+     * @param shape znormalizowany tekst zapytania
+     */
+    static boolean wantsCommand(String shape) {
+        ShapeStats stats = SHAPES.get(shape);
+        return stats != null && stats.wantsCommand(System.nanoTime());
+    }
+
+    /**
+     * Zapisuje zakończone zapytanie; wolne trafia do dziennika.
+     *
+     * @param shape        kształt zapytania
+     * @param nanos        czas wykonania
+     * @param docsReturned liczba dokumentów w odpowiedzi
+     */
+    static void record(QueryShape shape, long nanos, long docsReturned) {
+        ShapeStats stats = statsOf(shape);
+        stats.count.increment();
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulateAndGet(nanos, Math::max);
+        stats.docsReturned.add(docsReturned);
+
+        long threshold = thresholdNanos;
+        if (threshold <= 0 || nanos < threshold) return;
+
+        stats.slowCount.increment();
+        double millis = nanos / NANOS_PER_MILLI;
+        MongoClient mongoClient = client;
+        if (mongoClient != null && shape.getCommand() != null && stats.claimExplain(System.nanoTime())) {
+            stats.planWanted = false;
+            EXPLAINER.execute(() -> {
+                Plan plan = explain(mongoClient, shape);
+                if (plan != null) stats.lastPlan = plan;
+                logSlow(new SlowQuery(LocalDateTime.now(), shape.getShape(), millis, docsReturned, plan));
+            });
+        } else {
+            // Bez kopii polecenia: następne wykonanie tego kształtu zostanie skopiowane i przeanalizowane, jeśli też będzie wolne
+            if (mongoClient != null && shape.getCommand() == null) stats.planWanted = true;
+            logSlow(new SlowQuery(LocalDateTime.now(), shape.getShape(), millis, docsReturned, stats.lastPlan));
+        }
+    }
+
+    /**
+     * Dolicza kolejną porcję wyników kursora ({@code getMore}) do kształtu, który go otworzył –
+     * bez zwiększania liczby wykonań.
+     */
+    static void recordContinuation(QueryShape shape, long nanos, long docsReturned) {
+        ShapeStats stats = statsOf(shape);
+        stats.totalNanos.add(nanos);
+        stats.docsReturned.add(docsReturned);
+    }
+
+    /**
+     * @return statystyki kształtów posortowane malejąco po łącznym czasie
+     */
+    public static List<ShapeStats> shapes() {
+        List<ShapeStats> result = new ArrayList<>(SHAPES.values());
+        result.sort(Comparator.comparingDouble(ShapeStats::getTotalMillis).reversed());
+        return result;
+    }
+
+    /**
+     * @return ostatnie wolne zapytania, od najnowszego
+     */
+    public static List<SlowQuery> recentSlowQueries() {
+        synchronized (RECENT) {
+            return new ArrayList<>(RECENT);
+        }
+    }
+
+    /**
+     * Czyści statystyki kształtów i listę wolnych zapytań.
+     */
+    public static void reset() {
+        SHAPES.clear();
+        synchronized (RECENT) {
+            RECENT.clear();
+        }
+    }
+
+    /**
+     * Wypisuje tabelę kształtów (do pliku z metrykami).
+     */
+    static void writeTable(PrintStream out) {
+        out.printf("# Kształty zapytań (próg wolnego zapytania: %d ms)%n", getThresholdMillis());
+        out.printf("# %8s %8s %12s %10s %10s %12s  %s%n", "count", "slow", "total ms", "avg ms", "max ms", "returned", "shape / plan");
+        for (ShapeStats stats : shapes()) {
+            out.printf("# %8d %8d %12.1f %10.2f %10.2f %12d  %s%n", stats.getCount(), stats.getSlowCount(),
+                    stats.getTotalMillis(), stats.getMeanMillis(), stats.getMaxMillis(), stats.getDocsReturned(),
+                    stats.getShape());
+            if (stats.getLastPlan() != null) out.println("#" + " ".repeat(70) + "plan: " + stats.getLastPlan());
+        }
+    }
+
+    private static ShapeStats statsOf(QueryShape shape) {
+        return SHAPES.computeIfAbsent(shape.getShape(), key -> new ShapeStats(key, shape.getCollection()));
+    }
+
+    private static void logSlow(SlowQuery query) {
+        synchronized (RECENT) {
+            RECENT.addFirst(query);
+            if (RECENT.size() > RECENT_LIMIT) RECENT.removeLast();
+        }
+        System.out.printf("[INFO] Wolne zapytanie %.1f ms (zwrócono %d dok.): %s%s%n",
+                query.getDurationMillis(), query.getDocsReturned(), query.getShape(),
+                query.getPlan() != null ? " | plan: " + query.getPlan() : "");
+    }
+
+    private static Plan explain(MongoClient mongoClient, QueryShape shape) {
+        try {
+            BsonDocument command = new BsonDocument("explain", shape.getCommand())
+                    .append("verbosity", new BsonString("executionStats"));
+            BsonDocument result = mongoClient.getDatabase(shape.getDatabase()).runCommand(command, BsonDocument.class);
+            return summarize(result);
+        } catch (RuntimeException e) {
+            System.err.println("[ERROR] Explain zapytania " + shape.getShape() + " nie powiódł się: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Zbiera etapy zwycięskiego planu (pomijając plany odrzucone) oraz liczniki ze wszystkich
+     * sekcji {@code executionStats} – agregacja może mieć ich kilka.
+     */
+    private static Plan summarize(BsonDocument explain) {
+        Set<String> stages = new LinkedHashSet<>();
+        long[] counters = new long[3];
+        walk(explain, stages, counters);
+        boolean collectionScan = stages.contains("COLLSCAN");
+        return new Plan(stages.isEmpty() ? "?" : String.join(" > ", stages), collectionScan,
+                counters[0], counters[1], counters[2],
+                explain.toJson(JsonWriterSettings.builder().indent(true).build()));
+    }
+
+    private static void walk(BsonValue value, Set<String> stages, long[] counters) {
+        if (value.isArray()) {
+            for (BsonValue element : value.asArray()) walk(element, stages, counters);
+            return;
+        }
+        if (!value.isDocument()) return;
+
+        BsonDocument document = value.asDocument();
+        BsonValue stage = document.get("stage");
+        if (stage != null && stage.isString()) {
+            BsonValue index = document.get("indexName");
+            stages.add(stage.asString().getValue()
+                    + (index != null && index.isString() ? "(" + index.asString().getValue() + ")" : ""));
+        }
+        for (Map.Entry<String, BsonValue> entry : document.entrySet()) {
+            switch (entry.getKey()) {
+                case "rejectedPlans", "allPlansExecution" -> {
+                }
+                case "executionStats" -> {
+                    if (entry.getValue().isDocument()) {
+                        BsonDocument stats = entry.getValue().asDocument();
+                        counters[0] += number(stats.get("totalDocsExamined"));
+                        counters[1] += number(stats.get("totalKeysExamined"));
+                        counters[2] += number(stats.get("nReturned"));
+                        walk(stats, stages, counters);
+                    }
+                }
+                default -> walk(entry.getValue(), stages, counters);
+            }
+        }
+    }
+
+    private static long number(BsonValue value) {
+        return value != null && value.isNumber() ? value.asNumber().longValue() : 0;
+    }
+
+    /**
+     * Liczba dokumentów w odpowiedzi serwera na polecenie zapytania.
+     */
+    static long returnedDocuments(String commandName, BsonDocument response) {
+        if (response == null) return 0;
+        return switch (commandName) {
+            case "find", "aggregate", "getMore" -> {
+                BsonDocument cursor = response.getDocument("cursor", null);
+                if (cursor == null) yield 0;
+                BsonValue batch = cursor.containsKey("firstBatch") ? cursor.get("firstBatch") : cursor.get("nextBatch");
+                yield batch != null && batch.isArray() ? batch.asArray().size() : 0;
+            }
+            case "count", "update", "delete" -> number(response.get("n"));
+            case "distinct" -> response.containsKey("values") ? response.getArray("values").size() : 0;
+            case "findAndModify" -> response.isDocument("value") ? 1 : 0;
+            default -> 0;
+        };
+    }
+}
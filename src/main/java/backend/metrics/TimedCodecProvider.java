@@ -0,0 +1,46 @@
+package backend.metrics;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Dostawca kodeków mierzący czas ich budowania (dla dostawcy POJO – introspekcję klasy).
+ * <p>
+ * Rejestr sterownika zapamiętuje zwrócone kodeki, więc dostawca wywoływany jest tylko przy pierwszym
+ * użyciu klasy w danym rejestrze; zmierzony czas to koszt tworzenia nowych rejestrów i kodeków.
+ * Kodeki pól budowane w trakcie kodeka klasy nadrzędnej nie są liczone podwójnie.
+ * </p>
+ */
+final class TimedCodecProvider implements CodecProvider {
+
+    private final CodecProvider delegate;
+
+    TimedCodecProvider(CodecProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        long[] introspection = MongoMetrics.codecIntrospection();
+        if (introspection[1]++ > 0) {
+            try {
+                return delegate.get(clazz, registry);
+            } finally {
+                introspection[1]--;
+            }
+        }
+        long startedAt = System.nanoTime();
+        try {
+            return delegate.get(clazz, registry);
+        } finally {
+            introspection[1]--;
+            introspection[0] += System.nanoTime() - startedAt;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TimedCodecProvider{" + delegate + "}";
+    }
+}
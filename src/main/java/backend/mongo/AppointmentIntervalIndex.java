@@ -0,0 +1,348 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import org.bson.types.ObjectId;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Indeks terminów niezakończonych wizyt w pamięci – osobno dla każdego lekarza i pacjenta.
+ * <p>
+ * Terminy danego lekarza (pacjenta) trzymane są w posortowanej mapie, więc pytanie
+ * „czy [t, t + 30 min) koliduje z inną wizytą” to jedno wyszukiwanie zakresu (O(log n))
+ * bez odpytywania bazy. Harmonogram osoby ładowany jest z bazy przy pierwszym pytaniu („zimny” indeks),
+ * a potem utrzymywany przez {@link AppointmentRepository} przy tworzeniu, edycji i usuwaniu wizyt
+ * oraz przez {@link ChangeStreamWatcher} dla zmian z innych stanowisk.
+ * </p>
+ * <p>
+ * {@link AppointmentRepository} pyta indeks przed rezerwacją wizyty: kolizja widoczna w indeksie odrzuca
+ * rezerwację bez transakcji, a wolny termin przechodzi do zajęcia slotów ({@link SlotReservationRepository}),
+ * które pozostaje ostatecznym zabezpieczeniem przed podwójną rezerwacją.
+ * </p>
+ * <p>
+ * Liczba harmonogramów jest ograniczona (osobno lekarzy i pacjentów); po jej przekroczeniu wypierany jest
+ * najdawniej używany, a wraz z nim wizyty, których nie ma już w żadnym załadowanym harmonogramie. Harmonogram
+ * załadowany z bazy jest zapamiętywany tylko wtedy, gdy w trakcie ładowania nie zmieniła się wersja jego
+ * właściciela (wersje trzymane są w {@value #VERSION_STRIPES} pasmach według skrótu identyfikatora).
+ * </p>
+ * <p>
+ * Gdy strumień zmian nie działa, harmonogram uznawany jest za aktualny tylko przez {@link #DEFAULT_TTL},
+ * po czym jest ładowany ponownie – zmiany wprowadzone przez inne stanowiska nie zostaną więc przeoczone na dłużej.
+ * </p>
+ */
+public class AppointmentIntervalIndex {
+
+    /**
+     * Zakładany czas trwania wizyty – dwie wizyty kolidują, jeśli ich początki dzieli mniej niż tyle.
+     */
+    public static final Duration APPOINTMENT_DURATION = Duration.ofMinutes(30);
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_DOCTORS = 2_000;
+    public static final int DEFAULT_MAX_PATIENTS = 20_000;
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private static final AppointmentIntervalIndex SHARED = new AppointmentIntervalIndex(DEFAULT_TTL);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Timelines doctors;
+    private final Timelines patients;
+    private final Map<ObjectId, Entry> entries = new HashMap<>();
+    private final long[] versions = new long[VERSION_STRIPES];
+    private long unknownRemovals;
+    private final long ttlNanos;
+    private volatile BooleanSupplier liveUpdates = () -> false;
+
+    /**
+     * Pojedyncza wizyta zapisana w indeksie.
+     */
+    private static final class Entry {
+        private final ObjectId doctorId;
+        private final ObjectId patientId;
+        private final LocalDateTime date;
+
+        private Entry(ObjectId doctorId, ObjectId patientId, LocalDateTime date) {
+            this.doctorId = doctorId;
+            this.patientId = patientId;
+            this.date = date;
+        }
+    }
+
+    /**
+     * Harmonogram jednej osoby: początek wizyty → identyfikatory wizyt.
+     */
+    private static final class Timeline {
+        private final NavigableMap<LocalDateTime, Set<ObjectId>> slots = new TreeMap<>();
+        private final long loadedAt = System.nanoTime();
+
+        private void add(LocalDateTime date, ObjectId appointmentId) {
+            slots.computeIfAbsent(date, d -> new HashSet<>(2)).add(appointmentId);
+        }
+
+        private void remove(LocalDateTime date, ObjectId appointmentId) {
+            Set<ObjectId> ids = slots.get(date);
+            if (ids == null) return;
+            ids.remove(appointmentId);
+            if (ids.isEmpty()) slots.remove(date);
+        }
+
+        private boolean overlaps(LocalDateTime start, ObjectId excludeAppointmentId) {
+            LocalDateTime from = start.minus(APPOINTMENT_DURATION);
+            LocalDateTime to = start.plus(APPOINTMENT_DURATION);
+            for (Set<ObjectId> ids : slots.subMap(from, false, to, false).values()) {
+                if (ids.size() > 1 || !ids.contains(excludeAppointmentId)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Harmonogramy jednej strony (lekarze lub pacjenci) w kolejności użycia, ograniczone do {@code maximumSize}.
+     * Dostęp tylko pod blokadą indeksu.
+     */
+    private final class Timelines extends LinkedHashMap<ObjectId, Timeline> {
+        private final int maximumSize;
+        private final boolean doctorSide;
+
+        private Timelines(int maximumSize, boolean doctorSide) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+            this.doctorSide = doctorSide;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, Timeline> eldest) {
+            if (size() <= maximumSize) return false;
+            forget(eldest.getValue(), this);
+            return true;
+        }
+
+        private ObjectId ownerOf(Entry entry) {
+            return doctorSide ? entry.doctorId : entry.patientId;
+        }
+    }
+
+    /**
+     * Tworzy pusty indeks o domyślnych limitach harmonogramów.
+     *
+     * @param ttl jak długo załadowany harmonogram jest aktualny, gdy strumień zmian nie działa
+     */
+    public AppointmentIntervalIndex(Duration ttl) {
+        this(ttl, DEFAULT_MAX_DOCTORS, DEFAULT_MAX_PATIENTS);
+    }
+
+    /**
+     * Tworzy pusty indeks.
+     *
+     * @param ttl         jak długo załadowany harmonogram jest aktualny, gdy strumień zmian nie działa
+     * @param maxDoctors  maksymalna liczba przechowywanych harmonogramów lekarzy
+     * @param maxPatients maksymalna liczba przechowywanych harmonogramów pacjentów
+     */
+    public AppointmentIntervalIndex(Duration ttl, int maxDoctors, int maxPatients) {
+        if (maxDoctors <= 0 || maxPatients <= 0) throw new IllegalArgumentException("Limit harmonogramów musi być dodatni");
+        this.ttlNanos = ttl.toNanos();
+        this.doctors = new Timelines(maxDoctors, true);
+        this.patients = new Timelines(maxPatients, false);
+    }
+
+    /**
+     * Zwraca indeks współdzielony przez wszystkie repozytoria wizyt.
+     */
+    public static AppointmentIntervalIndex shared() {
+        return SHARED;
+    }
+
+    /**
+     * Ustawia źródło informacji, czy zmiany z innych stanowisk docierają na bieżąco.
+     * Dopóki zwraca {@code true}, załadowane harmonogramy nie wygasają.
+     */
+    public void setLiveUpdates(BooleanSupplier liveUpdates) {
+        this.liveUpdates = liveUpdates != null ? liveUpdates : () -> false;
+    }
+
+    /**
+     * Sprawdza, czy lekarz nie ma innej niezakończonej wizyty kolidującej z podanym terminem.
+     *
+     * @param doctorId             identyfikator lekarza
+     * @param start                początek nowej wizyty
+     * @param excludeAppointmentId wizyta pomijana przy sprawdzaniu (edytowana), może być {@code null}
+     * @param loader               pobiera z bazy niezakończone wizyty lekarza, gdy indeks jest zimny
+     * @return {@code true}, jeśli termin jest wolny
+     */
+    public boolean isDoctorFree(ObjectId doctorId, LocalDateTime start, ObjectId excludeAppointmentId,
+                                Supplier<List<Appointment>> loader) {
+        return isFree(doctors, doctorId, start, excludeAppointmentId, loader);
+    }
+
+    /**
+     * Sprawdza, czy pacjent nie ma innej niezakończonej wizyty kolidującej z podanym terminem.
+     *
+     * @see #isDoctorFree(ObjectId, LocalDateTime, ObjectId, Supplier)
+     */
+    public boolean isPatientFree(ObjectId patientId, LocalDateTime start, ObjectId excludeAppointmentId,
+                                 Supplier<List<Appointment>> loader) {
+        return isFree(patients, patientId, start, excludeAppointmentId, loader);
+    }
+
+    /**
+     * Zapisuje wizytę w indeksie (lub aktualizuje jej termin). Wizyty zakończone i odwołane są usuwane.
+     * Harmonogramy, które nie zostały jeszcze załadowane, są pomijane – zostaną wczytane z bazy.
+     */
+    public void put(Appointment appointment) {
+        if (appointment == null || appointment.getId() == null) return;
+        lock.lock();
+        try {
+            detach(appointment.getId(), entries.remove(appointment.getId()));
+            if (!isActive(appointment)) return;
+
+            Entry entry = new Entry(appointment.getDoctorId(), appointment.getPatientId(), appointment.getDate());
+            bump(entry.doctorId);
+            bump(entry.patientId);
+            Timeline doctor = doctors.get(entry.doctorId);
+            Timeline patient = patients.get(entry.patientId);
+            if (doctor != null) doctor.add(entry.date, appointment.getId());
+            if (patient != null) patient.add(entry.date, appointment.getId());
+            // Wizyta bez załadowanego harmonogramu trafi do indeksu razem z nim
+            if (doctor != null || patient != null) entries.put(appointment.getId(), entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Usuwa wizytę z indeksu.
+     */
+    public void remove(ObjectId appointmentId) {
+        if (appointmentId == null) return;
+        lock.lock();
+        try {
+            Entry entry = entries.remove(appointmentId);
+            // Właściciele nieznanej wizyty nie są znani – trwające ładowania harmonogramów nie są zapamiętywane
+            if (entry == null) unknownRemovals++;
+            else detach(appointmentId, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Usuwa wszystkie harmonogramy – kolejne pytania załadują je z bazy.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            unknownRemovals++;
+            doctors.clear();
+            patients.clear();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isActive(Appointment appointment) {
+        return appointment.getDate() != null
+                && (appointment.getStatus() == null || appointment.getStatus().isActive());
+    }
+
+    private boolean isFree(Timelines timelines, ObjectId ownerId, LocalDateTime start,
+                           ObjectId excludeAppointmentId, Supplier<List<Appointment>> loader) {
+        if (ownerId == null || start == null) return false;
+
+        long version;
+        long removals;
+        lock.lock();
+        try {
+            Timeline timeline = timelines.get(ownerId);
+            if (timeline != null && !isExpired(timeline)) return !timeline.overlaps(start, excludeAppointmentId);
+            version = versions[stripe(ownerId)];
+            removals = unknownRemovals;
+        } finally {
+            lock.unlock();
+        }
+
+        Timeline timeline = load(timelines, ownerId, loader, version, removals);
+        return !timeline.overlaps(start, excludeAppointmentId);
+    }
+
+    /**
+     * Ładuje harmonogram z bazy (poza blokadą). Jeśli w trakcie ładowania zmieniła się wersja właściciela,
+     * wynik odpowiada na bieżące pytanie, ale nie jest zapamiętywany (mógłby pominąć tę zmianę).
+     */
+    private Timeline load(Timelines timelines, ObjectId ownerId, Supplier<List<Appointment>> loader,
+                          long version, long removals) {
+        List<Appointment> appointments = loader.get();
+
+        Timeline timeline = new Timeline();
+        for (Appointment a : appointments) {
+            if (a.getId() == null || !isActive(a)) continue;
+            timeline.add(a.getDate(), a.getId());
+        }
+
+        lock.lock();
+        try {
+            if (versions[stripe(ownerId)] != version || unknownRemovals != removals) return timeline;
+            Timeline previous = timelines.remove(ownerId);
+            if (previous != null) forget(previous, timelines);
+            timelines.put(ownerId, timeline);
+            for (Appointment a : appointments) {
+                if (a.getId() == null || !isActive(a)) continue;
+                entries.putIfAbsent(a.getId(), new Entry(a.getDoctorId(), a.getPatientId(), a.getDate()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return timeline;
+    }
+
+    /**
+     * Usuwa wizytę z harmonogramów jej lekarza i pacjenta i podbija ich wersje.
+     */
+    private void detach(ObjectId appointmentId, Entry entry) {
+        if (entry == null) return;
+        bump(entry.doctorId);
+        bump(entry.patientId);
+        Timeline doctor = doctors.get(entry.doctorId);
+        Timeline patient = patients.get(entry.patientId);
+        if (doctor != null) doctor.remove(entry.date, appointmentId);
+        if (patient != null) patient.remove(entry.date, appointmentId);
+    }
+
+    /**
+     * Zapomina wizyty wypartego harmonogramu, których nie ma w załadowanym harmonogramie drugiej strony.
+     */
+    private void forget(Timeline timeline, Timelines side) {
+        Timelines other = side == doctors ? patients : doctors;
+        for (Set<ObjectId> ids : timeline.slots.values()) {
+            for (ObjectId id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null && !other.containsKey(other.ownerOf(entry))) entries.remove(id);
+            }
+        }
+    }
+
+    private void bump(ObjectId ownerId) {
+        if (ownerId != null) versions[stripe(ownerId)]++;
+    }
+
+    private static int stripe(ObjectId ownerId) {
+        int h = ownerId.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private boolean isExpired(Timeline timeline) {
+        return !liveUpdates.getAsBoolean() && System.nanoTime() - timeline.loadedAt > ttlNanos;
+    }
+}
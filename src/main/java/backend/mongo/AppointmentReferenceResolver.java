@@ -0,0 +1,79 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.klasy.AppointmentRow;
+import backend.klasy.DoctorSummary;
+import backend.klasy.PatientSummary;
+import backend.klasy.Room;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rozwiązuje referencje (lekarz, pacjent, sala) dla strony wizyt.
+ * <p>
+ * Zamiast trzech zapytań na każdy wiersz tabeli zbiera identyfikatory ze wszystkich wizyt
+ * i pobiera każdy typ encji jednym zapytaniem {@code $in} (lekarzy i pacjentów tylko jako podsumowania z projekcją),
+ * a następnie składa gotowe wiersze {@link AppointmentRow}.
+ * </p>
+ */
+public class AppointmentReferenceResolver {
+
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+    private final RoomRepository roomRepository;
+
+    /**
+     * Tworzy resolver korzystający z istniejących repozytoriów ({@link RepositoryContext#referenceResolver()}).
+     */
+    public AppointmentReferenceResolver(DoctorRepository doctorRepository,
+                                        PatientRepository patientRepository,
+                                        RoomRepository roomRepository) {
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.roomRepository = roomRepository;
+    }
+
+    /**
+     * Łączy wizyty z lekarzami, pacjentami i salami.
+     * Wykonuje co najwyżej trzy zapytania niezależnie od liczby wizyt.
+     *
+     * @param appointments strona wizyt do wyświetlenia
+     * @return wiersze w tej samej kolejności co wizyty wejściowe
+     */
+    public List<AppointmentRow> resolve(List<Appointment> appointments) {
+        if (appointments == null || appointments.isEmpty()) return new ArrayList<>();
+
+        Set<ObjectId> doctorIds = new HashSet<>();
+        Set<ObjectId> patientIds = new HashSet<>();
+        Set<ObjectId> roomIds = new HashSet<>();
+        for (Appointment a : appointments) {
+            if (a.getDoctorId() != null) doctorIds.add(a.getDoctorId());
+            if (a.getPatientId() != null) patientIds.add(a.getPatientId());
+            if (a.getRoom() != null) roomIds.add(a.getRoom());
+        }
+
+        Map<ObjectId, DoctorSummary> doctors = new HashMap<>();
+        doctorRepository.findSummariesByIds(doctorIds).forEach(d -> doctors.put(d.getId(), d));
+
+        Map<ObjectId, PatientSummary> patients = new HashMap<>();
+        patientRepository.findSummariesByIds(patientIds).forEach(p -> patients.put(p.getId(), p));
+
+        Map<ObjectId, Room> rooms = new HashMap<>();
+        roomRepository.findByIds(roomIds).forEach(r -> rooms.put(r.getId(), r));
+
+        List<AppointmentRow> rows = new ArrayList<>(appointments.size());
+        for (Appointment a : appointments) {
+            rows.add(new AppointmentRow(a,
+                    doctors.get(a.getDoctorId()),
+                    patients.get(a.getPatientId()),
+                    rooms.get(a.getRoom())));
+        }
+        return rows;
+    }
+}
@@ -2,77 +2,136 @@ package backend.mongo;
 
 import backend.klasy.Appointment;
 import backend.klasy.Doctor;
+import backend.klasy.DoctorSummary;
 import backend.klasy.Patient;
+import backend.klasy.PatientSummary;
 import backend.klasy.Room;
-import backend.status.AppointmentStatus;
+import backend.metrics.MongoMetrics;
 import backend.status.Day;
+import backend.status.Specialization;
 import backend.status.TypeOfRoom;
 import backend.wyjatki.DoctorIsNotAvailableException;
 import backend.wyjatki.InappropriateRoomException;
 import backend.wyjatki.PatientIsNotAvailableException;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Variable;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
-import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static com.mongodb.client.model.Aggregates.limit;
+import static com.mongodb.client.model.Aggregates.lookup;
+import static com.mongodb.client.model.Aggregates.match;
+import static com.mongodb.client.model.Aggregates.project;
 import static com.mongodb.client.model.Filters.*;
+import static com.mongodb.client.model.Projections.include;
 
 /**
  * Repozytorium do zarządzania wizytami w bazie MongoDB.
  */
 public class AppointmentRepository {
 
+    /** Pola, po których harmonogram zabiegów może być sortowany i stronicowany. */
+    public static final SortField<Appointment> SORT_BY_DATE = new SortField<>("date", Appointment::getDate, Appointment::getId);
+    public static final SortField<Appointment> SORT_BY_STATUS = new SortField<>("status",
+            a -> a.getStatus() != null ? a.getStatus().name() : null, Appointment::getId);
+
     private final MongoCollection<Appointment> collection;
+    private final MongoCollection<Appointment> relaxedCollection;
+    private final MongoCollection<DoctorSummary> doctors;
+    private final MongoCollection<PatientSummary> patients;
     private final RoomRepository roomRepository;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
+    private final AppointmentIntervalIndex schedule = AppointmentIntervalIndex.shared();
+    private final BookingGuard bookingGuard;
 
     /**
-     * Inicjalizuje repozytorium wizyt i zależne repozytoria.
-     *
-     * @param database baza danych MongoDB
+     * W sali wizyty nie ma już miejsca. Zgłaszany z zapisu wykonywanego przez {@link BookingGuard}, który wtedy
+     * zwalnia zajęte sloty (w transakcji serwer wycofuje cały zapis).
      */
-    public AppointmentRepository(MongoDatabase database) {
+    private static final class RoomFullException extends RuntimeException {
+        private RoomFullException() {
+            super("Sala jest pełna – brak miejsca dla pacjenta.");
+        }
+    }
+
+    /**
+     * Tworzy repozytorium wizyt korzystające z istniejących repozytoriów – instancję współdzieloną przez aplikację
+     * zwraca {@link RepositoryContext#appointments()}.
+     */
+    public AppointmentRepository(MongoDatabase database, RoomRepository roomRepository,
+                                 DoctorRepository doctorRepository, PatientRepository patientRepository,
+                                 SlotReservationRepository slotReservations) {
         this.collection = database.getCollection("appointments", Appointment.class);
-        this.roomRepository = new RoomRepository(database);
-        this.doctorRepository = new DoctorRepository(database);
-        this.patientRepository = new PatientRepository(database);
+        this.relaxedCollection = ReadRouting.relaxed(collection);
+        this.doctors = SummaryCodecs.summaries(database, "doctors", DoctorSummary.class);
+        this.patients = SummaryCodecs.summaries(database, "patients", PatientSummary.class);
+        this.roomRepository = roomRepository;
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.bookingGuard = new BookingGuard(slotReservations);
     }
 
     /**
      * Tworzy nową wizytę po uprzedniej walidacji lekarza, pacjenta i sali.
+     * Kolizję terminu wykrywa unikalny indeks rezerwacji slotów ({@link SlotReservationRepository}),
+     * więc dwie równoległe rezerwacje tego samego terminu nie mogą się powieść jednocześnie. Miejsce w sali
+     * zajmowane jest w tym samym zapisie co wizyta, więc pełna sala wycofuje też rezerwacje slotów.
      *
      * @param appointment obiekt wizyty
      * @throws DoctorIsNotAvailableException    lekarz zajęty w danym terminie
      * @throws PatientIsNotAvailableException   pacjent zajęty w danym terminie
-     * @throws InappropriateRoomException       niezgodność sali ze specjalizacją
+     * @throws InappropriateRoomException       niezgodność sali ze specjalizacją lub brak miejsca w sali
      */
     public void createAppointment(Appointment appointment)
             throws DoctorIsNotAvailableException, InappropriateRoomException, PatientIsNotAvailableException {
-        if (appointment == null) throw new IllegalArgumentException("Zabieg nie może być nullem!!");
-
-        if (!isDoctorAvailable(appointment.getDoctorId(), appointment.getDate(), null))
-            throw new DoctorIsNotAvailableException("Lekarz jest zajęty w tym terminie.");
-
-        if (!isPatientAvailable(appointment.getPatientId(), appointment.getDate(), null))
-            throw new PatientIsNotAvailableException("Pacjent jest zajęty w tym terminie.");
-
-        if (!isRoomAppropriateForDoctor(appointment.getDoctorId(), appointment.getRoom())) {
-            Doctor doctor = doctorRepository.findDoctorById(appointment.getDoctorId());
-            List<Room> rooms = roomRepository.findRoomsById(appointment.getRoom());
-            throw new InappropriateRoomException("Lekarz o specjalizacji " +
-                    (doctor != null ? doctor.getSpecialization().getDescription() : "nieznanej") +
-                    " nie może korzystać z sali typu " +
-                    (!rooms.isEmpty() ? rooms.getFirst().getType().getDescription() : "nieznany"));
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.createAppointment")) {
+            if (appointment == null) throw new IllegalArgumentException("Zabieg nie może być nullem!!");
+
+            if (!isDoctorWorkingOn(appointment.getDoctorId(), appointment.getDate()))
+                throw new DoctorIsNotAvailableException("Lekarz nie przyjmuje w tym dniu.");
+
+            if (!isRoomAppropriateForDoctor(appointment.getDoctorId(), appointment.getRoom())) {
+                Doctor doctor = doctorRepository.findDoctorById(appointment.getDoctorId());
+                List<Room> rooms = roomRepository.findRoomsById(appointment.getRoom());
+                throw new InappropriateRoomException("Lekarz o specjalizacji " +
+                        (doctor != null ? doctor.getSpecialization().getDescription() : "nieznanej") +
+                        " nie może korzystać z sali typu " +
+                        (!rooms.isEmpty() ? rooms.getFirst().getType().getDescription() : "nieznany"));
+            }
+
+            // Rezerwacje slotów wskazują wizytę, więc identyfikator musi istnieć przed zapisem
+            if (appointment.getId() == null) appointment.setId(new ObjectId());
+            rejectKnownConflicts(appointment);
+            try {
+                throwIfBusy(bookingGuard.book(appointment, null, session -> {
+                    if (session != null) collection.insertOne(session, appointment);
+                    else collection.insertOne(appointment);
+                    if (occupiesRoom(appointment)
+                            && !roomRepository.assignPatient(session, appointment.getRoom(), appointment.getPatientId())) {
+                        // Bez transakcji wizyta jest usuwana tutaj, a sloty zwalnia BookingGuard
+                        if (session == null) collection.deleteOne(eq("_id", appointment.getId()));
+                        throw new RoomFullException();
+                    }
+                }));
+            } catch (RoomFullException e) {
+                throw new InappropriateRoomException(e.getMessage());
+            } finally {
+                invalidateRooms(appointment);
+            }
+            schedule.put(appointment);
         }
-
-        collection.insertOne(appointment);
-        updateRoomAfterAppointmentCreation(appointment);
     }
 
     /**
@@ -82,16 +141,51 @@ public class AppointmentRepository {
      * @return wizyta jako Optional
      */
     public Optional<Appointment> findAppointmentById(ObjectId id) {
-        return Optional.ofNullable(collection.find(eq("_id", id)).first());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findAppointmentById")) {
+            return Optional.ofNullable(collection.find(eq("_id", id)).first());
+        }
+    }
+
+    /**
+     * Zwraca wizyty o podanych ID jednym zapytaniem ($in).
+     *
+     * @param ids identyfikatory wizyt
+     * @return lista znalezionych wizyt (kolejność nieokreślona)
+     */
+    public List<Appointment> findByIds(Collection<ObjectId> ids) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findByIds")) {
+            if (ids == null || ids.isEmpty()) return new ArrayList<>();
+            return collection.find(in("_id", ids)).into(new ArrayList<>());
+        }
     }
 
     /**
      * Zwraca wszystkie wizyty z bazy.
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
      *
      * @return lista wizyt
      */
     public List<Appointment> findAll() {
-        return collection.find().into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findAll")) {
+            return ReadRouting.read(session -> relaxedCollection.find(session).into(new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Zwraca stronę wizyt posortowanych po podanym polu (stronicowanie keyset).
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @param sort      pole sortowania, np. {@link #SORT_BY_DATE}
+     * @param ascending kierunek sortowania
+     * @param after     kursor poprzedniej strony lub {@code null} dla pierwszej
+     * @param size      rozmiar strony
+     * @return strona wizyt
+     */
+    public Page<Appointment> findPage(SortField<Appointment> sort, boolean ascending, PageCursor after, int size) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findPage")) {
+            return ReadRouting.read(session -> Page.fetch(session, relaxedCollection, null, null,
+                    sort, ascending, after, size));
+        }
     }
 
     /**
@@ -102,7 +196,22 @@ public class AppointmentRepository {
      */
     public List<Appointment> findAppointmentsByPatient(Patient patient) {
         if (patient == null) throw new IllegalArgumentException("Patient cannot be null");
-        return collection.find(eq("patientId", patient.getId())).into(new ArrayList<>());
+        return findAppointmentsByPatientId(patient.getId());
+    }
+
+    /**
+     * Zwraca wizyty pacjenta o podanym ID (historia leczenia, panel pacjenta).
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @param patientId identyfikator pacjenta
+     * @return lista wizyt
+     */
+    public List<Appointment> findAppointmentsByPatientId(ObjectId patientId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findAppointmentsByPatientId")) {
+            if (patientId == null) throw new IllegalArgumentException("Patient ID cannot be null");
+            return ReadRouting.read(session -> relaxedCollection.find(session, eq("patientId", patientId))
+                    .into(new ArrayList<>()));
+        }
     }
 
     /**
@@ -113,37 +222,107 @@ public class AppointmentRepository {
      */
     public List<Appointment> findAppointmentsByDoctor(Doctor doctor) {
         if (doctor == null) throw new IllegalArgumentException("Doctor cannot be null");
-        return collection.find(eq("doctorId", doctor.getId())).into(new ArrayList<>());
+        return findAppointmentsByDoctorId(doctor.getId());
     }
 
     /**
-     * Aktualizuje istniejącą wizytę po walidacji.
+     * Zwraca wizyty lekarza o podanym ID (panel lekarza, statystyki).
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @param doctorId identyfikator lekarza
+     * @return lista wizyt
+     */
+    public List<Appointment> findAppointmentsByDoctorId(ObjectId doctorId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findAppointmentsByDoctorId")) {
+            if (doctorId == null) throw new IllegalArgumentException("Doctor ID cannot be null");
+            return ReadRouting.read(session -> relaxedCollection.find(session, eq("doctorId", doctorId))
+                    .into(new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Zwraca wizyty lekarza w podanym dniu, posortowane według godziny (panel lekarza – dzisiejsze zabiegi).
+     * Zakres dat zawęża skan indeksu {@code doctorId_1_date_1} do jednego dnia zamiast całej historii lekarza.
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @param doctorId identyfikator lekarza
+     * @param day      dzień wizyt
+     * @return lista wizyt
+     */
+    public List<Appointment> findAppointmentsByDoctorIdOn(ObjectId doctorId, LocalDate day) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findAppointmentsByDoctorIdOn")) {
+            if (doctorId == null) throw new IllegalArgumentException("Doctor ID cannot be null");
+            if (day == null) throw new IllegalArgumentException("Day cannot be null");
+            Bson filter = and(eq("doctorId", doctorId),
+                    gte("date", day.atStartOfDay()), lt("date", day.plusDays(1).atStartOfDay()));
+            return ReadRouting.read(session -> relaxedCollection.find(session, filter)
+                    .sort(new Document("date", 1))
+                    .into(new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Liczy wizyty lekarza bez pobierania dokumentów ({@code countDocuments} po indeksie {@code doctorId_1_date_1}).
+     * Odczyt z primary – wynik decyduje o usunięciu lekarza.
+     *
+     * @param doctorId   identyfikator lekarza
+     * @param activeOnly czy liczyć tylko wizyty aktywne (zaplanowane i przełożone)
+     * @return liczba wizyt
+     */
+    public long countAppointmentsByDoctorId(ObjectId doctorId, boolean activeOnly) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.countAppointmentsByDoctorId")) {
+            if (doctorId == null) throw new IllegalArgumentException("Doctor ID cannot be null");
+            Bson filter = eq("doctorId", doctorId);
+            if (activeOnly) filter = and(filter, in("status", IndexManager.ACTIVE_STATUSES));
+            return collection.countDocuments(filter);
+        }
+    }
+
+    /**
+     * Aktualizuje istniejącą wizytę po walidacji; nowy termin i nowa sala są zajmowane tak samo jak w
+     * {@link #createAppointment(Appointment)}. Gdy nowa sala jest pełna, wizyta nie jest zmieniana, a sloty
+     * poprzedniego terminu pozostają zajęte (zwalniane są dopiero po udanym zapisie).
      *
      * @param appointment zaktualizowany obiekt wizyty
      * @return zaktualizowana wizyta
      * @throws DoctorIsNotAvailableException    lekarz zajęty
      * @throws PatientIsNotAvailableException   pacjent zajęty
-     * @throws InappropriateRoomException       sala niezgodna
+     * @throws InappropriateRoomException       sala niezgodna lub pełna
      */
     public Appointment updateAppointment(Appointment appointment)
             throws DoctorIsNotAvailableException, InappropriateRoomException, PatientIsNotAvailableException {
-        if (appointment == null) throw new IllegalArgumentException("Zabieg nie może być nullem!!");
-
-        Optional<Appointment> oldOpt = findAppointmentById(appointment.getId());
-        if (oldOpt.isEmpty()) throw new IllegalArgumentException("Nie znaleziono zabiegu o ID: " + appointment.getId());
-
-        if (!isDoctorAvailable(appointment.getDoctorId(), appointment.getDate(), appointment.getId()))
-            throw new DoctorIsNotAvailableException("Lekarz jest zajęty w tym terminie.");
-
-        if (!isPatientAvailable(appointment.getPatientId(), appointment.getDate(), appointment.getId()))
-            throw new PatientIsNotAvailableException("Pacjent jest zajęty w tym terminie.");
-
-        if (!isRoomAppropriateForDoctor(appointment.getDoctorId(), appointment.getRoom()))
-            throw new InappropriateRoomException("Wybrana sala nie odpowiada specjalizacji lekarza.");
-
-        collection.replaceOne(eq("_id", appointment.getId()), appointment);
-        updateRoomAfterAppointmentUpdate(oldOpt.get(), appointment);
-        return appointment;
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.updateAppointment")) {
+            if (appointment == null) throw new IllegalArgumentException("Zabieg nie może być nullem!!");
+
+            Optional<Appointment> oldOpt = findAppointmentById(appointment.getId());
+            if (oldOpt.isEmpty()) throw new IllegalArgumentException("Nie znaleziono zabiegu o ID: " + appointment.getId());
+
+            if (!isDoctorWorkingOn(appointment.getDoctorId(), appointment.getDate()))
+                throw new DoctorIsNotAvailableException("Lekarz nie przyjmuje w tym dniu.");
+
+            if (!isRoomAppropriateForDoctor(appointment.getDoctorId(), appointment.getRoom()))
+                throw new InappropriateRoomException("Wybrana sala nie odpowiada specjalizacji lekarza.");
+
+            Appointment previous = oldOpt.get();
+            rejectKnownConflicts(appointment);
+            try {
+                throwIfBusy(bookingGuard.book(appointment, previous, session -> {
+                    moveBetweenRooms(session, previous, appointment);
+                    try {
+                        replaceWith(appointment).accept(session);
+                    } catch (RuntimeException e) {
+                        if (session == null) undoRoomMove(previous, appointment);
+                        throw e;
+                    }
+                }));
+            } catch (RoomFullException e) {
+                throw new InappropriateRoomException(e.getMessage());
+            } finally {
+                invalidateRooms(previous, appointment);
+            }
+            schedule.put(appointment);
+            return appointment;
+        }
     }
 
     /**
@@ -152,9 +331,13 @@ public class AppointmentRepository {
      * @param id identyfikator wizyty
      */
     public void deleteAppointment(ObjectId id) {
-        Optional<Appointment> appointmentOpt = findAppointmentById(id);
-        appointmentOpt.ifPresent(this::updateRoomAfterAppointmentDeletion);
-        collection.deleteOne(eq("_id", id));
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.deleteAppointment")) {
+            Optional<Appointment> appointmentOpt = findAppointmentById(id);
+            appointmentOpt.ifPresent(this::updateRoomAfterAppointmentDeletion);
+            collection.deleteOne(eq("_id", id));
+            appointmentOpt.ifPresent(bookingGuard::cancel);
+            schedule.remove(id);
+        }
     }
 
     /**
@@ -164,62 +347,170 @@ public class AppointmentRepository {
      * @return lista pacjentów
      */
     public List<Patient> getPatientsInRoom(ObjectId roomId) {
-        List<Room> rooms = roomRepository.findRoomsById(roomId);
-        if (rooms.isEmpty()) return new ArrayList<>();
-
-        List<Patient> patients = new ArrayList<>();
-        for (ObjectId pid : rooms.getFirst().getPatientIds()) {
-            patientRepository.findPatientById(pid).stream().findFirst().ifPresent(patients::add);
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.getPatientsInRoom")) {
+            List<Room> rooms = roomRepository.findRoomsById(roomId);
+            if (rooms.isEmpty()) return new ArrayList<>();
+
+            List<Patient> patients = new ArrayList<>();
+            for (ObjectId pid : rooms.getFirst().getPatientIds()) {
+                patientRepository.findPatientById(pid).stream().findFirst().ifPresent(patients::add);
+            }
+            return patients;
         }
-        return patients;
     }
 
     /**
-     * Sprawdza dostępność lekarza w danym terminie.
+     * Zwraca lekarzy, którzy pracują w dniu podanego terminu i nie mają niezakończonej wizyty
+     * w ciągu 30 minut od niego.
+     *
+     * @see #findAvailableDoctors(LocalDateTime, Specialization, ObjectId)
      */
-    private boolean isDoctorAvailable(ObjectId doctorId, LocalDateTime appointmentDateTime, ObjectId excludeAppointmentId) {
-        Doctor doctor = doctorRepository.findDoctorById(doctorId);
-        if (doctor == null) return false;
+    public List<DoctorSummary> findAvailableDoctors(LocalDateTime appointmentDateTime, Specialization specialization) {
+        return findAvailableDoctors(appointmentDateTime, specialization, null);
+    }
 
-        Day appointmentDay = convertToDayEnum(appointmentDateTime.getDayOfWeek());
-        if (!doctor.getAvailableDays().contains(appointmentDay)) return false;
+    /**
+     * Zwraca lekarzy dostępnych w podanym terminie jednym zapytaniem (agregacja z anty-złączeniem
+     * z kolidującymi wizytami), niezależnie od liczby lekarzy.
+     *
+     * @param appointmentDateTime  termin wizyty
+     * @param specialization       wymagana specjalizacja lub {@code null} dla dowolnej
+     * @param excludeAppointmentId edytowana wizyta, której termin nie jest traktowany jako kolizja (może być {@code null})
+     * @return podsumowania dostępnych lekarzy
+     */
+    public List<DoctorSummary> findAvailableDoctors(LocalDateTime appointmentDateTime, Specialization specialization,
+                                                    ObjectId excludeAppointmentId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findAvailableDoctors")) {
+            if (appointmentDateTime == null) throw new IllegalArgumentException("Termin nie może być null");
 
-        LocalDateTime start = appointmentDateTime.toLocalDate().atStartOfDay();
-        LocalDateTime end = start.plusDays(1).minusNanos(1);
+            List<Bson> doctorFilters = new ArrayList<>();
+            doctorFilters.add(eq("availableDays", convertToDayEnum(appointmentDateTime.getDayOfWeek()).name()));
+            if (specialization != null) doctorFilters.add(eq("specialization", specialization.name()));
 
-        List<Appointment> appointments = collection.find(and(
-                eq("doctorId", doctorId),
-                ne("status", AppointmentStatus.COMPLETED),
-                gte("date", start),
-                lte("date", end)
-        )).into(new ArrayList<>());
+            return doctors.aggregate(withoutConflicts(and(doctorFilters), "doctorId", appointmentDateTime,
+                    excludeAppointmentId, SummaryCodecs.DOCTOR_SUMMARY_FIELDS)).into(new ArrayList<>());
+        }
+    }
 
-        if (excludeAppointmentId != null)
-            appointments.removeIf(a -> a.getId().equals(excludeAppointmentId));
+    /**
+     * Zwraca pacjentów bez niezakończonej wizyty w ciągu 30 minut od podanego terminu.
+     *
+     * @see #findAvailablePatients(LocalDateTime, ObjectId)
+     */
+    public List<PatientSummary> findAvailablePatients(LocalDateTime appointmentDateTime) {
+        return findAvailablePatients(appointmentDateTime, null);
+    }
 
-        return appointments.stream()
-                .noneMatch(a -> Math.abs(Duration.between(appointmentDateTime, a.getDate()).toMinutes()) < 30);
+    /**
+     * Zwraca pacjentów dostępnych w podanym terminie jednym zapytaniem.
+     *
+     * @param appointmentDateTime  termin wizyty
+     * @param excludeAppointmentId edytowana wizyta, której termin nie jest traktowany jako kolizja (może być {@code null})
+     * @return podsumowania dostępnych pacjentów
+     */
+    public List<PatientSummary> findAvailablePatients(LocalDateTime appointmentDateTime, ObjectId excludeAppointmentId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findAvailablePatients")) {
+            if (appointmentDateTime == null) throw new IllegalArgumentException("Termin nie może być null");
+            return patients.aggregate(withoutConflicts(new Document(), "patientId", appointmentDateTime,
+                    excludeAppointmentId, SummaryCodecs.PATIENT_SUMMARY_FIELDS)).into(new ArrayList<>());
+        }
     }
 
     /**
-     * Sprawdza dostępność pacjenta w danym terminie.
+     * Buduje potok: filtr osób → $lookup co najwyżej jednej kolidującej wizyty (indeks {@code <owner>_1_date_1})
+     * → pozostawienie tylko osób bez kolizji → projekcja pól podsumowania.
      */
-    private boolean isPatientAvailable(ObjectId patientId, LocalDateTime appointmentDateTime, ObjectId excludeAppointmentId) {
-        LocalDateTime start = appointmentDateTime.toLocalDate().atStartOfDay();
-        LocalDateTime end = start.plusDays(1).minusNanos(1);
+    private List<Bson> withoutConflicts(Bson ownerFilter, String ownerField, LocalDateTime appointmentDateTime,
+                                        ObjectId excludeAppointmentId, Bson summaryFields) {
+        List<Bson> conflictFilters = new ArrayList<>(List.of(
+                expr(new Document("$eq", List.of("$" + ownerField, "$$ownerId"))),
+                in("status", IndexManager.ACTIVE_STATUSES),
+                gt("date", appointmentDateTime.minus(AppointmentIntervalIndex.APPOINTMENT_DURATION)),
+                lt("date", appointmentDateTime.plus(AppointmentIntervalIndex.APPOINTMENT_DURATION))
+        ));
+        if (excludeAppointmentId != null) conflictFilters.add(ne("_id", excludeAppointmentId));
+
+        return List.of(
+                match(ownerFilter),
+                lookup("appointments",
+                        List.of(new Variable<>("ownerId", "$_id")),
+                        List.of(match(and(conflictFilters)), project(include("_id")), limit(1)),
+                        "conflicts"),
+                match(size("conflicts", 0)),
+                project(summaryFields)
+        );
+    }
 
-        List<Appointment> appointments = collection.find(and(
-                eq("patientId", patientId),
-                ne("status", AppointmentStatus.COMPLETED),
-                gte("date", start),
-                lte("date", end)
-        )).into(new ArrayList<>());
+    /**
+     * Szybkie odrzucenie kolizji widocznej w {@link AppointmentIntervalIndex} – jedno wyszukiwanie zakresu
+     * w harmonogramie lekarza i pacjenta, bez transakcji i bez zapisu rezerwacji, które trzeba by potem wycofać.
+     * Harmonogram ładowany jest z bazy tylko przy pierwszym pytaniu o daną osobę.
+     * <p>
+     * Wolny termin w indeksie nie jest jeszcze rezerwacją – o kolizji ostatecznie rozstrzyga {@link BookingGuard}.
+     * Dlatego harmonogram obejmuje tylko nadchodzące wizyty: brak starszych może dać co najwyżej „wolny” termin,
+     * który odrzuci dopiero zajęcie slotów.
+     * </p>
+     */
+    private void rejectKnownConflicts(Appointment appointment)
+            throws DoctorIsNotAvailableException, PatientIsNotAvailableException {
+        if (appointment.getStatus() != null && !appointment.getStatus().isActive()) return;
+        ObjectId id = appointment.getId();
+        LocalDateTime date = appointment.getDate();
+        if (!schedule.isDoctorFree(appointment.getDoctorId(), date, id,
+                () -> findUpcomingAppointments("doctorId", appointment.getDoctorId()))) {
+            throwIfBusy(BookingGuard.Outcome.DOCTOR_BUSY);
+        }
+        if (!schedule.isPatientFree(appointment.getPatientId(), date, id,
+                () -> findUpcomingAppointments("patientId", appointment.getPatientId()))) {
+            throwIfBusy(BookingGuard.Outcome.PATIENT_BUSY);
+        }
+    }
 
-        if (excludeAppointmentId != null)
-            appointments.removeIf(a -> a.getId().equals(excludeAppointmentId));
+    /**
+     * Zamienia odmowę {@link BookingGuard} (slot lekarza lub pacjenta jest już zajęty) na wyjątek.
+     */
+    private void throwIfBusy(BookingGuard.Outcome outcome)
+            throws DoctorIsNotAvailableException, PatientIsNotAvailableException {
+        switch (outcome) {
+            case DOCTOR_BUSY -> throw new DoctorIsNotAvailableException("Lekarz jest zajęty w tym terminie.");
+            case PATIENT_BUSY -> throw new PatientIsNotAvailableException("Pacjent jest zajęty w tym terminie.");
+            case BOOKED -> {
+            }
+        }
+    }
+
+    /**
+     * Sprawdza, czy lekarz przyjmuje w dniu wizyty. Kolizje terminów wykrywa dopiero zajęcie slotów
+     * ({@link SlotReservationRepository}) – bez przeszukiwania wizyt z danego dnia.
+     */
+    private boolean isDoctorWorkingOn(ObjectId doctorId, LocalDateTime appointmentDateTime) {
+        Doctor doctor = doctorRepository.findDoctorById(doctorId);
+        if (doctor == null) return false;
 
-        return appointments.stream()
-                .noneMatch(a -> Math.abs(Duration.between(appointmentDateTime, a.getDate()).toMinutes()) < 30);
+        Day appointmentDay = convertToDayEnum(appointmentDateTime.getDayOfWeek());
+        return doctor.getAvailableDays().contains(appointmentDay);
+    }
+
+    /**
+     * Zapis wizyty przez {@code replaceOne} – w sesji transakcji, jeśli {@link BookingGuard} ją przekaże.
+     */
+    private Consumer<ClientSession> replaceWith(Appointment appointment) {
+        return session -> {
+            if (session != null) collection.replaceOne(session, eq("_id", appointment.getId()), appointment);
+            else collection.replaceOne(eq("_id", appointment.getId()), appointment);
+        };
+    }
+
+    /**
+     * Pobiera z primary aktywne wizyty lekarza lub pacjenta, które jeszcze się nie zakończyły
+     * (do załadowania harmonogramu w indeksie).
+     */
+    private List<Appointment> findUpcomingAppointments(String field, ObjectId ownerId) {
+        return collection.find(and(
+                eq(field, ownerId),
+                in("status", IndexManager.ACTIVE_STATUSES),
+                gt("date", LocalDateTime.now().minus(AppointmentIntervalIndex.APPOINTMENT_DURATION))
+        )).into(new ArrayList<>());
     }
 
     /**
@@ -248,57 +539,98 @@ public class AppointmentRepository {
     }
 
     /**
-     * Dodaje pacjenta do sali po utworzeniu wizyty.
+     * Usuwa pacjenta z sali po usunięciu wizyty.
      */
-    private void updateRoomAfterAppointmentCreation(Appointment appointment) {
-        List<Room> rooms = roomRepository.findRoomsById(appointment.getRoom());
-        if (rooms.isEmpty()) return;
-        Room room = rooms.getFirst();
-
-        List<ObjectId> ids = room.getPatientIds();
-        if (!ids.contains(appointment.getPatientId())) {
-            ids.add(appointment.getPatientId());
-            room.setPatientIds(ids);
-            roomRepository.updateRoom(room.getId(), room);
-        }
+    private void updateRoomAfterAppointmentDeletion(Appointment appointment) {
+        if (occupiesRoom(appointment)) roomRepository.releasePatient(appointment.getRoom(), appointment.getPatientId());
     }
 
     /**
-     * Usuwa pacjenta z sali po usunięciu wizyty.
+     * Znajduje wszystkie zabiegi zaplanowane w danej sali (do wyświetlania).
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}); do decyzji o usunięciu
+     * sali służy {@link #countAppointmentsByRoom(ObjectId)}.
+     *
+     * @param roomId identyfikator sali
+     * @return lista zabiegów zaplanowanych w danej sali
      */
-    private void updateRoomAfterAppointmentDeletion(Appointment appointment) {
-        List<Room> rooms = roomRepository.findRoomsById(appointment.getRoom());
-        if (rooms.isEmpty()) return;
-        Room room = rooms.getFirst();
-
-        List<ObjectId> ids = room.getPatientIds();
-        if (ids.remove(appointment.getPatientId())) {
-            room.setPatientIds(ids);
-            roomRepository.updateRoom(room.getId(), room);
+    public List<Appointment> findAppointmentsByRoom(ObjectId roomId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.findAppointmentsByRoom")) {
+            if (roomId == null) {
+                throw new IllegalArgumentException("ID sali nie może być null");
+            }
+            return ReadRouting.read(session -> relaxedCollection.find(session, eq("room", roomId))
+                    .into(new ArrayList<>()));
         }
     }
 
     /**
-     * Znajduje wszystkie zabiegi zaplanowane w danej sali.
+     * Liczy zabiegi (o dowolnym statusie) odwołujące się do sali, bez pobierania dokumentów ({@code countDocuments}
+     * po indeksie {@code room_1_date_1}). Odczyt z primary, bo zabieg zapisany przed chwilą musi zablokować usunięcie sali.
      *
      * @param roomId identyfikator sali
-     * @return lista zabiegów zaplanowanych w danej sali
+     * @return liczba zabiegów w sali
      */
-    public List<Appointment> findAppointmentsByRoom(ObjectId roomId) {
-        if (roomId == null) {
-            throw new IllegalArgumentException("ID sali nie może być null");
+    public long countAppointmentsByRoom(ObjectId roomId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("AppointmentRepository.countAppointmentsByRoom")) {
+            if (roomId == null) {
+                throw new IllegalArgumentException("ID sali nie może być null");
+            }
+            return collection.countDocuments(eq("room", roomId));
+        }
+    }
+
+    /**
+     * Przenosi pacjenta wizyty z sali poprzedniej wersji do sali nowej, w sesji rezerwacji. Wizyta odwołana
+     * lub zakończona nie zajmuje miejsca w sali. Gdy w nowej sali nie ma miejsca, zgłasza
+     * {@link RoomFullException}; bez transakcji pacjent wraca najpierw do poprzedniej sali.
+     */
+    private void moveBetweenRooms(ClientSession session, Appointment from, Appointment to) {
+        if (sameRoomPlace(from, to)) return;
+        if (occupiesRoom(from)) roomRepository.releasePatient(session, from.getRoom(), from.getPatientId());
+        if (!occupiesRoom(to) || roomRepository.assignPatient(session, to.getRoom(), to.getPatientId())) return;
+        if (session == null && occupiesRoom(from)) restoreRoom(from);
+        throw new RoomFullException();
+    }
+
+    /**
+     * Cofa {@link #moveBetweenRooms} po nieudanym zapisie wizyty poza transakcją.
+     */
+    private void undoRoomMove(Appointment from, Appointment to) {
+        if (sameRoomPlace(from, to)) return;
+        if (occupiesRoom(to)) roomRepository.releasePatient(to.getRoom(), to.getPatientId());
+        if (occupiesRoom(from)) restoreRoom(from);
+    }
+
+    /**
+     * @return czy obie wersje wizyty zajmują (lub obie nie zajmują) to samo miejsce w sali
+     */
+    private static boolean sameRoomPlace(Appointment from, Appointment to) {
+        if (occupiesRoom(from) != occupiesRoom(to)) return false;
+        return !occupiesRoom(from)
+                || (from.getRoom().equals(to.getRoom()) && from.getPatientId().equals(to.getPatientId()));
+    }
+
+    /**
+     * Usuwa sale wizyty z {@link EntityCaches#ROOMS}. Wywoływane po {@link BookingGuard#book}, czyli po zatwierdzeniu
+     * transakcji – unieważnienie wewnątrz niej pozwoliłoby równoległemu odczytowi zapisać w pamięci stan sprzed commitu.
+     */
+    private static void invalidateRooms(Appointment... versions) {
+        for (Appointment version : versions) {
+            if (version.getRoom() != null) EntityCaches.ROOMS.invalidate(version.getRoom());
         }
-        return collection.find(eq("room", roomId)).into(new ArrayList<>());
+    }
+
+    private static boolean occupiesRoom(Appointment appointment) {
+        return appointment.getStatus() == null || appointment.getStatus().isActive();
     }
 
     /**
-     * Aktualizuje przypisania do sali po modyfikacji wizyty.
+     * Przywraca pacjenta do sali; jeśli miejsce zajęto w międzyczasie, niespójność jest zgłaszana w logu.
      */
-    private void updateRoomAfterAppointmentUpdate(Appointment oldAppointment, Appointment newAppointment) {
-        if (!oldAppointment.getRoom().equals(newAppointment.getRoom()) ||
-                !oldAppointment.getPatientId().equals(newAppointment.getPatientId())) {
-            updateRoomAfterAppointmentDeletion(oldAppointment);
-            updateRoomAfterAppointmentCreation(newAppointment);
+    private void restoreRoom(Appointment appointment) {
+        if (!roomRepository.assignPatient(appointment.getRoom(), appointment.getPatientId())) {
+            System.err.println("[ERROR] Nie udało się przywrócić pacjenta " + appointment.getPatientId()
+                    + " do sali " + appointment.getRoom() + " (wizyta " + appointment.getId() + ") – miejsce zajęto w międzyczasie");
         }
     }
 }
@@ -0,0 +1,81 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.klasy.DoctorSummary;
+import backend.klasy.Patient;
+import backend.klasy.PatientSummary;
+import backend.status.Specialization;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchroniczny odpowiednik {@link AppointmentRepository}; operacje wykonywane są w tle przez {@link AsyncQueries}.
+ * Wyjątki walidacji zapisu ({@code DoctorIsNotAvailableException} itd.) kończą zwrócony wynik wyjątkowo.
+ */
+public class AsyncAppointmentRepository {
+
+    private final AppointmentRepository repository;
+
+    /**
+     * @param repository repozytorium synchroniczne, któremu przekazywane są operacje
+     */
+    public AsyncAppointmentRepository(AppointmentRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @return repozytorium synchroniczne (do użycia w kodzie działającym już w tle)
+     */
+    public AppointmentRepository sync() {
+        return repository;
+    }
+
+    public CompletableFuture<Void> createAppointment(Appointment appointment) {
+        return AsyncQueries.run(() -> repository.createAppointment(appointment));
+    }
+
+    public CompletableFuture<Optional<Appointment>> findAppointmentById(ObjectId id) {
+        return AsyncQueries.supply(() -> repository.findAppointmentById(id));
+    }
+
+    public CompletableFuture<Page<Appointment>> findPage(SortField<Appointment> sort, boolean ascending,
+                                                        PageCursor after, int size) {
+        return AsyncQueries.supply(() -> repository.findPage(sort, ascending, after, size));
+    }
+
+    public CompletableFuture<List<Appointment>> findAppointmentsByPatientId(ObjectId patientId) {
+        return AsyncQueries.supply(() -> repository.findAppointmentsByPatientId(patientId));
+    }
+
+    public CompletableFuture<List<Appointment>> findAppointmentsByDoctorId(ObjectId doctorId) {
+        return AsyncQueries.supply(() -> repository.findAppointmentsByDoctorId(doctorId));
+    }
+
+    public CompletableFuture<List<Patient>> getPatientsInRoom(ObjectId roomId) {
+        return AsyncQueries.supply(() -> repository.getPatientsInRoom(roomId));
+    }
+
+    public CompletableFuture<List<DoctorSummary>> findAvailableDoctors(LocalDateTime appointmentDateTime,
+                                                                       Specialization specialization,
+                                                                       ObjectId excludeAppointmentId) {
+        return AsyncQueries.supply(() ->
+                repository.findAvailableDoctors(appointmentDateTime, specialization, excludeAppointmentId));
+    }
+
+    public CompletableFuture<List<PatientSummary>> findAvailablePatients(LocalDateTime appointmentDateTime,
+                                                                         ObjectId excludeAppointmentId) {
+        return AsyncQueries.supply(() -> repository.findAvailablePatients(appointmentDateTime, excludeAppointmentId));
+    }
+
+    public CompletableFuture<Appointment> updateAppointment(Appointment appointment) {
+        return AsyncQueries.supply(() -> repository.updateAppointment(appointment));
+    }
+
+    public CompletableFuture<Void> deleteAppointment(ObjectId id) {
+        return AsyncQueries.run(() -> repository.deleteAppointment(id));
+    }
+}
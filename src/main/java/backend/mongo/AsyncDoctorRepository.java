@@ -0,0 +1,68 @@
+package backend.mongo;
+
+import backend.klasy.Doctor;
+import backend.klasy.DoctorSummary;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchroniczny odpowiednik {@link DoctorRepository}; operacje wykonywane są w tle przez {@link AsyncQueries}.
+ */
+public class AsyncDoctorRepository {
+
+    private final DoctorRepository repository;
+
+    /**
+     * @param repository repozytorium synchroniczne, któremu przekazywane są operacje
+     */
+    public AsyncDoctorRepository(DoctorRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @return repozytorium synchroniczne (do użycia w kodzie działającym już w tle)
+     */
+    public DoctorRepository sync() {
+        return repository;
+    }
+
+    public CompletableFuture<Void> createDoctor(Doctor doctor) {
+        return AsyncQueries.run(() -> repository.createDoctor(doctor));
+    }
+
+    public CompletableFuture<Doctor> findDoctorById(ObjectId id) {
+        return AsyncQueries.supply(() -> repository.findDoctorById(id));
+    }
+
+    public CompletableFuture<List<Doctor>> findByIds(Collection<ObjectId> ids) {
+        return AsyncQueries.supply(() -> repository.findByIds(ids));
+    }
+
+    public CompletableFuture<List<DoctorSummary>> findAllSummaries() {
+        return AsyncQueries.supply(repository::findAllSummaries);
+    }
+
+    public CompletableFuture<List<DoctorSummary>> findSummariesByIds(Collection<ObjectId> ids) {
+        return AsyncQueries.supply(() -> repository.findSummariesByIds(ids));
+    }
+
+    public CompletableFuture<Page<DoctorSummary>> findSummaryPage(SortField<DoctorSummary> sort, boolean ascending,
+                                                                  PageCursor after, int size) {
+        return AsyncQueries.supply(() -> repository.findSummaryPage(sort, ascending, after, size));
+    }
+
+    public CompletableFuture<List<Doctor>> findCurrentDoctors() {
+        return AsyncQueries.supply(repository::findCurrentDoctors);
+    }
+
+    public CompletableFuture<Doctor> updateDoctor(Doctor doctor) {
+        return AsyncQueries.supply(() -> repository.updateDoctor(doctor));
+    }
+
+    public CompletableFuture<Void> deleteDoctor(ObjectId id) {
+        return AsyncQueries.run(() -> repository.deleteDoctor(id));
+    }
+}
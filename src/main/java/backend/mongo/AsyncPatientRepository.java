@@ -0,0 +1,79 @@
+package backend.mongo;
+
+import backend.klasy.Patient;
+import backend.klasy.PatientSummary;
+import backend.status.Diagnosis;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchroniczny odpowiednik {@link PatientRepository}: te same operacje, wykonywane w tle przez
+ * {@link AsyncQueries}, zwracają {@link CompletableFuture}. Pozwala ekranom wysłać kilka zapytań naraz
+ * i poczekać na wszystkie, zamiast wykonywać je po kolei.
+ */
+public class AsyncPatientRepository {
+
+    private final PatientRepository repository;
+
+    /**
+     * @param repository repozytorium synchroniczne, któremu przekazywane są operacje
+     */
+    public AsyncPatientRepository(PatientRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @return repozytorium synchroniczne (do użycia w kodzie działającym już w tle)
+     */
+    public PatientRepository sync() {
+        return repository;
+    }
+
+    public CompletableFuture<Void> createPatient(Patient patient) {
+        return AsyncQueries.run(() -> repository.createPatient(patient));
+    }
+
+    public CompletableFuture<List<Patient>> findByIds(Collection<ObjectId> ids) {
+        return AsyncQueries.supply(() -> repository.findByIds(ids));
+    }
+
+    public CompletableFuture<Patient> findPatientByPesel(long pesel) {
+        return AsyncQueries.supply(() -> repository.findPatientByPesel(pesel));
+    }
+
+    public CompletableFuture<List<PatientSummary>> findAllSummaries() {
+        return AsyncQueries.supply(repository::findAllSummaries);
+    }
+
+    public CompletableFuture<List<PatientSummary>> findSummariesByIds(Collection<ObjectId> ids) {
+        return AsyncQueries.supply(() -> repository.findSummariesByIds(ids));
+    }
+
+    public CompletableFuture<Page<PatientSummary>> findSummaryPage(SortField<PatientSummary> sort, boolean ascending,
+                                                                   PageCursor after, int size) {
+        return AsyncQueries.supply(() -> repository.findSummaryPage(sort, ascending, after, size));
+    }
+
+    public CompletableFuture<List<PatientSummary>> findSummariesWithAwaitingDiagnosis() {
+        return AsyncQueries.supply(repository::findSummariesWithAwaitingDiagnosis);
+    }
+
+    public CompletableFuture<Long> countPatientsWithAwaitingDiagnosis() {
+        return AsyncQueries.supply(repository::countPatientsWithAwaitingDiagnosis);
+    }
+
+    public CompletableFuture<Void> updateDiagnosis(ObjectId id, Diagnosis diagnosis) {
+        return AsyncQueries.run(() -> repository.updateDiagnosis(id, diagnosis));
+    }
+
+    public CompletableFuture<Patient> updatePatient(Patient patient) {
+        return AsyncQueries.supply(() -> repository.updatePatient(patient));
+    }
+
+    public CompletableFuture<Void> deletePatient(ObjectId id) {
+        return AsyncQueries.run(() -> repository.deletePatient(id));
+    }
+}
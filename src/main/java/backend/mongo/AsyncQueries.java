@@ -0,0 +1,125 @@
+package backend.mongo;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Wykonawca zapytań repozytoriów asynchronicznych ({@link AsyncPatientRepository} itd.).
+ * <p>
+ * Każde zapytanie wykonywane jest synchronicznym sterownikiem na osobnym wątku wirtualnym, więc czekanie
+ * na odpowiedź serwera nie blokuje wątku platformy. Liczba zapytań w toku jest ograniczona
+ * ({@link #MAX_CONCURRENT_QUERIES}) – ekran rozsyłający kilka zapytań naraz nie wyczerpie puli połączeń,
+ * nawet gdy kilka ekranów robi to jednocześnie.
+ * </p>
+ * <p>
+ * Limit jest celowo niezależny od limitu operacji ekranów ({@code BackgroundTasks}): operacja ekranu zajmuje
+ * miejsce w swoim limicie i czeka na kilka zapytań stąd. Przy jednym wspólnym semaforze operacje, które zajęły
+ * wszystkie miejsca, czekałyby na zapytania, które nie mogą wystartować (zakleszczenie). Dlatego limit zapytań
+ * jest większy niż limit operacji – każda operacja może mieć w toku co najmniej dwa zapytania naraz.
+ * </p>
+ * <p>
+ * Anulowanie zwróconego wyniku ({@link CompletableFuture#cancel(boolean)}) przerywa zapytanie: jeszcze
+ * oczekujące nie zostanie wysłane, a wykonywane zostaje przerwane wraz z połączeniem, więc odpowiedź nie jest
+ * dalej odbierana ani dekodowana, a miejsce w limicie zwalnia się od razu. Zapytania zastąpione nowszymi
+ * (np. przeliczenie dostępności po kolejnej zmianie godziny) anuluje się metodą {@link #cancel(CompletableFuture[])}.
+ * </p>
+ */
+public final class AsyncQueries {
+
+    /**
+     * Maksymalna liczba zapytań asynchronicznych wykonywanych jednocześnie.
+     */
+    public static final int MAX_CONCURRENT_QUERIES = 16;
+
+    private static final ExecutorService EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mongo-async-", 0).factory());
+    private static final Semaphore BULKHEAD = new Semaphore(MAX_CONCURRENT_QUERIES, true);
+
+    private AsyncQueries() {
+    }
+
+    /**
+     * Operacja bez wyniku, która może zgłosić wyjątek sprawdzany (np. walidacji wizyty).
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * Uruchamia zapytanie w tle.
+     *
+     * @param query zapytanie synchronicznego repozytorium
+     * @return przyszły wynik; błąd zapytania (także sprawdzany) kończy go wyjątkowo
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> worker = EXECUTOR.submit(() -> {
+            try {
+                BULKHEAD.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+                return;
+            }
+            try {
+                // Anulowane w czasie oczekiwania na miejsce – nie wysyłamy zapytania
+                if (!result.isDone()) result.complete(query.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                BULKHEAD.release();
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) worker.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Uruchamia operację bez wyniku w tle.
+     */
+    public static CompletableFuture<Void> run(Action action) {
+        return supply(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Czeka na wynik i zgłasza pierwotny wyjątek zapytania zamiast {@link CompletionException}.
+     * Do użycia w zadaniach w tle, które rozsyłają kilka zapytań naraz i składają wyniki.
+     *
+     * @param future wynik zapytania
+     * @return wynik
+     * @throws Exception wyjątek zgłoszony przez zapytanie
+     */
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Anuluje zapytania, które jeszcze trwają (zakończonych nie zmienia). Zadanie rozsyłające kilka zapytań
+     * wywołuje ją w bloku {@code finally}: gdy samo zostanie anulowane (przerwane w {@link #await}) albo jedno
+     * z zapytań zawiedzie, pozostałe nie obciążają dalej bazy.
+     *
+     * @param futures wyniki zapytań z {@link #supply(Callable)} lub {@link #run(Action)}
+     */
+    public static void cancel(CompletableFuture<?>... futures) {
+        for (CompletableFuture<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
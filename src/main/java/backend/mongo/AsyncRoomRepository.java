@@ -0,0 +1,67 @@
+package backend.mongo;
+
+import backend.klasy.Room;
+import backend.status.TypeOfRoom;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchroniczny odpowiednik {@link RoomRepository}; operacje wykonywane są w tle przez {@link AsyncQueries}.
+ */
+public class AsyncRoomRepository {
+
+    private final RoomRepository repository;
+
+    /**
+     * @param repository repozytorium synchroniczne, któremu przekazywane są operacje
+     */
+    public AsyncRoomRepository(RoomRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @return repozytorium synchroniczne (do użycia w kodzie działającym już w tle)
+     */
+    public RoomRepository sync() {
+        return repository;
+    }
+
+    public CompletableFuture<Void> createRoom(Room room) {
+        return AsyncQueries.run(() -> repository.createRoom(room));
+    }
+
+    public CompletableFuture<List<Room>> getAllRooms() {
+        return AsyncQueries.supply(repository::getAllRooms);
+    }
+
+    public CompletableFuture<List<Room>> findByIds(Collection<ObjectId> ids) {
+        return AsyncQueries.supply(() -> repository.findByIds(ids));
+    }
+
+    public CompletableFuture<List<Room>> findRoomByType(TypeOfRoom type) {
+        return AsyncQueries.supply(() -> repository.findRoomByType(type));
+    }
+
+    public CompletableFuture<List<Room>> findNotFullRooms() {
+        return AsyncQueries.supply(repository::findNotFullRooms);
+    }
+
+    public CompletableFuture<Room> updateRoom(ObjectId roomId, Room updatedRoom) {
+        return AsyncQueries.supply(() -> repository.updateRoom(roomId, updatedRoom));
+    }
+
+    public CompletableFuture<Boolean> deleteRoom(ObjectId id) {
+        return AsyncQueries.supply(() -> repository.deleteRoom(id));
+    }
+
+    public CompletableFuture<Boolean> assignPatient(ObjectId roomId, ObjectId patientId) {
+        return AsyncQueries.supply(() -> repository.assignPatient(roomId, patientId));
+    }
+
+    public CompletableFuture<Boolean> releasePatient(ObjectId roomId, ObjectId patientId) {
+        return AsyncQueries.supply(() -> repository.releasePatient(roomId, patientId));
+    }
+}
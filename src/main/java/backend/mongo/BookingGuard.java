@@ -0,0 +1,92 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import org.bson.Document;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Chroni przed podwójną rezerwacją terminu, gdy dwie osoby jednocześnie zapisują wizytę tego samego lekarza
+ * lub pacjenta. Przed zapisem wizyty zajmowane są jej sloty w {@link SlotReservationRepository}: unikalny indeks
+ * rezerwacji sprawia, że z dwóch równoległych rezerwacji tego samego slotu powiedzie się tylko jedna.
+ * <p>
+ * Na replica secie (lub klastrze shardowanym) rezerwacje i zapis wizyty wykonywane są w jednej transakcji
+ * ({@code withTransaction} ponawia ją przy błędach przejściowych), więc nie zostają osierocone rezerwacje.
+ * Na pojedynczym serwerze rezerwacje są zajmowane przed zapisem i zwalniane, jeśli zapis się nie powiedzie.
+ * Tryb wybiera {@link MongoTransactions}.
+ * </p>
+ */
+class BookingGuard {
+
+    /**
+     * Wynik rezerwacji.
+     */
+    enum Outcome {
+        BOOKED,
+        DOCTOR_BUSY,
+        PATIENT_BUSY
+    }
+
+    private final SlotReservationRepository reservations;
+
+    /**
+     * @param reservations repozytorium rezerwacji slotów
+     */
+    BookingGuard(SlotReservationRepository reservations) {
+        this.reservations = reservations;
+    }
+
+    /**
+     * Zajmuje sloty wizyty i zapisuje ją. Przy zmianie istniejącej wizyty zajmowane są tylko nowe sloty,
+     * a zwalniane – te, których nowy termin już nie obejmuje.
+     *
+     * @param appointment rezerwowana wizyta (nowy termin)
+     * @param previous    poprzednia wersja edytowanej wizyty lub {@code null} dla nowej
+     * @param write       zapis wizyty (i zależnych dokumentów, np. sali); w trybie transakcyjnym dostaje sesję,
+     *                    poza nim {@code null}. Wyjątek z zapisu wycofuje zajęte sloty, a sloty poprzedniej
+     *                    wersji pozostają zajęte; wyjątek jest przekazywany dalej
+     * @return wynik rezerwacji
+     */
+    Outcome book(Appointment appointment, Appointment previous, Consumer<ClientSession> write) {
+        List<Document> current = SlotReservationRepository.reservationsFor(appointment);
+        List<Document> before = previous != null ? SlotReservationRepository.reservationsFor(previous) : List.of();
+        List<Document> claims = SlotReservationRepository.difference(current, before);
+        List<Document> released = SlotReservationRepository.difference(before, current);
+
+        try {
+            MongoClient client = MongoDatabaseConnector.getClient();
+            if (MongoTransactions.supported(client)) {
+                try (ClientSession session = client.startSession()) {
+                    return session.withTransaction(() -> {
+                        reservations.claim(session, claims);
+                        reservations.release(session, appointment.getId(), released);
+                        write.accept(session);
+                        return Outcome.BOOKED;
+                    }, MongoTransactions.OPTIONS);
+                }
+            }
+
+            reservations.claim(null, claims);
+            try {
+                write.accept(null);
+            } catch (RuntimeException e) {
+                reservations.unclaim(null, claims);
+                throw e;
+            }
+            reservations.release(null, appointment.getId(), released);
+            return Outcome.BOOKED;
+        } catch (SlotReservationRepository.SlotTakenException e) {
+            return SlotReservationRepository.KIND_DOCTOR.equals(e.getKind()) ? Outcome.DOCTOR_BUSY : Outcome.PATIENT_BUSY;
+        }
+    }
+
+    /**
+     * Zwalnia sloty usuniętej wizyty.
+     */
+    void cancel(Appointment appointment) {
+        reservations.releaseAll(appointment.getId());
+    }
+}
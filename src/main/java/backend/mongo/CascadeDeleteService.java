@@ -0,0 +1,256 @@
+package backend.mongo;
+
+import backend.metrics.MongoMetrics;
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.nin;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Updates.pull;
+import static com.mongodb.client.model.Updates.pullAll;
+
+/**
+ * Usuwanie pacjenta lub lekarza razem z zależnymi danymi: wizytami, rezerwacjami slotów i przypisaniami do sal.
+ * <p>
+ * Zamiast usuwania wizyt pojedynczo (odczyt wizyty i zapis sali dla każdej z nich) operacje wykonywane są
+ * hurtowo. Historia (wizyty zakończone i odwołane), której może być bardzo dużo, usuwana jest najpierw, jednym
+ * {@code deleteMany} poza transakcją – jej błąd przerywa usuwanie, zanim zniknie sama osoba, więc można je
+ * po prostu powtórzyć. Transakcja ({@link MongoTransactions}, na replica secie) usuwa potem jednym
+ * {@code deleteMany} pozostałe wizyty osoby (aktywne oraz ewentualnie zakończone w międzyczasie), zwalnia
+ * rezerwacje slotów (po właścicielu i paczkami po {@value #BATCH_SIZE} identyfikatorów wizyt aktywnych),
+ * aktualizuje sale jednym {@code $pull}/{@code $pullAll} na salę, a na końcu usuwa samą osobę. Żadna wizyta nie
+ * zostaje więc bez pacjenta lub lekarza.
+ * </p>
+ */
+public class CascadeDeleteService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoCollection<Document> patients;
+    private final MongoCollection<Document> doctors;
+    private final MongoCollection<Document> appointments;
+    private final MongoCollection<Document> rooms;
+    private final MongoCollection<Document> reservations;
+    private final AppointmentIntervalIndex schedule = AppointmentIntervalIndex.shared();
+
+    /**
+     * Podsumowanie usunięcia.
+     */
+    public static final class Result {
+        private final boolean deleted;
+        private final long appointmentsDeleted;
+        private final long reservationsReleased;
+        private final long roomsUpdated;
+
+        private Result(boolean deleted, long appointmentsDeleted, long reservationsReleased, long roomsUpdated) {
+            this.deleted = deleted;
+            this.appointmentsDeleted = appointmentsDeleted;
+            this.reservationsReleased = reservationsReleased;
+            this.roomsUpdated = roomsUpdated;
+        }
+
+        /**
+         * @return czy usunięto samą osobę (false, jeśli już nie istniała)
+         */
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        public long getAppointmentsDeleted() {
+            return appointmentsDeleted;
+        }
+
+        public long getReservationsReleased() {
+            return reservationsReleased;
+        }
+
+        public long getRoomsUpdated() {
+            return roomsUpdated;
+        }
+
+        @Override
+        public String toString() {
+            return "usunięto wizyt: " + appointmentsDeleted + ", zwolniono slotów: " + reservationsReleased
+                    + ", zaktualizowano sal: " + roomsUpdated;
+        }
+    }
+
+    /**
+     * @param database baza danych szpitala
+     */
+    public CascadeDeleteService(MongoDatabase database) {
+        this.patients = database.getCollection("patients");
+        this.doctors = database.getCollection("doctors");
+        this.appointments = database.getCollection("appointments");
+        this.rooms = database.getCollection("rooms");
+        this.reservations = database.getCollection("slot_reservations");
+    }
+
+    /**
+     * Usuwa pacjenta, wszystkie jego wizyty i rezerwacje oraz wypisuje go ze wszystkich sal.
+     *
+     * @param patientId identyfikator pacjenta
+     * @return podsumowanie usunięcia
+     */
+    public Result deletePatient(ObjectId patientId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("CascadeDeleteService.deletePatient")) {
+            if (patientId == null) throw new IllegalArgumentException("Brak id pacjenta");
+
+            long history = deleteHistory("patientId", patientId);
+            List<ObjectId> activeIds = new ArrayList<>();
+            Result active = MongoTransactions.run(session -> {
+                activeIds.clear();
+                for (Document appointment : appointments.find(session, activeOf("patientId", patientId))
+                        .projection(include("_id"))) {
+                    activeIds.add(appointment.getObjectId("_id"));
+                }
+                long deletedAppointments = appointments.deleteMany(session, eq("patientId", patientId)).getDeletedCount();
+                long released = releaseReservations(session, patientId, activeIds);
+                long updatedRooms = rooms.updateMany(session, eq("patientIds", patientId), pull("patientIds", patientId))
+                        .getModifiedCount();
+                boolean deleted = patients.deleteOne(session, eq("_id", patientId)).getDeletedCount() > 0;
+                return new Result(deleted, deletedAppointments, released, updatedRooms);
+            });
+
+            EntityCaches.PATIENTS.invalidate(patientId);
+            if (active.getRoomsUpdated() > 0) EntityCaches.ROOMS.invalidateAll();
+            activeIds.forEach(schedule::remove);
+            Result result = withHistory(active, history);
+            System.out.println("[INFO] Usunięto pacjenta " + patientId + ": " + result);
+            return result;
+        }
+    }
+
+    /**
+     * Usuwa lekarza i wszystkie jego wizyty; pacjenci aktywnych wizyt są wypisywani z sal, do których wizyty ich
+     * przypisały – chyba że w tej samej sali mają jeszcze aktywną wizytę u innego lekarza.
+     *
+     * @param doctorId identyfikator lekarza
+     * @return podsumowanie usunięcia
+     */
+    public Result deleteDoctor(ObjectId doctorId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("CascadeDeleteService.deleteDoctor")) {
+            if (doctorId == null) throw new IllegalArgumentException("Brak id lekarza");
+
+            long history = deleteHistory("doctorId", doctorId);
+            List<ObjectId> activeIds = new ArrayList<>();
+            Set<ObjectId> touchedRooms = new LinkedHashSet<>();
+            Result active = MongoTransactions.run(session -> {
+                activeIds.clear();
+                touchedRooms.clear();
+                Map<ObjectId, Set<ObjectId>> roomPatients = new HashMap<>();
+                for (Document appointment : appointments.find(session, activeOf("doctorId", doctorId))
+                        .projection(include("_id", "patientId", "room"))) {
+                    activeIds.add(appointment.getObjectId("_id"));
+                    ObjectId room = appointment.getObjectId("room");
+                    ObjectId patient = appointment.getObjectId("patientId");
+                    if (room != null && patient != null) {
+                        roomPatients.computeIfAbsent(room, r -> new HashSet<>()).add(patient);
+                    }
+                }
+                long deletedAppointments = appointments.deleteMany(session, eq("doctorId", doctorId)).getDeletedCount();
+                long released = releaseReservations(session, doctorId, activeIds);
+                long updatedRooms = releaseRooms(session, roomPatients);
+                touchedRooms.addAll(roomPatients.keySet());
+                boolean deleted = doctors.deleteOne(session, eq("_id", doctorId)).getDeletedCount() > 0;
+                return new Result(deleted, deletedAppointments, released, updatedRooms);
+            });
+
+            EntityCaches.DOCTORS.invalidate(doctorId);
+            touchedRooms.forEach(EntityCaches.ROOMS::invalidate);
+            activeIds.forEach(schedule::remove);
+            Result result = withHistory(active, history);
+            System.out.println("[INFO] Usunięto lekarza " + doctorId + ": " + result);
+            return result;
+        }
+    }
+
+    private static Bson activeOf(String field, ObjectId id) {
+        return and(eq(field, id), in("status", IndexManager.ACTIVE_STATUSES));
+    }
+
+    /**
+     * Usuwa rezerwacje osoby (po właścicielu) i rezerwacje drugiej strony usuwanych wizyt (paczkami).
+     * Rezerwacje mają tylko wizyty aktywne, więc wystarczą identyfikatory wizyt aktywnych.
+     */
+    private long releaseReservations(ClientSession session, ObjectId ownerId, List<ObjectId> appointmentIds) {
+        long released = reservations.deleteMany(session, eq("owner", ownerId)).getDeletedCount();
+        for (List<ObjectId> batch : batches(appointmentIds)) {
+            released += reservations.deleteMany(session, in("appointmentId", batch)).getDeletedCount();
+        }
+        return released;
+    }
+
+    /**
+     * Wypisuje pacjentów z sal (jedno {@code $pullAll} na salę), pomijając pary (sala, pacjent), które nadal
+     * zajmuje inna aktywna wizyta. Wywoływane po usunięciu wizyt lekarza.
+     */
+    private long releaseRooms(ClientSession session, Map<ObjectId, Set<ObjectId>> roomPatients) {
+        Set<ObjectId> allPatients = new HashSet<>();
+        roomPatients.values().forEach(allPatients::addAll);
+        for (List<ObjectId> batch : batches(new ArrayList<>(allPatients))) {
+            for (Document remaining : appointments.find(session, and(in("patientId", batch),
+                            in("status", IndexManager.ACTIVE_STATUSES)))
+                    .projection(include("patientId", "room"))) {
+                Set<ObjectId> patientsInRoom = roomPatients.get(remaining.getObjectId("room"));
+                if (patientsInRoom != null) patientsInRoom.remove(remaining.getObjectId("patientId"));
+            }
+        }
+        roomPatients.values().removeIf(Set::isEmpty);
+
+        List<WriteModel<Document>> roomUpdates = new ArrayList<>();
+        roomPatients.forEach((room, patientIds) ->
+                roomUpdates.add(new UpdateOneModel<>(eq("_id", room), pullAll("patientIds", new ArrayList<>(patientIds)))));
+        long updated = 0;
+        for (List<WriteModel<Document>> batch : batches(roomUpdates)) {
+            updated += rooms.bulkWrite(session, batch).getModifiedCount();
+        }
+        return updated;
+    }
+
+    /**
+     * Usuwa historię (wizyty nieaktywne) przed transakcją, jednym poleceniem wykonywanym w całości na serwerze.
+     * Historia nie ma rezerwacji ani miejsc w salach, więc nie musi być częścią transakcji, której rozmiar
+     * rósłby z liczbą wizyt. Błąd jest zgłaszany dalej – osoba i jej aktywne wizyty pozostają wtedy nietknięte.
+     */
+    private long deleteHistory(String field, ObjectId id) {
+        try {
+            return appointments.deleteMany(and(eq(field, id), nin("status", IndexManager.ACTIVE_STATUSES)))
+                    .getDeletedCount();
+        } catch (MongoException e) {
+            System.err.println("[ERROR] Nie udało się usunąć historii wizyt (" + field + "=" + id + "): " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private static Result withHistory(Result active, long historyDeleted) {
+        return new Result(active.deleted, active.appointmentsDeleted + historyDeleted,
+                active.reservationsReleased, active.roomsUpdated);
+    }
+
+    private static <T> List<List<T>> batches(List<T> items) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += BATCH_SIZE) {
+            batches.add(items.subList(from, Math.min(items.size(), from + BATCH_SIZE)));
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,338 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.klasy.Doctor;
+import backend.klasy.Patient;
+import backend.klasy.Room;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nasłuchuje zmian w kolekcjach {@code appointments}, {@code patients}, {@code rooms} i {@code doctors}
+ * przy użyciu change streams MongoDB i przekazuje je zarejestrowanym słuchaczom.
+ * <p>
+ * Każda kolekcja ma własny wątek (demon), który po błędzie sieci wznawia strumień od ostatniego
+ * tokenu wznowienia. Zmiany lekarzy, sal i pacjentów unieważniają wpisy w {@link EntityCaches},
+ * a zmiany wizyt aktualizują {@link AppointmentIntervalIndex}, także gdy pochodzą z innych stanowisk.
+ * Change streams wymagają replica setu (wystarczy jednowęzłowy, np. {@code mongod --replSet rs0} + {@code rs.initiate()}); na serwerze standalone nasłuch jest wyłączany,
+ * a {@link #isActive()} zwraca {@code false}.
+ * </p>
+ * <p>
+ * Strumienie otwierane są w tle, ale zaczynają od czasu operacji serwera zapamiętanego w {@link #start()}
+ * ({@code startAtOperationTime}), a po utracie tokenu wznowienia – od czasu zapamiętanego przed poleceniem
+ * przeładowania danych. Zmiana zapisana między odczytem danych ekranu a otwarciem kursora nie zostanie więc pominięta,
+ * o ile ekran zarejestruje słuchacza przed odczytem.
+ * </p>
+ */
+public class ChangeStreamWatcher implements AutoCloseable {
+
+    /**
+     * Kod błędu serwera standalone: "$changeStream stage is only supported on replica sets".
+     */
+    private static final int NOT_A_REPLICA_SET = 40573;
+    private static final long RETRY_DELAY_MS = 2_000;
+
+    private static ChangeStreamWatcher shared;
+
+    private final MongoDatabase database;
+    private final Map<String, CopyOnWriteArrayList<ChangeListener<?>>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> openStreams = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private volatile boolean unsupported;
+
+    /**
+     * Słuchacz zmian w kolekcji. Metody wywoływane są na wątku nasłuchu, a nie na wątku JavaFX.
+     *
+     * @param <T> typ dokumentu kolekcji
+     */
+    public interface ChangeListener<T> {
+        /**
+         * Dokument został dodany, zmieniony lub zastąpiony.
+         *
+         * @param id       identyfikator dokumentu
+         * @param document aktualna wersja dokumentu
+         */
+        void onUpsert(ObjectId id, T document);
+
+        /**
+         * Dokument został usunięty.
+         *
+         * @param id identyfikator usuniętego dokumentu
+         */
+        void onDelete(ObjectId id);
+
+        /**
+         * Strumień został unieważniony (np. usunięto kolekcję) – dane trzeba przeładować w całości.
+         */
+        default void onReset() {
+        }
+    }
+
+    /**
+     * Tworzy obserwatora dla podanej bazy. Wątki startują przy wywołaniu {@link #start()}.
+     *
+     * @param database obiekt MongoDatabase reprezentujący połączenie z bazą danych
+     */
+    public ChangeStreamWatcher(MongoDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Zwraca współdzielonego obserwatora aplikacji, uruchamiając go przy pierwszym użyciu.
+     */
+    public static synchronized ChangeStreamWatcher shared() {
+        if (shared == null) {
+            shared = new ChangeStreamWatcher(MongoDatabaseConnector.connectToDatabase());
+            shared.start();
+            AppointmentIntervalIndex.shared().setLiveUpdates(shared::isActive);
+        }
+        return shared;
+    }
+
+    /**
+     * Zatrzymuje współdzielonego obserwatora (wywoływane przy zamykaniu połączenia).
+     */
+    public static synchronized void closeShared() {
+        if (shared != null) {
+            AppointmentIntervalIndex.shared().setLiveUpdates(null);
+            shared.close();
+            shared = null;
+        }
+    }
+
+    /**
+     * Uruchamia wątki nasłuchu dla wszystkich czterech kolekcji.
+     */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        BsonTimestamp startAt = operationTime();
+        startStream("appointments", Appointment.class, startAt);
+        startStream("patients", Patient.class, startAt);
+        startStream("rooms", Room.class, startAt);
+        startStream("doctors", Doctor.class, startAt);
+    }
+
+    /**
+     * @return {@code true}, jeśli strumienie wszystkich kolekcji są otwarte i zmiany są dostarczane na bieżąco
+     */
+    public boolean isActive() {
+        return running && !unsupported && openStreams.size() == 4
+                && openStreams.values().stream().allMatch(Boolean::booleanValue);
+    }
+
+    public AutoCloseable onAppointments(ChangeListener<Appointment> listener) {
+        return subscribe("appointments", listener);
+    }
+
+    public AutoCloseable onPatients(ChangeListener<Patient> listener) {
+        return subscribe("patients", listener);
+    }
+
+    public AutoCloseable onRooms(ChangeListener<Room> listener) {
+        return subscribe("rooms", listener);
+    }
+
+    public AutoCloseable onDoctors(ChangeListener<Doctor> listener) {
+        return subscribe("doctors", listener);
+    }
+
+    /**
+     * Rejestruje słuchacza; zamknięcie zwróconego obiektu wyrejestrowuje go.
+     */
+    private AutoCloseable subscribe(String collection, ChangeListener<?> listener) {
+        CopyOnWriteArrayList<ChangeListener<?>> list =
+                listeners.computeIfAbsent(collection, c -> new CopyOnWriteArrayList<>());
+        list.add(listener);
+        return () -> list.remove(listener);
+    }
+
+    /**
+     * Zatrzymuje nasłuch. Wątki kończą pracę po najbliższym wybudzeniu kursora (maks. ok. 1 s).
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        listeners.clear();
+    }
+
+    private <T> void startStream(String collection, Class<T> type, BsonTimestamp startAt) {
+        Thread thread = new Thread(() -> watch(collection, type, startAt), "change-stream-" + collection);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Pętla nasłuchu jednej kolekcji z automatycznym wznawianiem po błędach.
+     */
+    private <T> void watch(String collection, Class<T> type, BsonTimestamp initialStartAt) {
+        BsonDocument resumeToken = null;
+        BsonTimestamp startAt = initialStartAt;
+
+        while (running && !unsupported) {
+            var stream = database.getCollection(collection, type)
+                    .watch()
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) {
+                stream = stream.resumeAfter(resumeToken);
+            } else if (startAt != null) {
+                stream = stream.startAtOperationTime(startAt);
+            }
+
+            try (MongoChangeStreamCursor<ChangeStreamDocument<T>> cursor = stream.cursor()) {
+                openStreams.put(collection, true);
+                while (running) {
+                    ChangeStreamDocument<T> change = cursor.tryNext();
+                    if (change == null) {
+                        // Serwer zamknął kursor – dalsze tryNext() wracałyby od razu bez getMore
+                        if (cursor.getServerCursor() == null) break;
+                        continue;
+                    }
+                    if (invalidates(change.getOperationType())) break;
+                    resumeToken = change.getResumeToken();
+                    startAt = null;
+                    dispatch(collection, change);
+                }
+                // Po usunięciu lub zmianie nazwy kolekcji strumienia nie da się wznowić tokenem – otwieramy nowy
+                // od czasu zapamiętanego przed przeładowaniem danych
+                openStreams.put(collection, false);
+                if (!running) break;
+                resumeToken = null;
+                startAt = operationTime();
+                reset(collection);
+            } catch (MongoCommandException e) {
+                openStreams.put(collection, false);
+                if (e.getErrorCode() == NOT_A_REPLICA_SET) {
+                    if (!unsupported) {
+                        unsupported = true;
+                        System.err.println("[INFO] Serwer MongoDB nie jest replica setem – odświeżanie na żywo wyłączone.");
+                    }
+                    return;
+                }
+                // Token (lub czas startu) mógł wypaść z oplogu – zaczynamy od bieżącego momentu, zapamiętanego
+                // przed przeładowaniem danych, żeby zmiany z czasu przeładowania też dotarły
+                resumeToken = null;
+                startAt = operationTime();
+                reset(collection);
+                pause(e);
+            } catch (MongoException e) {
+                openStreams.put(collection, false);
+                pause(e);
+            }
+        }
+        openStreams.remove(collection);
+    }
+
+    /**
+     * Przekazuje zmianę do pamięci podręcznej i słuchaczy.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void dispatch(String collection, ChangeStreamDocument<T> change) {
+        switch (change.getOperationType()) {
+            case INSERT, UPDATE, REPLACE -> {
+                ObjectId id = documentId(change);
+                if (id == null) return;
+                invalidateCache(collection, id);
+                T document = change.getFullDocument();
+                if (document instanceof Appointment appointment) {
+                    AppointmentIntervalIndex.shared().put(appointment);
+                } else if (document == null && "appointments".equals(collection)) {
+                    AppointmentIntervalIndex.shared().remove(id);
+                }
+                for (ChangeListener<?> listener : listeners.getOrDefault(collection, new CopyOnWriteArrayList<>())) {
+                    ChangeListener<T> typed = (ChangeListener<T>) listener;
+                    // Dokument mógł zostać usunięty zanim serwer go dociągnął (UPDATE_LOOKUP)
+                    if (document != null) typed.onUpsert(id, document); else typed.onDelete(id);
+                }
+            }
+            case DELETE -> {
+                ObjectId id = documentId(change);
+                if (id == null) return;
+                invalidateCache(collection, id);
+                if ("appointments".equals(collection)) AppointmentIntervalIndex.shared().remove(id);
+                listeners.getOrDefault(collection, new CopyOnWriteArrayList<>()).forEach(l -> l.onDelete(id));
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Zdarzenia, po których serwer zamyka kursor strumienia.
+     */
+    private static boolean invalidates(OperationType type) {
+        return type == OperationType.DROP || type == OperationType.RENAME
+                || type == OperationType.DROP_DATABASE || type == OperationType.INVALIDATE;
+    }
+
+    private void reset(String collection) {
+        cacheFor(collection).ifPresent(EntityCache::invalidateAll);
+        if ("appointments".equals(collection)) AppointmentIntervalIndex.shared().invalidateAll();
+        listeners.getOrDefault(collection, new CopyOnWriteArrayList<>()).forEach(ChangeListener::onReset);
+    }
+
+    /**
+     * Zwraca bieżący czas operacji serwera (z odpowiedzi na {@code ping} w sesji) albo {@code null},
+     * gdy serwer go nie podaje (standalone) lub nie odpowiada – strumień zacznie wtedy od chwili otwarcia.
+     */
+    private BsonTimestamp operationTime() {
+        MongoClient client = MongoDatabaseConnector.getClient();
+        if (client == null) return null;
+        try (ClientSession session = client.startSession()) {
+            database.runCommand(session, new Document("ping", 1));
+            return session.getOperationTime();
+        } catch (MongoException e) {
+            return null;
+        }
+    }
+
+    private void invalidateCache(String collection, ObjectId id) {
+        cacheFor(collection).ifPresent(cache -> cache.invalidate(id));
+    }
+
+    private static Optional<EntityCache<ObjectId, ?>> cacheFor(String collection) {
+        return switch (collection) {
+            case "doctors" -> Optional.of(EntityCaches.DOCTORS);
+            case "rooms" -> Optional.of(EntityCaches.ROOMS);
+            case "patients" -> Optional.of(EntityCaches.PATIENTS);
+            default -> Optional.empty();
+        };
+    }
+
+    private static ObjectId documentId(ChangeStreamDocument<?> change) {
+        BsonDocument key = change.getDocumentKey();
+        if (key == null) return null;
+        BsonValue id = key.get("_id");
+        return id != null && id.isObjectId() ? id.asObjectId().getValue() : null;
+    }
+
+    private void pause(MongoException e) {
+        if (!running) return;
+        System.err.println("[ERROR] Błąd strumienia zmian: " + e.getMessage() + " – ponowna próba za " + RETRY_DELAY_MS + " ms");
+        try {
+            Thread.sleep(RETRY_DELAY_MS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package backend.mongo;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ustawienia połączenia z MongoDB: adres, pula połączeń, limity czasu, kompresja oraz read/write concern.
+ * <p>
+ * Każde ustawienie {@code klucz} (np. {@code pool.maxSize}) brane jest z pierwszego źródła, które je podaje:
+ * </p>
+ * <ol>
+ *     <li>właściwość systemowa {@code -Dhospital.mongo.klucz},</li>
+ *     <li>zmienna środowiskowa {@code HOSPITAL_MONGO_KLUCZ} (kropki zamienione na podkreślenia),</li>
+ *     <li>plik właściwości z kluczem {@code mongo.klucz} – wskazany przez {@code -Dhospital.config}
+ *     lub {@code HOSPITAL_CONFIG}, domyślnie {@code hospital.properties} w katalogu roboczym (jeśli istnieje),</li>
+ *     <li>opcja zapisana w samym URI (np. {@code ?maxPoolSize=50}),</li>
+ *     <li>wartość domyślna.</li>
+ * </ol>
+ * <p>
+ * Domyślne limity czasu są krótkie ({@value #DEFAULT_SERVER_SELECTION_TIMEOUT_MS} ms na wybór serwera zamiast
+ * 30 s sterownika), żeby niedostępny serwer nie blokował aplikacji. Kompresory niedostępne na ścieżce klas
+ * (zstd wymaga {@code zstd-jni}, snappy – {@code snappy-java}) są pomijane; serwer wybiera pierwszy z listy,
+ * który sam obsługuje.
+ * </p>
+ * <p>
+ * Odczyty tolerujące opóźnienie ({@link ReadRouting}) używają preferencji {@code readPreference.relaxed}
+ * (domyślnie {@code secondaryPreferred}) z {@code maxStalenessSeconds} (domyślnie 90 – minimum dopuszczane
+ * przez sterownik); {@code primary} wyłącza kierowanie ich na sekundariusze.
+ * </p>
+ */
+public final class ConnectionProfile {
+
+    private static final String PROPERTY_PREFIX = "hospital.mongo.";
+    private static final String ENV_PREFIX = "HOSPITAL_MONGO_";
+    private static final String FILE_PREFIX = "mongo.";
+    private static final String CONFIG_FILE_PROPERTY = "hospital.config";
+    private static final String CONFIG_FILE_ENV = "HOSPITAL_CONFIG";
+    private static final String DEFAULT_CONFIG_FILE = "hospital.properties";
+
+    private static final String DEFAULT_URI = "mongodb://192.168.141.191:27017";
+    private static final String DEFAULT_DATABASE = "hospitalDB";
+    private static final int DEFAULT_POOL_MIN_SIZE = 4;
+    private static final int DEFAULT_POOL_MAX_SIZE = 50;
+    private static final long DEFAULT_POOL_MAX_IDLE_MS = 300_000;
+    private static final int DEFAULT_CONNECT_TIMEOUT_MS = 2_000;
+    private static final int DEFAULT_SOCKET_TIMEOUT_MS = 30_000;
+    private static final long DEFAULT_SERVER_SELECTION_TIMEOUT_MS = 3_000;
+    private static final String DEFAULT_COMPRESSORS = "zstd,snappy,zlib";
+    private static final String DEFAULT_RELAXED_READ_PREFERENCE = "secondaryPreferred";
+    private static final int DEFAULT_MAX_STALENESS_SECONDS = 90;
+
+    private final ConnectionString uri;
+    private final String database;
+    private final int poolMinSize;
+    private final int poolMaxSize;
+    private final long poolMaxIdleMillis;
+    private final int connectTimeoutMillis;
+    private final int socketTimeoutMillis;
+    private final long serverSelectionTimeoutMillis;
+    private final List<String> compressors;
+    private final ReadConcern readConcern;
+    private final WriteConcern writeConcern;
+    private final ReadPreference relaxedReadPreference;
+    private final String source;
+
+    private ConnectionProfile(Properties file, String source) {
+        this.source = source;
+        this.uri = new ConnectionString(value(file, "uri", DEFAULT_URI));
+        this.database = value(file, "database", uri.getDatabase() != null ? uri.getDatabase() : DEFAULT_DATABASE);
+        this.poolMinSize = intValue(file, "pool.minSize", uri.getMinConnectionPoolSize(), DEFAULT_POOL_MIN_SIZE);
+        this.poolMaxSize = intValue(file, "pool.maxSize", uri.getMaxConnectionPoolSize(), DEFAULT_POOL_MAX_SIZE);
+        this.poolMaxIdleMillis = intValue(file, "pool.maxIdleMillis", uri.getMaxConnectionIdleTime(),
+                (int) DEFAULT_POOL_MAX_IDLE_MS);
+        this.connectTimeoutMillis = intValue(file, "connectTimeoutMillis", uri.getConnectTimeout(), DEFAULT_CONNECT_TIMEOUT_MS);
+        this.socketTimeoutMillis = intValue(file, "socketTimeoutMillis", uri.getSocketTimeout(), DEFAULT_SOCKET_TIMEOUT_MS);
+        this.serverSelectionTimeoutMillis = intValue(file, "serverSelectionTimeoutMillis", uri.getServerSelectionTimeout(),
+                (int) DEFAULT_SERVER_SELECTION_TIMEOUT_MS);
+        this.compressors = parseCompressors(value(file, "compressors",
+                uri.getCompressorList().isEmpty() ? DEFAULT_COMPRESSORS : null));
+        String readConcernName = value(file, "readConcern", null);
+        this.readConcern = readConcernName != null ? parseReadConcern(readConcernName) : uri.getReadConcern();
+        String writeConcernName = value(file, "writeConcern", null);
+        this.writeConcern = writeConcernName != null ? parseWriteConcern(writeConcernName) : uri.getWriteConcern();
+        this.relaxedReadPreference = parseReadPreference(value(file, "readPreference.relaxed", DEFAULT_RELAXED_READ_PREFERENCE),
+                intValue(file, "maxStalenessSeconds", null, DEFAULT_MAX_STALENESS_SECONDS));
+
+        if (poolMinSize < 0 || poolMaxSize <= 0 || poolMinSize > poolMaxSize) {
+            throw new IllegalArgumentException("Niepoprawny rozmiar puli połączeń: min=" + poolMinSize + ", max=" + poolMaxSize);
+        }
+    }
+
+    /**
+     * Wczytuje ustawienia ze wszystkich źródeł.
+     *
+     * @return profil połączenia
+     * @throws IllegalArgumentException niepoprawna wartość ustawienia lub nieczytelny wskazany plik
+     */
+    public static ConnectionProfile load() {
+        String configured = System.getProperty(CONFIG_FILE_PROPERTY, System.getenv(CONFIG_FILE_ENV));
+        Path path = Path.of(configured != null ? configured : DEFAULT_CONFIG_FILE);
+        Properties file = new Properties();
+        if (Files.isReadable(path)) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                file.load(reader);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Nie udało się wczytać " + path + ": " + e.getMessage(), e);
+            }
+            return new ConnectionProfile(file, path.toAbsolutePath().toString());
+        }
+        if (configured != null) {
+            throw new IllegalArgumentException("Plik konfiguracji nie istnieje: " + path);
+        }
+        return new ConnectionProfile(file, "domyślne");
+    }
+
+    /**
+     * Ustawia adres i wszystkie parametry profilu w budowniczym ustawień klienta.
+     *
+     * @param settings budowniczy ustawień (kodeki i nasłuchiwacze ustawia {@link MongoDatabaseConnector})
+     * @return ten sam budowniczy
+     */
+    public MongoClientSettings.Builder applyTo(MongoClientSettings.Builder settings) {
+        settings.applyConnectionString(uri)
+                .applyToConnectionPoolSettings(pool -> pool
+                        .minSize(poolMinSize)
+                        .maxSize(poolMaxSize)
+                        .maxConnectionIdleTime(poolMaxIdleMillis, TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .readTimeout(socketTimeoutMillis, TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(serverSelectionTimeoutMillis, TimeUnit.MILLISECONDS));
+        if (compressors != null) settings.compressorList(compressors.stream().map(ConnectionProfile::compressor).toList());
+        if (readConcern != null) settings.readConcern(readConcern);
+        if (writeConcern != null) settings.writeConcern(writeConcern);
+        return settings;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public int getPoolMinSize() {
+        return poolMinSize;
+    }
+
+    public int getPoolMaxSize() {
+        return poolMaxSize;
+    }
+
+    /**
+     * @return preferencja odczytów tolerujących opóźnienie (historia, listy, statystyki)
+     */
+    public ReadPreference getRelaxedReadPreference() {
+        return relaxedReadPreference;
+    }
+
+    /**
+     * Opis do logów – bez danych logowania z URI.
+     */
+    @Override
+    public String toString() {
+        return "hosty=" + uri.getHosts() + ", baza=" + database + ", pula=" + poolMinSize + ".." + poolMaxSize
+                + ", timeouty(connect/socket/wybór serwera)=" + connectTimeoutMillis + "/" + socketTimeoutMillis
+                + "/" + serverSelectionTimeoutMillis + " ms, kompresja="
+                + (compressors != null ? (compressors.isEmpty() ? "brak" : compressors) : uri.getCompressorList())
+                + (readConcern != null ? ", readConcern=" + readConcern.asDocument().toJson() : "")
+                + (writeConcern != null ? ", writeConcern=" + writeConcern.asDocument().toJson() : "")
+                + ", odczyty tolerujące opóźnienie=" + relaxedReadPreference.toDocument().toJson()
+                + " (źródło: " + source + ")";
+    }
+
+    private static String value(Properties file, String key, String defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + key);
+        if (value == null) value = System.getenv(ENV_PREFIX + key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        if (value == null) value = file.getProperty(FILE_PREFIX + key);
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    private static int intValue(Properties file, String key, Integer fromUri, int defaultValue) {
+        String value = value(file, key, null);
+        if (value == null) return fromUri != null ? fromUri : defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ustawienie " + key + " musi być liczbą: " + value, e);
+        }
+    }
+
+    /**
+     * @return nazwy kompresorów dostępnych na ścieżce klas lub {@code null}, gdy decyduje URI
+     */
+    private static List<String> parseCompressors(String names) {
+        if (names == null) return null;
+        List<String> result = new ArrayList<>();
+        for (String name : names.split(",")) {
+            String compressor = name.trim().toLowerCase(Locale.ROOT);
+            if (compressor.isEmpty() || compressor.equals("none")) continue;
+            switch (compressor) {
+                case "zlib" -> result.add(compressor);
+                case "zstd" -> addIfPresent(result, compressor, "com.github.luben.zstd.Zstd");
+                case "snappy" -> addIfPresent(result, compressor, "org.xerial.snappy.Snappy");
+                default -> throw new IllegalArgumentException("Nieznany kompresor: " + name);
+            }
+        }
+        return result;
+    }
+
+    private static void addIfPresent(List<String> result, String compressor, String className) {
+        try {
+            Class.forName(className, false, ConnectionProfile.class.getClassLoader());
+            result.add(compressor);
+        } catch (ClassNotFoundException e) {
+            // Brak biblioteki – kompresor pomijany, serwer użyje następnego z listy
+        }
+    }
+
+    private static MongoCompressor compressor(String name) {
+        return switch (name) {
+            case "zstd" -> MongoCompressor.createZstdCompressor();
+            case "snappy" -> MongoCompressor.createSnappyCompressor();
+            default -> MongoCompressor.createZlibCompressor();
+        };
+    }
+
+    private static ReadConcern parseReadConcern(String name) {
+        if (name.equalsIgnoreCase("default")) return ReadConcern.DEFAULT;
+        return new ReadConcern(ReadConcernLevel.fromString(name.toLowerCase(Locale.ROOT)));
+    }
+
+    private static ReadPreference parseReadPreference(String name, int maxStalenessSeconds) {
+        try {
+            if (name.equalsIgnoreCase("primary")) return ReadPreference.primary();
+            if (maxStalenessSeconds <= 0) return ReadPreference.valueOf(name);
+            return ReadPreference.valueOf(name, Collections.emptyList(), maxStalenessSeconds, TimeUnit.SECONDS);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Niepoprawna preferencja odczytu " + name
+                    + " (maxStalenessSeconds=" + maxStalenessSeconds + "): " + e.getMessage(), e);
+        }
+    }
+
+    private static WriteConcern parseWriteConcern(String name) {
+        if (name.chars().allMatch(Character::isDigit)) return new WriteConcern(Integer.parseInt(name));
+        WriteConcern concern = WriteConcern.valueOf(name.toUpperCase(Locale.ROOT));
+        if (concern == null) throw new IllegalArgumentException("Nieznany writeConcern: " + name);
+        return concern;
+    }
+}
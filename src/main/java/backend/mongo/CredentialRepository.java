@@ -0,0 +1,126 @@
+package backend.mongo;
+
+import backend.klasy.Password;
+import backend.metrics.MongoMetrics;
+import backend.status.Specialization;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mongodb.client.model.Aggregates.*;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Projections.*;
+
+/**
+ * Repozytorium danych uwierzytelniających lekarzy i pacjentów.
+ * <p>
+ * Wyszukuje konto po numerze PESEL w obu kolekcjach jednym zapytaniem ($unionWith),
+ * korzystając z unikalnych indeksów na polu {@code pesel} i pobierając wyłącznie pola
+ * potrzebne do weryfikacji hasła. Pełny obiekt użytkownika jest pobierany dopiero po udanym logowaniu.
+ * </p>
+ */
+public class CredentialRepository {
+
+    private static final String DOCTOR = "DOCTOR";
+    private static final String PATIENT = "PATIENT";
+
+    private final MongoCollection<Document> doctors;
+
+    /**
+     * Konstruktor inicjalizujący kolekcję lekarzy, od której startuje zapytanie.
+     *
+     * @param database obiekt MongoDatabase reprezentujący połączenie z bazą danych
+     */
+    public CredentialRepository(MongoDatabase database) {
+        this.doctors = database.getCollection("doctors");
+    }
+
+    /**
+     * Znajduje dane uwierzytelniające po numerze PESEL.
+     * Jeśli PESEL występuje zarówno u lekarza, jak i pacjenta, pierwszeństwo ma konto lekarza.
+     *
+     * @param pesel numer PESEL
+     * @return dane uwierzytelniające lub {@code null}, jeśli nie znaleziono konta
+     */
+    public Credentials findByPesel(long pesel) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("CredentialRepository.findByPesel")) {
+            List<Bson> patientPipeline = List.of(
+                    match(eq("pesel", pesel)),
+                    project(credentialFields(PATIENT)),
+                    limit(1)
+            );
+
+            List<Document> found = doctors.aggregate(List.of(
+                    match(eq("pesel", pesel)),
+                    project(credentialFields(DOCTOR)),
+                    limit(1),
+                    unionWith("patients", patientPipeline)
+            )).into(new ArrayList<>());
+
+            Document doctor = found.stream().filter(d -> DOCTOR.equals(d.getString("role"))).findFirst().orElse(null);
+            Document chosen = doctor != null ? doctor : found.stream().findFirst().orElse(null);
+            return chosen == null ? null : new Credentials(chosen);
+        }
+    }
+
+    /**
+     * Projekcja pól potrzebnych do logowania wraz ze stałym znacznikiem roli.
+     */
+    private static Bson credentialFields(String role) {
+        return fields(
+                include("_id", "passwordHash", "passwordSalt", "specialization"),
+                computed("role", new Document("$literal", role))
+        );
+    }
+
+    /**
+     * Minimalny zestaw danych potrzebny do weryfikacji hasła i ustalenia roli użytkownika.
+     */
+    public static class Credentials {
+        private final ObjectId id;
+        private final boolean doctor;
+        private final String passwordHash;
+        private final String passwordSalt;
+        private final Specialization specialization;
+
+        private Credentials(Document document) {
+            this.id = document.getObjectId("_id");
+            this.doctor = DOCTOR.equals(document.getString("role"));
+            this.passwordHash = document.getString("passwordHash");
+            this.passwordSalt = document.getString("passwordSalt");
+            String spec = document.getString("specialization");
+            this.specialization = spec != null ? Specialization.valueOf(spec) : null;
+        }
+
+        public ObjectId getId() {
+            return id;
+        }
+
+        /**
+         * @return {@code true} jeśli konto należy do lekarza, {@code false} jeśli do pacjenta
+         */
+        public boolean isDoctor() {
+            return doctor;
+        }
+
+        public Specialization getSpecialization() {
+            return specialization;
+        }
+
+        /**
+         * Weryfikuje hasło względem zapisanego hasha i soli.
+         *
+         * @param plainTextPassword hasło w postaci jawnej
+         * @return {@code true} jeśli hasło jest poprawne
+         */
+        public boolean verify(String plainTextPassword) {
+            if (passwordHash == null || passwordSalt == null) return false;
+            return new Password(passwordSalt, passwordHash).verify(plainTextPassword);
+        }
+    }
+}
@@ -1,58 +1,118 @@
 package backend.mongo;
 
+import backend.klasy.Appointment;
 import backend.klasy.Doctor;
 import backend.klasy.Patient;
 import backend.klasy.Room;
 import backend.status.*;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.InsertManyOptions;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 /**
  * Klasa odpowiedzialna za generowanie danych demo w bazie MongoDB.
+ * <p>
+ * {@link #loadData()} tworzy kilkanaście dokumentów do ręcznego testowania aplikacji.
+ * {@link #loadBenchmarkData(SeedConfig)} generuje duże, powtarzalne zbiory danych (np. milion pacjentów
+ * i dziesięć milionów wizyt) do testów wydajności – równolegle i w paczkach {@code insertMany}.
+ * </p>
  */
 public class DataLoader {
 
     private static final String[] FIRST_NAMES = {"Jan", "Anna", "Piotr", "Maria", "Krzysztof", "Agnieszka", "Andrzej", "Małgorzata", "Grzegorz", "Ewa"};
     private static final String[] LAST_NAMES = {"Nowak", "Kowalski", "Wiśniewski", "Wójcik", "Kowalczyk", "Kamiński", "Lewandowski", "Zieliński", "Szymański", "Woźniak"};
     private static final String[] STREET_NAMES = {"Polna", "Leśna", "Słoneczna", "Krótka", "Długa", "Warszawska", "Krakowska", "Gdańska", "Poznańska", "Łódzka", "Akacjowa", "Jesionowa", "Brzozowa", "Klonowa", "Dębowa", "Spacerowa", "Ogrodowa", "Parkowa", "Szkolna", "Mickiewicza"};
+    private static final String[] PROCEDURES = {"Konsultacja", "Badanie kontrolne", "EKG", "USG", "Tomografia komputerowa", "Rezonans magnetyczny", "Zabieg ambulatoryjny", "Rehabilitacja"};
     private static final Random random = new Random();
 
+    private static final String DEMO_PASSWORD_SALT = "iQnPQNj6A7VvqJCn4KJNiw==";
+    private static final String DEMO_PASSWORD_HASH = "ozTwnrhZJjD5vdCP5iG5G6XfC0Pp/3AU6B2iBaXOzk8=";
+
+    /**
+     * Względne obłożenie dni tygodnia (pon–nd) i miesięcy (sty–gru) w generowanej historii wizyt.
+     */
+    private static final double[] WEEKDAY_LOAD = {1.25, 1.15, 1.05, 1.0, 0.85, 0.3, 0.1};
+    private static final double[] MONTH_LOAD = {1.15, 1.15, 1.1, 1.0, 0.95, 0.85, 0.7, 0.75, 1.0, 1.05, 1.1, 0.9};
+
+    /** Pierwsza godzina przyjęć i liczba półgodzinnych terminów w ciągu dnia. */
+    private static final LocalTime FIRST_SLOT = LocalTime.of(8, 0);
+    private static final int SLOTS_PER_DAY = 16;
+
+    /** Znaczniki kolekcji w generowanych identyfikatorach (patrz {@link #seededId(int, int, long)}). */
+    private static final int ROOM_STREAM = 1;
+    private static final int DOCTOR_STREAM = 2;
+    private static final int PATIENT_STREAM = 3;
+    private static final int APPOINTMENT_STREAM = 4;
+
+    /**
+     * Rozłączne zakresy numerów serii PESEL – lekarz i pacjent z tą samą datą urodzenia nie dostaną tego samego
+     * numeru (logowanie po PESEL-u rozpoznaje lekarza przed pacjentem).
+     */
+    private static final int PATIENT_SERIAL_FROM = 0;
+    private static final int DOCTOR_SERIAL_FROM = 9000;
+    private static final int SERIAL_LIMIT = 10000;
+
+    /**
+     * Roczniki, których PESEL zaczyna się od zera – {@link backend.klasy.Person} przechowuje PESEL jako 11-cyfrową liczbę,
+     * więc generowane daty urodzenia je pomijają.
+     */
+    private static final LocalDate LEADING_ZERO_FROM = LocalDate.of(2000, 1, 1);
+    private static final LocalDate LEADING_ZERO_TO = LocalDate.of(2010, 1, 1);
+
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+    private static final int DUPLICATE_KEY = 11000;
+
     private final String jsScriptsDirectory = "src/Walidacja/automatyczna";
 
     private final MongoDatabase database;
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
     private final RoomRepository roomRepository;
+    private final SlotReservationRepository slotReservationRepository;
 
     /**
-     * Inicjalizuje repozytoria i bazę danych.
+     * Korzysta ze wspólnych repozytoriów aplikacji (i ich rejestru kodeków) zamiast tworzyć własne.
+     *
+     * @param repositories kontekst z {@link MongoDatabaseConnector#repositories()}
      */
-    public DataLoader(MongoDatabase database) {
-        this.database = database;
-        this.patientRepository = new PatientRepository(database);
-        this.doctorRepository = new DoctorRepository(database);
-        this.roomRepository = new RoomRepository(database);
+    public DataLoader(RepositoryContext repositories) {
+        this.database = repositories.getDatabase();
+        this.patientRepository = repositories.patients();
+        this.doctorRepository = repositories.doctors();
+        this.roomRepository = repositories.rooms();
+        this.slotReservationRepository = repositories.slotReservations();
     }
 
     /**
      * Główna metoda ładująca dane do bazy.
      */
     public void loadData() {
-        String salt = "iQnPQNj6A7VvqJCn4KJNiw==";
-        String passwordHash = "ozTwnrhZJjD5vdCP5iG5G6XfC0Pp/3AU6B2iBaXOzk8=";
-
-        createDemoPatients(passwordHash, salt);
+        createDemoPatients(DEMO_PASSWORD_HASH, DEMO_PASSWORD_SALT);
         createRoomsForAllTypes();
-        createDemoDoctors(passwordHash, salt);
+        createDemoDoctors(DEMO_PASSWORD_HASH, DEMO_PASSWORD_SALT);
 
         try {
             applyValidationSchemas();
@@ -60,6 +120,641 @@ public class DataLoader {
         }
     }
 
+    /**
+     * Generuje zbiór danych do testów wydajności zgodnie z konfiguracją.
+     * <p>
+     * Sale i lekarze (kilkaset–kilka tysięcy dokumentów) tworzeni są sekwencyjnie, a pacjenci i wizyty –
+     * równolegle w puli fork-join: każda paczka ma własny {@link SplittableRandom} wyprowadzony z ziarna
+     * i numeru paczki, więc wynik nie zależy od liczby wątków ani kolejności ich wykonania. Identyfikatory
+     * również wynikają z ziarna, dzięki czemu wizyty mogą odwoływać się do pacjentów bez trzymania ich w pamięci,
+     * a ponowne uruchomienie na tej samej bazie pomija istniejące dokumenty (błędy duplikatu klucza).
+     * </p>
+     *
+     * @param config liczności, zakres historii, ziarno i parametry zapisu
+     */
+    public void loadBenchmarkData(SeedConfig config) {
+        if (config.appointments > 0 && config.patients < config.doctors) {
+            throw new IllegalArgumentException("Wizyty bez kolizji wymagają co najmniej tylu pacjentów, ilu lekarzy");
+        }
+        long start = System.nanoTime();
+        System.out.println("[INFO] Generowanie danych testowych: " + config);
+
+        if (config.dropExisting) {
+            for (String name : List.of("appointments", "patients", "doctors", "rooms", "slot_reservations")) {
+                database.getCollection(name).drop();
+            }
+            EntityCaches.invalidateAll();
+            AppointmentIntervalIndex.shared().invalidateAll();
+        }
+
+        SeedPlan plan = new SeedPlan(config);
+        seedRooms(plan);
+        seedDoctors(plan);
+        plan.planSchedule();
+
+        ForkJoinPool pool = new ForkJoinPool(config.parallelism);
+        try {
+            insertInParallel(pool, database.getCollection("patients", Patient.class), "pacjentów",
+                    config.patients, plan, PATIENT_STREAM, this::generatePatient);
+            insertInParallel(pool, database.getCollection("appointments", Appointment.class), "wizyt",
+                    config.appointments, plan, APPOINTMENT_STREAM, this::generateAppointment);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Indeksy budowane raz na końcu są tańsze niż aktualizowanie ich przy każdej paczce
+        if (config.dropExisting) new IndexManager(database).ensureIndexes();
+        // Wizyty wstawiane są bezpośrednio, z pominięciem rezerwacji slotów – odtwarzamy je hurtowo
+        if (config.appointments > 0) slotReservationRepository.rebuild();
+
+        System.out.printf("[SUCCESS] Dane testowe wygenerowane w %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Generuje jeden dokument o podanym numerze.
+     */
+    @FunctionalInterface
+    private interface SeedGenerator<T> {
+        T generate(SeedPlan plan, SplittableRandom rnd, long index) throws Exception;
+    }
+
+    /**
+     * Dzieli zakres {@code [0, count)} na paczki i zapisuje je równolegle nieuporządkowanym {@code insertMany}.
+     * Duplikaty klucza (np. ponowne uruchomienie z tym samym ziarnem) są liczone i pomijane.
+     */
+    private <T> void insertInParallel(ForkJoinPool pool, MongoCollection<T> collection, String label, long count,
+                                      SeedPlan plan, int stream, SeedGenerator<T> generator) {
+        if (count <= 0) return;
+
+        int batchSize = plan.config.batchSize;
+        long batches = (count + batchSize - 1) / batchSize;
+        long reportEvery = Math.max(1, batches / 10);
+        AtomicLong inserted = new AtomicLong();
+        AtomicLong duplicates = new AtomicLong();
+        AtomicLong finishedBatches = new AtomicLong();
+        long start = System.nanoTime();
+
+        try {
+            pool.submit(() -> LongStream.range(0, batches).parallel().forEach(batch -> {
+                SplittableRandom rnd = new SplittableRandom(mixSeed(plan.config.seed, stream, batch));
+                long from = batch * batchSize;
+                long to = Math.min(count, from + batchSize);
+
+                List<T> documents = new ArrayList<>((int) (to - from));
+                for (long i = from; i < to; i++) {
+                    try {
+                        documents.add(generator.generate(plan, rnd, i));
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Nie udało się wygenerować dokumentu " + i + ": " + e.getMessage(), e);
+                    }
+                }
+
+                try {
+                    collection.insertMany(documents, UNORDERED);
+                    inserted.addAndGet(documents.size());
+                } catch (MongoBulkWriteException e) {
+                    for (BulkWriteError error : e.getWriteErrors()) {
+                        if (error.getCode() != DUPLICATE_KEY) throw e;
+                    }
+                    duplicates.addAndGet(e.getWriteErrors().size());
+                    inserted.addAndGet(documents.size() - e.getWriteErrors().size());
+                }
+
+                long done = finishedBatches.incrementAndGet();
+                if (done % reportEvery == 0 || done == batches) {
+                    System.out.printf("[INFO] Zapisano %,d/%,d %s%n", inserted.get() + duplicates.get(), count, label);
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Generowanie " + label + " przerwane", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Generowanie " + label + " nie powiodło się: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[SUCCESS] Wstawiono %,d %s (pominięto duplikatów: %,d) w %.1f s – %,.0f dok./s%n",
+                inserted.get(), label, duplicates.get(), seconds, inserted.get() / Math.max(seconds, 1e-9));
+    }
+
+    /**
+     * Tworzy sale – co najmniej jedną każdego typu, pozostałe o losowym typie.
+     */
+    private void seedRooms(SeedPlan plan) {
+        SplittableRandom rnd = new SplittableRandom(mixSeed(plan.config.seed, ROOM_STREAM, 0));
+        TypeOfRoom[] types = TypeOfRoom.values();
+        int count = Math.max(plan.config.rooms, types.length);
+
+        List<Room> rooms = new ArrayList<>(count);
+        Map<TypeOfRoom, List<ObjectId>> byType = new EnumMap<>(TypeOfRoom.class);
+        for (int i = 0; i < count; i++) {
+            TypeOfRoom type = i < types.length ? types[i] : types[rnd.nextInt(types.length)];
+            Room room = new Room(generateRandomAddress(rnd), rnd.nextInt(6), 100 + i, 2 + rnd.nextInt(5), type);
+            room.setId(seededId(plan.idTimestamp, ROOM_STREAM, i));
+            rooms.add(room);
+            byType.computeIfAbsent(type, t -> new ArrayList<>()).add(room.getId());
+        }
+        byType.forEach((type, ids) -> plan.roomsByType.put(type, ids.toArray(new ObjectId[0])));
+
+        insertSequentially(database.getCollection("rooms", Room.class), rooms, "sal");
+    }
+
+    /**
+     * Tworzy lekarzy i zapamiętuje ich dni pracy oraz typ sali – potrzebne przy generowaniu wizyt.
+     */
+    private void seedDoctors(SeedPlan plan) {
+        SplittableRandom rnd = new SplittableRandom(mixSeed(plan.config.seed, DOCTOR_STREAM, 0));
+        Specialization[] specializations = Specialization.values();
+        int count = plan.config.doctors;
+
+        List<Doctor> doctors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<Day> workDays = new ArrayList<>();
+            for (Day day : List.of(Day.MONDAY, Day.TUESDAY, Day.WEDNESDAY, Day.THURSDAY, Day.FRIDAY)) {
+                if (rnd.nextInt(100) < 70) workDays.add(day);
+            }
+            if (workDays.isEmpty()) workDays.add(Day.values()[rnd.nextInt(5)]);
+
+            LocalDate birthDate = uniqueBirthDate(i, 25, 65, plan.config.today);
+            int serial = uniqueSerial(i, 25, 65, plan.config.today, DOCTOR_SERIAL_FROM, SERIAL_LIMIT);
+            Specialization specialization = specializations[rnd.nextInt(specializations.length)];
+            try {
+                doctors.add(new Doctor.Builder()
+                        .withId(seededId(plan.idTimestamp, DOCTOR_STREAM, i))
+                        .firstName(getRandomFirstName(rnd))
+                        .lastName(getRandomLastName(rnd))
+                        .birthDate(birthDate)
+                        .age(Doctor.calculateAge(birthDate))
+                        .pesel(uniquePesel(birthDate, serial))
+                        .specialization(specialization)
+                        .availableDays(workDays)
+                        .room(String.format("%03d", rnd.nextInt(500) + 1))
+                        .contactInformation(generateRandomPhoneNumber9Digits(rnd))
+                        .passwordHash(DEMO_PASSWORD_HASH)
+                        .passwordSalt(DEMO_PASSWORD_SALT)
+                        .build());
+            } catch (Exception e) {
+                throw new IllegalStateException("Nie udało się wygenerować lekarza " + i + ": " + e.getMessage(), e);
+            }
+
+            boolean[] works = new boolean[7];
+            for (Day day : workDays) works[day.ordinal()] = true;
+            plan.doctorWorkDays[i] = works;
+            plan.doctorRoomType[i] = specialization.getCompatibleRoomType();
+        }
+
+        insertSequentially(database.getCollection("doctors", Doctor.class), doctors, "lekarzy");
+    }
+
+    private <T> void insertSequentially(MongoCollection<T> collection, List<T> documents, String label) {
+        try {
+            if (!documents.isEmpty()) collection.insertMany(documents, UNORDERED);
+            System.out.printf("[SUCCESS] Wstawiono %,d %s%n", documents.size(), label);
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) throw e;
+            }
+            System.out.printf("[INFO] Wstawiono %,d %s (pominięto duplikatów: %,d)%n",
+                    documents.size() - e.getWriteErrors().size(), label, e.getWriteErrors().size());
+        }
+    }
+
+    private Patient generatePatient(SeedPlan plan, SplittableRandom rnd, long index) throws Exception {
+        LocalDate birthDate = uniqueBirthDate(index, 1, 100, plan.config.today);
+        Diagnosis[] diagnoses = Diagnosis.values();
+        return new Patient.Builder()
+                .withId(seededId(plan.idTimestamp, PATIENT_STREAM, index))
+                .firstName(getRandomFirstName(rnd))
+                .lastName(getRandomLastName(rnd))
+                .pesel(uniquePesel(birthDate, uniqueSerial(index, 1, 100, plan.config.today,
+                        PATIENT_SERIAL_FROM, DOCTOR_SERIAL_FROM)))
+                .birthDate(birthDate)
+                .address(generateRandomAddress(rnd))
+                .age(Patient.calculateAge(birthDate))
+                .passwordHash(DEMO_PASSWORD_HASH)
+                .passwordSalt(DEMO_PASSWORD_SALT)
+                .diagnosis(rnd.nextInt(100) < 30 ? Diagnosis.AWAITING : diagnoses[rnd.nextInt(diagnoses.length)])
+                .build();
+    }
+
+    /**
+     * Wizyta o podanym numerze. Pierwsze {@code SeedPlan.scheduledCount} numerów to wizyty zaplanowane
+     * ({@link #generateScheduled}), pozostałe – historia ({@link #generateHistoric}).
+     */
+    private Appointment generateAppointment(SeedPlan plan, SplittableRandom rnd, long index) {
+        return index < plan.scheduledCount
+                ? generateScheduled(plan, rnd, index)
+                : generateHistoric(plan, rnd, index);
+    }
+
+    /**
+     * Zaplanowana wizyta w jednej z komórek siatki (dzień, termin, lekarz pracujący w tym dniu). Numer wizyty
+     * przechodzi przez permutację komórek, więc żaden lekarz nie ma dwóch wizyt w tym samym terminie, a pacjent
+     * wyznaczany jest tak, żeby w jednym terminie każdy lekarz przyjmował innego pacjenta –
+     * {@link SlotReservationRepository#rebuild()} nie znajduje wtedy konfliktów.
+     */
+    private Appointment generateScheduled(SeedPlan plan, SplittableRandom rnd, long index) {
+        long cell = Math.floorMod(index * plan.cellStride + plan.cellOffset, plan.scheduleCells);
+        int day = Arrays.binarySearch(plan.dayFirstCell, cell);
+        if (day < 0) day = -day - 2;
+        int[] working = plan.workingDoctors[day];
+        long inDay = cell - plan.dayFirstCell[day];
+        int slot = (int) (inDay / working.length);
+        int position = (int) (inDay % working.length);
+        int doctor = working[position];
+
+        long slotKey = (long) day * SLOTS_PER_DAY + slot;
+        long patient = Math.floorMod(slotKey * 104_729L + position, plan.config.patients);
+        LocalDateTime date = LocalDateTime.of(plan.config.today.plusDays(day + 1L),
+                FIRST_SLOT.plusMinutes(30L * slot));
+        AppointmentStatus status = rnd.nextInt(100) < 95 ? AppointmentStatus.SCHEDULED : AppointmentStatus.RESCHEDULED;
+        return buildAppointment(plan, rnd, index, doctor, patient, date, status);
+    }
+
+    /**
+     * Wizyta z historii: lekarz wg rozkładu Zipfa (nieliczni bardzo oblegani), dzień przed dniem odniesienia
+     * z uwzględnieniem dni pracy lekarza oraz sezonowości tygodniowej i rocznej, pacjent z lekką przewagą
+     * „stałych bywalców”. Terminy mogą się nakładać, dlatego historia ma wyłącznie statusy nieaktywne
+     * (zakończona lub odwołana) i nie zajmuje slotów.
+     */
+    private Appointment generateHistoric(SeedPlan plan, SplittableRandom rnd, long index) {
+        int doctor = plan.doctorPopularity.sample(rnd);
+        LocalDate day = plan.sampleDay(rnd, plan.doctorWorkDays[doctor]);
+        LocalDateTime date = LocalDateTime.of(day, FIRST_SLOT.plusMinutes(30L * rnd.nextInt(SLOTS_PER_DAY)));
+        long patient = Math.min((long) (plan.config.patients * Math.pow(rnd.nextDouble(), 1.5)), plan.config.patients - 1);
+        AppointmentStatus status = rnd.nextInt(100) < 92 ? AppointmentStatus.COMPLETED : AppointmentStatus.CANCELED;
+        return buildAppointment(plan, rnd, index, doctor, patient, date, status);
+    }
+
+    private Appointment buildAppointment(SeedPlan plan, SplittableRandom rnd, long index, int doctor, long patient,
+                                         LocalDateTime date, AppointmentStatus status) {
+        ObjectId[] rooms = plan.roomsByType.get(plan.doctorRoomType[doctor]);
+        if (rooms == null) rooms = plan.anyRoom();
+
+        return new Appointment.Builder()
+                .withId(seededId(plan.idTimestamp, APPOINTMENT_STREAM, index))
+                .doctorId(seededId(plan.idTimestamp, DOCTOR_STREAM, doctor))
+                .patientId(seededId(plan.idTimestamp, PATIENT_STREAM, patient))
+                .room(rooms[rnd.nextInt(rooms.length)])
+                .date(date)
+                .description(PROCEDURES[rnd.nextInt(PROCEDURES.length)])
+                .status(status)
+                .build();
+    }
+
+    /**
+     * Powtarzalny identyfikator: znacznik czasu planu, numer strumienia (kolekcji) i numer dokumentu.
+     */
+    private static ObjectId seededId(int timestamp, int stream, long index) {
+        return new ObjectId(ByteBuffer.allocate(12)
+                .putInt(timestamp)
+                .putLong(((long) stream << 56) | index)
+                .array());
+    }
+
+    /**
+     * Ziarno paczki – zależy tylko od ziarna głównego, strumienia i numeru paczki.
+     */
+    private static long mixSeed(long seed, int stream, long batch) {
+        long z = seed + stream * 0x9E3779B97F4A7C15L + batch * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Data urodzenia dla n-tej osoby. Kolejne numery rozkładają się po wszystkich dniach zakresu wieku
+     * (mnożenie przez liczbę pierwszą), a para (data, {@link #uniqueSerial}) jest unikalna – stąd unikalny PESEL.
+     * Dni z roczników 2000–2009 są pomijane (patrz {@link #LEADING_ZERO_FROM}).
+     */
+    private static LocalDate uniqueBirthDate(long index, int minAge, int maxAge, LocalDate today) {
+        LocalDate oldest = today.minusYears(maxAge);
+        LocalDate date = oldest.plusDays(Math.floorMod(index * 7919L, birthDays(minAge, maxAge, today)));
+        LocalDate gapFrom = max(oldest, LEADING_ZERO_FROM);
+        long gap = leadingZeroDays(minAge, maxAge, today);
+        return gap > 0 && !date.isBefore(gapFrom) ? date.plusDays(gap) : date;
+    }
+
+    /**
+     * @param from pierwszy numer serii zakresu
+     * @param limit numer serii za końcem zakresu
+     */
+    private static int uniqueSerial(long index, int minAge, int maxAge, LocalDate today, int from, int limit) {
+        long serial = from + index / birthDays(minAge, maxAge, today);
+        if (serial >= limit) throw new IllegalArgumentException("Zbyt wiele osób dla unikalnych numerów PESEL");
+        return (int) serial;
+    }
+
+    /**
+     * Liczba możliwych dat urodzenia w zakresie wieku (bez roczników z zerem na początku PESEL-u).
+     */
+    private static long birthDays(int minAge, int maxAge, LocalDate today) {
+        long days = ChronoUnit.DAYS.between(today.minusYears(maxAge), today.minusYears(minAge))
+                - leadingZeroDays(minAge, maxAge, today);
+        if (days <= 0) throw new IllegalArgumentException("Brak dat urodzenia dla wieku " + minAge + "–" + maxAge);
+        return days;
+    }
+
+    private static long leadingZeroDays(int minAge, int maxAge, LocalDate today) {
+        LocalDate from = max(today.minusYears(maxAge), LEADING_ZERO_FROM);
+        LocalDate to = min(today.minusYears(minAge), LEADING_ZERO_TO);
+        return Math.max(0, ChronoUnit.DAYS.between(from, to));
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * PESEL z podanym numerem serii. Stulecie urodzenia kodowane jest w miesiącu: +80 dla XIX wieku,
+     * +0 dla XX, +20 dla XXI, +40 dla XXII i +60 dla XXIII.
+     */
+    private static long uniquePesel(LocalDate birthDate, int serial) {
+        int monthOffset = switch (birthDate.getYear() / 100) {
+            case 18 -> 80;
+            case 19 -> 0;
+            case 20 -> 20;
+            case 21 -> 40;
+            case 22 -> 60;
+            default -> throw new IllegalArgumentException("Rok urodzenia poza zakresem PESEL: " + birthDate.getYear());
+        };
+        String firstTen = String.format("%02d%02d%02d%04d", birthDate.getYear() % 100,
+                birthDate.getMonthValue() + monthOffset, birthDate.getDayOfMonth(), serial);
+
+        int[] weights = {1, 3, 7, 9, 1, 3, 7, 9, 1, 3};
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            sum += Character.getNumericValue(firstTen.charAt(i)) * weights[i];
+        }
+        return Long.parseLong(firstTen + (10 - sum % 10) % 10);
+    }
+
+    /**
+     * Parametry generowania danych testowych.
+     */
+    public static class SeedConfig {
+        private long patients = 1_000_000;
+        private int doctors = 2_000;
+        private int rooms = 500;
+        private long appointments = 10_000_000;
+        private int historyYears = 3;
+        private int futureDays = 60;
+        private double doctorSkew = 1.07;
+        private long seed = 42;
+        private int batchSize = 5_000;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private LocalDate today = LocalDate.now();
+        private boolean dropExisting = false;
+
+        public SeedConfig patients(long patients) {
+            this.patients = patients;
+            return this;
+        }
+
+        public SeedConfig doctors(int doctors) {
+            if (doctors <= 0) throw new IllegalArgumentException("Liczba lekarzy musi być dodatnia");
+            this.doctors = doctors;
+            return this;
+        }
+
+        public SeedConfig rooms(int rooms) {
+            this.rooms = rooms;
+            return this;
+        }
+
+        public SeedConfig appointments(long appointments) {
+            this.appointments = appointments;
+            return this;
+        }
+
+        public SeedConfig historyYears(int historyYears) {
+            this.historyYears = historyYears;
+            return this;
+        }
+
+        public SeedConfig futureDays(int futureDays) {
+            this.futureDays = futureDays;
+            return this;
+        }
+
+        /**
+         * @param doctorSkew wykładnik rozkładu Zipfa popularności lekarzy (0 – rozkład równomierny)
+         */
+        public SeedConfig doctorSkew(double doctorSkew) {
+            this.doctorSkew = doctorSkew;
+            return this;
+        }
+
+        public SeedConfig seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public SeedConfig batchSize(int batchSize) {
+            if (batchSize <= 0) throw new IllegalArgumentException("Rozmiar paczki musi być dodatni");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public SeedConfig parallelism(int parallelism) {
+            if (parallelism <= 0) throw new IllegalArgumentException("Liczba wątków musi być dodatnia");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param today dzień odniesienia – ustalony dzień daje identyczne dane przy każdym uruchomieniu
+         */
+        public SeedConfig today(LocalDate today) {
+            this.today = today;
+            return this;
+        }
+
+        /**
+         * @param dropExisting usunięcie kolekcji przed generowaniem (indeksy są tworzone ponownie na końcu)
+         */
+        public SeedConfig dropExisting(boolean dropExisting) {
+            this.dropExisting = dropExisting;
+            return this;
+        }
+
+        /**
+         * Odczytuje konfigurację z argumentów w postaci {@code klucz=wartość},
+         * np. {@code patients=1000000 appointments=10000000 seed=7 today=2025-01-01 drop=true}.
+         */
+        public static SeedConfig fromArgs(String... args) {
+            SeedConfig config = new SeedConfig();
+            for (String arg : args) {
+                String[] pair = arg.split("=", 2);
+                if (pair.length != 2) throw new IllegalArgumentException("Oczekiwano klucz=wartość: " + arg);
+                String value = pair[1];
+                switch (pair[0]) {
+                    case "patients" -> config.patients(Long.parseLong(value));
+                    case "doctors" -> config.doctors(Integer.parseInt(value));
+                    case "rooms" -> config.rooms(Integer.parseInt(value));
+                    case "appointments" -> config.appointments(Long.parseLong(value));
+                    case "years" -> config.historyYears(Integer.parseInt(value));
+                    case "futureDays" -> config.futureDays(Integer.parseInt(value));
+                    case "skew" -> config.doctorSkew(Double.parseDouble(value));
+                    case "seed" -> config.seed(Long.parseLong(value));
+                    case "batch" -> config.batchSize(Integer.parseInt(value));
+                    case "threads" -> config.parallelism(Integer.parseInt(value));
+                    case "today" -> config.today(LocalDate.parse(value));
+                    case "drop" -> config.dropExisting(Boolean.parseBoolean(value));
+                    default -> throw new IllegalArgumentException("Nieznany parametr: " + pair[0]);
+                }
+            }
+            return config;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("pacjenci=%,d, lekarze=%,d, sale=%,d, wizyty=%,d, historia=%d lat (+%d dni), "
+                            + "zipf=%.2f, ziarno=%d, paczka=%,d, wątki=%d, dzień=%s, usuń=%b",
+                    patients, doctors, rooms, appointments, historyYears, futureDays,
+                    doctorSkew, seed, batchSize, parallelism, today, dropExisting);
+        }
+    }
+
+    /**
+     * Dane pochodne konfiguracji współdzielone przez wątki generujące (po utworzeniu sal i lekarzy tylko do odczytu).
+     */
+    private static final class SeedPlan {
+        private final SeedConfig config;
+        private final int idTimestamp;
+        private final LocalDate firstDay;
+        /** Liczba dni historii – od {@code firstDay} do dnia przed dniem odniesienia. */
+        private final int dayCount;
+        private final double[] dayLoad;
+        private final double maxDayLoad;
+        private final ZipfSampler doctorPopularity;
+        private final boolean[][] doctorWorkDays;
+        private final TypeOfRoom[] doctorRoomType;
+        private final Map<TypeOfRoom, ObjectId[]> roomsByType = new EnumMap<>(TypeOfRoom.class);
+
+        /**
+         * Siatka wizyt zaplanowanych ({@link #planSchedule()}): dla każdego z {@code futureDays} dni po dniu
+         * odniesienia lekarze pracujący w tym dniu, numer pierwszej komórki dnia i parametry permutacji komórek.
+         */
+        private int[][] workingDoctors;
+        private long[] dayFirstCell;
+        private long scheduleCells;
+        private long cellStride;
+        private long cellOffset;
+        private long scheduledCount;
+
+        private SeedPlan(SeedConfig config) {
+            this.config = config;
+            this.firstDay = config.today.minusYears(config.historyYears);
+            this.idTimestamp = (int) firstDay.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            this.dayCount = (int) ChronoUnit.DAYS.between(firstDay, config.today);
+
+            this.dayLoad = new double[dayCount];
+            double max = 0;
+            for (int d = 0; d < dayCount; d++) {
+                LocalDate date = firstDay.plusDays(d);
+                dayLoad[d] = WEEKDAY_LOAD[date.getDayOfWeek().ordinal()] * MONTH_LOAD[date.getMonthValue() - 1];
+                max = Math.max(max, dayLoad[d]);
+            }
+            this.maxDayLoad = max;
+
+            this.doctorPopularity = new ZipfSampler(config.doctors, config.doctorSkew);
+            this.doctorWorkDays = new boolean[config.doctors][];
+            this.doctorRoomType = new TypeOfRoom[config.doctors];
+        }
+
+        /**
+         * Dzieli wizyty między siatkę terminów zaplanowanych i historię – proporcjonalnie do liczby dni,
+         * ale nie więcej zaplanowanych, niż jest wolnych komórek. Wymaga utworzonych lekarzy.
+         */
+        private void planSchedule() {
+            int days = Math.max(0, config.futureDays);
+            workingDoctors = new int[days][];
+            dayFirstCell = new long[days];
+            long cells = 0;
+            for (int d = 0; d < days; d++) {
+                int weekday = config.today.plusDays(d + 1L).getDayOfWeek().ordinal();
+                workingDoctors[d] = IntStream.range(0, config.doctors)
+                        .filter(doctor -> doctorWorkDays[doctor][weekday])
+                        .toArray();
+                dayFirstCell[d] = cells;
+                cells += (long) workingDoctors[d].length * SLOTS_PER_DAY;
+            }
+            scheduleCells = cells;
+
+            long share = dayCount + days == 0 ? 0 : Math.round((double) config.appointments * days / (dayCount + days));
+            scheduledCount = Math.min(cells, dayCount == 0 ? config.appointments : share);
+            if (scheduledCount < config.appointments && dayCount == 0) {
+                throw new IllegalArgumentException("Za mało wolnych terminów na " + config.appointments
+                        + " wizyt bez historii (dostępnych: " + cells + ")");
+            }
+            if (cells == 0) return;
+
+            // Mnożnik względnie pierwszy z liczbą komórek daje permutację – każda komórka użyta najwyżej raz
+            SplittableRandom rnd = new SplittableRandom(mixSeed(config.seed, APPOINTMENT_STREAM, -1));
+            long stride = 1 + rnd.nextLong(cells);
+            while (gcd(stride, cells) != 1) stride++;
+            cellStride = stride % cells;
+            cellOffset = rnd.nextLong(cells);
+        }
+
+        private static long gcd(long a, long b) {
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+
+        /**
+         * Losuje dzień pracy lekarza proporcjonalnie do obłożenia (metoda akceptacji-odrzucenia).
+         */
+        private LocalDate sampleDay(SplittableRandom rnd, boolean[] workDays) {
+            for (int attempt = 0; attempt < 64; attempt++) {
+                int d = rnd.nextInt(dayCount);
+                LocalDate date = firstDay.plusDays(d);
+                if (workDays[date.getDayOfWeek().ordinal()] && rnd.nextDouble() * maxDayLoad < dayLoad[d]) {
+                    return date;
+                }
+            }
+            // Bardzo mało prawdopodobne – przesuń losowy dzień na najbliższy wcześniejszy dzień pracy
+            LocalDate date = firstDay.plusDays(rnd.nextInt(dayCount));
+            while (!workDays[date.getDayOfWeek().ordinal()]) date = date.minusDays(1);
+            return date;
+        }
+
+        private ObjectId[] anyRoom() {
+            return roomsByType.values().iterator().next();
+        }
+    }
+
+    /**
+     * Losowanie rangi 0..n-1 z rozkładu Zipfa: P(k) ~ 1 / (k+1)^s (dystrybuanta + wyszukiwanie binarne).
+     */
+    private static final class ZipfSampler {
+        private final double[] cumulative;
+
+        private ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1.0 / Math.pow(k + 1, exponent);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < n; k++) cumulative[k] /= sum;
+        }
+
+        private int sample(SplittableRandom rnd) {
+            int index = Arrays.binarySearch(cumulative, rnd.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+
     /**
      * Wczytuje schematy walidacyjne JSON z plików.
      */
@@ -180,14 +875,22 @@ public class DataLoader {
      * Zwraca losowe imię.
      */
     private String getRandomFirstName() {
-        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        return getRandomFirstName(random);
+    }
+
+    private static String getRandomFirstName(RandomGenerator rnd) {
+        return FIRST_NAMES[rnd.nextInt(FIRST_NAMES.length)];
     }
 
     /**
      * Zwraca losowe nazwisko.
      */
     private String getRandomLastName() {
-        return LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        return getRandomLastName(random);
+    }
+
+    private static String getRandomLastName(RandomGenerator rnd) {
+        return LAST_NAMES[rnd.nextInt(LAST_NAMES.length)];
     }
 
     /**
@@ -201,9 +904,13 @@ public class DataLoader {
      * Generuje losowy adres.
      */
     private String generateRandomAddress() {
-        String street = getRandomStreet();
-        String bnr = String.valueOf(random.nextInt(200) + 1);
-        String apt = random.nextBoolean() ? "/" + (random.nextInt(50) + 1) : "";
+        return generateRandomAddress(random);
+    }
+
+    private static String generateRandomAddress(RandomGenerator rnd) {
+        String street = STREET_NAMES[rnd.nextInt(STREET_NAMES.length)];
+        String bnr = String.valueOf(rnd.nextInt(200) + 1);
+        String apt = rnd.nextBoolean() ? "/" + (rnd.nextInt(50) + 1) : "";
         return "ul. " + street + " " + bnr + apt;
     }
 
@@ -232,9 +939,13 @@ public class DataLoader {
      * Generuje losowy numer telefonu w formacie 9 cyfr bez myślników.
      */
     private String generateRandomPhoneNumber9Digits() {
+        return generateRandomPhoneNumber9Digits(random);
+    }
+
+    private static String generateRandomPhoneNumber9Digits(RandomGenerator rnd) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < 9; i++) {
-            sb.append(random.nextInt(10));
+            sb.append(rnd.nextInt(10));
         }
         return sb.toString();
     }
@@ -255,20 +966,28 @@ public class DataLoader {
      * Generuje losowy PESEL na podstawie daty urodzenia.
      */
     private long generateRandomPesel(LocalDate birthDate) {
+        return generateRandomPesel(birthDate, random);
+    }
+
+    /**
+     * Generuje losowy PESEL na podstawie daty urodzenia, korzystając z podanego generatora
+     * (udostępnione także dla benchmarków).
+     */
+    public static long generateRandomPesel(LocalDate birthDate, RandomGenerator rnd) {
         int year = birthDate.getYear();
         int month = birthDate.getMonthValue();
         int day = birthDate.getDayOfMonth();
 
         int yy = year % 100;
         int mm = year >= 2000 ? month + 20 : month;
-        int serial = random.nextInt(10000);
+        int serial = rnd.nextInt(10000);
 
         String datePart = String.format("%02d%02d%02d", yy, mm, day);
         String serialPart = String.format("%04d", serial);
         String firstTen = datePart + serialPart;
 
         char[] firstTenChars = firstTen.toCharArray();
-        if (firstTenChars[0] == '0') firstTenChars[0] = (char) ('1' + random.nextInt(9));
+        if (firstTenChars[0] == '0') firstTenChars[0] = (char) ('1' + rnd.nextInt(9));
         firstTen = new String(firstTenChars);
 
         int[] weights = {1, 3, 7, 9, 1, 3, 7, 9, 1, 3};
@@ -285,8 +1004,17 @@ public class DataLoader {
      * Uruchamia ładowanie danych do bazy.
      */
     public static void main(String[] args) {
-        MongoDatabase db = MongoDatabaseConnector.connectToDatabase();
-        new DataLoader(db).loadData();
+        RepositoryContext repositories = MongoDatabaseConnector.repositories();
+        if (repositories == null) {
+            System.err.println("[ERROR] Brak połączenia z bazą danych – dane nie zostały załadowane");
+            return;
+        }
+        if (args.length > 0 && args[0].equals("benchmark")) {
+            // np. benchmark patients=1000000 appointments=10000000 today=2025-01-01 drop=true
+            new DataLoader(repositories).loadBenchmarkData(SeedConfig.fromArgs(Arrays.copyOfRange(args, 1, args.length)));
+        } else {
+            new DataLoader(repositories).loadData();
+        }
         MongoDatabaseConnector.close();
     }
 }
\ No newline at end of file
@@ -1,13 +1,17 @@
 package backend.mongo;
 
 import backend.klasy.Doctor;
+import backend.klasy.DoctorSummary;
+import backend.metrics.MongoMetrics;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import org.bson.types.ObjectId;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
 
 /**
  * Klasa DoctorRepository zarządza operacjami CRUD dla kolekcji lekarzy w bazie MongoDB.
@@ -17,7 +21,19 @@ import static com.mongodb.client.model.Filters.eq;
  * </p>
  */
 public class DoctorRepository {
+
+    /** Pola, po których tabela lekarzy może być sortowana i stronicowana. */
+    public static final SortField<DoctorSummary> SORT_BY_FIRST_NAME =
+            new SortField<>("firstName", DoctorSummary::getFirstName, DoctorSummary::getId);
+    public static final SortField<DoctorSummary> SORT_BY_LAST_NAME =
+            new SortField<>("lastName", DoctorSummary::getLastName, DoctorSummary::getId);
+    public static final SortField<DoctorSummary> SORT_BY_SPECIALIZATION = new SortField<>("specialization",
+            d -> d.getSpecialization() != null ? d.getSpecialization().name() : null, DoctorSummary::getId);
+
     private final MongoCollection<Doctor> collection;
+    private final MongoCollection<DoctorSummary> summaries;
+    private final MongoCollection<Doctor> relaxedCollection;
+    private final MongoCollection<DoctorSummary> relaxedSummaries;
 
     /**
      * Konstruktor inicjalizujący kolekcję lekarzy.
@@ -26,6 +42,9 @@ public class DoctorRepository {
      */
     public DoctorRepository(MongoDatabase database) {
         this.collection = database.getCollection("doctors", Doctor.class);
+        this.summaries = SummaryCodecs.summaries(database, "doctors", DoctorSummary.class);
+        this.relaxedCollection = ReadRouting.relaxed(collection);
+        this.relaxedSummaries = ReadRouting.relaxed(summaries);
     }
 
     /**
@@ -35,10 +54,12 @@ public class DoctorRepository {
      * @throws IllegalArgumentException jeśli lekarz jest null
      */
     public void createDoctor(Doctor doctor) {
-        if (doctor == null) {
-            throw new IllegalArgumentException("Doktor nie może być nullem!!");
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.createDoctor")) {
+            if (doctor == null) {
+                throw new IllegalArgumentException("Doktor nie może być nullem!!");
+            }
+            collection.insertOne(doctor);
         }
-        collection.insertOne(doctor);
     }
 
     /**
@@ -48,16 +69,103 @@ public class DoctorRepository {
      * @return Obiekt Doctor zawierający znalezionego lekarza lub pusty, jeśli nie znaleziono
      */
     public Doctor findDoctorById(ObjectId id) {
-        return collection.find(eq("_id", id)).first();
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findDoctorById")) {
+            return EntityCaches.DOCTORS.get(id, key -> collection.find(eq("_id", key)).first());
+        }
+    }
+
+    /**
+     * Znajduje lekarzy o podanych ID jednym zapytaniem ($in).
+     *
+     * @param ids identyfikatory lekarzy
+     * @return lista znalezionych lekarzy (kolejność nieokreślona)
+     */
+    public List<Doctor> findByIds(Collection<ObjectId> ids) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findByIds")) {
+            if (ids == null || ids.isEmpty()) return new ArrayList<>();
+
+            long epoch = EntityCaches.DOCTORS.epoch();
+            List<Doctor> result = new ArrayList<>();
+            List<ObjectId> missing = new ArrayList<>();
+            for (ObjectId id : ids) {
+                Doctor cached = EntityCaches.DOCTORS.getIfPresent(id);
+                if (cached != null) result.add(cached); else missing.add(id);
+            }
+            if (!missing.isEmpty()) {
+                for (Doctor doctor : collection.find(in("_id", missing))) {
+                    EntityCaches.DOCTORS.putIfUnchanged(doctor.getId(), doctor, epoch);
+                    result.add(doctor);
+                }
+            }
+            return result;
+        }
     }
 
     /**
      * Znajduje wszystkich lekarzy w bazie danych.
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
      *
      * @return lista wszystkich lekarzy
      */
     public List<Doctor> findAll() {
-        return collection.find().into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findAll")) {
+            return ReadRouting.read(session -> relaxedCollection.find(session).into(new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Zwraca podsumowania wszystkich lekarzy (tylko pola potrzebne na listach).
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @return lista podsumowań lekarzy
+     */
+    public List<DoctorSummary> findAllSummaries() {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findAllSummaries")) {
+            return ReadRouting.read(session -> relaxedSummaries.find(session)
+                    .projection(SummaryCodecs.DOCTOR_SUMMARY_FIELDS).into(new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Zwraca podsumowania lekarzy o podanych ID jednym zapytaniem ($in).
+     * Lekarze obecni w pamięci podręcznej nie są pobierani z bazy.
+     *
+     * @param ids identyfikatory lekarzy
+     * @return lista podsumowań (kolejność nieokreślona)
+     */
+    public List<DoctorSummary> findSummariesByIds(Collection<ObjectId> ids) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findSummariesByIds")) {
+            if (ids == null || ids.isEmpty()) return new ArrayList<>();
+
+            List<DoctorSummary> result = new ArrayList<>();
+            List<ObjectId> missing = new ArrayList<>();
+            for (ObjectId id : ids) {
+                DoctorSummary cached = EntityCaches.DOCTORS.viewIfPresent(id, DoctorSummary::of);
+                if (cached != null) result.add(cached); else missing.add(id);
+            }
+            if (!missing.isEmpty()) {
+                summaries.find(in("_id", missing)).projection(SummaryCodecs.DOCTOR_SUMMARY_FIELDS).into(result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Zwraca stronę podsumowań lekarzy posortowanych po podanym polu (stronicowanie keyset).
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @param sort      pole sortowania, np. {@link #SORT_BY_LAST_NAME}
+     * @param ascending kierunek sortowania
+     * @param after     kursor poprzedniej strony lub {@code null} dla pierwszej
+     * @param size      rozmiar strony
+     * @return strona podsumowań lekarzy
+     */
+    public Page<DoctorSummary> findSummaryPage(SortField<DoctorSummary> sort, boolean ascending,
+                                               PageCursor after, int size) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findSummaryPage")) {
+            return ReadRouting.read(session -> Page.fetch(session, relaxedSummaries, null,
+                    SummaryCodecs.DOCTOR_SUMMARY_FIELDS, sort, ascending, after, size));
+        }
     }
 
     /**
@@ -67,7 +175,9 @@ public class DoctorRepository {
      * @return lista lekarzy o podanym imieniu
      */
     public List<Doctor> findDoctorByFirstName(String firstName) {
-        return collection.find(eq("firstName", firstName)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findDoctorByFirstName")) {
+            return collection.find(eq("firstName", firstName)).into(new ArrayList<>());
+        }
     }
 
     /**
@@ -77,7 +187,9 @@ public class DoctorRepository {
      * @return lista lekarzy o podanym nazwisku
      */
     public List<Doctor> findDoctorByLastName(String lastName) {
-        return collection.find(eq("lastName", lastName)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findDoctorByLastName")) {
+            return collection.find(eq("lastName", lastName)).into(new ArrayList<>());
+        }
     }
 
     /**
@@ -87,7 +199,9 @@ public class DoctorRepository {
      * @return lista lekarzy o podanej specjalizacji
      */
     public List<Doctor> findDoctorBySpecialization(String specialization) {
-        return collection.find(eq("specialization", specialization)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findDoctorBySpecialization")) {
+            return collection.find(eq("specialization", specialization)).into(new ArrayList<>());
+        }
     }
 
     /**
@@ -97,8 +211,14 @@ public class DoctorRepository {
      * @return zaktualizowany lekarz
      */
     public Doctor updateDoctor(Doctor doctor) {
-        collection.replaceOne(eq("_id", doctor.getId()), doctor);
-        return doctor;
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.updateDoctor")) {
+            try {
+                collection.replaceOne(eq("_id", doctor.getId()), doctor);
+            } finally {
+                EntityCaches.DOCTORS.invalidate(doctor.getId());
+            }
+            return doctor;
+        }
     }
 
     /**
@@ -107,12 +227,20 @@ public class DoctorRepository {
      * @param id ID lekarza do usunięcia
      */
     public void deleteDoctor(ObjectId id) {
-        collection.deleteOne(eq("_id", id));
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.deleteDoctor")) {
+            try {
+                collection.deleteOne(eq("_id", id));
+            } finally {
+                EntityCaches.DOCTORS.invalidate(id);
+            }
+        }
     }
     public  List<Doctor> findCurrentDoctors() {
-        // Filtrujemy lekarzy, którzy mają niepustą listę dostępnych dni
-        return collection.find(Filters.exists("availableDays", true))
-                .into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("DoctorRepository.findCurrentDoctors")) {
+            // Filtrujemy lekarzy, którzy mają niepustą listę dostępnych dni
+            return collection.find(Filters.exists("availableDays", true))
+                    .into(new ArrayList<>());
+        }
     }
 
 }
\ No newline at end of file
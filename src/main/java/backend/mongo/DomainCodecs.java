@@ -0,0 +1,453 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.klasy.Doctor;
+import backend.klasy.Patient;
+import backend.klasy.Person;
+import backend.klasy.Room;
+import backend.status.AppointmentStatus;
+import backend.status.Day;
+import backend.status.Diagnosis;
+import backend.status.Specialization;
+import backend.status.TypeOfRoom;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Ręcznie napisane kodeki encji {@link Patient}, {@link Doctor}, {@link Appointment} i {@link Room}.
+ * <p>
+ * Zapisują dokumenty w tym samym formacie co kodek POJO ({@code _id} z pola {@code id}, enumy jako nazwy,
+ * {@code LocalDate} jako data o północy UTC, bez pól {@code null} i bez {@code password} oznaczonego
+ * {@code @BsonIgnore}), ale bez refleksji: pola czytane są strumieniowo do zmiennych lokalnych i ustawiane
+ * seterami w stałej kolejności, niezależnej od kolejności pól w dokumencie. Dzięki temu np. {@code patientIds}
+ * sali nie jest sprawdzane względem jeszcze nieustawionego {@code maxPatients}, a wiek lekarza zawsze wynika
+ * z daty urodzenia. Nie są zapisywane wartości wyliczane z getterów bez pola ({@code Doctor#isFirstContact},
+ * {@code Room#isFull}, {@code Room#getCurrentPatientCount}) – nikt ich nie odpytuje, a po zmianach przez
+ * {@code $addToSet}/{@code $pull} i tak były nieaktualne.
+ * </p>
+ * Rejestr kodeków ustawia {@link MongoDatabaseConnector} przed dostawcą POJO.
+ */
+public final class DomainCodecs {
+
+    private DomainCodecs() {
+    }
+
+    /**
+     * Rejestr z kodekami encji; typy bez własnego kodeka obsługuje rejestr bazowy.
+     *
+     * @param base rejestr bazowy (kodeki domyślne i POJO)
+     */
+    public static CodecRegistry withDomainCodecs(CodecRegistry base) {
+        return fromRegistries(fromCodecs(new PatientCodec(), new DoctorCodec(), new AppointmentCodec(), new RoomCodec()),
+                base);
+    }
+
+    /**
+     * Wspólna obsługa identyfikatora: jak kodek POJO generuje {@code _id}, jeśli encja go nie ma.
+     */
+    abstract static class EntityCodec<T> implements CollectibleCodec<T> {
+        private final Class<T> type;
+        private final Function<T, ObjectId> idGetter;
+        private final BiConsumer<T, ObjectId> idSetter;
+
+        EntityCodec(Class<T> type, Function<T, ObjectId> idGetter, BiConsumer<T, ObjectId> idSetter) {
+            this.type = type;
+            this.idGetter = idGetter;
+            this.idSetter = idSetter;
+        }
+
+        @Override
+        public T generateIdIfAbsentFromDocument(T document) {
+            if (idGetter.apply(document) == null) idSetter.accept(document, new ObjectId());
+            return document;
+        }
+
+        @Override
+        public boolean documentHasId(T document) {
+            return idGetter.apply(document) != null;
+        }
+
+        @Override
+        public BsonValue getDocumentId(T document) {
+            ObjectId id = idGetter.apply(document);
+            if (id == null) throw new IllegalStateException("Dokument " + type.getSimpleName() + " nie ma _id");
+            return new BsonObjectId(id);
+        }
+
+        @Override
+        public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+            generateIdIfAbsentFromDocument(value);
+            writer.writeStartDocument();
+            writer.writeObjectId("_id", idGetter.apply(value));
+            encodeFields(writer, value);
+            writer.writeEndDocument();
+        }
+
+        abstract void encodeFields(BsonWriter writer, T value);
+
+        @Override
+        public Class<T> getEncoderClass() {
+            return type;
+        }
+
+        /**
+         * Błąd walidacji setera przy odczycie – zgłaszany jak w kodeku POJO.
+         */
+        CodecConfigurationException invalid(Exception cause) {
+            return new CodecConfigurationException("Nie można odczytać " + type.getSimpleName() + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Pola {@link Person} wspólne dla pacjenta i lekarza.
+     */
+    private static final class PersonFields {
+        String firstName;
+        String lastName;
+        Integer age;
+        Long pesel;
+        String passwordHash;
+        String passwordSalt;
+
+        /**
+         * @return {@code false}, jeśli pole nie należy do {@link Person}
+         */
+        boolean read(String name, BsonReader reader) {
+            switch (name) {
+                case "firstName" -> firstName = reader.readString();
+                case "lastName" -> lastName = reader.readString();
+                case "age" -> age = readInt(reader);
+                case "pesel" -> pesel = SummaryCodecs.readLong(reader);
+                case "passwordHash" -> passwordHash = reader.readString();
+                case "passwordSalt" -> passwordSalt = reader.readString();
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void applyTo(Person person) throws Exception {
+            if (firstName != null) person.setFirstName(firstName);
+            if (lastName != null) person.setLastName(lastName);
+            if (age != null) person.setAge(age);
+            if (pesel != null) person.setPesel(pesel);
+            person.setPasswordHash(passwordHash);
+            person.setPasswordSalt(passwordSalt);
+        }
+
+        static void write(BsonWriter writer, Person person) {
+            writeString(writer, "firstName", person.getFirstName());
+            writeString(writer, "lastName", person.getLastName());
+            writer.writeInt32("age", person.getAge());
+            writer.writeInt64("pesel", person.getPesel());
+            writeString(writer, "passwordHash", person.getPasswordHash());
+            writeString(writer, "passwordSalt", person.getPasswordSalt());
+        }
+    }
+
+    /**
+     * Kodek {@link Patient}.
+     */
+    public static class PatientCodec extends EntityCodec<Patient> {
+
+        public PatientCodec() {
+            super(Patient.class, Patient::getId, Patient::setId);
+        }
+
+        @Override
+        void encodeFields(BsonWriter writer, Patient value) {
+            PersonFields.write(writer, value);
+            writeLocalDate(writer, "birthDate", value.getBirthDate());
+            writeString(writer, "address", value.getAddress());
+            writeEnum(writer, "diagnosis", value.getDiagnosis());
+        }
+
+        @Override
+        public Patient decode(BsonReader reader, DecoderContext decoderContext) {
+            ObjectId id = null;
+            PersonFields person = new PersonFields();
+            LocalDate birthDate = null;
+            String address = null;
+            Diagnosis diagnosis = null;
+
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if (skipNull(reader)) continue;
+                switch (name) {
+                    case "_id" -> id = reader.readObjectId();
+                    case "birthDate" -> birthDate = SummaryCodecs.readLocalDate(reader);
+                    case "address" -> address = reader.readString();
+                    case "diagnosis" -> diagnosis = Diagnosis.valueOf(reader.readString());
+                    default -> {
+                        if (!person.read(name, reader)) reader.skipValue();
+                    }
+                }
+            }
+            reader.readEndDocument();
+
+            Patient patient = new Patient();
+            try {
+                patient.setId(id);
+                person.applyTo(patient);
+                patient.setBirthDate(birthDate);
+                patient.setAddress(address);
+                patient.setDiagnosis(diagnosis);
+            } catch (Exception e) {
+                throw invalid(e);
+            }
+            return patient;
+        }
+    }
+
+    /**
+     * Kodek {@link Doctor}.
+     */
+    public static class DoctorCodec extends EntityCodec<Doctor> {
+
+        public DoctorCodec() {
+            super(Doctor.class, Doctor::getId, Doctor::setId);
+        }
+
+        @Override
+        void encodeFields(BsonWriter writer, Doctor value) {
+            PersonFields.write(writer, value);
+            writeEnum(writer, "specialization", value.getSpecialization());
+            if (value.getAvailableDays() != null) {
+                writer.writeStartArray("availableDays");
+                for (Day day : value.getAvailableDays()) writer.writeString(day.name());
+                writer.writeEndArray();
+            }
+            writeString(writer, "room", value.getRoom());
+            writeString(writer, "contactInformation", value.getContactInformation());
+            writeLocalDate(writer, "birthDate", value.getBirthDate());
+        }
+
+        @Override
+        public Doctor decode(BsonReader reader, DecoderContext decoderContext) {
+            ObjectId id = null;
+            PersonFields person = new PersonFields();
+            Specialization specialization = null;
+            List<Day> availableDays = null;
+            String room = null;
+            String contactInformation = null;
+            LocalDate birthDate = null;
+
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if (skipNull(reader)) continue;
+                switch (name) {
+                    case "_id" -> id = reader.readObjectId();
+                    case "specialization" -> specialization = Specialization.valueOf(reader.readString());
+                    case "availableDays" -> {
+                        availableDays = new ArrayList<>();
+                        reader.readStartArray();
+                        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                            availableDays.add(Day.valueOf(reader.readString()));
+                        }
+                        reader.readEndArray();
+                    }
+                    case "room" -> room = reader.readString();
+                    case "contactInformation" -> contactInformation = reader.readString();
+                    case "birthDate" -> birthDate = SummaryCodecs.readLocalDate(reader);
+                    default -> {
+                        if (!person.read(name, reader)) reader.skipValue();
+                    }
+                }
+            }
+            reader.readEndDocument();
+
+            Doctor doctor = new Doctor();
+            try {
+                doctor.setId(id);
+                person.applyTo(doctor);
+                doctor.setSpecialization(specialization);
+                doctor.setAvailableDays(availableDays);
+                doctor.setRoom(room);
+                doctor.setContactInformation(contactInformation);
+                // Po wieku: setBirthDate przelicza wiek z daty urodzenia
+                doctor.setBirthDate(birthDate);
+            } catch (Exception e) {
+                throw invalid(e);
+            }
+            return doctor;
+        }
+    }
+
+    /**
+     * Kodek {@link Appointment}.
+     */
+    public static class AppointmentCodec extends EntityCodec<Appointment> {
+
+        public AppointmentCodec() {
+            super(Appointment.class, Appointment::getId, Appointment::setId);
+        }
+
+        @Override
+        void encodeFields(BsonWriter writer, Appointment value) {
+            writeObjectId(writer, "patientId", value.getPatientId());
+            writeObjectId(writer, "doctorId", value.getDoctorId());
+            if (value.getDate() != null) {
+                writer.writeDateTime("date", value.getDate().toInstant(ZoneOffset.UTC).toEpochMilli());
+            }
+            writeObjectId(writer, "room", value.getRoom());
+            writeString(writer, "description", value.getDescription());
+            writeEnum(writer, "status", value.getStatus());
+        }
+
+        @Override
+        public Appointment decode(BsonReader reader, DecoderContext decoderContext) {
+            Appointment appointment = new Appointment();
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if (skipNull(reader)) continue;
+                switch (name) {
+                    case "_id" -> appointment.setId(reader.readObjectId());
+                    case "patientId" -> appointment.setPatientId(reader.readObjectId());
+                    case "doctorId" -> appointment.setDoctorId(reader.readObjectId());
+                    case "date" -> appointment.setDate(
+                            LocalDateTime.ofInstant(Instant.ofEpochMilli(reader.readDateTime()), ZoneOffset.UTC));
+                    case "room" -> appointment.setRoom(reader.readObjectId());
+                    case "description" -> appointment.setDescription(reader.readString());
+                    case "status" -> appointment.setStatus(AppointmentStatus.valueOf(reader.readString()));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            return appointment;
+        }
+    }
+
+    /**
+     * Kodek {@link Room}.
+     */
+    public static class RoomCodec extends EntityCodec<Room> {
+
+        public RoomCodec() {
+            super(Room.class, Room::getId, Room::setId);
+        }
+
+        @Override
+        void encodeFields(BsonWriter writer, Room value) {
+            writeString(writer, "address", value.getAddress());
+            writer.writeInt32("floor", value.getFloor());
+            writer.writeInt32("number", value.getNumber());
+            writer.writeInt32("maxPatients", value.getMaxPatients());
+            // getPatientIds() zwraca kopię listy – pobieramy ją raz
+            List<ObjectId> patientIds = value.getPatientIds();
+            if (patientIds != null) {
+                writer.writeStartArray("patientIds");
+                for (int i = 0; i < patientIds.size(); i++) writer.writeObjectId(patientIds.get(i));
+                writer.writeEndArray();
+            }
+            writeEnum(writer, "type", value.getType());
+        }
+
+        @Override
+        public Room decode(BsonReader reader, DecoderContext decoderContext) {
+            ObjectId id = null;
+            String address = null;
+            Integer floor = null;
+            Integer number = null;
+            Integer maxPatients = null;
+            List<ObjectId> patientIds = null;
+            TypeOfRoom type = null;
+
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if (skipNull(reader)) continue;
+                switch (name) {
+                    case "_id" -> id = reader.readObjectId();
+                    case "address" -> address = reader.readString();
+                    case "floor" -> floor = readInt(reader);
+                    case "number" -> number = readInt(reader);
+                    case "maxPatients" -> maxPatients = readInt(reader);
+                    case "patientIds" -> {
+                        patientIds = new ArrayList<>();
+                        reader.readStartArray();
+                        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                            patientIds.add(reader.readObjectId());
+                        }
+                        reader.readEndArray();
+                    }
+                    case "type" -> type = TypeOfRoom.valueOf(reader.readString());
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+
+            Room room = new Room();
+            try {
+                if (id != null) room.setId(id);
+                if (address != null) room.setAddress(address);
+                if (floor != null) room.setFloor(floor);
+                if (number != null) room.setNumber(number);
+                // Limit przed listą pacjentów – setPatientIds sprawdza go
+                if (maxPatients != null) room.setMaxPatients(maxPatients);
+                room.setPatientIds(patientIds);
+                if (type != null) room.setType(type);
+            } catch (RuntimeException e) {
+                throw invalid(e);
+            }
+            return room;
+        }
+    }
+
+    /**
+     * Pomija wartość {@code null} – pole zostaje z wartością domyślną, jak przy braku pola w dokumencie.
+     */
+    private static boolean skipNull(BsonReader reader) {
+        if (reader.getCurrentBsonType() != BsonType.NULL) return false;
+        reader.readNull();
+        return true;
+    }
+
+    private static int readInt(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT64 -> (int) reader.readInt64();
+            case DOUBLE -> (int) reader.readDouble();
+            default -> reader.readInt32();
+        };
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) writer.writeString(name, value);
+    }
+
+    private static void writeObjectId(BsonWriter writer, String name, ObjectId value) {
+        if (value != null) writer.writeObjectId(name, value);
+    }
+
+    private static void writeEnum(BsonWriter writer, String name, Enum<?> value) {
+        if (value != null) writer.writeString(name, value.name());
+    }
+
+    private static void writeLocalDate(BsonWriter writer, String name, LocalDate value) {
+        if (value != null) writer.writeDateTime(name, value.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+    }
+}
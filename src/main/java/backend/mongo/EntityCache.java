@@ -0,0 +1,325 @@
+package backend.mongo;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Ograniczona rozmiarem, bezpieczna wątkowo pamięć podręczna typu read-through.
+ * <p>
+ * Kolejność wpisów jest utrzymywana jak w LRU, ale o tym, czy nowy wpis wyprze najstarszy,
+ * decyduje przybliżona częstotliwość odwołań (TinyLFU): licznik count-min zlicza każde odwołanie
+ * do klucza i jest okresowo połowiony, więc jednorazowe odczyty nie wypychają często używanych encji.
+ * Wartości {@code null} (brak encji w bazie) nie są zapamiętywane.
+ * </p>
+ * <p>
+ * Encje są zmienne, dlatego pamięć może przechowywać i zwracać kopie (funkcja {@code copier}): zmiana obiektu
+ * otrzymanego z pamięci nie zmienia wpisu widzianego przez inne wątki. Repozytoria i tak muszą unieważniać
+ * wpis przy każdej modyfikacji encji w bazie.
+ * </p>
+ *
+ * @param <K> typ klucza
+ * @param <V> typ wartości
+ */
+public class EntityCache<K, V> {
+
+    private final String name;
+    private final int maximumSize;
+    private final LinkedHashMap<K, V> entries;
+    private final FrequencySketch sketch;
+    private final UnaryOperator<V> copier;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Tworzy pamięć podręczną o podanej nazwie i maksymalnym rozmiarze.
+     *
+     * @param name        nazwa używana w raportach statystyk
+     * @param maximumSize maksymalna liczba przechowywanych wpisów
+     */
+    public EntityCache(String name, int maximumSize) {
+        this(name, maximumSize, UnaryOperator.identity());
+    }
+
+    /**
+     * Tworzy pamięć podręczną, która zapisuje i zwraca kopie wartości.
+     *
+     * @param name        nazwa używana w raportach statystyk
+     * @param maximumSize maksymalna liczba przechowywanych wpisów
+     * @param copier      funkcja tworząca niezależną kopię wartości
+     */
+    public EntityCache(String name, int maximumSize, UnaryOperator<V> copier) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("Rozmiar pamięci podręcznej musi być dodatni");
+        this.name = name;
+        this.maximumSize = maximumSize;
+        this.copier = copier;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Zwraca wartość z pamięci lub ładuje ją funkcją {@code loader} i zapamiętuje.
+     * Ładowanie odbywa się poza blokadą, więc równoległe chybienia mogą odpytać bazę kilka razy.
+     *
+     * @param key    klucz (dla {@code null} pamięć jest pomijana)
+     * @param loader funkcja ładująca wartość z bazy
+     * @return wartość lub {@code null}, jeśli loader jej nie znalazł
+     */
+    public V get(K key, Function<K, V> loader) {
+        if (key == null) return loader.apply(null);
+
+        long epoch;
+        V cached;
+        lock.lock();
+        try {
+            epoch = invalidations;
+            sketch.increment(key);
+            cached = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (cached != null) {
+            hits.increment();
+            return copier.apply(cached);
+        }
+
+        misses.increment();
+        V loaded = loader.apply(key);
+        if (loaded != null) store(key, copier.apply(loaded), epoch);
+        return loaded;
+    }
+
+    /**
+     * Zwraca wartość tylko wtedy, gdy jest w pamięci (bez ładowania i bez zmiany statystyk).
+     */
+    public V getIfPresent(K key) {
+        if (key == null) return null;
+        V cached;
+        lock.lock();
+        try {
+            cached = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        return cached != null ? copier.apply(cached) : null;
+    }
+
+    /**
+     * Zwraca widok wartości z pamięci (np. podsumowanie) bez kopiowania encji, albo {@code null}, jeśli jej nie ma.
+     * Funkcja {@code view} może tylko czytać wartość.
+     */
+    public <R> R viewIfPresent(K key, Function<? super V, R> view) {
+        if (key == null) return null;
+        V cached;
+        lock.lock();
+        try {
+            cached = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        return cached != null ? view.apply(cached) : null;
+    }
+
+    /**
+     * Zwraca znacznik unieważnień – pobierany przed odczytem z bazy i przekazywany do
+     * {@link #putIfUnchanged(Object, Object, long)}.
+     */
+    public long epoch() {
+        lock.lock();
+        try {
+            return invalidations;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Zapisuje (kopię) wartości odczytanej z bazy, o ile od pobrania znacznika {@code epoch} nie było unieważnień.
+     * Gdy pamięć jest pełna, nowy wpis wypiera najdawniej używany tylko wtedy, gdy jest używany
+     * co najmniej tak często jak on.
+     *
+     * @param epoch wynik {@link #epoch()} sprzed odczytu
+     */
+    public void putIfUnchanged(K key, V value, long epoch) {
+        if (value != null) store(key, copier.apply(value), epoch);
+    }
+
+    /**
+     * Zapisuje wartość, o ile od momentu rozpoczęcia ładowania ({@code epoch}) nie było unieważnień –
+     * w przeciwnym razie załadowana wartość mogłaby być już nieaktualna.
+     */
+    private void store(K key, V value, long epoch) {
+        if (key == null || value == null) return;
+
+        lock.lock();
+        try {
+            if (epoch != invalidations) return;
+
+            if (entries.containsKey(key) || entries.size() < maximumSize) {
+                entries.put(key, value);
+                return;
+            }
+
+            Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+            K victim = eldest.next().getKey();
+            if (sketch.frequency(key) >= sketch.frequency(victim)) {
+                eldest.remove();
+                evictions.increment();
+                entries.put(key, value);
+            } else {
+                rejections.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Usuwa wpis o podanym kluczu.
+     */
+    public void invalidate(K key) {
+        if (key == null) return;
+        lock.lock();
+        try {
+            invalidations++;
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Usuwa wszystkie wpisy (statystyki pozostają bez zmian).
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidations++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return liczba wpisów odrzuconych przez filtr częstotliwości (nie zostały zapamiętane)
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return odsetek trafień w przedziale 0..1 (0, jeśli nie było odwołań)
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Zwraca zwięzły opis statystyk pamięci podręcznej.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: rozmiar=%d/%d, trafienia=%d, chybienia=%d (%.1f%% trafień), wyparcia=%d, odrzucenia=%d",
+                name, size(), maximumSize, getHitCount(), getMissCount(), getHitRate() * 100,
+                getEvictionCount(), getRejectionCount());
+    }
+
+    /**
+     * Przybliżony licznik częstotliwości (count-min sketch z czterema wierszami).
+     * Wszystkie liczniki są połowione po {@code 10 * maximumSize} odwołaniach, aby dawna popularność wygasała.
+     * Metody wywoływane są wyłącznie pod blokadą pamięci podręcznej.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final int[][] counters;
+        private final int mask;
+        private final int resetThreshold;
+        private int additions;
+
+        private FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, maximumSize) * 2 - 1) << 1;
+            this.counters = new int[DEPTH][width];
+            this.mask = width - 1;
+            this.resetThreshold = 10 * maximumSize;
+        }
+
+        private void increment(Object key) {
+            int hash = spread(key.hashCode());
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(hash, i);
+                if (counters[i][index] < 15) counters[i][index]++;
+            }
+            if (++additions >= resetThreshold) reset();
+        }
+
+        private int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < DEPTH; i++) {
+                min = Math.min(min, counters[i][indexOf(hash, i)]);
+            }
+            return min;
+        }
+
+        private void reset() {
+            for (int[] row : counters) {
+                for (int j = 0; j < row.length; j++) row[j] >>>= 1;
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int h) {
+            h ^= h >>> 16;
+            h *= 0x45D9F3B;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package backend.mongo;
+
+import backend.klasy.Doctor;
+import backend.klasy.Patient;
+import backend.klasy.Room;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Współdzielone pamięci podręczne encji po {@link ObjectId}.
+ * <p>
+ * Repozytoria powstają raz, w {@link RepositoryContext}, ale pamięci podręczne nie są ich polami: unieważniają je
+ * też zapisy wykonywane z pominięciem repozytoriów ({@link CascadeDeleteService}, {@link DataLoader}) i zmiany
+ * z innych instancji aplikacji zgłaszane przez {@link ChangeStreamWatcher}. Lekarze i sale to małe dane
+ * referencyjne, pacjentów jest dużo, więc ich pamięć jest większa, ale i tak ograniczona.
+ * </p>
+ * <p>
+ * Wpisy są kopiowane przy zapisie i odczycie przez kodeki {@link DomainCodecs} (zapis do bufora BSON i odczyt),
+ * więc kopia zawiera dokładnie pola zapisywane w bazie, a kontroler zmieniający otrzymaną encję
+ * nie zmienia jej innym ekranom.
+ * </p>
+ */
+public final class EntityCaches {
+
+    public static final EntityCache<ObjectId, Doctor> DOCTORS =
+            new EntityCache<>("doctors", 2_000, copyOf(new DomainCodecs.DoctorCodec()));
+    public static final EntityCache<ObjectId, Room> ROOMS =
+            new EntityCache<>("rooms", 2_000, copyOf(new DomainCodecs.RoomCodec()));
+    public static final EntityCache<ObjectId, Patient> PATIENTS =
+            new EntityCache<>("patients", 20_000, copyOf(new DomainCodecs.PatientCodec()));
+
+    private EntityCaches() {
+    }
+
+    private static <T> UnaryOperator<T> copyOf(Codec<T> codec) {
+        return value -> new RawBsonDocument(value, codec).decode(codec);
+    }
+
+    /**
+     * Zwraca wszystkie pamięci podręczne (np. do raportowania statystyk).
+     */
+    public static List<EntityCache<ObjectId, ?>> all() {
+        return List.of(DOCTORS, ROOMS, PATIENTS);
+    }
+
+    /**
+     * Czyści wszystkie pamięci podręczne.
+     */
+    public static void invalidateAll() {
+        all().forEach(EntityCache::invalidateAll);
+    }
+
+    /**
+     * Wypisuje statystyki trafień, chybień i wyparć wszystkich pamięci podręcznych.
+     */
+    public static void printStats() {
+        all().forEach(cache -> System.out.println("[INFO] Cache " + cache));
+    }
+}
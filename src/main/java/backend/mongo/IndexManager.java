@@ -0,0 +1,237 @@
+package backend.mongo;
+
+import backend.status.AppointmentStatus;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Klasa odpowiedzialna za deklarację i weryfikację indeksów wszystkich kolekcji szpitala.
+ * <p>
+ * Przy starcie aplikacji tworzy brakujące indeksy (operacja idempotentna) oraz raportuje
+ * rozbieżności między indeksami zadeklarowanymi tutaj a tymi, które faktycznie istnieją w bazie.
+ * Istniejące indeksy nigdy nie są usuwane ani przebudowywane automatycznie.
+ * </p>
+ */
+public class IndexManager {
+
+    /**
+     * Statusy wizyt, które blokują termin ({@link AppointmentStatus#isActive()}).
+     */
+    public static final List<String> ACTIVE_STATUSES = Arrays.stream(AppointmentStatus.values())
+            .filter(AppointmentStatus::isActive)
+            .map(Enum::name)
+            .toList();
+
+    private static final List<IndexDefinition> DEFINITIONS = List.of(
+            // Wizyty: dostępność lekarza/pacjenta w danym dniu oraz ich historia
+            new IndexDefinition("appointments", "doctorId_1_date_1",
+                    new Document("doctorId", 1).append("date", 1), false, null),
+            new IndexDefinition("appointments", "patientId_1_date_1",
+                    new Document("patientId", 1).append("date", 1), false, null),
+            // Wizyty w sali (lista i licznik przed usunięciem sali) – zapytania filtrują tylko po sali,
+            // więc indeks nie może być częściowy
+            new IndexDefinition("appointments", "room_1_date_1",
+                    new Document("room", 1).append("date", 1), false, null),
+
+            // Stronicowanie keyset harmonogramu (SortField + _id)
+            new IndexDefinition("appointments", "date_1__id_1",
+                    new Document("date", 1).append("_id", 1), false, null),
+            new IndexDefinition("appointments", "status_1__id_1",
+                    new Document("status", 1).append("_id", 1), false, null),
+
+            new IndexDefinition("patients", "pesel_1_unique",
+                    new Document("pesel", 1), true, null),
+            new IndexDefinition("patients", "lastName_1__id_1",
+                    new Document("lastName", 1).append("_id", 1), false, null),
+            new IndexDefinition("patients", "firstName_1__id_1",
+                    new Document("firstName", 1).append("_id", 1), false, null),
+            new IndexDefinition("patients", "birthDate_1__id_1",
+                    new Document("birthDate", 1).append("_id", 1), false, null),
+
+            new IndexDefinition("doctors", "pesel_1_unique",
+                    new Document("pesel", 1), true, null),
+            new IndexDefinition("doctors", "lastName_1__id_1",
+                    new Document("lastName", 1).append("_id", 1), false, null),
+            new IndexDefinition("doctors", "firstName_1__id_1",
+                    new Document("firstName", 1).append("_id", 1), false, null),
+            new IndexDefinition("doctors", "specialization_1__id_1",
+                    new Document("specialization", 1).append("_id", 1), false, null),
+
+            new IndexDefinition("rooms", "type_1",
+                    new Document("type", 1), false, null),
+            new IndexDefinition("rooms", "address_1_floor_1_number_1",
+                    new Document("address", 1).append("floor", 1).append("number", 1), false, null),
+
+            // Rezerwacje slotów: kolizja terminu = duplikat klucza; zwalnianie po usunięciu wizyty
+            new IndexDefinition("slot_reservations", "owner_1_slot_1_unique",
+                    new Document("owner", 1).append("slot", 1), true, null),
+            new IndexDefinition("slot_reservations", "appointmentId_1",
+                    new Document("appointmentId", 1), false, null)
+    );
+
+    private final MongoDatabase database;
+
+    /**
+     * Konstruktor przyjmujący bazę danych, na której będą zarządzane indeksy.
+     *
+     * @param database obiekt MongoDatabase reprezentujący połączenie z bazą danych
+     */
+    public IndexManager(MongoDatabase database) {
+        if (database == null) throw new IllegalArgumentException("Baza danych nie może być nullem");
+        this.database = database;
+    }
+
+    /**
+     * Tworzy brakujące indeksy i sprawdza zgodność istniejących z deklaracją.
+     *
+     * @return lista komunikatów o rozbieżnościach (pusta, jeśli wszystko jest zgodne)
+     */
+    public List<String> ensureIndexes() {
+        List<String> drift = new ArrayList<>();
+
+        for (String collectionName : collectionNames()) {
+            MongoCollection<Document> collection = database.getCollection(collectionName);
+            List<Document> existing = collection.listIndexes().into(new ArrayList<>());
+            List<Document> matched = new ArrayList<>();
+
+            for (IndexDefinition definition : DEFINITIONS) {
+                if (!definition.collection.equals(collectionName)) continue;
+
+                Document found = existing.stream()
+                        .filter(index -> sameKeys(definition.keys, index.get("key", Document.class)))
+                        .findFirst()
+                        .orElse(null);
+
+                if (found == null) {
+                    createIndex(collection, definition, drift);
+                    continue;
+                }
+
+                matched.add(found);
+                if (!sameOptions(definition, found)) {
+                    drift.add(String.format("%s.%s: indeks %s ma inne opcje niż zadeklarowane (unique=%s, partialFilterExpression=%s)",
+                            database.getName(), collectionName, found.getString("name"),
+                            definition.unique, definition.partialFilter == null ? "brak" : definition.partialFilter.toJson()));
+                }
+            }
+
+            for (Document index : existing) {
+                if ("_id_".equals(index.getString("name")) || matched.contains(index)) continue;
+                System.out.println("[INFO] Niezadeklarowany indeks " + collectionName + "." + index.getString("name")
+                        + " " + index.get("key", Document.class).toJson());
+            }
+        }
+
+        if (drift.isEmpty()) {
+            System.err.println("[SUCCESS] Indeksy kolekcji są zgodne z deklaracją.");
+        } else {
+            drift.forEach(message -> System.err.println("[ERROR] Rozbieżność indeksów – " + message));
+        }
+        return drift;
+    }
+
+    /**
+     * Zwraca listę zadeklarowanych indeksów w postaci czytelnej dla człowieka.
+     *
+     * @return opisy indeksów w formacie kolekcja.nazwa {klucze}
+     */
+    public List<String> describeDeclaredIndexes() {
+        List<String> result = new ArrayList<>();
+        for (IndexDefinition definition : DEFINITIONS) {
+            result.add(definition.collection + "." + definition.name + " " + definition.keys.toJson()
+                    + (definition.unique ? " unique" : "")
+                    + (definition.partialFilter != null ? " partial " + definition.partialFilter.toJson() : ""));
+        }
+        return result;
+    }
+
+    /**
+     * Tworzy pojedynczy indeks. Błędy (np. duplikaty PESEL blokujące indeks unikalny) są raportowane jako rozbieżność.
+     */
+    private void createIndex(MongoCollection<Document> collection, IndexDefinition definition, List<String> drift) {
+        IndexOptions options = new IndexOptions()
+                .name(definition.name)
+                .unique(definition.unique);
+        if (definition.partialFilter != null) {
+            options.partialFilterExpression(definition.partialFilter);
+        }
+
+        try {
+            collection.createIndex(definition.keys, options);
+            System.out.println("[INFO] Utworzono indeks " + definition.collection + "." + definition.name);
+        } catch (MongoException e) {
+            drift.add(String.format("%s.%s: nie udało się utworzyć indeksu %s (%s)",
+                    database.getName(), definition.collection, definition.name, e.getMessage()));
+        }
+    }
+
+    /**
+     * Porównuje wzorce kluczy z uwzględnieniem kolejności pól (kolejność ma znaczenie w indeksach złożonych).
+     */
+    private static boolean sameKeys(Document declared, Document actual) {
+        if (actual == null || declared.size() != actual.size()) return false;
+
+        List<String> declaredFields = new ArrayList<>(declared.keySet());
+        List<String> actualFields = new ArrayList<>(actual.keySet());
+        if (!declaredFields.equals(actualFields)) return false;
+
+        for (String field : declaredFields) {
+            Object expected = declared.get(field);
+            Object value = actual.get(field);
+            // Indeksy tworzone z powłoki mongo mają kierunek zapisany jako double (1.0)
+            if (expected instanceof Number && value instanceof Number) {
+                if (((Number) expected).intValue() != ((Number) value).intValue()) return false;
+            } else if (!Objects.equals(expected, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sprawdza zgodność opcji unique i partialFilterExpression.
+     */
+    private static boolean sameOptions(IndexDefinition definition, Document actual) {
+        boolean unique = Boolean.TRUE.equals(actual.getBoolean("unique"));
+        Document partial = actual.get("partialFilterExpression", Document.class);
+        return unique == definition.unique && Objects.equals(partial, definition.partialFilter);
+    }
+
+    /**
+     * Zwraca nazwy kolekcji, dla których zadeklarowano indeksy (w kolejności deklaracji).
+     */
+    private static List<String> collectionNames() {
+        List<String> names = new ArrayList<>();
+        for (IndexDefinition definition : DEFINITIONS) {
+            if (!names.contains(definition.collection)) names.add(definition.collection);
+        }
+        return names;
+    }
+
+    /**
+     * Deklaracja pojedynczego indeksu.
+     */
+    private static final class IndexDefinition {
+        private final String collection;
+        private final String name;
+        private final Document keys;
+        private final boolean unique;
+        private final Document partialFilter;
+
+        private IndexDefinition(String collection, String name, Document keys, boolean unique, Document partialFilter) {
+            this.collection = collection;
+            this.name = name;
+            this.keys = keys;
+            this.unique = unique;
+            this.partialFilter = partialFilter;
+        }
+    }
+}
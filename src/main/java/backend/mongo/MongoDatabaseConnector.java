@@ -1,66 +1,196 @@
 package backend.mongo;
 
+import backend.metrics.MongoMetrics;
+import backend.metrics.SlowQueryLog;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.MongoException;
+import org.bson.Document;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.codecs.pojo.PojoCodecProvider;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
 import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
 
 /**
  * Klasa narzędziowa do obsługi połączenia z bazą danych MongoDB.
  * Utrzymuje jedno połączenie przez cały cykl życia aplikacji.
+ * <p>
+ * Adres, pula połączeń, limity czasu i kompresja pochodzą z {@link ConnectionProfile}. Połączenie tworzone jest
+ * raz, także przy jednoczesnym pierwszym użyciu z kilku wątków; od razu po utworzeniu otwierane są połączenia
+ * puli (rozgrzewka), a przy wyłączaniu JVM klient zamykany jest automatycznie.
+ * </p>
  */
 public class MongoDatabaseConnector {
 
-    private static final String DB_IP = "192.168.141.191"; // Adres IP serwera MongoDB
+    /**
+     * Właściwość systemowa z plikiem, do którego przy zamykaniu połączenia zapisywane są metryki ({@link MongoMetrics}).
+     */
+    private static final String METRICS_FILE_PROPERTY = "hospital.metrics.file";
 
-    private static final int DB_PORT = 27017;
-    private static final String DB_NAME = "hospitalDB";
+    private static final Document PING = new Document("ping", 1);
 
-    private static MongoClient mongoClient;
-    private static MongoDatabase database;
+    private static volatile MongoClient mongoClient;
+    private static volatile MongoDatabase database;
+    private static volatile RepositoryContext repositories;
+    private static boolean shutdownHookRegistered;
 
     /**
-     * Zwraca instancję bazy danych. Tworzy połączenie, jeśli nie istnieje.
+     * Zwraca instancję bazy danych. Tworzy połączenie, jeśli nie istnieje,
+     * i przy pierwszym połączeniu rozgrzewa pulę połączeń, weryfikuje indeksy kolekcji ({@link IndexManager}),
+     * tworzy wspólne repozytoria ({@link RepositoryContext}) i sprawdza rezerwacje slotów.
+     *
+     * @return baza danych lub {@code null}, jeśli połączenie się nie powiodło (kolejne wywołanie ponowi próbę)
      */
     public static MongoDatabase connectToDatabase() {
-        if (database == null) {
-            try {
-                CodecRegistry pojoCodecRegistry = fromRegistries(
-                        MongoClientSettings.getDefaultCodecRegistry(),
-                        fromProviders(PojoCodecProvider.builder().automatic(true).build())
-                );
-
-                MongoClientSettings settings = MongoClientSettings.builder()
-                        .applyConnectionString(new com.mongodb.ConnectionString(String.format("mongodb://%s:%d", DB_IP, DB_PORT)))
-                        .codecRegistry(pojoCodecRegistry)
-                        .build();
-
-                mongoClient = MongoClients.create(settings);
-                database = mongoClient.getDatabase(DB_NAME);
-
-                System.err.println("[SUCCESS] Połączono z bazą danych: " + DB_NAME);
-            } catch (MongoException e) {
-                System.err.println("[ERROR] Błąd połączenia z MongoDB: " + e.getMessage());
+        MongoDatabase current = database;
+        if (current != null) return current;
+        synchronized (MongoDatabaseConnector.class) {
+            if (database == null) {
+                connect();
             }
+            return database;
         }
-        return database;
     }
 
     /**
-     * Zamyka połączenie z bazą danych. Powinno być wywołane tylko raz przy zamykaniu aplikacji.
+     * Tworzy klienta i publikuje bazę oraz repozytoria dopiero po udanej rozgrzewce, weryfikacji indeksów
+     * i sprawdzeniu rezerwacji. Przy błędzie klient jest zamykany, a pola pozostają puste – kolejne
+     * wywołanie {@link #connectToDatabase()} próbuje połączyć się od nowa.
+     */
+    private static void connect() {
+        MongoClient client = null;
+        try {
+            ConnectionProfile profile = ConnectionProfile.load();
+
+            // Jeden rejestr dla całej aplikacji: ręczne kodeki encji przed dostawcą POJO, który obsługuje już tylko
+            // pozostałe klasy; kodeki podsumowań (tylko do odczytu) dokładają widoki z SummaryCodecs.summaries
+            CodecRegistry pojoCodecRegistry = DomainCodecs.withDomainCodecs(fromRegistries(
+                    MongoClientSettings.getDefaultCodecRegistry(),
+                    fromProviders(MongoMetrics.timedCodecProvider(PojoCodecProvider.builder().automatic(true).build()))
+            ));
+
+            MongoClientSettings settings = profile.applyTo(MongoClientSettings.builder())
+                    .codecRegistry(pojoCodecRegistry)
+                    .addCommandListener(MongoMetrics.commandListener())
+                    .addCommandListener(ReadRouting.writeTracker())
+                    .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(MongoMetrics.connectionPoolListener()))
+                    .build();
+
+            ReadRouting.configure(profile.getRelaxedReadPreference());
+            client = MongoClients.create(settings);
+            MongoDatabase db = client.getDatabase(profile.getDatabase());
+
+            System.out.println("[INFO] Profil połączenia: " + profile);
+            if (!warmUp(db, profile.getPoolMinSize())) {
+                client.close();
+                return;
+            }
+            System.err.println("[SUCCESS] Połączono z bazą danych: " + profile.getDatabase());
+
+            new IndexManager(db).ensureIndexes();
+            RepositoryContext context = new RepositoryContext(db);
+            context.slotReservations().rebuildIfEmpty();
+
+            mongoClient = client;
+            repositories = context;
+            database = db;
+            SlowQueryLog.attach(client);
+            registerShutdownHook();
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ERROR] Niepoprawna konfiguracja połączenia z MongoDB: " + e.getMessage());
+            if (client != null) client.close();
+        } catch (MongoException e) {
+            System.err.println("[ERROR] Błąd połączenia z MongoDB: " + e.getMessage());
+            if (client != null) client.close();
+        }
+    }
+
+    /**
+     * Otwiera połączenia puli równoległymi poleceniami {@code ping}, żeby pierwsze zapytania ekranów nie czekały
+     * na nawiązanie połączenia (TCP, handshake, uwierzytelnienie). Resztę do {@code pool.minSize} utrzymuje
+     * w tle sam sterownik.
+     *
+     * @return czy serwer odpowiedział; niedostępny serwer zgłaszany jest po limicie wyboru serwera z profilu
+     */
+    private static boolean warmUp(MongoDatabase db, int connections) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("MongoDatabaseConnector.warmUp");
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            List<Future<Document>> pings = new ArrayList<>();
+            for (int i = 0; i < Math.max(1, connections); i++) {
+                pings.add(executor.submit(() -> db.runCommand(PING)));
+            }
+            for (Future<Document> ping : pings) {
+                ping.get();
+            }
+            System.out.println("[INFO] Rozgrzano pulę: " + pings.size() + " połączeń w "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        } catch (ExecutionException e) {
+            System.err.println("[ERROR] Serwer MongoDB nie odpowiada: " + e.getCause().getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Rejestruje (raz) zamknięcie klienta przy wyłączaniu JVM, także gdy aplikacja nie wywoła {@link #close()}.
+     */
+    private static void registerShutdownHook() {
+        if (shutdownHookRegistered) return;
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().name("mongo-shutdown").unstarted(() -> {
+            if (mongoClient != null) close();
+        }));
+        shutdownHookRegistered = true;
+    }
+
+    /**
+     * Zwraca wspólny kontekst repozytoriów, łącząc się z bazą, jeśli połączenie jeszcze nie istnieje.
+     *
+     * @return kontekst repozytoriów lub {@code null}, jeśli połączenie się nie powiodło
+     */
+    public static RepositoryContext repositories() {
+        if (repositories == null) {
+            connectToDatabase();
+        }
+        return repositories;
+    }
+
+    /**
+     * Zamyka połączenie z bazą danych. Powinno być wywołane tylko raz przy zamykaniu aplikacji;
+     * kolejne wywołania (np. z haka zamknięcia JVM) nic nie robią.
      */
     public static void close() {
-        if (mongoClient != null) {
+        MongoClient client;
+        synchronized (MongoDatabaseConnector.class) {
+            client = mongoClient;
+            mongoClient = null;
+            database = null;
+            repositories = null;
+        }
+        // Sprzątanie poza blokadą: ChangeStreamWatcher.shared() łączy się z bazą pod własną blokadą
+        if (client != null) {
             try {
-                mongoClient.close();
-                mongoClient = null;
-                database = null;
+                ChangeStreamWatcher.closeShared();
+                EntityCaches.printStats();
+                MongoMetrics.printSummary();
+                dumpMetricsIfRequested();
+                SlowQueryLog.attach(null);
+                client.close();
                 System.out.println("[SUCCESS] Połączenie z MongoDB zostało zamknięte.");
             } catch (Exception e) {
                 System.err.println("[ERROR] Błąd podczas zamykania MongoDB: " + e.getMessage());
@@ -70,13 +200,26 @@ public class MongoDatabaseConnector {
         }
     }
 
+    /**
+     * Zapisuje metryki poleceń do pliku wskazanego właściwością {@code -Dhospital.metrics.file=ścieżka}, jeśli została podana.
+     */
+    private static void dumpMetricsIfRequested() {
+        String file = System.getProperty(METRICS_FILE_PROPERTY);
+        if (file == null || file.isBlank()) return;
+        try {
+            MongoMetrics.dump(Path.of(file));
+        } catch (IOException e) {
+            System.err.println("[ERROR] Nie udało się zapisać metryk do " + file + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Zwraca klienta MongoDB. Głównie do testów lub rzadkich przypadków użycia.
      */
     public static MongoClient getClient() {
-        if (mongoClient == null) {
-            connectToDatabase();
-        }
+        MongoClient client = mongoClient;
+        if (client != null) return client;
+        connectToDatabase();
         return mongoClient;
     }
 }
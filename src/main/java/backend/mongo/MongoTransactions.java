@@ -0,0 +1,65 @@
+package backend.mongo;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.connection.ClusterType;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Wspólna obsługa transakcji dla operacji obejmujących kilka kolekcji.
+ * <p>
+ * Transakcje wymagają replica setu lub klastra shardowanego. Na pojedynczym serwerze operacje wykonywane są
+ * w zwykłej sesji, bez atomowości. Transakcje można wyłączyć właściwością {@code -Dhospital.transactions=false}
+ * (np. do porównania przepustowości); tryb wypisywany jest raz, przy pierwszym użyciu.
+ * </p>
+ */
+final class MongoTransactions {
+
+    static final TransactionOptions OPTIONS = TransactionOptions.builder()
+            .readConcern(ReadConcern.SNAPSHOT)
+            .writeConcern(WriteConcern.MAJORITY)
+            .build();
+
+    private static final String TRANSACTIONS_PROPERTY = "hospital.transactions";
+    private static final AtomicBoolean MODE_LOGGED = new AtomicBoolean();
+
+    private MongoTransactions() {
+    }
+
+    /**
+     * @param client klient MongoDB (może być {@code null}, gdy nie ma połączenia)
+     * @return czy operacje mogą być wykonywane w transakcji
+     */
+    static boolean supported(MongoClient client) {
+        boolean enabled = Boolean.parseBoolean(System.getProperty(TRANSACTIONS_PROPERTY, "true"));
+        ClusterType type = client != null ? client.getClusterDescription().getType() : ClusterType.UNKNOWN;
+        boolean supported = enabled && (type == ClusterType.REPLICA_SET || type == ClusterType.SHARDED);
+        if (MODE_LOGGED.compareAndSet(false, true)) {
+            System.out.println("[INFO] Operacje wielokolekcyjne: " + (supported
+                    ? "transakcje (" + type + ")"
+                    : "bez transakcji (" + (enabled ? "serwer " + type + " ich nie obsługuje" : "wyłączone") + ")"));
+        }
+        return supported;
+    }
+
+    /**
+     * Wykonuje operację w transakcji, jeśli to możliwe (ponawianej przez sterownik przy błędach przejściowych),
+     * a w przeciwnym razie w zwykłej sesji.
+     *
+     * @param body operacja; wszystkie polecenia muszą używać przekazanej sesji
+     * @return wynik operacji
+     */
+    static <T> T run(Function<ClientSession, T> body) {
+        MongoClient client = MongoDatabaseConnector.getClient();
+        try (ClientSession session = client.startSession()) {
+            return supported(client)
+                    ? session.withTransaction(() -> body.apply(session), OPTIONS)
+                    : body.apply(session);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package backend.mongo;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mongodb.client.model.Filters.*;
+import static com.mongodb.client.model.Sorts.*;
+
+/**
+ * Strona wyników stronicowania keyset (seek).
+ * <p>
+ * Zamiast {@code skip(n)}, który każe serwerowi przejść przez wszystkie pominięte dokumenty,
+ * każda strona zaczyna się za ostatnim elementem poprzedniej: {@code (pole, _id) > (v, id)}.
+ * Koszt pobrania strony nie zależy więc od jej numeru, a przy indeksie {@code (pole, _id)}
+ * serwer czyta dokładnie {@code size + 1} wpisów indeksu.
+ * </p>
+ *
+ * @param <T> typ elementów
+ */
+public class Page<T> {
+
+    private final List<T> items;
+    private final PageCursor next;
+
+    private Page(List<T> items, PageCursor next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    /**
+     * @return elementy strony w kolejności sortowania
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return kursor następnej strony lub {@code null}, jeśli to ostatnia strona
+     */
+    public PageCursor getNext() {
+        return next;
+    }
+
+    public boolean hasMore() {
+        return next != null;
+    }
+
+    /**
+     * Pobiera jedną stronę kolekcji.
+     *
+     * @param collection kolekcja
+     * @param filter     dodatkowy filtr (może być {@code null})
+     * @param sort       pole sortowania
+     * @param ascending  kierunek sortowania
+     * @param after      kursor poprzedniej strony lub {@code null} dla pierwszej strony
+     * @param size       maksymalna liczba elementów strony
+     * @return strona wyników
+     */
+    public static <T> Page<T> fetch(MongoCollection<T> collection, Bson filter, SortField<T> sort,
+                                    boolean ascending, PageCursor after, int size) {
+        return fetch(collection, filter, null, sort, ascending, after, size);
+    }
+
+    /**
+     * Pobiera jedną stronę kolekcji, przesyłając z serwera tylko pola z projekcji.
+     *
+     * @param projection pola do pobrania (może być {@code null} – cały dokument)
+     * @see #fetch(MongoCollection, Bson, SortField, boolean, PageCursor, int)
+     */
+    public static <T> Page<T> fetch(MongoCollection<T> collection, Bson filter, Bson projection, SortField<T> sort,
+                                    boolean ascending, PageCursor after, int size) {
+        return fetch(null, collection, filter, projection, sort, ascending, after, size);
+    }
+
+    /**
+     * Pobiera jedną stronę kolekcji w podanej sesji (np. odczyt z sekundariusza przez {@link ReadRouting}).
+     *
+     * @param session sesja lub {@code null} – zapytanie bez jawnej sesji
+     * @see #fetch(MongoCollection, Bson, Bson, SortField, boolean, PageCursor, int)
+     */
+    public static <T> Page<T> fetch(ClientSession session, MongoCollection<T> collection, Bson filter, Bson projection,
+                                    SortField<T> sort, boolean ascending, PageCursor after, int size) {
+        if (size <= 0) throw new IllegalArgumentException("Rozmiar strony musi być dodatni");
+
+        List<Bson> filters = new ArrayList<>();
+        if (filter != null) filters.add(filter);
+        if (after != null) filters.add(seek(sort.getField(), ascending, after));
+
+        Bson order = ascending
+                ? orderBy(ascending(sort.getField()), ascending("_id"))
+                : orderBy(descending(sort.getField()), descending("_id"));
+
+        // Jeden element więcej mówi, czy istnieje następna strona
+        Bson query = filters.isEmpty() ? new Document() : and(filters);
+        List<T> items = (session != null ? collection.find(session, query) : collection.find(query))
+                .projection(projection)
+                .sort(order)
+                .limit(size + 1)
+                .into(new ArrayList<>(size + 1));
+
+        if (items.size() <= size) return new Page<>(items, null);
+        items.remove(size);
+        return new Page<>(items, sort.cursorAfter(items.get(size - 1)));
+    }
+
+    /**
+     * Warunek „za kursorem” dla sortowania po (pole, _id). Wartości {@code null} (i brak pola)
+     * MongoDB sortuje przed wszystkimi innymi, a porównania {@code $gt/$lt} z {@code null} nic nie zwracają,
+     * dlatego ten przypadek jest obsłużony osobno.
+     */
+    private static Bson seek(String field, boolean ascending, PageCursor after) {
+        Object value = after.getValue();
+        Bson sameValueLaterId = ascending ? gt("_id", after.getId()) : lt("_id", after.getId());
+
+        if (value == null) {
+            Bson tie = and(eq(field, null), sameValueLaterId);
+            // Rosnąco po null-ach są wszystkie wartości niepuste; malejąco null-e są na końcu
+            return ascending ? or(tie, ne(field, null)) : tie;
+        }
+
+        Bson laterValue = ascending ? gt(field, value) : lt(field, value);
+        Bson tie = and(eq(field, value), sameValueLaterId);
+        return ascending ? or(laterValue, tie) : or(laterValue, tie, eq(field, null));
+    }
+}
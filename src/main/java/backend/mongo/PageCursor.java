@@ -0,0 +1,32 @@
+package backend.mongo;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Pozycja w posortowanej kolekcji: wartość klucza sortowania i identyfikator ostatniego
+ * elementu poprzedniej strony. Kolejna strona zaczyna się bezpośrednio za nim.
+ */
+public final class PageCursor {
+
+    private final Object value;
+    private final ObjectId id;
+
+    public PageCursor(Object value, ObjectId id) {
+        if (id == null) throw new IllegalArgumentException("Identyfikator kursora nie może być null");
+        this.value = value;
+        this.id = id;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "PageCursor{value=" + value + ", id=" + id + "}";
+    }
+}
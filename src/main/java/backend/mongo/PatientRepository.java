@@ -1,18 +1,36 @@
 package backend.mongo;
 
 import backend.klasy.Patient;
+import backend.klasy.PatientSummary;
+import backend.metrics.MongoMetrics;
+import backend.status.Diagnosis;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import org.bson.types.ObjectId;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Updates.set;
 
 /**
  * Klasa zarządzajaca zapisem danych pacjenta do bazy MongoDB w sposób obiektowy*/
 public class PatientRepository {
+
+    /** Pola, po których tabela pacjentów może być sortowana i stronicowana. */
+    public static final SortField<PatientSummary> SORT_BY_FIRST_NAME =
+            new SortField<>("firstName", PatientSummary::getFirstName, PatientSummary::getId);
+    public static final SortField<PatientSummary> SORT_BY_LAST_NAME =
+            new SortField<>("lastName", PatientSummary::getLastName, PatientSummary::getId);
+    public static final SortField<PatientSummary> SORT_BY_BIRTH_DATE =
+            new SortField<>("birthDate", PatientSummary::getBirthDate, PatientSummary::getId);
+
     private final MongoCollection<Patient> collection;
+    private final MongoCollection<PatientSummary> summaries;
+    private final MongoCollection<Patient> relaxedCollection;
+    private final MongoCollection<PatientSummary> relaxedSummaries;
     private final MongoDatabase database;
 
     /**
@@ -23,6 +41,9 @@ public class PatientRepository {
     public PatientRepository(MongoDatabase database) {
         this.database = database;
         this.collection = database.getCollection("patients", Patient.class);
+        this.summaries = SummaryCodecs.summaries(database, "patients", PatientSummary.class);
+        this.relaxedCollection = ReadRouting.relaxed(collection);
+        this.relaxedSummaries = ReadRouting.relaxed(summaries);
     }
 
     /**
@@ -33,10 +54,12 @@ public class PatientRepository {
      */
     //pytanie dlaczego wiek pacjenta jest zerem taki aktualnie jest błąd
     public void createPatient(Patient patient) throws IllegalArgumentException{
-        if (patient == null) {
-            throw new IllegalArgumentException("Pacjent nie może być nullem");
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.createPatient")) {
+            if (patient == null) {
+                throw new IllegalArgumentException("Pacjent nie może być nullem");
+            }
+            collection.insertOne(patient);
         }
-        collection.insertOne(patient);
     }
 
     /**
@@ -46,16 +69,106 @@ public class PatientRepository {
      * @return List zawierający znalezionego pacjenta lub pusty, jeśli pacjent nie został znaleziony
      */
     public List<Patient> findPatientById(ObjectId id) {
-        return collection.find(eq("_id", id)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findPatientById")) {
+            Patient patient = EntityCaches.PATIENTS.get(id, key -> collection.find(eq("_id", key)).first());
+            List<Patient> result = new ArrayList<>();
+            if (patient != null) result.add(patient);
+            return result;
+        }
+    }
+
+    /**
+     * Znajduje pacjentów o podanych ID jednym zapytaniem ($in).
+     *
+     * @param ids identyfikatory pacjentów
+     * @return lista znalezionych pacjentów (kolejność nieokreślona)
+     */
+    public List<Patient> findByIds(Collection<ObjectId> ids) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findByIds")) {
+            if (ids == null || ids.isEmpty()) return new ArrayList<>();
+
+            long epoch = EntityCaches.PATIENTS.epoch();
+            List<Patient> result = new ArrayList<>();
+            List<ObjectId> missing = new ArrayList<>();
+            for (ObjectId id : ids) {
+                Patient cached = EntityCaches.PATIENTS.getIfPresent(id);
+                if (cached != null) result.add(cached); else missing.add(id);
+            }
+            if (!missing.isEmpty()) {
+                for (Patient patient : collection.find(in("_id", missing))) {
+                    EntityCaches.PATIENTS.putIfUnchanged(patient.getId(), patient, epoch);
+                    result.add(patient);
+                }
+            }
+            return result;
+        }
     }
 
     /**
      * Znajduje wszystkich pacjentów w bazie danych.
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
      *
      * @return lista wszystkich pacjentów
      */
     public List<Patient> findAll() {
-        return collection.find().into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findAll")) {
+            return ReadRouting.read(session -> relaxedCollection.find(session).into(new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Zwraca podsumowania wszystkich pacjentów (tylko pola potrzebne na listach).
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @return lista podsumowań pacjentów
+     */
+    public List<PatientSummary> findAllSummaries() {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findAllSummaries")) {
+            return ReadRouting.read(session -> relaxedSummaries.find(session)
+                    .projection(SummaryCodecs.PATIENT_SUMMARY_FIELDS).into(new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Zwraca podsumowania pacjentów o podanych ID jednym zapytaniem ($in).
+     * Pacjenci obecni w pamięci podręcznej nie są pobierani z bazy.
+     *
+     * @param ids identyfikatory pacjentów
+     * @return lista podsumowań (kolejność nieokreślona)
+     */
+    public List<PatientSummary> findSummariesByIds(Collection<ObjectId> ids) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findSummariesByIds")) {
+            if (ids == null || ids.isEmpty()) return new ArrayList<>();
+
+            List<PatientSummary> result = new ArrayList<>();
+            List<ObjectId> missing = new ArrayList<>();
+            for (ObjectId id : ids) {
+                PatientSummary cached = EntityCaches.PATIENTS.viewIfPresent(id, PatientSummary::of);
+                if (cached != null) result.add(cached); else missing.add(id);
+            }
+            if (!missing.isEmpty()) {
+                summaries.find(in("_id", missing)).projection(SummaryCodecs.PATIENT_SUMMARY_FIELDS).into(result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Zwraca stronę podsumowań pacjentów posortowanych po podanym polu (stronicowanie keyset).
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @param sort      pole sortowania, np. {@link #SORT_BY_LAST_NAME}
+     * @param ascending kierunek sortowania
+     * @param after     kursor poprzedniej strony lub {@code null} dla pierwszej
+     * @param size      rozmiar strony
+     * @return strona podsumowań pacjentów
+     */
+    public Page<PatientSummary> findSummaryPage(SortField<PatientSummary> sort, boolean ascending,
+                                                PageCursor after, int size) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findSummaryPage")) {
+            return ReadRouting.read(session -> Page.fetch(session, relaxedSummaries, null,
+                    SummaryCodecs.PATIENT_SUMMARY_FIELDS, sort, ascending, after, size));
+        }
     }
 
     /**
@@ -65,7 +178,9 @@ public class PatientRepository {
      * @return lista pacjentów o podanym imieniu
      */
     public List<Patient> findPatientByFirstName(String firstName) {
-        return collection.find(eq("firstName", firstName)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findPatientByFirstName")) {
+            return collection.find(eq("firstName", firstName)).into(new ArrayList<>());
+        }
     }
 
     /**
@@ -75,7 +190,9 @@ public class PatientRepository {
      * @return lista pacjentów o podanym nazwisku
      */
     public List<Patient> findPatientByLastName(String lastName) {
-        return collection.find(eq("lastName", lastName)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findPatientByLastName")) {
+            return collection.find(eq("lastName", lastName)).into(new ArrayList<>());
+        }
     }
     /**
      * Znajduje pacjentów po ich numerze PESEL.
@@ -84,7 +201,9 @@ public class PatientRepository {
      * @return lista pacjentów o podanym numerze PESEL
      */
     public Patient findPatientByPesel(long pesel) {
-        return collection.find(eq("pesel", pesel)).first();
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findPatientByPesel")) {
+            return collection.find(eq("pesel", pesel)).first();
+        }
     }
 
     /**
@@ -94,7 +213,9 @@ public class PatientRepository {
      * @return lista pacjentów o podanym adresie
      */
     public List<Patient> findPatientByAddress(String address) {
-        return collection.find(eq("address", address)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findPatientByAddress")) {
+            return collection.find(eq("address", address)).into(new ArrayList<>());
+        }
     }
 
     /**
@@ -103,8 +224,61 @@ public class PatientRepository {
      * @return lista pacjentów z diagnozą AWAITING
      */
     public List<Patient> findPatientsWithAwaitingDiagnosis() {
-        return collection.find(eq("diagnosis", "AWAITING"))
-                .into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findPatientsWithAwaitingDiagnosis")) {
+            return collection.find(eq("diagnosis", "AWAITING"))
+                    .into(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Zlicza pacjentów z diagnozą AWAITING bez pobierania ich dokumentów.
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @return liczba pacjentów oczekujących na diagnozę
+     */
+    public long countPatientsWithAwaitingDiagnosis() {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.countPatientsWithAwaitingDiagnosis")) {
+            return ReadRouting.read(session ->
+                    relaxedCollection.countDocuments(session, eq("diagnosis", Diagnosis.AWAITING.name())));
+        }
+    }
+
+    /**
+     * Zwraca podsumowania pacjentów z diagnozą AWAITING.
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
+     *
+     * @return lista podsumowań pacjentów oczekujących na diagnozę
+     */
+    public List<PatientSummary> findSummariesWithAwaitingDiagnosis() {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findSummariesWithAwaitingDiagnosis")) {
+            return ReadRouting.read(session -> relaxedSummaries.find(session, eq("diagnosis", Diagnosis.AWAITING.name()))
+                    .projection(SummaryCodecs.PATIENT_SUMMARY_FIELDS)
+                    .into(new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Zmienia tylko diagnozę pacjenta, bez odczytu i nadpisywania całego dokumentu.
+     *
+     * @param id        ID pacjenta
+     * @param diagnosis nowa diagnoza
+     */
+    public void updateDiagnosis(ObjectId id, Diagnosis diagnosis) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.updateDiagnosis")) {
+            if (id == null || diagnosis == null) {
+                throw new IllegalArgumentException("ID pacjenta i diagnoza nie mogą być null");
+            }
+
+            long matchedCount;
+            try {
+                matchedCount = collection.updateOne(eq("_id", id), set("diagnosis", diagnosis.name())).getMatchedCount();
+            } finally {
+                EntityCaches.PATIENTS.invalidate(id);
+            }
+            if (matchedCount == 0) {
+                throw new IllegalStateException("Pacjent o ID " + id + " nie istnieje w bazie.");
+            }
+        }
     }
 
     /**
@@ -114,7 +288,9 @@ public class PatientRepository {
      * @return lista pacjentów o podanej dacie urodzenia
      */
     public List<Patient> findPatientByBirthDate(LocalDate birthDate) {
-        return collection.find(eq("birthDate", birthDate)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.findPatientByBirthDate")) {
+            return collection.find(eq("birthDate", birthDate)).into(new ArrayList<>());
+        }
     }
 
     /**
@@ -124,15 +300,22 @@ public class PatientRepository {
      * @return zaktualizowany pacjent
      */
     public Patient updatePatient(Patient patient) {
-        if (patient == null || patient.getId() == null) {
-            throw new IllegalArgumentException("Patient or ID cannot be null");
-        }
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.updatePatient")) {
+            if (patient == null || patient.getId() == null) {
+                throw new IllegalArgumentException("Patient or ID cannot be null");
+            }
 
-        long modifiedCount = collection.replaceOne(eq("_id", patient.getId()), patient).getModifiedCount();
-        if (modifiedCount == 0) {
-            throw new IllegalStateException("Pacjent o ID " + patient.getId() + " nie istnieje w bazie.");
+            long modifiedCount;
+            try {
+                modifiedCount = collection.replaceOne(eq("_id", patient.getId()), patient).getModifiedCount();
+            } finally {
+                EntityCaches.PATIENTS.invalidate(patient.getId());
+            }
+            if (modifiedCount == 0) {
+                throw new IllegalStateException("Pacjent o ID " + patient.getId() + " nie istnieje w bazie.");
+            }
+            return patient;
         }
-        return patient;
     }
 
     /**
@@ -141,7 +324,13 @@ public class PatientRepository {
      * @param id ID pacjenta do usunięcia
      */
     public void deletePatient(ObjectId id) {
-        collection.deleteOne(eq("_id", id));
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("PatientRepository.deletePatient")) {
+            try {
+                collection.deleteOne(eq("_id", id));
+            } finally {
+                EntityCaches.PATIENTS.invalidate(id);
+            }
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package backend.mongo;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Kierowanie odczytów między primary a sekundariuszami replica setu.
+ * <p>
+ * Metody repozytoriów dzielą się na dwie grupy. Odczyty wymagające aktualnych danych (sprawdzanie dostępności,
+ * rezerwacje, odczyt wizyty przed jej zmianą) korzystają ze zwykłych kolekcji, czyli z primary. Odczyty
+ * tolerujące opóźnienie (historia, listy, statystyki paneli) korzystają z kolekcji zwróconej przez
+ * {@link #relaxed(MongoCollection)} i wykonywane są przez {@link #read(Function)} – mogą wtedy trafić
+ * na sekundariusza ({@code secondaryPreferred} z {@code maxStalenessSeconds} z {@link ConnectionProfile})
+ * i nie konkurują z rezerwacjami o primary.
+ * </p>
+ * <p>
+ * Żeby użytkownik widział własne zmiany, {@link #writeTracker()} zapamiętuje {@code operationTime} ostatniego
+ * zapisu aplikacji, a każdy odczyt tolerujący opóźnienie wykonywany jest w sesji przyczynowo spójnej
+ * przesuniętej do tego czasu – sekundariusz odpowiada dopiero, gdy zreplikuje ten zapis. Na pojedynczym serwerze
+ * oba rodzaje odczytów trafiają do tego samego serwera.
+ * </p>
+ */
+final class ReadRouting {
+
+    private static final Set<String> WRITE_COMMANDS =
+            Set.of("insert", "update", "delete", "findAndModify", "commitTransaction");
+    private static final ClientSessionOptions CAUSAL = ClientSessionOptions.builder()
+            .causallyConsistent(true)
+            .build();
+
+    private static final AtomicReference<BsonTimestamp> LAST_WRITE = new AtomicReference<>();
+    private static volatile ReadPreference relaxedPreference = ReadPreference.primary();
+
+    private ReadRouting() {
+    }
+
+    /**
+     * Ustawia preferencję odczytów tolerujących opóźnienie; musi poprzedzać tworzenie repozytoriów.
+     */
+    static void configure(ReadPreference preference) {
+        relaxedPreference = preference;
+    }
+
+    /**
+     * @param collection kolekcja repozytorium
+     * @return widok kolekcji dla odczytów tolerujących opóźnienie (do użycia tylko w {@link #read(Function)})
+     */
+    static <T> MongoCollection<T> relaxed(MongoCollection<T> collection) {
+        return collection.withReadPreference(relaxedPreference);
+    }
+
+    /**
+     * Wykonuje odczyt tolerujący opóźnienie w sesji przyczynowo spójnej, która widzi ostatni zapis aplikacji.
+     *
+     * @param body odczyt; wszystkie polecenia muszą używać przekazanej sesji
+     * @return wynik odczytu
+     */
+    static <T> T read(Function<ClientSession, T> body) {
+        MongoClient client = MongoDatabaseConnector.getClient();
+        try (ClientSession session = client.startSession(CAUSAL)) {
+            BsonTimestamp lastWrite = LAST_WRITE.get();
+            if (lastWrite != null) session.advanceOperationTime(lastWrite);
+            return body.apply(session);
+        }
+    }
+
+    /**
+     * @return nasłuchiwacz poleceń zapamiętujący czas ostatniego zapisu (do {@code addCommandListener})
+     */
+    static CommandListener writeTracker() {
+        return new CommandListener() {
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+                if (!WRITE_COMMANDS.contains(event.getCommandName())) return;
+                BsonValue operationTime = event.getResponse().get("operationTime");
+                if (operationTime == null || !operationTime.isTimestamp()) return;
+                BsonTimestamp time = operationTime.asTimestamp();
+                LAST_WRITE.accumulateAndGet(time, (current, next) ->
+                        current == null || next.compareTo(current) > 0 ? next : current);
+            }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package backend.mongo;
+
+import backend.metrics.MongoMetrics;
+import com.mongodb.client.MongoDatabase;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Wspólny dla całej aplikacji zestaw repozytoriów, tworzony raz po połączeniu z bazą
+ * ({@link MongoDatabaseConnector#repositories()}) i przekazywany do paneli, kontrolerów i formularzy.
+ * <p>
+ * Wcześniej każdy ekran budował własne repozytoria, a każde z nich własny rejestr kodeków – kodek POJO
+ * danej klasy był więc wyznaczany (refleksja po polach i metodach) osobno w każdym rejestrze. Teraz wszystkie
+ * kolekcje korzystają z jednego rejestru bazy, więc kodek każdej klasy powstaje raz, a otwarcie ekranu
+ * nie tworzy żadnych repozytoriów. Czas utworzenia kontekstu widać w metrykach jako
+ * {@code RepositoryContext.create}, a koszt otwarcia każdego ekranu (czas, alokacje i czas budowania
+ * kodeków) – jako metryki typu {@code Screen} ({@link backend.metrics.MongoMetrics#screen(String)}).
+ * </p>
+ */
+public final class RepositoryContext {
+
+    private final MongoDatabase database;
+    private final PatientRepository patients;
+    private final DoctorRepository doctors;
+    private final RoomRepository rooms;
+    private final CredentialRepository credentials;
+    private final SlotReservationRepository slotReservations;
+    private final AppointmentRepository appointments;
+    private final AppointmentReferenceResolver referenceResolver;
+    private final CascadeDeleteService cascadeDelete;
+    private final AsyncPatientRepository asyncPatients;
+    private final AsyncDoctorRepository asyncDoctors;
+    private final AsyncRoomRepository asyncRooms;
+    private final AsyncAppointmentRepository asyncAppointments;
+
+    /**
+     * Tworzy wszystkie repozytoria dla podanej bazy; repozytoria zależne dostają wspólne instancje.
+     *
+     * @param database baza danych szpitala (z rejestrem kodeków z {@link MongoDatabaseConnector})
+     */
+    public RepositoryContext(MongoDatabase database) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RepositoryContext.create")) {
+            this.database = database;
+            this.patients = new PatientRepository(database);
+            this.doctors = new DoctorRepository(database);
+            this.rooms = new RoomRepository(database);
+            this.credentials = new CredentialRepository(database);
+            this.slotReservations = new SlotReservationRepository(database);
+            this.appointments = new AppointmentRepository(database, rooms, doctors, patients, slotReservations);
+            this.referenceResolver = new AppointmentReferenceResolver(doctors, patients, rooms);
+            this.cascadeDelete = new CascadeDeleteService(database);
+            this.asyncPatients = new AsyncPatientRepository(patients);
+            this.asyncDoctors = new AsyncDoctorRepository(doctors);
+            this.asyncRooms = new AsyncRoomRepository(rooms);
+            this.asyncAppointments = new AsyncAppointmentRepository(appointments);
+        }
+    }
+
+    public MongoDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return jedyny rejestr kodeków używany przez repozytoria kontekstu
+     */
+    public CodecRegistry getCodecRegistry() {
+        return database.getCodecRegistry();
+    }
+
+    public PatientRepository patients() {
+        return patients;
+    }
+
+    public DoctorRepository doctors() {
+        return doctors;
+    }
+
+    public RoomRepository rooms() {
+        return rooms;
+    }
+
+    public CredentialRepository credentials() {
+        return credentials;
+    }
+
+    public SlotReservationRepository slotReservations() {
+        return slotReservations;
+    }
+
+    public AppointmentRepository appointments() {
+        return appointments;
+    }
+
+    public AppointmentReferenceResolver referenceResolver() {
+        return referenceResolver;
+    }
+
+    public CascadeDeleteService cascadeDelete() {
+        return cascadeDelete;
+    }
+
+    /**
+     * @return asynchroniczny odpowiednik {@link #patients()} (to samo repozytorium i ta sama pamięć podręczna)
+     */
+    public AsyncPatientRepository asyncPatients() {
+        return asyncPatients;
+    }
+
+    public AsyncDoctorRepository asyncDoctors() {
+        return asyncDoctors;
+    }
+
+    public AsyncRoomRepository asyncRooms() {
+        return asyncRooms;
+    }
+
+    public AsyncAppointmentRepository asyncAppointments() {
+        return asyncAppointments;
+    }
+}
@@ -1,26 +1,30 @@
 package backend.mongo;
 
 import backend.klasy.Room;
-import backend.klasy.Patient;
-import backend.klasy.Doctor;
+import backend.metrics.MongoMetrics;
 import backend.status.TypeOfRoom;
-import com.mongodb.MongoClientSettings;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
 import org.bson.codecs.configuration.CodecRegistry;
-import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static com.mongodb.client.model.Filters.eq;
 import static com.mongodb.client.model.Filters.and;
-import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
-import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+import static com.mongodb.client.model.Filters.expr;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Updates.addToSet;
+import static com.mongodb.client.model.Updates.pull;
 
 /**
  * Klasa RoomRepository zarządza operacjami CRUD dla kolekcji sal w bazie MongoDB.
@@ -30,7 +34,15 @@ import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
  * </p>
  */
 public class RoomRepository {
+    /**
+     * Warunek wolnego miejsca sprawdzany przez serwer: {@code $size(patientIds) < maxPatients}.
+     */
+    private static final Bson HAS_FREE_PLACE = expr(new Document("$lt", List.of(
+            new Document("$size", new Document("$ifNull", List.of("$patientIds", List.of()))),
+            "$maxPatients")));
+
     private final MongoCollection<Room> collection;
+    private final MongoCollection<Room> relaxedCollection;
     private  CodecRegistry codecRegistry;
     private List<Room> rooms;
 
@@ -40,17 +52,10 @@ public class RoomRepository {
      * @param database obiekt MongoDatabase reprezentujący połączenie z bazą danych
      */
     public RoomRepository(MongoDatabase database) {
-        // Tworzymy CodecRegistry z odpowiednim CodecProviderem dla naszych klas (Room, Patient itd.)
-        CodecRegistry pojoCodecRegistry = fromRegistries(MongoClientSettings.getDefaultCodecRegistry(),
-                fromProviders(PojoCodecProvider.builder()
-                        .register(Room.class)  // Rejestrujemy klasę Room
-                        .register(Patient.class)  // Rejestrujemy klasę Patient
-                        .register(Doctor.class)  // Rejestrujemy klasę Doctor
-                        .build()));
-
-        // Ustawiamy nasz CodecRegistry dla kolekcji rooms
-        this.collection = database.getCollection("rooms", Room.class)
-                .withCodecRegistry(pojoCodecRegistry);
+        // Rejestr kodeków bazy (DomainCodecs z MongoDatabaseConnector) obsługuje Room – osobny rejestr
+        // oznaczałby ponowne wyznaczanie kodeka przy każdym utworzeniu repozytorium
+        this.collection = database.getCollection("rooms", Room.class);
+        this.relaxedCollection = ReadRouting.relaxed(collection);
     }
 
 
@@ -61,10 +66,12 @@ public class RoomRepository {
      * @throws IllegalArgumentException jeśli sala jest null
      */
     public void createRoom(Room room) {
-        try {
-            collection.insertOne(room);
-        } catch (Exception e) {
-            throw new RuntimeException("Błąd podczas tworzenia sali: " + e.getMessage(), e);
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.createRoom")) {
+            try {
+                collection.insertOne(room);
+            } catch (Exception e) {
+                throw new RuntimeException("Błąd podczas tworzenia sali: " + e.getMessage(), e);
+            }
         }
     }
 
@@ -77,13 +84,15 @@ public class RoomRepository {
      * @return Optional zawierający znalezioną salę lub pusty, jeśli nie znaleziono
      */
     public Room findByAddressFloorNumber(String address, int floor, int number) {
-        return collection.find(
-                and(
-                        eq("address", address),
-                        eq("floor", floor),
-                        eq("number", number)
-                )
-        ).first();
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.findByAddressFloorNumber")) {
+            return collection.find(
+                    and(
+                            eq("address", address),
+                            eq("floor", floor),
+                            eq("number", number)
+                    )
+            ).first();
+        }
     }
 
     /**
@@ -94,20 +103,27 @@ public class RoomRepository {
      * @return Optional zawierający znalezioną salę lub pusty, jeśli nie znaleziono
      */
     public Room updateRoom(ObjectId roomId, Room updatedRoom) {
-        if (roomId == null)
-            throw new IllegalArgumentException("Id sali jest puste");
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.updateRoom")) {
+            if (roomId == null)
+                throw new IllegalArgumentException("Id sali jest puste");
 
-        if (updatedRoom == null)
-            throw new IllegalArgumentException("Dane aktualizowanej sali są puste");
+            if (updatedRoom == null)
+                throw new IllegalArgumentException("Dane aktualizowanej sali są puste");
 
-        updatedRoom.setId(roomId);
+            updatedRoom.setId(roomId);
 
-        UpdateResult r = collection.replaceOne(eq("_id", roomId), updatedRoom);
+            UpdateResult r;
+            try {
+                r = collection.replaceOne(eq("_id", roomId), updatedRoom);
+            } finally {
+                EntityCaches.ROOMS.invalidate(roomId);
+            }
 
-        if (r.getMatchedCount() == 0)
-            throw new RuntimeException("Nie znaleziono sali o id: " + roomId.toString());
+            if (r.getMatchedCount() == 0)
+                throw new RuntimeException("Nie znaleziono sali o id: " + roomId.toString());
 
-        return updatedRoom;
+            return updatedRoom;
+        }
     }
 
     /**
@@ -117,21 +133,30 @@ public class RoomRepository {
      * @return Optional zawierający znalezioną salę lub pusty, jeśli nie znaleziono
      */
     public boolean deleteRoom(ObjectId id) {
-        if (id == null) throw new IllegalArgumentException("Brak id sali");
-
-        return collection.deleteOne(eq("_id", id)).getDeletedCount() > 0;
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.deleteRoom")) {
+            if (id == null) throw new IllegalArgumentException("Brak id sali");
+
+            try {
+                return collection.deleteOne(eq("_id", id)).getDeletedCount() > 0;
+            } finally {
+                EntityCaches.ROOMS.invalidate(id);
+            }
+        }
     }
 
     /**
      * Znajduje wszystkie sale w bazie danych.
+     * Odczyt tolerujący opóźnienie – może trafić na sekundariusza ({@link ReadRouting}).
      *
      * @return lista wszystkich sal
      */
     public List<Room> getAllRooms() {
-        try {
-            return collection.find().into(new ArrayList<>());
-        } catch (Exception e) {
-            throw new RuntimeException("Błąd podczas pobierania sal: " + e.getMessage(), e);
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.getAllRooms")) {
+            try {
+                return ReadRouting.read(session -> relaxedCollection.find(session).into(new ArrayList<>()));
+            } catch (Exception e) {
+                throw new RuntimeException("Błąd podczas pobierania sal: " + e.getMessage(), e);
+            }
         }
     }
 
@@ -146,6 +171,7 @@ public class RoomRepository {
      */
     public RoomRepository(MongoCollection<Room> collection, CodecRegistry codecRegistry, List<Room> rooms) {
         this.collection = collection;
+        this.relaxedCollection = ReadRouting.relaxed(collection);
         this.codecRegistry = codecRegistry;
         this.rooms = rooms;
     }
@@ -163,51 +189,143 @@ public class RoomRepository {
      * @return zwraca listę pokoi które nie są pełne *
      * */
     public List<Room> findNotFullRooms() {
-        return rooms.stream()
-                .filter(this::isRoomNotFull)
-                .collect(Collectors.toList());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.findNotFullRooms")) {
+            return rooms.stream()
+                    .filter(this::isRoomNotFull)
+                    .collect(Collectors.toList());
+        }
     }
 
     public List<Room> findRoomByType(TypeOfRoom type) {
-        return collection.find(eq("type", type)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.findRoomByType")) {
+            return collection.find(eq("type", type)).into(new ArrayList<>());
+        }
     }
 
 
     /**
-     * Znajduje pokój po jego ID i aktualizuje pacjentów.
+     * Przenosi pacjenta między salami: usuwa go z sali {@code roomId} ({@code oldPatientId})
+     * i dopisuje do niej {@code newPatientId}, jeśli jest wolne miejsce.
+     * Każda zmiana to jedna warunkowa aktualizacja ({@link #releasePatient}, {@link #assignPatient}).
      *
      * @param roomId ID pokoju
      * @param oldPatientId ID starego pacjenta do usunięcia (może być null)
      * @param newPatientId ID nowego pacjenta do dodania (może być null)
+     * @return false, jeśli nowego pacjenta nie udało się przypisać (sala pełna lub nie istnieje)
      */
-    public void updateRoomPatientAssignment(ObjectId roomId,
-                                            ObjectId oldPatientId,
-                                            ObjectId newPatientId) {
-        Room room = findRoomsById(roomId).stream().findFirst().orElse(null);
-        if (room == null) return;
-
-        boolean changed = false;
-
-        // usuń tylko, jeśli pacjent był faktycznie w pokoju
-        if (oldPatientId != null && room.removePatientId(oldPatientId)) {
-            changed = true;
-        }
-        // dodaj tylko, jeśli pacjenta jeszcze nie ma
-        if (newPatientId != null && !room.getPatientIds().contains(newPatientId)) {
-            room.addPatientId(newPatientId);     // addPatientId ma już ochronę przed duplikatem,
-            changed = true;
+    public boolean updateRoomPatientAssignment(ObjectId roomId,
+                                               ObjectId oldPatientId,
+                                               ObjectId newPatientId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.updateRoomPatientAssignment")) {
+            if (oldPatientId != null) releasePatient(roomId, oldPatientId);
+            return newPatientId == null || assignPatient(roomId, newPatientId);
         }
+    }
 
-        if (changed) {
-            updateRoom(room.getId(), room);      // zapis do MongoDB
-        }
+    /**
+     * Przypisuje pacjenta do sali jedną warunkową aktualizacją ({@code $addToSet}). Warunek po stronie serwera
+     * przepuszcza ją tylko wtedy, gdy pacjent już jest w sali albo liczba pacjentów jest mniejsza niż
+     * {@code maxPatients}, więc równoległe rezerwacje nie mogą przekroczyć pojemności ani nadpisać się nawzajem.
+     *
+     * @param roomId    ID sali
+     * @param patientId ID pacjenta
+     * @return true, jeśli pacjent ma miejsce w sali; false, jeśli sala jest pełna lub nie istnieje
+     */
+    public boolean assignPatient(ObjectId roomId, ObjectId patientId) {
+        return assignPatient(null, roomId, patientId);
     }
 
+    /**
+     * Przypisuje pacjenta do sali w podanej sesji – np. w transakcji rezerwacji wizyty ({@link BookingGuard}).
+     * Z sesją sala nie jest usuwana z {@link EntityCaches#ROOMS} – robi to wywołujący po zatwierdzeniu transakcji,
+     * bo wcześniej równoległy odczyt mógłby ponownie zapisać w pamięci stan sprzed zmiany.
+     *
+     * @param session sesja transakcji lub {@code null}
+     * @see #assignPatient(ObjectId, ObjectId)
+     */
+    public boolean assignPatient(ClientSession session, ObjectId roomId, ObjectId patientId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.assignPatient")) {
+            if (roomId == null || patientId == null)
+                throw new IllegalArgumentException("Id sali i pacjenta nie mogą być puste");
+
+            Bson filter = and(eq("_id", roomId), or(eq("patientIds", patientId), HAS_FREE_PLACE));
+            Bson update = addToSet("patientIds", patientId);
+            if (session != null) return collection.updateOne(session, filter, update).getMatchedCount() > 0;
+            try {
+                return collection.updateOne(filter, update).getMatchedCount() > 0;
+            } finally {
+                EntityCaches.ROOMS.invalidate(roomId);
+            }
+        }
+    }
 
+    /**
+     * Usuwa pacjenta z sali jedną aktualizacją ({@code $pull}).
+     *
+     * @param roomId    ID sali
+     * @param patientId ID pacjenta
+     * @return true, jeśli pacjent był w sali i został usunięty
+     */
+    public boolean releasePatient(ObjectId roomId, ObjectId patientId) {
+        return releasePatient(null, roomId, patientId);
+    }
 
+    /**
+     * Usuwa pacjenta z sali w podanej sesji. Z sesją, jak w {@link #assignPatient(ClientSession, ObjectId, ObjectId)},
+     * pamięć podręczną sal unieważnia wywołujący po zatwierdzeniu transakcji.
+     *
+     * @param session sesja transakcji lub {@code null}
+     * @see #releasePatient(ObjectId, ObjectId)
+     */
+    public boolean releasePatient(ClientSession session, ObjectId roomId, ObjectId patientId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.releasePatient")) {
+            if (roomId == null || patientId == null) return false;
+
+            Bson filter = eq("_id", roomId);
+            Bson update = pull("patientIds", patientId);
+            if (session != null) return collection.updateOne(session, filter, update).getModifiedCount() > 0;
+            try {
+                return collection.updateOne(filter, update).getModifiedCount() > 0;
+            } finally {
+                EntityCaches.ROOMS.invalidate(roomId);
+            }
+        }
+    }
 
     public List<Room> findRoomsById(ObjectId id) {
-        return collection.find(eq("_id", id)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.findRoomsById")) {
+            Room room = EntityCaches.ROOMS.get(id, key -> collection.find(eq("_id", key)).first());
+            List<Room> result = new ArrayList<>();
+            if (room != null) result.add(room);
+            return result;
+        }
+    }
+
+    /**
+     * Znajduje sale o podanych ID jednym zapytaniem ($in).
+     *
+     * @param ids identyfikatory sal
+     * @return lista znalezionych sal (kolejność nieokreślona)
+     */
+    public List<Room> findByIds(Collection<ObjectId> ids) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.findByIds")) {
+            if (ids == null || ids.isEmpty()) return new ArrayList<>();
+
+            long epoch = EntityCaches.ROOMS.epoch();
+            List<Room> result = new ArrayList<>();
+            List<ObjectId> missing = new ArrayList<>();
+            for (ObjectId id : ids) {
+                Room cached = EntityCaches.ROOMS.getIfPresent(id);
+                if (cached != null) result.add(cached); else missing.add(id);
+            }
+            if (!missing.isEmpty()) {
+                for (Room room : collection.find(in("_id", missing))) {
+                    EntityCaches.ROOMS.putIfUnchanged(room.getId(), room, epoch);
+                    result.add(room);
+                }
+            }
+            return result;
+        }
     }
     /**
         Znajduje wszystkie pokoje przypisane do danego oddziału (departamentu).*,
@@ -216,6 +334,8 @@ public class RoomRepository {
     */
 
     public List<Room> findRoomsByDepartment(TypeOfRoom department) {
-        return collection.find(eq("type", department)).into(new ArrayList<>());
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("RoomRepository.findRoomsByDepartment")) {
+            return collection.find(eq("type", department)).into(new ArrayList<>());
+        }
     }
 }
\ No newline at end of file
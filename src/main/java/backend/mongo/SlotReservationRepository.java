@@ -0,0 +1,293 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.metrics.MongoMetrics;
+import backend.status.AppointmentStatus;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.ne;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.set;
+import static com.mongodb.client.model.Updates.setOnInsert;
+
+/**
+ * Rezerwacje półgodzinnych slotów lekarzy i pacjentów (kolekcja {@code slot_reservations}).
+ * <p>
+ * Każda aktywna wizyta ({@link AppointmentStatus#isActive()}) zajmuje klucze {@code (owner, slot)} – osobno dla lekarza i pacjenta – chronione
+ * unikalnym indeksem {@code owner_1_slot_1_unique}. Kolizja terminów wykrywana jest więc przez błąd duplikatu
+ * klucza przy jednym {@code insertMany}, bez przeszukiwania wizyt z danego dnia. Wizyta o pełnej lub wpół godzinie
+ * zajmuje jeden slot, wizyta poza siatką – dwa sąsiednie (ostrożnie: może kolidować z wizytą oddaloną o mniej niż
+ * godzinę). Sale nie mają rezerwacji – mieszczą wielu pacjentów, a ich pojemność pilnuje {@link RoomRepository#assignPatient}.
+ * </p>
+ */
+public class SlotReservationRepository {
+
+    static final String KIND_DOCTOR = "doctor";
+    static final String KIND_PATIENT = "patient";
+
+    private static final int SLOT_MINUTES = (int) AppointmentIntervalIndex.APPOINTMENT_DURATION.toMinutes();
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final InsertManyOptions ORDERED = new InsertManyOptions().ordered(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+    private final MongoCollection<Document> reservations;
+    private final MongoCollection<Document> appointments;
+
+    /**
+     * Konflikt przy zajmowaniu slotu – slot należy już do innej wizyty.
+     */
+    static final class SlotTakenException extends RuntimeException {
+        private final String kind;
+
+        private SlotTakenException(String kind) {
+            super("Termin jest już zajęty (" + kind + ")");
+            this.kind = kind;
+        }
+
+        /**
+         * @return {@link #KIND_DOCTOR} lub {@link #KIND_PATIENT}
+         */
+        String getKind() {
+            return kind;
+        }
+    }
+
+    /**
+     * @param database baza danych szpitala
+     */
+    public SlotReservationRepository(MongoDatabase database) {
+        this.reservations = database.getCollection("slot_reservations");
+        this.appointments = database.getCollection("appointments");
+    }
+
+    /**
+     * Wylicza rezerwacje wizyty; wizyta zakończona, odwołana lub bez terminu nie zajmuje slotów.
+     *
+     * @param appointment wizyta
+     * @return dokumenty rezerwacji (bez zapisu do bazy)
+     */
+    static List<Document> reservationsFor(Appointment appointment) {
+        return reservationsFor(appointment.getId(), appointment.getDoctorId(), appointment.getPatientId(),
+                appointment.getDate(), appointment.getStatus());
+    }
+
+    /**
+     * Zwraca klucz rezerwacji {@code owner@slot} – do porównywania zbiorów rezerwacji starej i nowej wersji wizyty.
+     */
+    static String keyOf(Document reservation) {
+        return reservation.getObjectId("owner") + "@" + reservation.get("slot");
+    }
+
+    /**
+     * Zajmuje sloty. Przy kolizji rzuca {@link SlotTakenException}; bez sesji wcześniej wstawione
+     * rezerwacje są usuwane, w transakcji wycofuje je serwer.
+     *
+     * @param session sesja transakcji lub {@code null}
+     * @param claims  rezerwacje do zapisania
+     */
+    void claim(ClientSession session, List<Document> claims) {
+        if (claims.isEmpty()) return;
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("SlotReservationRepository.claim")) {
+            try {
+                if (session != null) reservations.insertMany(session, claims, ORDERED);
+                else reservations.insertMany(claims, ORDERED);
+            } catch (MongoBulkWriteException e) {
+                BulkWriteError error = e.getWriteErrors().getFirst();
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) throw e;
+                if (session == null && error.getIndex() > 0) {
+                    unclaim(null, claims.subList(0, error.getIndex()));
+                }
+                throw new SlotTakenException(claims.get(error.getIndex()).getString("kind"));
+            }
+        }
+    }
+
+    /**
+     * Zwalnia podane rezerwacje (po ich {@code _id}).
+     *
+     * @param session sesja transakcji lub {@code null}
+     * @param claims  rezerwacje do usunięcia
+     */
+    void unclaim(ClientSession session, List<Document> claims) {
+        if (claims.isEmpty()) return;
+        List<ObjectId> ids = claims.stream().map(claim -> claim.getObjectId("_id")).toList();
+        if (session != null) reservations.deleteMany(session, in("_id", ids));
+        else reservations.deleteMany(in("_id", ids));
+    }
+
+    /**
+     * Zwalnia rezerwacje wizyty o podanych kluczach {@code (owner, slot)} – używane przy zmianie terminu,
+     * gdy dokumenty rezerwacji w bazie mają inne {@code _id} niż wyliczone ponownie.
+     *
+     * @param session       sesja transakcji lub {@code null}
+     * @param appointmentId wizyta
+     * @param released      rezerwacje do zwolnienia
+     */
+    void release(ClientSession session, ObjectId appointmentId, List<Document> released) {
+        for (Document reservation : released) {
+            Bson filter = and(eq("appointmentId", appointmentId),
+                    eq("owner", reservation.getObjectId("owner")), eq("slot", reservation.get("slot")));
+            if (session != null) reservations.deleteOne(session, filter);
+            else reservations.deleteOne(filter);
+        }
+    }
+
+    /**
+     * Zwalnia wszystkie rezerwacje wizyty (usunięcie wizyty).
+     *
+     * @param appointmentId identyfikator wizyty
+     */
+    public void releaseAll(ObjectId appointmentId) {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("SlotReservationRepository.releaseAll")) {
+            reservations.deleteMany(eq("appointmentId", appointmentId));
+        }
+    }
+
+    /**
+     * Odbudowuje rezerwacje, jeśli kolekcja jest pusta, a wizyty istnieją (np. pierwsze uruchomienie
+     * na bazie sprzed wprowadzenia rezerwacji).
+     */
+    public void rebuildIfEmpty() {
+        if (reservations.find().first() == null && appointments.find().first() != null) rebuild();
+    }
+
+    /**
+     * Naprawa: uzgadnia rezerwacje z aktywnymi wizytami bez okna, w którym działająca aplikacja nie miałaby
+     * ochrony przed kolizjami. Każda oczekiwana rezerwacja jest dopisywana (upsert) i oznaczana znacznikiem
+     * tej odbudowy; na końcu usuwane są nieoznaczone rezerwacje sprzed jej rozpoczęcia – należące do wizyt
+     * usuniętych, zakończonych lub odwołanych. Rezerwacje zajęte w trakcie odbudowy nie są ruszane. Wizyty,
+     * które już w danych nakładają się na siebie, nie dostają drugiej rezerwacji tego samego slotu – są tylko liczone.
+     *
+     * @return liczba rezerwacji odpowiadających aktywnym wizytom
+     */
+    public long rebuild() {
+        try (MongoMetrics.Timer ignored = MongoMetrics.time("SlotReservationRepository.rebuild")) {
+            long start = System.nanoTime();
+            // Identyfikatory rezerwacji zajmowanych od tej chwili są nie mniejsze niż ten (sekunda rozpoczęcia)
+            ObjectId startedAt = new ObjectId(new Date(System.currentTimeMillis() / 1000 * 1000));
+            ObjectId generation = new ObjectId();
+
+            long[] totals = new long[3];
+            List<Document> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+            for (Document appointment : appointments.find(in("status", IndexManager.ACTIVE_STATUSES))
+                    .projection(include("doctorId", "patientId", "date", "status"))
+                    .batchSize(REBUILD_BATCH_SIZE)) {
+                LocalDateTime date = appointment.getDate("date") == null ? null
+                        : LocalDateTime.ofInstant(appointment.getDate("date").toInstant(), ZoneOffset.UTC);
+                batch.addAll(reservationsFor(appointment.getObjectId("_id"), appointment.getObjectId("doctorId"),
+                        appointment.getObjectId("patientId"), date, null));
+                if (batch.size() >= REBUILD_BATCH_SIZE) {
+                    upsertMarked(batch, generation, totals);
+                    batch.clear();
+                }
+            }
+            upsertMarked(batch, generation, totals);
+            long removed = reservations.deleteMany(and(ne("rebuild", generation), lt("_id", startedAt))).getDeletedCount();
+
+            System.out.printf("[SUCCESS] Odbudowano rezerwacje slotów w %.1f s: zgodnych %d (w tym nowych %d), usuniętych nieaktualnych %d%n",
+                    (System.nanoTime() - start) / 1e9, totals[0], totals[1], removed);
+            if (totals[2] > 0) {
+                System.out.println("[INFO] " + totals[2] + " rezerwacji pominięto – wizyty w bazie nakładają się na siebie");
+            }
+            return totals[0];
+        }
+    }
+
+    /**
+     * Dopisuje brakujące rezerwacje i oznacza istniejące znacznikiem odbudowy.
+     * Slot zajęty przez inną wizytę daje błąd duplikatu klucza – liczony jako kolizja.
+     *
+     * @param totals {zgodne, nowe, kolizje} – powiększane o wynik partii
+     */
+    private void upsertMarked(List<Document> batch, ObjectId generation, long[] totals) {
+        if (batch.isEmpty()) return;
+        List<WriteModel<Document>> upserts = new ArrayList<>(batch.size());
+        for (Document reservation : batch) {
+            upserts.add(new UpdateOneModel<>(
+                    and(eq("owner", reservation.getObjectId("owner")), eq("slot", reservation.get("slot")),
+                            eq("appointmentId", reservation.getObjectId("appointmentId"))),
+                    combine(set("rebuild", generation), setOnInsert("kind", reservation.getString("kind"))),
+                    UPSERT));
+        }
+        BulkWriteResult result;
+        long duplicates = 0;
+        try {
+            result = reservations.bulkWrite(upserts, UNORDERED);
+        } catch (MongoBulkWriteException e) {
+            duplicates = e.getWriteErrors().stream()
+                    .filter(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY)
+                    .count();
+            if (duplicates < e.getWriteErrors().size()) throw e;
+            result = e.getWriteResult();
+        }
+        totals[0] += result.getMatchedCount() + result.getUpserts().size();
+        totals[1] += result.getUpserts().size();
+        totals[2] += duplicates;
+    }
+
+    private static List<Document> reservationsFor(ObjectId appointmentId, ObjectId doctorId, ObjectId patientId,
+                                                  LocalDateTime date, AppointmentStatus status) {
+        if (date == null || (status != null && !status.isActive())) return List.of();
+        List<Document> result = new ArrayList<>(4);
+        for (LocalDateTime slot : slotsOf(date)) {
+            if (doctorId != null) result.add(reservation(appointmentId, doctorId, KIND_DOCTOR, slot));
+            if (patientId != null) result.add(reservation(appointmentId, patientId, KIND_PATIENT, slot));
+        }
+        return result;
+    }
+
+    /**
+     * Sloty przecinane przez wizytę {@code [date, date + 30 min)}: początek slotu, w którym się zaczyna,
+     * oraz następny, jeśli wizyta nie zaczyna się dokładnie na granicy slotu.
+     */
+    private static List<LocalDateTime> slotsOf(LocalDateTime date) {
+        LocalDateTime hour = date.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime slot = hour.plusMinutes((long) (date.getMinute() / SLOT_MINUTES) * SLOT_MINUTES);
+        return slot.equals(date) ? List.of(slot) : List.of(slot, slot.plusMinutes(SLOT_MINUTES));
+    }
+
+    private static Document reservation(ObjectId appointmentId, ObjectId owner, String kind, LocalDateTime slot) {
+        return new Document("_id", new ObjectId())
+                .append("owner", owner)
+                .append("slot", slot)
+                .append("kind", kind)
+                .append("appointmentId", appointmentId);
+    }
+
+    /**
+     * Zwraca rezerwacje z {@code claims}, których klucza nie ma w {@code others}.
+     */
+    static List<Document> difference(List<Document> claims, List<Document> others) {
+        Set<String> otherKeys = others.stream().map(SlotReservationRepository::keyOf).collect(Collectors.toSet());
+        return claims.stream().filter(claim -> !otherKeys.contains(keyOf(claim))).toList();
+    }
+}
@@ -0,0 +1,49 @@
+package backend.mongo;
+
+import org.bson.types.ObjectId;
+
+import java.util.function.Function;
+
+/**
+ * Pole, po którym można sortować i stronicować kolekcję metodą keyset.
+ * <p>
+ * Stronicowanie odbywa się po parze (pole, {@code _id}), więc dla każdego takiego pola
+ * {@link IndexManager} deklaruje indeks {@code <pole>_1__id_1}. Funkcja {@code valueOf} musi zwracać
+ * wartość w postaci, w jakiej jest zapisana w bazie (np. nazwę enuma, a nie sam enum).
+ * </p>
+ *
+ * @param <T> typ dokumentu
+ */
+public class SortField<T> {
+
+    private final String field;
+    private final Function<T, Object> valueOf;
+    private final Function<T, ObjectId> idOf;
+
+    /**
+     * @param field   nazwa pola w dokumencie
+     * @param valueOf odczyt wartości pola z obiektu (do zapamiętania pozycji strony)
+     * @param idOf    odczyt identyfikatora obiektu
+     */
+    public SortField(String field, Function<T, Object> valueOf, Function<T, ObjectId> idOf) {
+        this.field = field;
+        this.valueOf = valueOf;
+        this.idOf = idOf;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Zwraca pozycję za podanym obiektem – punkt startowy następnej strony.
+     */
+    public PageCursor cursorAfter(T item) {
+        return new PageCursor(valueOf.apply(item), idOf.apply(item));
+    }
+
+    @Override
+    public String toString() {
+        return field;
+    }
+}
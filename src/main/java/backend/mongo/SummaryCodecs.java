@@ -0,0 +1,193 @@
+package backend.mongo;
+
+import backend.klasy.DoctorSummary;
+import backend.klasy.PatientSummary;
+import backend.status.Day;
+import backend.status.Diagnosis;
+import backend.status.Specialization;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mongodb.client.model.Projections.include;
+import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Kodeki lekkich modeli {@link PatientSummary} i {@link DoctorSummary}.
+ * <p>
+ * Zamiast kodeka POJO (refleksja, setery, odtwarzanie obiektu {@code Password}) czytają dokument
+ * strumieniowo i od razu tworzą niemodyfikowalny obiekt. Pola spoza projekcji są pomijane bez dekodowania.
+ * Modele są tylko do odczytu, więc kodeki nie obsługują zapisu.
+ * </p>
+ */
+public final class SummaryCodecs {
+
+    /** Projekcja pól potrzebnych do {@link PatientSummary}. */
+    public static final Bson PATIENT_SUMMARY_FIELDS =
+            include("_id", "firstName", "lastName", "pesel", "birthDate", "address", "diagnosis");
+
+    /** Projekcja pól potrzebnych do {@link DoctorSummary}. */
+    public static final Bson DOCTOR_SUMMARY_FIELDS =
+            include("_id", "firstName", "lastName", "specialization", "availableDays", "room", "contactInformation");
+
+    private SummaryCodecs() {
+    }
+
+    /**
+     * Widok kolekcji czytający dokumenty kodekami podsumowań. Kodeki nie należą do rejestru klienta –
+     * nie obsługują zapisu, więc stosowane są tylko do widoków podsumowań w repozytoriach.
+     *
+     * @param database baza danych (jej rejestr obsługuje pozostałe typy, np. wartości w filtrach)
+     * @param collection nazwa kolekcji
+     * @param type {@link PatientSummary} lub {@link DoctorSummary}
+     */
+    public static <T> MongoCollection<T> summaries(MongoDatabase database, String collection, Class<T> type) {
+        return database.getCollection(collection, type).withCodecRegistry(withSummaryCodecs(database.getCodecRegistry()));
+    }
+
+    /**
+     * Rejestr z kodekami podsumowań; pozostałe typy (np. wartości w filtrach) obsługuje rejestr bazowy.
+     *
+     * @param base rejestr kodeków bazy danych
+     */
+    public static CodecRegistry withSummaryCodecs(CodecRegistry base) {
+        return fromRegistries(fromCodecs(new PatientSummaryCodec(), new DoctorSummaryCodec()), base);
+    }
+
+    /**
+     * Kodek {@link PatientSummary}.
+     */
+    public static class PatientSummaryCodec implements Codec<PatientSummary> {
+
+        @Override
+        public PatientSummary decode(BsonReader reader, DecoderContext decoderContext) {
+            ObjectId id = null;
+            String firstName = null;
+            String lastName = null;
+            long pesel = 0;
+            LocalDate birthDate = null;
+            String address = null;
+            Diagnosis diagnosis = null;
+
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if (reader.getCurrentBsonType() == BsonType.NULL) {
+                    reader.readNull();
+                    continue;
+                }
+                switch (name) {
+                    case "_id" -> id = reader.readObjectId();
+                    case "firstName" -> firstName = reader.readString();
+                    case "lastName" -> lastName = reader.readString();
+                    case "pesel" -> pesel = readLong(reader);
+                    case "birthDate" -> birthDate = readLocalDate(reader);
+                    case "address" -> address = reader.readString();
+                    case "diagnosis" -> diagnosis = Diagnosis.valueOf(reader.readString());
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+
+            return new PatientSummary(id, firstName, lastName, pesel, birthDate, address, diagnosis);
+        }
+
+        @Override
+        public void encode(BsonWriter writer, PatientSummary value, EncoderContext encoderContext) {
+            throw new UnsupportedOperationException("PatientSummary jest tylko do odczytu");
+        }
+
+        @Override
+        public Class<PatientSummary> getEncoderClass() {
+            return PatientSummary.class;
+        }
+    }
+
+    /**
+     * Kodek {@link DoctorSummary}.
+     */
+    public static class DoctorSummaryCodec implements Codec<DoctorSummary> {
+
+        @Override
+        public DoctorSummary decode(BsonReader reader, DecoderContext decoderContext) {
+            ObjectId id = null;
+            String firstName = null;
+            String lastName = null;
+            Specialization specialization = null;
+            List<Day> availableDays = new ArrayList<>();
+            String room = null;
+            String contactInformation = null;
+
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if (reader.getCurrentBsonType() == BsonType.NULL) {
+                    reader.readNull();
+                    continue;
+                }
+                switch (name) {
+                    case "_id" -> id = reader.readObjectId();
+                    case "firstName" -> firstName = reader.readString();
+                    case "lastName" -> lastName = reader.readString();
+                    case "specialization" -> specialization = Specialization.valueOf(reader.readString());
+                    case "availableDays" -> {
+                        reader.readStartArray();
+                        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                            availableDays.add(Day.valueOf(reader.readString()));
+                        }
+                        reader.readEndArray();
+                    }
+                    case "room" -> room = reader.readString();
+                    case "contactInformation" -> contactInformation = reader.readString();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+
+            return new DoctorSummary(id, firstName, lastName, specialization, availableDays, room, contactInformation);
+        }
+
+        @Override
+        public void encode(BsonWriter writer, DoctorSummary value, EncoderContext encoderContext) {
+            throw new UnsupportedOperationException("DoctorSummary jest tylko do odczytu");
+        }
+
+        @Override
+        public Class<DoctorSummary> getEncoderClass() {
+            return DoctorSummary.class;
+        }
+    }
+
+    /**
+     * PESEL zapisywany jest jako int64, ale starsze dokumenty mogą mieć int32 lub double.
+     */
+    static long readLong(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case DOUBLE -> (long) reader.readDouble();
+            default -> reader.readInt64();
+        };
+    }
+
+    /**
+     * {@code LocalDate} zapisywana jest przez sterownik jako data o północy UTC.
+     */
+    static LocalDate readLocalDate(BsonReader reader) {
+        return Instant.ofEpochMilli(reader.readDateTime()).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+}
@@ -19,4 +19,12 @@ public enum AppointmentStatus {
     public String getDescribtion(){
         return description;
     }
+
+    /**
+     * @return czy wizyta o tym statusie zajmuje termin lekarza i pacjenta oraz miejsce w sali;
+     * wizyta zakończona lub odwołana je zwalnia
+     */
+    public boolean isActive() {
+        return this == SCHEDULED || this == RESCHEDULED;
+    }
 }
@@ -15,6 +15,7 @@ module org.example.projekt {
     requires morphia.core;
     requires org.mongodb.bson;
     requires java.management;
+    requires jdk.management;
     requires java.desktop;
 
 
@@ -26,4 +27,5 @@ module org.example.projekt {
     exports backend.wyjatki;
     exports backend.mongo;
     exports backend.status;
+    exports backend.metrics;
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.example.projekt;
 
+import backend.mongo.RepositoryContext;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
 import javafx.animation.ScaleTransition;
@@ -26,10 +27,11 @@ public class AdminPanel {
     /**
      * Konstruktor inicjalizujący panel administratora.
      * @param stage główne okno aplikacji
+     * @param repositories wspólny kontekst repozytoriów
      */
-    public AdminPanel(Stage stage) {
+    public AdminPanel(Stage stage, RepositoryContext repositories) {
         this.primaryStage = stage;
-        this.controller = new AdminPanelController(this);
+        this.controller = new AdminPanelController(this, repositories);
 
         primaryStage.setTitle("Panel administratora");
 
@@ -74,6 +76,9 @@ public class AdminPanel {
         Button roomsButton = createStyledButton("Sale");
         roomsButton.setOnAction(e -> controller.showRoomsManagement());
 
+        Button queriesButton = createStyledButton("Zapytania");
+        queriesButton.setOnAction(e -> controller.showQueryStatistics());
+
         Button logoutButton = createStyledButton("Wyloguj", "#E74C3C");
         logoutButton.setOnAction(e -> controller.logout());
 
@@ -82,6 +87,7 @@ public class AdminPanel {
                 doctorsButton,
                 proceduresButton,
                 roomsButton,
+                queriesButton,
                 logoutButton
         );
 
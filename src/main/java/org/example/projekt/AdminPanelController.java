@@ -1,13 +1,13 @@
 package org.example.projekt;
 
 import backend.klasy.*;
+import backend.metrics.SlowQueryLog;
 import backend.mongo.*;
 import backend.status.Specialization;
 import backend.status.TypeOfRoom;
 import backend.wyjatki.DoctorIsNotAvailableException;
 import backend.wyjatki.InappropriateRoomException;
 import backend.wyjatki.PatientIsNotAvailableException;
-import com.mongodb.client.MongoDatabase;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.collections.FXCollections;
@@ -20,12 +20,14 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
-import org.bson.types.ObjectId;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import static com.mongodb.client.model.Filters.eq;
 import static com.mongodb.client.model.Filters.and;
@@ -41,24 +43,37 @@ public class AdminPanelController {
     private final Stage primaryStage;
 
     private final AppointmentRepository appointmentRepo;
-    private final ObservableList<Appointment> appointmentData = FXCollections.observableArrayList();
+    private final ObservableList<AppointmentRow> appointmentData = FXCollections.observableArrayList();
     private final ObservableList<Doctor> doctorData = FXCollections.observableArrayList();
     private final DoctorRepository doctorRepo;
     private final RoomRepository roomRepo;
     private final PatientRepository patientRepo;
+    private final AppointmentReferenceResolver referenceResolver;
+    private final CascadeDeleteService cascadeDelete;
+    private final AsyncDoctorRepository asyncDoctors;
+    private final AsyncPatientRepository asyncPatients;
+    private final AsyncRoomRepository asyncRooms;
+    private final AsyncAppointmentRepository asyncAppointments;
+    private final ChangeStreamWatcher changeWatcher = ChangeStreamWatcher.shared();
+    private final List<AutoCloseable> liveSubscriptions = new ArrayList<>();
     private final DateTimeFormatter formatter =
             DateTimeFormatter.ofPattern("d MMMM yyyy, HH:mm", new Locale("pl", "PL"));
 
 
-    public AdminPanelController(AdminPanel adminPanel) {
+    public AdminPanelController(AdminPanel adminPanel, RepositoryContext repositories) {
         this.adminPanel = adminPanel;
         this.primaryStage = adminPanel.getPrimaryStage();
 
-        MongoDatabase db = MongoDatabaseConnector.connectToDatabase();
-        this.appointmentRepo = new AppointmentRepository(db);
-        this.doctorRepo = new DoctorRepository(db);
-        this.roomRepo = new RoomRepository(db);
-        this.patientRepo = new PatientRepository(db);
+        this.appointmentRepo = repositories.appointments();
+        this.doctorRepo = repositories.doctors();
+        this.roomRepo = repositories.rooms();
+        this.patientRepo = repositories.patients();
+        this.referenceResolver = repositories.referenceResolver();
+        this.cascadeDelete = repositories.cascadeDelete();
+        this.asyncDoctors = repositories.asyncDoctors();
+        this.asyncPatients = repositories.asyncPatients();
+        this.asyncRooms = repositories.asyncRooms();
+        this.asyncAppointments = repositories.asyncAppointments();
     }
 
     /**
@@ -74,19 +89,19 @@ public class AdminPanelController {
         Label titleLabel = new Label("Lista pacjentów");
         titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        TableView<Patient> tableView = new TableView<>();
-        ObservableList<Patient> patientData = FXCollections.observableArrayList();
+        TableView<PatientSummary> tableView = new TableView<>();
+        ObservableList<PatientSummary> patientData = FXCollections.observableArrayList();
 
-        TableColumn<Patient, String> firstNameCol = new TableColumn<>("Imię");
+        TableColumn<PatientSummary, String> firstNameCol = new TableColumn<>("Imię");
         firstNameCol.setCellValueFactory(new PropertyValueFactory<>("firstName"));
 
-        TableColumn<Patient, String> lastNameCol = new TableColumn<>("Nazwisko");
+        TableColumn<PatientSummary, String> lastNameCol = new TableColumn<>("Nazwisko");
         lastNameCol.setCellValueFactory(new PropertyValueFactory<>("lastName"));
 
-        TableColumn<Patient, String> addressCol = new TableColumn<>("Adres");
+        TableColumn<PatientSummary, String> addressCol = new TableColumn<>("Adres");
         addressCol.setCellValueFactory(new PropertyValueFactory<>("address"));
 
-        TableColumn<Patient, String> birthDateCol = new TableColumn<>("Data urodzenia");
+        TableColumn<PatientSummary, String> birthDateCol = new TableColumn<>("Data urodzenia");
         birthDateCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(
                 p.getValue().getBirthDate().format(DateTimeFormatter.ofPattern("d MMMM yyyy", new Locale("pl", "PL")))
         ));
@@ -94,33 +109,43 @@ public class AdminPanelController {
         // Usunięto kolumnę diagnozy
 
         tableView.getColumns().addAll(firstNameCol, lastNameCol, addressCol, birthDateCol);
-        tableView.setItems(patientData);
-        refreshPatientData(patientData);
+        PagedTableLoader<PatientSummary, PatientSummary> pager = PagedTableLoader.direct(tableView, patientData,
+                        PatientSummary::getId, patientRepo::findSummaryPage, PatientRepository.SORT_BY_LAST_NAME)
+                .sortable(firstNameCol, PatientRepository.SORT_BY_FIRST_NAME)
+                .sortable(lastNameCol, PatientRepository.SORT_BY_LAST_NAME)
+                .sortable(birthDateCol, PatientRepository.SORT_BY_BIRTH_DATE);
+        replaceLiveSubscriptions(changeWatcher.onPatients(
+                LiveListBinding.paged(patientData, PatientSummary::getId, p -> true, PatientSummary::of, pager)));
+        pager.reload();
 
         Button addBtn = new Button("Dodaj pacjenta");
-        addBtn.setOnAction(e -> PatientForm.showForm(null, patient -> {
-            try {
-                patientRepo.createPatient(patient);
-                refreshPatientData(patientData);
-                showSuccessMessage("Pacjent dodany", "Pacjent został pomyślnie dodany do bazy danych.");
-            } catch (Exception ex) {
-                showErrorMessage("Błąd dodawania", "Nie udało się dodać pacjenta: " + ex.getMessage());
-            }
-        }));
+        addBtn.setOnAction(e -> PatientForm.showForm(null, patient -> BackgroundTasks.run(
+                () -> patientRepo.createPatient(patient),
+                () -> {
+                    // Tabela stronicowana nie dopisuje nowych wierszy ze strumienia zmian
+                    pager.reload();
+                    showSuccessMessage("Pacjent dodany", "Pacjent został pomyślnie dodany do bazy danych.");
+                },
+                ex -> showErrorMessage("Błąd dodawania", "Nie udało się dodać pacjenta: " + ex.getMessage()))));
 
         Button editBtn = new Button("Edytuj pacjenta");
         editBtn.setOnAction(e -> {
-            Patient selected = tableView.getSelectionModel().getSelectedItem();
+            PatientSummary selected = tableView.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                PatientForm.showForm(selected, updated -> {
-                    try {
-                        patientRepo.updatePatient(updated);
-                        refreshPatientData(patientData);
-                        showSuccessMessage("Pacjent zaktualizowany", "Dane pacjenta zostały pomyślnie zaktualizowane.");
-                    } catch (Exception ex) {
-                        showErrorMessage("Błąd aktualizacji", "Nie udało się zaktualizować danych pacjenta: " + ex.getMessage());
+                // Tabela zawiera tylko podsumowania – do edycji potrzebny jest pełny dokument pacjenta
+                BackgroundTasks.call(() -> patientRepo.findPatientById(selected.getId()), found -> {
+                    if (found.isEmpty()) {
+                        showWarningMessage("Brak pacjenta", "Wybrany pacjent nie istnieje już w bazie danych.");
+                        return;
                     }
-                });
+                    PatientForm.showForm(found.getFirst(), updated -> BackgroundTasks.run(
+                            () -> patientRepo.updatePatient(updated),
+                            () -> {
+                                refreshUnlessLive(pager::reload);
+                                showSuccessMessage("Pacjent zaktualizowany", "Dane pacjenta zostały pomyślnie zaktualizowane.");
+                            },
+                            ex -> showErrorMessage("Błąd aktualizacji", "Nie udało się zaktualizować danych pacjenta: " + ex.getMessage())));
+                }, ex -> showErrorMessage("Błąd", "Nie udało się pobrać danych pacjenta: " + ex.getMessage()));
             } else {
                 showWarningMessage("Brak wyboru", "Proszę wybrać pacjenta do edycji.");
             }
@@ -128,23 +153,18 @@ public class AdminPanelController {
 
         Button deleteBtn = new Button("Usuń pacjenta");
         deleteBtn.setOnAction(e -> {
-            Patient selected = tableView.getSelectionModel().getSelectedItem();
+            PatientSummary selected = tableView.getSelectionModel().getSelectedItem();
             if (selected != null) {
                 boolean confirmed = showConfirmationDialog("Potwierdzenie usunięcia",
                         "Czy na pewno chcesz usunąć pacjenta oraz wszystkie jego zabiegi?" + selected.getFirstName() + " " + selected.getLastName() + "?");
 
                 if (confirmed) {
-                    try {
-                        patientRepo.deletePatient(selected.getId());
-                        List<Appointment> lista = appointmentRepo.findAppointmentsByPatient(selected);
-                        for(Appointment appointment : lista) {
-                            appointmentRepo.deleteAppointment(appointment.getId());
-                        }
-                        refreshPatientData(patientData);
-                        showSuccessMessage("Pacjent usunięty", "Pacjent został pomyślnie usunięty z bazy danych.");
-                    } catch (Exception ex) {
-                        showErrorMessage("Błąd usuwania", "Nie udało się usunąć pacjenta: " + ex.getMessage());
-                    }
+                    BackgroundTasks.call(() -> cascadeDelete.deletePatient(selected.getId()),
+                            result -> {
+                                refreshUnlessLive(pager::reload);
+                                showSuccessMessage("Pacjent usunięty", "Pacjent został pomyślnie usunięty z bazy danych (" + result + ").");
+                            },
+                            ex -> showErrorMessage("Błąd usuwania", "Nie udało się usunąć pacjenta: " + ex.getMessage()));
                 }
             } else {
                 showWarningMessage("Brak wyboru", "Proszę wybrać pacjenta do usunięcia.");
@@ -159,13 +179,6 @@ public class AdminPanelController {
         return layout;
     }
 
-    /**
-     * Odświeża dane pacjentów w tabeli.
-     */
-    private void refreshPatientData(ObservableList<Patient> patientData) {
-        patientData.setAll(patientRepo.findAll());
-    }
-
     /**
      * Wyświetla komunikat o sukcesie.
      */
@@ -231,55 +244,65 @@ public class AdminPanelController {
         Label titleLabel = new Label("Lista lekarzy");
         titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        TableView<Doctor> tableView = new TableView<>();
-        ObservableList<Doctor> doctorList = FXCollections.observableArrayList();
+        TableView<DoctorSummary> tableView = new TableView<>();
+        ObservableList<DoctorSummary> doctorList = FXCollections.observableArrayList();
 
-        TableColumn<Doctor, String> nameCol = new TableColumn<>("Imię");
+        TableColumn<DoctorSummary, String> nameCol = new TableColumn<>("Imię");
         nameCol.setCellValueFactory(new PropertyValueFactory<>("firstName"));
 
-        TableColumn<Doctor, String> lastNameCol = new TableColumn<>("Nazwisko");
+        TableColumn<DoctorSummary, String> lastNameCol = new TableColumn<>("Nazwisko");
         lastNameCol.setCellValueFactory(new PropertyValueFactory<>("lastName"));
 
-        TableColumn<Doctor, String> specializationCol = new TableColumn<>("Specjalizacja");
+        TableColumn<DoctorSummary, String> specializationCol = new TableColumn<>("Specjalizacja");
         specializationCol.setCellValueFactory(cellData -> {
             Specialization spec = cellData.getValue().getSpecialization();
             return new ReadOnlyStringWrapper(spec != null ? spec.getDescription() : "");
         });
 
-        TableColumn<Doctor, String> roomCol = new TableColumn<>("Sala");
+        TableColumn<DoctorSummary, String> roomCol = new TableColumn<>("Sala");
         roomCol.setCellValueFactory(new PropertyValueFactory<>("room"));
 
-        TableColumn<Doctor, String> contactCol = new TableColumn<>("Kontakt");
+        TableColumn<DoctorSummary, String> contactCol = new TableColumn<>("Kontakt");
         contactCol.setCellValueFactory(new PropertyValueFactory<>("contactInformation"));
 
         tableView.getColumns().addAll(nameCol, lastNameCol, specializationCol, roomCol, contactCol);
-        tableView.setItems(doctorList);
-        refreshDoctorList(doctorList);
+        PagedTableLoader<DoctorSummary, DoctorSummary> pager = PagedTableLoader.direct(tableView, doctorList,
+                        DoctorSummary::getId, doctorRepo::findSummaryPage, DoctorRepository.SORT_BY_LAST_NAME)
+                .sortable(nameCol, DoctorRepository.SORT_BY_FIRST_NAME)
+                .sortable(lastNameCol, DoctorRepository.SORT_BY_LAST_NAME)
+                .sortable(specializationCol, DoctorRepository.SORT_BY_SPECIALIZATION);
+        replaceLiveSubscriptions(changeWatcher.onDoctors(
+                LiveListBinding.paged(doctorList, DoctorSummary::getId, d -> true, DoctorSummary::of, pager)));
+        pager.reload();
 
         Button addBtn = new Button("Dodaj lekarza");
-        addBtn.setOnAction(e -> DoctorForm.showForm(null, doctor -> {
-            try {
-                doctorRepo.createDoctor(doctor);
-                refreshDoctorList(doctorList);
-                showSuccessMessage("Lekarz dodany", "Lekarz został pomyślnie dodany do bazy danych.");
-            } catch (Exception ex) {
-                showErrorMessage("Błąd dodawania", "Nie udało się dodać lekarza: " + ex.getMessage());
-            }
-        }));
+        addBtn.setOnAction(e -> DoctorForm.showForm(null, doctor -> BackgroundTasks.run(
+                () -> doctorRepo.createDoctor(doctor),
+                () -> {
+                    // Tabela stronicowana nie dopisuje nowych wierszy ze strumienia zmian
+                    pager.reload();
+                    showSuccessMessage("Lekarz dodany", "Lekarz został pomyślnie dodany do bazy danych.");
+                },
+                ex -> showErrorMessage("Błąd dodawania", "Nie udało się dodać lekarza: " + ex.getMessage()))));
 
         Button editBtn = new Button("Edytuj lekarza");
         editBtn.setOnAction(e -> {
-            Doctor selected = tableView.getSelectionModel().getSelectedItem();
+            DoctorSummary selected = tableView.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                DoctorForm.showForm(selected, updated -> {
-                    try {
-                        doctorRepo.updateDoctor(updated);
-                        refreshDoctorList(doctorList);
-                        showSuccessMessage("Lekarz zaktualizowany", "Dane lekarza zostały pomyślnie zaktualizowane.");
-                    } catch (Exception ex) {
-                        showErrorMessage("Błąd aktualizacji", "Nie udało się zaktualizować danych lekarza: " + ex.getMessage());
+                // Tabela zawiera tylko podsumowania – do edycji potrzebny jest pełny dokument lekarza
+                BackgroundTasks.call(() -> doctorRepo.findDoctorById(selected.getId()), doctor -> {
+                    if (doctor == null) {
+                        showWarningMessage("Brak lekarza", "Wybrany lekarz nie istnieje już w bazie danych.");
+                        return;
                     }
-                });
+                    DoctorForm.showForm(doctor, updated -> BackgroundTasks.run(
+                            () -> doctorRepo.updateDoctor(updated),
+                            () -> {
+                                refreshUnlessLive(pager::reload);
+                                showSuccessMessage("Lekarz zaktualizowany", "Dane lekarza zostały pomyślnie zaktualizowane.");
+                            },
+                            ex -> showErrorMessage("Błąd aktualizacji", "Nie udało się zaktualizować danych lekarza: " + ex.getMessage())));
+                }, ex -> showErrorMessage("Błąd", "Nie udało się pobrać danych lekarza: " + ex.getMessage()));
             } else {
                 showWarningMessage("Brak wyboru", "Proszę wybrać lekarza do edycji.");
             }
@@ -287,24 +310,34 @@ public class AdminPanelController {
 
         Button deleteBtn = new Button("Usuń lekarza");
         deleteBtn.setOnAction(e -> {
-            Doctor selected = tableView.getSelectionModel().getSelectedItem();
+            DoctorSummary selected = tableView.getSelectionModel().getSelectedItem();
             if (selected != null) {
                 boolean confirmed = showConfirmationDialog("Potwierdzenie usunięcia",
                         "Czy na pewno chcesz usunąć lekarza " + selected.getFirstName() + " " + selected.getLastName() + "?");
 
                 if (confirmed) {
-                    try {
-                        if(appointmentRepo.findAppointmentsByDoctor(selected) != null && !appointmentRepo.findAppointmentsByDoctor(selected).isEmpty()) {
-                            showWarningMessage("Uwaga!!","Lekarz posiada aktualnie zaplanowany zabieg nie można go usunąć.");
-                        }else{
-                            doctorRepo.deleteDoctor(selected.getId());
-                            refreshDoctorList(doctorList);
-                            showSuccessMessage("Lekarz usunięty", "Lekarz został pomyślnie usunięty z bazy danych.");
+                    // Zaplanowane zabiegi blokują usunięcie; historia zabiegów usuwana jest razem z lekarzem
+                    BackgroundTasks.call(() -> new long[]{
+                            appointmentRepo.countAppointmentsByDoctorId(selected.getId(), true),
+                            appointmentRepo.countAppointmentsByDoctorId(selected.getId(), false)
+                    }, counts -> {
+                        if (counts[0] > 0) {
+                            showWarningMessage("Uwaga!!", "Lekarz posiada aktualnie zaplanowane zabiegi ("
+                                    + counts[0] + ") – nie można go usunąć.");
+                            return;
                         }
-
-                    } catch (Exception ex) {
-                        showErrorMessage("Błąd usuwania", "Nie udało się usunąć lekarza: " + ex.getMessage());
-                    }
+                        if (counts[1] > 0 && !showConfirmationDialog("Lekarz ma historię zabiegów",
+                                "Lekarz ma " + counts[1] + " zakończonych lub odwołanych zabiegów. "
+                                        + "Czy usunąć je razem z lekarzem?")) {
+                            return;
+                        }
+                        BackgroundTasks.call(() -> cascadeDelete.deleteDoctor(selected.getId()),
+                                result -> {
+                                    refreshUnlessLive(pager::reload);
+                                    showSuccessMessage("Lekarz usunięty", "Lekarz został pomyślnie usunięty z bazy danych (" + result + ").");
+                                },
+                                ex -> showErrorMessage("Błąd usuwania", "Nie udało się usunąć lekarza: " + ex.getMessage()));
+                    }, ex -> showErrorMessage("Błąd usuwania", "Nie udało się sprawdzić zabiegów lekarza: " + ex.getMessage()));
                 }
             } else {
                 showWarningMessage("Brak wyboru", "Proszę wybrać lekarza do usunięcia.");
@@ -319,13 +352,6 @@ public class AdminPanelController {
         return layout;
     }
 
-    /**
-     * Odświeża listę lekarzy w tabeli.
-     */
-    private void refreshDoctorList(ObservableList<Doctor> doctorList) {
-        doctorList.setAll(doctorRepo.findAll());
-    }
-
     /**
      * Wyświetla panel harmonogramu zabiegów.
      */
@@ -337,47 +363,41 @@ public class AdminPanelController {
         Label titleLabel = new Label("Harmonogram zabiegów");
         titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        TableView<Appointment> tableView = new TableView<>();
+        TableView<AppointmentRow> tableView = new TableView<>();
         tableView.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
-        refreshAppointments(tableView);
 
-        TableColumn<Appointment, String> dateCol = new TableColumn<>("Data");
+        TableColumn<AppointmentRow, String> dateCol = new TableColumn<>("Data");
         dateCol.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(
                 cellData.getValue().getDate().format(formatter)
         ));
 
-        TableColumn<Appointment, String> roomCol = new TableColumn<>("Sala");
-        roomCol.setCellValueFactory(cellData -> {
-            ObjectId roomId = cellData.getValue().getRoom();
-            Room room = roomRepo.findRoomsById(roomId).getFirst();
-            return new ReadOnlyStringWrapper(room != null ? room.toString2() : "Nieznana sala");
-        });
+        // Referencje są już rozwiązane w wierszu – komórki nie odpytują bazy
+        TableColumn<AppointmentRow, String> roomCol = new TableColumn<>("Sala");
+        roomCol.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().getRoomLabel()));
 
-        TableColumn<Appointment, String> descCol = new TableColumn<>("Opis");
+        TableColumn<AppointmentRow, String> descCol = new TableColumn<>("Opis");
         descCol.setCellValueFactory(new PropertyValueFactory<>("description"));
 
-        TableColumn<Appointment, String> doctorCol = new TableColumn<>("Lekarz");
-        doctorCol.setCellValueFactory(cellData -> {
-            ObjectId docId = cellData.getValue().getDoctorId();
-            Doctor doc = doctorRepo.findDoctorById(docId);
-            if (doc == null) {
-                throw new RuntimeException("Nie znaleziono lekarza");
-            }
-            return new ReadOnlyStringWrapper(doc.getFirstName() + " " + doc.getLastName());
-        });
+        TableColumn<AppointmentRow, String> doctorCol = new TableColumn<>("Lekarz");
+        doctorCol.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().getDoctorName()));
 
-        TableColumn<Appointment, String> patientCol = new TableColumn<>("Pacjent");
-        patientCol.setCellValueFactory(cellData -> {
-            ObjectId patId = cellData.getValue().getPatientId();
-            Patient pat = patientRepo.findPatientById(patId).getFirst();
-            return new ReadOnlyStringWrapper(pat.getFirstName() + " " + pat.getLastName());
-        });
+        TableColumn<AppointmentRow, String> patientCol = new TableColumn<>("Pacjent");
+        patientCol.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().getPatientName()));
 
-        TableColumn<Appointment, String> statusCol = new TableColumn<>("Status");
+        TableColumn<AppointmentRow, String> statusCol = new TableColumn<>("Status");
         statusCol.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().getStatus().toString()));
 
         tableView.getColumns().addAll(dateCol, roomCol, descCol, doctorCol, patientCol, statusCol);
-        tableView.setItems(appointmentData);
+        // Lekarz, pacjent i sala to referencje – serwer sortuje tylko po polach samego zabiegu
+        PagedTableLoader<Appointment, AppointmentRow> pager = new PagedTableLoader<Appointment, AppointmentRow>(
+                tableView, appointmentData, AppointmentRow::getId, appointmentRepo::findPage,
+                referenceResolver::resolve, AppointmentRepository.SORT_BY_DATE, PagedTableLoader.DEFAULT_PAGE_SIZE)
+                .sortable(dateCol, AppointmentRepository.SORT_BY_DATE)
+                .sortable(statusCol, AppointmentRepository.SORT_BY_STATUS);
+        replaceLiveSubscriptions(changeWatcher.onAppointments(LiveListBinding.paged(
+                appointmentData, AppointmentRow::getId, a -> true,
+                a -> referenceResolver.resolve(List.of(a)).getFirst(), pager)));
+        pager.reload();
 
         HBox buttonBox = new HBox(10);
         buttonBox.setAlignment(Pos.CENTER);
@@ -386,91 +406,38 @@ public class AdminPanelController {
         Button editProcedure = new Button("Edytuj zaznaczony");
         Button cancelProcedure = new Button("Usuń zaznaczony");
 
-        scheduleProcedure.setOnAction(e -> {
-            AppointmentForm form = new AppointmentForm(
-                    doctorRepo.findAll(),
-                    patientRepo.findAll(),
-                    roomRepo.getAllRooms()
-            );
-            form.showForm(null, appointment -> {
-                try {
-                    appointmentRepo.createAppointment(appointment);
-                    refreshAppointments(tableView);
-                } catch (DoctorIsNotAvailableException ex) {
-                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                    alert.setTitle("Błąd dostępności lekarza");
-                    alert.setHeaderText("Lekarz jest niedostępny w wybranym terminie");
-                    alert.setContentText(ex.getMessage());
-                    alert.showAndWait();
-                } catch (PatientIsNotAvailableException ex) {
-                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                    alert.setTitle("Błąd dostępności pacjenta");
-                    alert.setHeaderText("Pacjent jest niedostępny w wybranym terminie");
-                    alert.setContentText(ex.getMessage());
-                    alert.showAndWait();
-                } catch (InappropriateRoomException ex) {
-                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                    alert.setTitle("Błąd przypisania sali");
-                    alert.setHeaderText("Sala nie jest odpowiednia dla specjalizacji lekarza");
-                    alert.setContentText(ex.getMessage());
-                    alert.showAndWait();
-                }
-            });
-        });
+        scheduleProcedure.setOnAction(e -> withFormData(form -> form.showForm(null, appointment -> BackgroundTasks.run(
+                () -> appointmentRepo.createAppointment(appointment),
+                pager::reload,
+                this::showAppointmentError))));
 
         editProcedure.setOnAction(e -> {
-            Appointment selected = tableView.getSelectionModel().getSelectedItem();
-            if (selected != null) {
-                AppointmentForm form = new AppointmentForm(
-                        doctorRepo.findAll(),
-                        patientRepo.findAll(),
-                        roomRepo.getAllRooms()
-                );
-                form.showForm(selected, updated -> {
-                    try {
-                        ObjectId oldRoomId = selected.getRoom();
-                        ObjectId newRoomId = updated.getRoom();
-
-                        ObjectId oldPatientId = selected.getPatientId();
-                        ObjectId newPatientId = updated.getPatientId();
-
-                        // Aktualizacja zabiegu
-                        appointmentRepo.updateAppointment(updated);
-
-                        // Jeśli zmieniono pokój lub pacjenta
-                        if (!oldRoomId.equals(newRoomId) || !oldPatientId.equals(newPatientId)) {
-                            // Usuń pacjenta ze starego pokoju tylko jeśli tam był
-                            roomRepo.updateRoomPatientAssignment(oldRoomId, oldPatientId, null);
-                            // Dodaj pacjenta do nowego pokoju tylko jeśli go nie ma
-                            roomRepo.updateRoomPatientAssignment(newRoomId, null, newPatientId);
-                        }
-
-                        refreshAppointments(tableView);
-                    } catch (DoctorIsNotAvailableException | PatientIsNotAvailableException | InappropriateRoomException ex) {
-                        showErrorMessage("Błąd", ex.getMessage());
-                    }
-                });
+            AppointmentRow selectedRow = tableView.getSelectionModel().getSelectedItem();
+            if (selectedRow != null) {
+                Appointment selected = selectedRow.getAppointment();
+                // Przeniesienie pacjenta między salami wykonuje updateAppointment w tym samym zapisie co wizytę
+                withFormData(form -> form.showForm(selected, updated -> BackgroundTasks.run(
+                        () -> appointmentRepo.updateAppointment(updated),
+                        () -> refreshUnlessLive(pager::reload),
+                        this::showAppointmentError)));
             }
 
         });
 
         cancelProcedure.setOnAction(e -> {
-            Appointment selected = tableView.getSelectionModel().getSelectedItem();
-            if (selected != null) {
+            AppointmentRow selectedRow = tableView.getSelectionModel().getSelectedItem();
+            if (selectedRow != null) {
+                Appointment selected = selectedRow.getAppointment();
                 // Utwórz okno dialogowe potwierdzenia
                 Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
                 confirmDialog.setTitle("Potwierdzenie usunięcia");
                 confirmDialog.setHeaderText("Czy na pewno chcesz usunąć wybrany zabieg?");
 
                 // Dodaj szczegóły zabiegu do treści komunikatu
-                Doctor lekarz = doctorRepo.findDoctorById(selected.getDoctorId());
-                Patient pacjent = patientRepo.findPatientById(selected.getPatientId()).getFirst();
-                Room sala = roomRepo.findRoomsById(selected.getRoom()).getFirst();
-
                 String szczegoly = "Data: " + selected.getDate().format(formatter) + "\n" +
-                        "Lekarz: " + lekarz.getFirstName() + " " + lekarz.getLastName() + "\n" +
-                        "Pacjent: " + pacjent.getFirstName() + " " + pacjent.getLastName() + "\n" +
-                        "Sala: " + sala.toString2() + "\n" +
+                        "Lekarz: " + selectedRow.getDoctorName() + "\n" +
+                        "Pacjent: " + selectedRow.getPatientName() + "\n" +
+                        "Sala: " + selectedRow.getRoomLabel() + "\n" +
                         "Opis: " + selected.getDescription();
 
                 confirmDialog.setContentText(szczegoly);
@@ -484,8 +451,9 @@ public class AdminPanelController {
                 confirmDialog.showAndWait().ifPresent(response -> {
                     if (response == buttonTypeYes) {
                         // Jeśli użytkownik potwierdził, usuń zabieg
-                        appointmentRepo.deleteAppointment(selected.getId());
-                        refreshAppointments(tableView);
+                        BackgroundTasks.run(() -> appointmentRepo.deleteAppointment(selected.getId()),
+                                () -> refreshUnlessLive(pager::reload),
+                                ex -> showErrorMessage("Błąd usuwania", "Nie udało się usunąć zabiegu: " + ex.getMessage()));
                     }
                 });
             }
@@ -498,20 +466,45 @@ public class AdminPanelController {
         return layout;
     }
 
-    private void refreshAppointments(TableView<Appointment> tableView) {
-        try {
-            List<Appointment> appointments = appointmentRepo.findAll();
-            appointmentData.clear();
-            appointmentData.addAll(appointments);
-            tableView.refresh();
-        } catch (Exception e) {
-            e.printStackTrace();
-            Alert alert = new Alert(Alert.AlertType.ERROR);
+    /**
+     * Pobiera w tle listy lekarzy, pacjentów i sal (trzy zapytania równolegle), a następnie otwiera formularz zabiegu.
+     */
+    private void withFormData(Consumer<AppointmentForm> showForm) {
+        BackgroundTasks.call(() -> {
+                    CompletableFuture<List<DoctorSummary>> doctors = asyncDoctors.findAllSummaries();
+                    CompletableFuture<List<PatientSummary>> patients = asyncPatients.findAllSummaries();
+                    CompletableFuture<List<Room>> rooms = asyncRooms.getAllRooms();
+                    try {
+                        return new AppointmentForm(AsyncQueries.await(doctors), AsyncQueries.await(patients),
+                                AsyncQueries.await(rooms), asyncAppointments, asyncRooms);
+                    } finally {
+                        AsyncQueries.cancel(doctors, patients, rooms);
+                    }
+                },
+                showForm,
+                ex -> showErrorMessage("Błąd", "Nie udało się pobrać danych formularza: " + ex.getMessage()));
+    }
+
+    /**
+     * Wyświetla błąd walidacji lub zapisu zabiegu.
+     */
+    private void showAppointmentError(Throwable ex) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        if (ex instanceof DoctorIsNotAvailableException) {
+            alert.setTitle("Błąd dostępności lekarza");
+            alert.setHeaderText("Lekarz jest niedostępny w wybranym terminie");
+        } else if (ex instanceof PatientIsNotAvailableException) {
+            alert.setTitle("Błąd dostępności pacjenta");
+            alert.setHeaderText("Pacjent jest niedostępny w wybranym terminie");
+        } else if (ex instanceof InappropriateRoomException) {
+            alert.setTitle("Błąd przypisania sali");
+            alert.setHeaderText("Sala nie jest odpowiednia dla specjalizacji lekarza");
+        } else {
             alert.setTitle("Błąd");
-            alert.setHeaderText("Nie udało się załadować zabiegów");
-            alert.setContentText(e.getMessage());
-            alert.showAndWait();
+            alert.setHeaderText("Nie udało się zapisać zabiegu");
         }
+        alert.setContentText(ex.getMessage());
+        alert.showAndWait();
     }
 
     /**
@@ -553,33 +546,31 @@ public class AdminPanelController {
         });
 
         tableView.getColumns().addAll(addressCol, floorCol, numberCol, maxCol, currentCol, typeCol);
-        refreshRoomList(roomData);
         tableView.setItems(roomData);
+        replaceLiveSubscriptions(changeWatcher.onRooms(
+                LiveListBinding.direct(roomData, Room::getId, r -> true, roomRepo::getAllRooms)));
+        refreshRoomList(roomData);
 
         Button addRoom = new Button("Dodaj salę");
-        addRoom.setOnAction(e -> RoomForm.showForm(null, room -> {
-            try {
-                roomRepo.createRoom(room);
-                refreshRoomList(roomData);
-                showSuccessMessage("Sala dodana", "Sala została pomyślnie dodana do bazy danych.");
-            } catch (Exception ex) {
-                showErrorMessage("Błąd dodawania", "Nie udało się dodać sali: " + ex.getMessage());
-            }
-        }));
+        addRoom.setOnAction(e -> RoomForm.showForm(null, room -> BackgroundTasks.run(
+                () -> roomRepo.createRoom(room),
+                () -> {
+                    refreshUnlessLive(() -> refreshRoomList(roomData));
+                    showSuccessMessage("Sala dodana", "Sala została pomyślnie dodana do bazy danych.");
+                },
+                ex -> showErrorMessage("Błąd dodawania", "Nie udało się dodać sali: " + ex.getMessage()))));
 
         Button editRoom = new Button("Edytuj salę");
         editRoom.setOnAction(e -> {
             Room selected = tableView.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                RoomForm.showForm(selected, updated -> {
-                    try {
-                        roomRepo.updateRoom(updated.getId(), updated);
-                        refreshRoomList(roomData);
-                        showSuccessMessage("Sala zaktualizowana", "Dane sali zostały pomyślnie zaktualizowane.");
-                    } catch (Exception ex) {
-                        showErrorMessage("Błąd aktualizacji", "Nie udało się zaktualizować danych sali: " + ex.getMessage());
-                    }
-                });
+                RoomForm.showForm(selected, updated -> BackgroundTasks.run(
+                        () -> roomRepo.updateRoom(updated.getId(), updated),
+                        () -> {
+                            refreshUnlessLive(() -> refreshRoomList(roomData));
+                            showSuccessMessage("Sala zaktualizowana", "Dane sali zostały pomyślnie zaktualizowane.");
+                        },
+                        ex -> showErrorMessage("Błąd aktualizacji", "Nie udało się zaktualizować danych sali: " + ex.getMessage())));
             } else {
                 showWarningMessage("Brak wyboru", "Proszę wybrać salę do edycji.");
             }
@@ -598,31 +589,30 @@ public class AdminPanelController {
                 }
 
                 // Sprawdź, czy sala jest używana w zabiegach
-                List<Appointment> appointmentsInRoom = appointmentRepo.findAppointmentsByRoom(selected.getId());
-                if (appointmentsInRoom != null && !appointmentsInRoom.isEmpty()) {
-                    showWarningMessage("Nie można usunąć",
-                            "Nie można usunąć sali, która jest używana w zaplanowanych zabiegach. " +
-                                    "Liczba zabiegów w tej sali: " + appointmentsInRoom.size());
-                    return;
-                }
-
-                boolean confirmed = showConfirmationDialog("Potwierdzenie usunięcia",
-                        "Czy na pewno chcesz usunąć salę nr " + selected.getNumber() +
-                                " na piętrze " + selected.getFloor() + "?");
+                BackgroundTasks.call(() -> appointmentRepo.countAppointmentsByRoom(selected.getId()), appointmentsInRoom -> {
+                    if (appointmentsInRoom > 0) {
+                        showWarningMessage("Nie można usunąć",
+                                "Nie można usunąć sali, która jest używana w zaplanowanych zabiegach. " +
+                                        "Liczba zabiegów w tej sali: " + appointmentsInRoom);
+                        return;
+                    }
 
-                if (confirmed) {
-                    try {
-                        boolean deleted = roomRepo.deleteRoom(selected.getId());
-                        if (deleted) {
-                            refreshRoomList(roomData);
-                            showSuccessMessage("Sala usunięta", "Sala została pomyślnie usunięta z bazy danych.");
-                        } else {
-                            showErrorMessage("Błąd usuwania", "Nie udało się usunąć sali. Sala nie została znaleziona.");
-                        }
-                    } catch (Exception ex) {
-                        showErrorMessage("Błąd usuwania", "Nie udało się usunąć sali: " + ex.getMessage());
+                    boolean confirmed = showConfirmationDialog("Potwierdzenie usunięcia",
+                            "Czy na pewno chcesz usunąć salę nr " + selected.getNumber() +
+                                    " na piętrze " + selected.getFloor() + "?");
+
+                    if (confirmed) {
+                        BackgroundTasks.call(() -> roomRepo.deleteRoom(selected.getId()), deleted -> {
+                                    if (deleted) {
+                                        refreshUnlessLive(() -> refreshRoomList(roomData));
+                                        showSuccessMessage("Sala usunięta", "Sala została pomyślnie usunięta z bazy danych.");
+                                    } else {
+                                        showErrorMessage("Błąd usuwania", "Nie udało się usunąć sali. Sala nie została znaleziona.");
+                                    }
+                                },
+                                ex -> showErrorMessage("Błąd usuwania", "Nie udało się usunąć sali: " + ex.getMessage()));
                     }
-                }
+                }, ex -> showErrorMessage("Błąd usuwania", "Nie udało się sprawdzić zabiegów w sali: " + ex.getMessage()));
             } else {
                 showWarningMessage("Brak wyboru", "Proszę wybrać salę do usunięcia.");
             }
@@ -636,11 +626,159 @@ public class AdminPanelController {
         return layout;
     }
 
+    /**
+     * Wyświetla statystyki zapytań do bazy: kształty zapytań (jak pg_stat_statements) oraz ostatnie wolne
+     * zapytania z planem z {@code explain}. Kształty, których plan przegląda całą kolekcję, są wyróżnione.
+     */
+    public VBox showQueryStatistics() {
+        replaceLiveSubscriptions();
+        VBox layout = new VBox(15);
+        layout.setPadding(new Insets(20));
+        layout.setAlignment(Pos.TOP_CENTER);
+        layout.setPrefWidth(1000);
+        layout.setPrefHeight(700);
+
+        Label titleLabel = new Label("Statystyki zapytań");
+        titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
+
+        TableView<SlowQueryLog.ShapeStats> shapesTable = new TableView<>();
+        ObservableList<SlowQueryLog.ShapeStats> shapeData = FXCollections.observableArrayList();
+        shapesTable.setItems(shapeData);
+
+        TableColumn<SlowQueryLog.ShapeStats, String> shapeCol = new TableColumn<>("Zapytanie");
+        shapeCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(p.getValue().getShape()));
+        shapeCol.setPrefWidth(380);
+
+        TableColumn<SlowQueryLog.ShapeStats, String> countCol = new TableColumn<>("Wykonania");
+        countCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(
+                p.getValue().getCount() + " (" + p.getValue().getSlowCount() + " wolnych)"));
+
+        TableColumn<SlowQueryLog.ShapeStats, String> totalCol = new TableColumn<>("Łącznie [ms]");
+        totalCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(String.format("%.1f", p.getValue().getTotalMillis())));
+
+        TableColumn<SlowQueryLog.ShapeStats, String> meanCol = new TableColumn<>("Średnio [ms]");
+        meanCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(String.format("%.2f", p.getValue().getMeanMillis())));
+
+        TableColumn<SlowQueryLog.ShapeStats, String> maxCol = new TableColumn<>("Maks. [ms]");
+        maxCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(String.format("%.2f", p.getValue().getMaxMillis())));
+
+        TableColumn<SlowQueryLog.ShapeStats, String> returnedCol = new TableColumn<>("Zwrócone dok.");
+        returnedCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(String.valueOf(p.getValue().getDocsReturned())));
+
+        // Liczby przejrzanych dokumentów pochodzą z ostatniego explain, więc opisują jedno wykonanie
+        TableColumn<SlowQueryLog.ShapeStats, String> planCol = new TableColumn<>("Plan (przejrzane / zwrócone)");
+        planCol.setCellValueFactory(p -> {
+            SlowQueryLog.Plan plan = p.getValue().getLastPlan();
+            return new ReadOnlyStringWrapper(plan == null ? "–"
+                    : plan.getStages() + " (" + plan.getDocsExamined() + " / " + plan.getDocsReturned() + ")");
+        });
+        planCol.setPrefWidth(260);
+
+        shapesTable.getColumns().addAll(shapeCol, countCol, totalCol, meanCol, maxCol, returnedCol, planCol);
+        shapesTable.setRowFactory(table -> new TableRow<>() {
+            @Override
+            protected void updateItem(SlowQueryLog.ShapeStats item, boolean empty) {
+                super.updateItem(item, empty);
+                boolean collectionScan = !empty && item != null && item.getLastPlan() != null
+                        && item.getLastPlan().isCollectionScan();
+                setStyle(collectionScan ? "-fx-background-color: #F5B7B1;" : "");
+            }
+        });
+
+        Label slowLabel = new Label("Ostatnie wolne zapytania");
+        slowLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
+
+        TableView<SlowQueryLog.SlowQuery> slowTable = new TableView<>();
+        ObservableList<SlowQueryLog.SlowQuery> slowData = FXCollections.observableArrayList();
+        slowTable.setItems(slowData);
+
+        TableColumn<SlowQueryLog.SlowQuery, String> timeCol = new TableColumn<>("Czas");
+        timeCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(
+                p.getValue().getTime().format(DateTimeFormatter.ofPattern("HH:mm:ss"))));
+
+        TableColumn<SlowQueryLog.SlowQuery, String> durationCol = new TableColumn<>("Trwanie [ms]");
+        durationCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(String.format("%.1f", p.getValue().getDurationMillis())));
+
+        TableColumn<SlowQueryLog.SlowQuery, String> slowShapeCol = new TableColumn<>("Zapytanie");
+        slowShapeCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(p.getValue().getShape()));
+        slowShapeCol.setPrefWidth(420);
+
+        TableColumn<SlowQueryLog.SlowQuery, String> slowPlanCol = new TableColumn<>("Plan");
+        slowPlanCol.setCellValueFactory(p -> new ReadOnlyStringWrapper(
+                p.getValue().getPlan() == null ? "–" : p.getValue().getPlan().toString()));
+        slowPlanCol.setPrefWidth(360);
+
+        slowTable.getColumns().addAll(timeCol, durationCol, slowShapeCol, slowPlanCol);
+
+        TextArea explainArea = new TextArea();
+        explainArea.setEditable(false);
+        explainArea.setPrefRowCount(8);
+        explainArea.setStyle("-fx-font-family: monospace;");
+        slowTable.getSelectionModel().selectedItemProperty().addListener((obs, old, selected) ->
+                explainArea.setText(selected == null || selected.getPlan() == null ? "" : selected.getPlan().getExplain()));
+
+        Runnable refresh = () -> {
+            shapeData.setAll(SlowQueryLog.shapes());
+            slowData.setAll(SlowQueryLog.recentSlowQueries());
+        };
+        refresh.run();
+
+        Spinner<Integer> thresholdSpinner = new Spinner<>(0, 60_000, (int) SlowQueryLog.getThresholdMillis(), 10);
+        thresholdSpinner.setEditable(true);
+        thresholdSpinner.valueProperty().addListener((obs, old, value) -> SlowQueryLog.setThresholdMillis(value));
+
+        Button refreshBtn = new Button("Odśwież");
+        refreshBtn.setOnAction(e -> refresh.run());
+
+        Button resetBtn = new Button("Wyczyść statystyki");
+        resetBtn.setOnAction(e -> {
+            SlowQueryLog.reset();
+            refresh.run();
+        });
+
+        HBox buttonBox = new HBox(10, new Label("Próg wolnego zapytania [ms]:"), thresholdSpinner, refreshBtn, resetBtn);
+        buttonBox.setAlignment(Pos.CENTER);
+
+        layout.getChildren().addAll(titleLabel, shapesTable, slowLabel, slowTable, explainArea, buttonBox);
+        adminPanel.setCenterPane(layout);
+        return layout;
+    }
+
     private void refreshRoomList(ObservableList<Room> roomData) {
-        roomData.setAll(roomRepo.getAllRooms());
+        BackgroundTasks.call(roomRepo::getAllRooms, roomData::setAll,
+                ex -> showErrorMessage("Błąd", "Nie udało się załadować sal: " + ex.getMessage()));
+    }
+
+    /**
+     * Odświeża tabelę po edycji tylko wtedy, gdy strumień zmian nie jest aktywny –
+     * w przeciwnym razie zmiana dotrze do tabeli przyrostowo przez {@link LiveListBinding}.
+     */
+    private void refreshUnlessLive(Runnable refresh) {
+        if (!changeWatcher.isActive()) {
+            refresh.run();
+        }
+    }
+
+    /**
+     * Zamyka subskrypcje zmian poprzedniego widoku i rejestruje subskrypcje nowego.
+     */
+    private void replaceLiveSubscriptions(AutoCloseable... subscriptions) {
+        closeLiveSubscriptions();
+        liveSubscriptions.addAll(List.of(subscriptions));
+    }
+
+    private void closeLiveSubscriptions() {
+        for (AutoCloseable subscription : liveSubscriptions) {
+            try {
+                subscription.close();
+            } catch (Exception ignored) {
+            }
+        }
+        liveSubscriptions.clear();
     }
 
     public void logout() {
+        closeLiveSubscriptions();
         primaryStage.close();
         Stage loginStage = new Stage();
         try {
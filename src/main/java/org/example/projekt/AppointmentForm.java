@@ -1,16 +1,19 @@
 package org.example.projekt;
 
 import backend.klasy.Appointment;
-import backend.klasy.Doctor;
-import backend.klasy.Patient;
+import backend.klasy.DoctorSummary;
+import backend.klasy.PatientSummary;
 import backend.klasy.Room;
-import backend.mongo.AppointmentRepository;
-import backend.mongo.DoctorRepository;
-import backend.mongo.RoomRepository;
+import backend.mongo.AsyncAppointmentRepository;
+import backend.mongo.AsyncQueries;
+import backend.mongo.AsyncRoomRepository;
 import backend.status.AppointmentStatus;
 import backend.status.Day;
 import backend.status.TypeOfRoom;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
@@ -20,13 +23,16 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.bson.types.ObjectId;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -35,20 +41,46 @@ import java.util.stream.Collectors;
  */
 public class AppointmentForm {
 
-    private final List<Doctor> wszyscyLekarze;
-    private final List<Patient> wszyscyPacjenci;
+    private final List<DoctorSummary> wszyscyLekarze;
+    private final List<PatientSummary> wszyscyPacjenci;
     private final List<Room> wszystkieSale;
-    private final AppointmentRepository zabiegiRepo;
-    private final RoomRepository saleRepo;
-    private ObservableList<Doctor> dostepniLekarze;
-    private ObservableList<Patient> dostepniPacjenci;
+    private final AsyncAppointmentRepository zabiegiRepo;
+    private final AsyncRoomRepository saleRepo;
+    private ObservableList<DoctorSummary> dostepniLekarze;
+    private ObservableList<PatientSummary> dostepniPacjenci;
     private ObservableList<Room> kompatybilneSale;
 
     /**
-     * Konstruktor z repozytoriami do filtrowania.
+     * Czas od ostatniej zmiany daty lub godziny, po którym przeliczana jest dostępność.
      */
-    public AppointmentForm(List<Doctor> lekarze, List<Patient> pacjenci, List<Room> sale,
-                           AppointmentRepository zabiegiRepo, RoomRepository saleRepo) {
+    private static final Duration OPOZNIENIE_AKTUALIZACJI = Duration.millis(250);
+    private PauseTransition opoznienie;
+    private Task<Dostepnosc> biezaceZadanie;
+    /**
+     * Numer ostatnio zleconego przeliczenia; wyniki starszych (już zastąpionych) są pomijane.
+     */
+    private long numerAktualizacji;
+    private ProgressIndicator wskaznikWczytywania;
+    private DoctorSummary lekarzDlaSal;
+
+    /**
+     * Wynik przeliczenia dostępności wykonanego w tle.
+     */
+    private static final class Dostepnosc {
+        private final List<DoctorSummary> lekarze;
+        private final List<PatientSummary> pacjenci;
+
+        private Dostepnosc(List<DoctorSummary> lekarze, List<PatientSummary> pacjenci) {
+            this.lekarze = lekarze;
+            this.pacjenci = pacjenci;
+        }
+    }
+
+    /**
+     * Konstruktor z repozytoriami do filtrowania; dostępność lekarzy i pacjentów pobierana jest równolegle.
+     */
+    public AppointmentForm(List<DoctorSummary> lekarze, List<PatientSummary> pacjenci, List<Room> sale,
+                           AsyncAppointmentRepository zabiegiRepo, AsyncRoomRepository saleRepo) {
         this.wszyscyLekarze = lekarze;
         this.wszyscyPacjenci = pacjenci;
         this.wszystkieSale = sale;
@@ -59,7 +91,7 @@ public class AppointmentForm {
     /**
      * Konstruktor bez repozytoriów (do kompatybilności wstecznej).
      */
-    public AppointmentForm(List<Doctor> lekarze, List<Patient> pacjenci, List<Room> sale) {
+    public AppointmentForm(List<DoctorSummary> lekarze, List<PatientSummary> pacjenci, List<Room> sale) {
         this.wszyscyLekarze = lekarze;
         this.wszyscyPacjenci = pacjenci;
         this.wszystkieSale = sale;
@@ -94,39 +126,39 @@ public class AppointmentForm {
         poleGodziny.setPromptText("gg:mm");
 
         // Pole wyboru lekarza
-        ComboBox<Doctor> wyborLekarza = new ComboBox<>(dostepniLekarze);
+        ComboBox<DoctorSummary> wyborLekarza = new ComboBox<>(dostepniLekarze);
         wyborLekarza.setPromptText("Wybierz lekarza");
 
         // Niestandardowy konwerter do wyświetlania informacji o lekarzu
-        wyborLekarza.setConverter(new javafx.util.StringConverter<Doctor>() {
+        wyborLekarza.setConverter(new javafx.util.StringConverter<DoctorSummary>() {
             @Override
-            public String toString(Doctor lekarz) {
+            public String toString(DoctorSummary lekarz) {
                 if (lekarz == null) return null;
                 return lekarz.getFirstName() + " " + lekarz.getLastName() +
                         " [" + formatujDostepneDni(lekarz) + "] " + lekarz.getSpecialization();
             }
 
             @Override
-            public Doctor fromString(String tekst) {
+            public DoctorSummary fromString(String tekst) {
                 return null; // Niepotrzebne dla niemodyfikowalnego ComboBox
             }
         });
 
         // Pole wyboru pacjenta
-        ComboBox<Patient> wyborPacjenta = new ComboBox<>(dostepniPacjenci);
+        ComboBox<PatientSummary> wyborPacjenta = new ComboBox<>(dostepniPacjenci);
         wyborPacjenta.setPromptText("Wybierz pacjenta");
 
         // Niestandardowy konwerter dla pacjentów
-        wyborPacjenta.setConverter(new javafx.util.StringConverter<Patient>() {
+        wyborPacjenta.setConverter(new javafx.util.StringConverter<PatientSummary>() {
             @Override
-            public String toString(Patient pacjent) {
+            public String toString(PatientSummary pacjent) {
                 if (pacjent == null) return null;
                 return pacjent.getFirstName() + " " + pacjent.getLastName() +
                         " (PESEL: " + pacjent.getPesel() + ")";
             }
 
             @Override
-            public Patient fromString(String tekst) {
+            public PatientSummary fromString(String tekst) {
                 return null;
             }
         });
@@ -157,13 +189,26 @@ public class AppointmentForm {
         ComboBox<AppointmentStatus> wyborStatusu = new ComboBox<>(FXCollections.observableArrayList(AppointmentStatus.values()));
         wyborStatusu.setPromptText("Wybierz status");
 
+        // Wskaźnik wczytywania dostępności (zapytania wykonywane są w tle)
+        wskaznikWczytywania = new ProgressIndicator();
+        wskaznikWczytywania.setMaxSize(24, 24);
+        wskaznikWczytywania.setVisible(false);
+
+        opoznienie = new PauseTransition(OPOZNIENIE_AKTUALIZACJI);
+        okno.setOnHidden(e -> {
+            opoznienie.stop();
+            if (biezaceZadanie != null) biezaceZadanie.cancel();
+            numerAktualizacji++;
+        });
+
         // Dodaj nasłuchiwacz do pola daty, aby aktualizować dostępnych lekarzy i pacjentów
         wyborDaty.valueProperty().addListener((obs, staraDat, nowaDat) -> {
             if (nowaDat != null) {
-                aktualizujDostepnychLekarzy(nowaDat, poleGodziny.getText(), wyborLekarza, istniejacyZabieg);
-                aktualizujDostepnychPacjentow(nowaDat, poleGodziny.getText(), wyborPacjenta, istniejacyZabieg);
+                LocalTime godzina = parsujGodzine(poleGodziny.getText());
+                zaplanujAktualizacje(nowaDat, godzina, wyborLekarza, wyborPacjenta, istniejacyZabieg);
             } else {
                 // Wyczyść listy, jeśli nie wybrano daty
+                anulujAktualizacje(wyborLekarza, wyborPacjenta);
                 dostepniLekarze.clear();
                 dostepniPacjenci.clear();
                 wyborLekarza.setValue(null);
@@ -175,15 +220,12 @@ public class AppointmentForm {
         poleGodziny.textProperty().addListener((obs, staraGodz, nowaGodz) -> {
             LocalDate wybranaDat = wyborDaty.getValue();
             if (wybranaDat != null && !nowaGodz.isEmpty()) {
-                try {
-                    LocalTime.parse(nowaGodz);
-                    aktualizujDostepnychLekarzy(wybranaDat, nowaGodz, wyborLekarza, istniejacyZabieg);
-                    aktualizujDostepnychPacjentow(wybranaDat, nowaGodz, wyborPacjenta, istniejacyZabieg);
-                } catch (Exception e) {
-                    if (nowaGodz.length() >= 5) {
-                        pokazBlad("Niepoprawny format godziny",
-                                "Wprowadzona godzina ma niepoprawny format. Użyj formatu gg:mm (np. 14:30).");
-                    }
+                LocalTime godzina = parsujGodzine(nowaGodz);
+                if (godzina != null) {
+                    zaplanujAktualizacje(wybranaDat, godzina, wyborLekarza, wyborPacjenta, istniejacyZabieg);
+                } else if (nowaGodz.length() >= 5) {
+                    pokazBlad("Niepoprawny format godziny",
+                            "Wprowadzona godzina ma niepoprawny format. Użyj formatu gg:mm (np. 14:30).");
                 }
             }
         });
@@ -194,6 +236,7 @@ public class AppointmentForm {
                 aktualizujKompatybilneSale(nowyLekarz, wyborSali, istniejacyZabieg);
             } else {
                 // Wyczyść listę sal, jeśli nie wybrano lekarza
+                lekarzDlaSal = null;
                 kompatybilneSale.clear();
                 wyborSali.setValue(null);
             }
@@ -207,20 +250,18 @@ public class AppointmentForm {
             wyborStatusu.setValue(istniejacyZabieg.getStatus());
 
             // Znajdź i ustaw wybranego lekarza
-            Doctor wybranyLekarz = wszyscyLekarze.stream()
+            DoctorSummary wybranyLekarz = wszyscyLekarze.stream()
                     .filter(doc -> doc.getId().equals(istniejacyZabieg.getDoctorId()))
                     .findFirst()
                     .orElse(null);
 
             // Znajdź i ustaw wybranego pacjenta
-            Patient wybranyPacjent = wszyscyPacjenci.stream()
+            PatientSummary wybranyPacjent = wszyscyPacjenci.stream()
                     .filter(p -> p.getId().equals(istniejacyZabieg.getPatientId()))
                     .findFirst()
                     .orElse(null);
 
-            // Aktualizuj listy dostępnych lekarzy, pacjentów i kompatybilnych sal
-            aktualizujDostepnychLekarzy(wyborDaty.getValue(), poleGodziny.getText(), wyborLekarza, istniejacyZabieg);
-            aktualizujDostepnychPacjentow(wyborDaty.getValue(), poleGodziny.getText(), wyborPacjenta, istniejacyZabieg);
+            // Listy dostępnych lekarzy i pacjentów zostaną wczytane w tle przez nasłuchiwacze daty i godziny
 
             if (wybranyLekarz != null) {
                 wyborLekarza.setValue(wybranyLekarz);
@@ -231,10 +272,8 @@ public class AppointmentForm {
         } else {
             // Dla nowych zabiegów, ustaw domyślnie dzisiejszą datę
             LocalDate dzisiaj = LocalDate.now();
+            // Nasłuchiwacz daty wczyta w tle listę dostępnych lekarzy i pacjentów
             wyborDaty.setValue(dzisiaj);
-            // Aktualizuj listę dostępnych lekarzy i pacjentów
-            aktualizujDostepnychLekarzy(dzisiaj, "", wyborLekarza, null);
-            aktualizujDostepnychPacjentow(dzisiaj, "", wyborPacjenta, null);
         }
 
         Button przyciskZapisz = new Button("Zapisz");
@@ -256,8 +295,8 @@ public class AppointmentForm {
                         : new Appointment.Builder();
 
                 Appointment zabieg = builder
-                        .doctorId(wyborLekarza.getValue())
-                        .patientId(wyborPacjenta.getValue())
+                        .doctorId(wyborLekarza.getValue().getId())
+                        .patientId(wyborPacjenta.getValue().getId())
                         .room(wyborSali.getValue().getId())
                         .date(LocalDateTime.of(data, godzina))
                         .description(poleOpisu.getText())
@@ -284,6 +323,7 @@ public class AppointmentForm {
 
         siatka.add(new Label("Lekarz:"), 0, 1);
         siatka.add(wyborLekarza, 1, 1);
+        siatka.add(wskaznikWczytywania, 2, 1);
 
         siatka.add(new Label("Pacjent:"), 0, 2);
         siatka.add(wyborPacjenta, 1, 2);
@@ -315,52 +355,120 @@ public class AppointmentForm {
     }
 
     /**
-     * Aktualizuje listę dostępnych lekarzy na podstawie wybranej daty i godziny.
-     * Wyświetla komunikat o błędzie, jeśli format godziny jest niepoprawny.
+     * Planuje przeliczenie dostępnych lekarzy i pacjentów {@link #OPOZNIENIE_AKTUALIZACJI} po ostatniej zmianie.
+     * Kolejne zmiany w tym czasie przesuwają przeliczenie, więc wpisanie godziny to jedno zapytanie, a nie kilka.
      */
-    private void aktualizujDostepnychLekarzy(LocalDate data, String godzinaText, ComboBox<Doctor> wyborLekarza, Appointment istniejacyZabieg) {
-        // Wyczyść aktualną listę
-        dostepniLekarze.clear();
+    private void zaplanujAktualizacje(LocalDate data, LocalTime godzina, ComboBox<DoctorSummary> wyborLekarza,
+                                      ComboBox<PatientSummary> wyborPacjenta, Appointment istniejacyZabieg) {
+        pokazWczytywanie(true, wyborLekarza, wyborPacjenta);
+        opoznienie.setOnFinished(e -> uruchomAktualizacje(data, godzina, wyborLekarza, wyborPacjenta, istniejacyZabieg));
+        opoznienie.playFromStart();
+    }
 
-        if (data == null) {
-            // Jeśli nie wybrano daty, nie aktualizuj listy
-            return;
+    /**
+     * Uruchamia przeliczenie we wspólnym wykonawcy {@link BackgroundTasks}, anulując poprzednie. Wynik trafia do list
+     * na wątku JavaFX, o ile w międzyczasie nie zlecono nowszego przeliczenia.
+     */
+    private void uruchomAktualizacje(LocalDate data, LocalTime godzina, ComboBox<DoctorSummary> wyborLekarza,
+                                     ComboBox<PatientSummary> wyborPacjenta, Appointment istniejacyZabieg) {
+        if (biezaceZadanie != null) biezaceZadanie.cancel();
+        long numer = ++numerAktualizacji;
+
+        ObjectId wykluczonId = istniejacyZabieg != null ? istniejacyZabieg.getId() : null;
+        biezaceZadanie = BackgroundTasks.call(() -> {
+            // Oba zapytania wysyłane są od razu – czas oczekiwania to dłuższe z nich, a nie suma
+            CompletableFuture<List<DoctorSummary>> lekarze = wyznaczDostepnychLekarzy(data, godzina, wykluczonId);
+            CompletableFuture<List<PatientSummary>> pacjenci = wyznaczDostepnychPacjentow(data, godzina, wykluczonId);
+            try {
+                return new Dostepnosc(AsyncQueries.await(lekarze), AsyncQueries.await(pacjenci));
+            } finally {
+                // Zadanie zastąpione nowszym (anulowane) nie zostawia w bazie swoich zapytań
+                AsyncQueries.cancel(lekarze, pacjenci);
+            }
+        }, wynik -> {
+            if (numer != numerAktualizacji) return;
+            pokazWczytywanie(false, wyborLekarza, wyborPacjenta);
+            ustawDostepnychLekarzy(wynik.lekarze, wyborLekarza, istniejacyZabieg);
+            ustawDostepnychPacjentow(wynik.pacjenci, wyborPacjenta, istniejacyZabieg);
+        }, blad -> {
+            if (numer != numerAktualizacji) return;
+            pokazWczytywanie(false, wyborLekarza, wyborPacjenta);
+            pokazBlad("Błąd", "Nie udało się pobrać dostępności: " + blad.getMessage());
+        });
+    }
+
+    /**
+     * Anuluje zaplanowane i trwające przeliczenie.
+     */
+    private void anulujAktualizacje(ComboBox<DoctorSummary> wyborLekarza, ComboBox<PatientSummary> wyborPacjenta) {
+        opoznienie.stop();
+        numerAktualizacji++;
+        if (biezaceZadanie != null) {
+            biezaceZadanie.cancel();
+            biezaceZadanie = null;
         }
+        pokazWczytywanie(false, wyborLekarza, wyborPacjenta);
+    }
 
-        // Pobierz dzień tygodnia z wybranej daty
-        java.time.DayOfWeek dzienTygodnia = data.getDayOfWeek();
-        Day wybranyDzien = konwertujNaDzienEnum(dzienTygodnia);
+    /**
+     * Blokuje listy wyboru i pokazuje wskaźnik na czas wczytywania dostępności.
+     */
+    private void pokazWczytywanie(boolean wczytywanie, ComboBox<?>... pola) {
+        wskaznikWczytywania.setVisible(wczytywanie);
+        for (ComboBox<?> pole : pola) {
+            pole.setDisable(wczytywanie);
+        }
+    }
+
+    /**
+     * Zwraca godzinę w formacie gg:mm lub {@code null}, jeśli tekst jest pusty albo niepoprawny.
+     */
+    private LocalTime parsujGodzine(String godzinaText) {
+        if (godzinaText == null || godzinaText.isEmpty()) return null;
+        try {
+            return LocalTime.parse(godzinaText);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Wyznacza lekarzy dostępnych w danym dniu (i godzinie, jeśli podano).
+     */
+    private CompletableFuture<List<DoctorSummary>> wyznaczDostepnychLekarzy(LocalDate data, LocalTime godzina,
+                                                                            ObjectId wykluczonId) {
+        // Jeśli podano godzinę, sprawdź również dostępność w danym terminie – jedno zapytanie do bazy
+        if (godzina != null && zabiegiRepo != null) {
+            return zabiegiRepo.findAvailableDoctors(LocalDateTime.of(data, godzina), null, wykluczonId);
+        }
 
         // Filtruj lekarzy, którzy są dostępni w wybranym dniu
-        List<Doctor> lekarzeNaDzien = wszyscyLekarze.stream()
+        Day wybranyDzien = konwertujNaDzienEnum(data.getDayOfWeek());
+        return CompletableFuture.completedFuture(wszyscyLekarze.stream()
                 .filter(lekarz -> lekarz.getAvailableDays().contains(wybranyDzien))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+    }
 
-        // Jeśli podano godzinę, sprawdź również dostępność w danym terminie
-        if (!godzinaText.isEmpty() && zabiegiRepo != null) {
-            try {
-                LocalTime godzina = LocalTime.parse(godzinaText);
-                LocalDateTime termin = LocalDateTime.of(data, godzina);
-
-                // Filtruj lekarzy, którzy nie mają już zaplanowanych zabiegów w tym terminie
-                lekarzeNaDzien = lekarzeNaDzien.stream()
-                        .filter(lekarz -> {
-                            ObjectId wykluczonId = istniejacyZabieg != null ? istniejacyZabieg.getId() : null;
-                            return czyLekarzDostepny(lekarz.getId(), termin, wykluczonId);
-                        })
-                        .collect(Collectors.toList());
-            } catch (Exception e) {
-                // Wyświetl komunikat o błędnym formacie godziny
-                pokazBlad("Niepoprawny format godziny",
-                        "Wprowadzona godzina ma niepoprawny format. Użyj formatu gg:mm (np. 14:30).");
-            }
+    /**
+     * Wyznacza pacjentów bez kolidujących zabiegów w danym terminie.
+     */
+    private CompletableFuture<List<PatientSummary>> wyznaczDostepnychPacjentow(LocalDate data, LocalTime godzina,
+                                                                               ObjectId wykluczonId) {
+        if (godzina != null && zabiegiRepo != null) {
+            return zabiegiRepo.findAvailablePatients(LocalDateTime.of(data, godzina), wykluczonId);
         }
+        // Domyślnie wszyscy pacjenci są dostępni
+        return CompletableFuture.completedFuture(new ArrayList<>(wszyscyPacjenci));
+    }
 
-        // Dodaj wszystkich dostępnych lekarzy do listy
-        dostepniLekarze.addAll(lekarzeNaDzien);
+    /**
+     * Ustawia listę dostępnych lekarzy i zaznaczenie.
+     */
+    private void ustawDostepnychLekarzy(List<DoctorSummary> lekarze, ComboBox<DoctorSummary> wyborLekarza, Appointment istniejacyZabieg) {
+        dostepniLekarze.setAll(lekarze);
 
         if (istniejacyZabieg != null) {
-            Doctor aktualnyLekarz = wszyscyLekarze.stream()
+            DoctorSummary aktualnyLekarz = wszyscyLekarze.stream()
                     .filter(d -> d.getId().equals(istniejacyZabieg.getDoctorId()))
                     .findFirst()
                     .orElse(null);
@@ -380,47 +488,14 @@ public class AppointmentForm {
     }
 
     /**
-     * Aktualizuje listę dostępnych pacjentów na podstawie wybranej daty i godziny.
-     * Filtruje pacjentów, którzy są już zajęci w wybranym terminie.
+     * Ustawia listę dostępnych pacjentów i zaznaczenie.
      */
-    private void aktualizujDostepnychPacjentow(LocalDate data, String godzinaText, ComboBox<Patient> wyborPacjenta, Appointment istniejacyZabieg) {
-        // Wyczyść aktualną listę
-        dostepniPacjenci.clear();
-
-        if (data == null) {
-            // Jeśli nie wybrano daty, nie aktualizuj listy
-            return;
-        }
-
-        // Domyślnie wszyscy pacjenci są dostępni
-        List<Patient> pacjenciNaDzien = new ArrayList<>(wszyscyPacjenci);
-
-        // Jeśli podano godzinę, sprawdź również dostępność w danym terminie
-        if (!godzinaText.isEmpty() && zabiegiRepo != null) {
-            try {
-                LocalTime godzina = LocalTime.parse(godzinaText);
-                LocalDateTime termin = LocalDateTime.of(data, godzina);
-
-                // Filtruj pacjentów, którzy nie mają już zaplanowanych zabiegów w tym terminie
-                pacjenciNaDzien = pacjenciNaDzien.stream()
-                        .filter(pacjent -> {
-                            ObjectId wykluczonId = istniejacyZabieg != null ? istniejacyZabieg.getId() : null;
-                            return czyPacjentDostepny(pacjent.getId(), termin, wykluczonId);
-                        })
-                        .collect(Collectors.toList());
-            } catch (Exception e) {
-                // Wyświetl komunikat o błędnym formacie godziny
-                pokazBlad("Niepoprawny format godziny",
-                        "Wprowadzona godzina ma niepoprawny format. Użyj formatu gg:mm (np. 14:30).");
-            }
-        }
-
-        // Dodaj wszystkich dostępnych pacjentów do listy
-        dostepniPacjenci.addAll(pacjenciNaDzien);
+    private void ustawDostepnychPacjentow(List<PatientSummary> pacjenci, ComboBox<PatientSummary> wyborPacjenta, Appointment istniejacyZabieg) {
+        dostepniPacjenci.setAll(pacjenci);
 
         // Jeśli edytujemy istniejący zabieg, upewnij się, że aktualny pacjent jest na liście
         if (istniejacyZabieg != null) {
-            Patient aktualnyPacjent = wszyscyPacjenci.stream()
+            PatientSummary aktualnyPacjent = wszyscyPacjenci.stream()
                     .filter(p -> p.getId().equals(istniejacyZabieg.getPatientId()))
                     .findFirst()
                     .orElse(null);
@@ -453,113 +528,42 @@ public class AppointmentForm {
     }
 
     /**
-     * Sprawdza, czy lekarz jest dostępny w danym terminie.
-     */
-    private boolean czyLekarzDostepny(ObjectId lekarzId, LocalDateTime termin, ObjectId wykluczonZabiegId) {
-        if (zabiegiRepo == null) {
-            // Jeśli nie mamy repozytorium, zakładamy, że lekarz jest dostępny
-            return true;
-        }
-
-        // Pobierz wszystkie zabiegi dla danego lekarza
-        Doctor lekarz = wszyscyLekarze.stream()
-                .filter(d -> d.getId().equals(lekarzId))
-                .findFirst()
-                .orElse(null);
-
-        if (lekarz == null) {
-            return false;
-        }
-
-        List<Appointment> zabiegiLekarza = zabiegiRepo.findAppointmentsByDoctor(lekarz);
-
-        // Sprawdź, czy lekarz ma już zaplanowany zabieg w tym terminie (z 30-minutowym marginesem)
-        return zabiegiLekarza.stream()
-                .filter(zabieg -> {
-                    if (wykluczonZabiegId != null && zabieg.getId().equals(wykluczonZabiegId)) {
-                        return false;
-                    }
-
-                    // Pomiń zakończone zabiegi
-                    if (zabieg.getStatus() == AppointmentStatus.COMPLETED) {
-                        return false;
-                    }
-
-                    // Sprawdź, czy termin zabiegu koliduje z wybranym terminem
-                    LocalDateTime czasZabiegu = zabieg.getDate();
-                    long roznicaMinut = Math.abs(java.time.Duration.between(termin, czasZabiegu).toMinutes());
-                    return roznicaMinut < 30; // Zakładamy, że zabieg trwa 30 minut
-                })
-                .findAny()
-                .isEmpty(); // Zwróć true, jeśli nie znaleziono kolidujących zabiegów
-    }
-
-    /**
-     * Sprawdza, czy pacjent jest dostępny w danym terminie.
+     * Aktualizuje listę kompatybilnych sal na podstawie wybranego lekarza. Sale z repozytorium pobierane są w tle;
+     * wynik jest pomijany, jeśli w międzyczasie wybrano innego lekarza.
      */
-    private boolean czyPacjentDostepny(ObjectId pacjentId, LocalDateTime termin, ObjectId wykluczonZabiegId) {
-        if (zabiegiRepo == null) {
-            // Jeśli nie mamy repozytorium, zakładamy, że pacjent jest dostępny
-            return true;
-        }
-
-        // Pobierz wszystkie zabiegi dla danego pacjenta
-        Patient pacjent = wszyscyPacjenci.stream()
-                .filter(p -> p.getId().equals(pacjentId))
-                .findFirst()
-                .orElse(null);
-
-        if (pacjent == null) {
-            return false;
-        }
-
-        List<Appointment> zabiegiPacjenta = zabiegiRepo.findAppointmentsByPatient(pacjent);
-
-        // Sprawdź, czy pacjent ma już zaplanowany zabieg w tym terminie (z 30-minutowym marginesem)
-        return zabiegiPacjenta.stream()
-                .filter(zabieg -> {
-                    if (wykluczonZabiegId != null && zabieg.getId().equals(wykluczonZabiegId)) {
-                        return false;
-                    }
-
-                    // Pomiń zakończone zabiegi
-                    if (zabieg.getStatus() == AppointmentStatus.COMPLETED) {
-                        return false;
-                    }
-
-                    // Sprawdź, czy termin zabiegu koliduje z wybranym terminem
-                    LocalDateTime czasZabiegu = zabieg.getDate();
-                    long roznicaMinut = Math.abs(java.time.Duration.between(termin, czasZabiegu).toMinutes());
-                    return roznicaMinut < 30;
-                })
-                .findAny()
-                .isEmpty(); // Zwróć true, jeśli nie znaleziono kolidujących zabiegów
-    }
-
-    /**
-     * Aktualizuje listę kompatybilnych sal na podstawie wybranego lekarza.
-     */
-    private void aktualizujKompatybilneSale(Doctor lekarz, ComboBox<Room> wyborSali, Appointment istniejacyZabieg) {
+    private void aktualizujKompatybilneSale(DoctorSummary lekarz, ComboBox<Room> wyborSali, Appointment istniejacyZabieg) {
         // Wyczyść aktualną listę
         kompatybilneSale.clear();
+        lekarzDlaSal = lekarz;
 
         // Pobierz kompatybilny typ sali dla specjalizacji lekarza
         TypeOfRoom kompatybilnyTyp = lekarz.getSpecialization().getCompatibleRoomType();
 
-        // Filtruj sale według kompatybilnego typu
-        List<Room> filtrowaneSale;
-        if (saleRepo != null) {
-            // Użyj repozytorium do pobrania sal według typu
-            filtrowaneSale = saleRepo.findRoomByType(kompatybilnyTyp);
-        } else {
+        if (saleRepo == null) {
             // Filtruj w pamięci, jeśli repozytorium nie jest dostępne
-            filtrowaneSale = wszystkieSale.stream()
+            ustawKompatybilneSale(wszystkieSale.stream()
                     .filter(sala -> sala.getType() == kompatybilnyTyp)
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toList()), wyborSali, istniejacyZabieg);
+            return;
         }
 
+        // Użyj repozytorium do pobrania sal według typu
+        saleRepo.findRoomByType(kompatybilnyTyp).whenComplete((sale, ex) -> Platform.runLater(() -> {
+            if (lekarz != lekarzDlaSal) return;
+            if (ex != null) {
+                pokazBlad("Błąd", "Nie udało się pobrać sal: " + ex.getMessage());
+                return;
+            }
+            ustawKompatybilneSale(sale, wyborSali, istniejacyZabieg);
+        }));
+    }
+
+    /**
+     * Ustawia listę kompatybilnych sal i zaznaczenie.
+     */
+    private void ustawKompatybilneSale(List<Room> filtrowaneSale, ComboBox<Room> wyborSali, Appointment istniejacyZabieg) {
         // Dodaj wszystkie kompatybilne sale do listy
-        kompatybilneSale.addAll(filtrowaneSale);
+        kompatybilneSale.setAll(filtrowaneSale);
 
         // Jeśli edytujemy istniejący zabieg, upewnij się, że aktualna sala jest na liście
         if (istniejacyZabieg != null) {
@@ -585,7 +589,7 @@ public class AppointmentForm {
     /**
      * Formatuje dostępne dni lekarza jako ciąg znaków.
      */
-    private String formatujDostepneDni(Doctor lekarz) {
+    private String formatujDostepneDni(DoctorSummary lekarz) {
         StringBuilder sb = new StringBuilder();
         List<Day> dostepneDni = lekarz.getAvailableDays();
 
@@ -0,0 +1,183 @@
+package org.example.projekt;
+
+import backend.mongo.AsyncQueries;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.scene.control.Alert;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Wspólny wykonawca operacji bazodanowych (i innych blokujących) dla kontrolerów JavaFX.
+ * <p>
+ * Każda operacja uruchamiana jest jako {@link Task} na osobnym wątku wirtualnym, więc wątek JavaFX
+ * nigdy nie czeka na sieć. Liczba jednocześnie wykonywanych operacji jest ograniczona
+ * ({@link #MAX_CONCURRENT_OPERATIONS}) – nadmiarowe zadania czekają na zwolnienie miejsca,
+ * dzięki czemu seria kliknięć nie wyczerpie puli połączeń MongoDB. Wywołania zwrotne
+ * {@code onSuccess}/{@code onFailure} wykonywane są na wątku JavaFX.
+ * </p>
+ * <p>
+ * Limit dotyczy operacji ekranów, a nie pojedynczych zapytań – te ogranicza osobno {@link AsyncQueries}.
+ * Operacja stąd może czekać na kilka zapytań asynchronicznych, więc oba limity nie mogą dzielić jednego
+ * semafora (operacje zajmujące wszystkie miejsca czekałyby na zapytania bez miejsca). Anulowanie zadania
+ * przerywa jego wątek; zadania rozsyłające zapytania anulują je wtedy przez {@link AsyncQueries#cancel}.
+ * </p>
+ */
+public final class BackgroundTasks {
+
+    /**
+     * Maksymalna liczba operacji wykonywanych jednocześnie.
+     */
+    public static final int MAX_CONCURRENT_OPERATIONS = 8;
+
+    private static final ExecutorService EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("db-task-", 0).factory());
+    private static final Semaphore BULKHEAD = new Semaphore(MAX_CONCURRENT_OPERATIONS, true);
+
+    private BackgroundTasks() {
+    }
+
+    /**
+     * Operacja w tle z dostępem do postępu.
+     *
+     * @param <T> typ wyniku
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T call(Progress progress) throws Exception;
+    }
+
+    /**
+     * Operacja w tle bez wyniku.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * Raportowanie postępu z wnętrza operacji (widoczne przez właściwości zwróconego {@link Task}).
+     */
+    public interface Progress {
+        void update(long done, long total);
+
+        void message(String message);
+
+        /**
+         * @return {@code true}, jeśli zadanie zostało anulowane – długie operacje powinny wtedy przerwać pracę
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * Wykonuje operację zwracającą wynik.
+     *
+     * @param work      operacja (wątek w tle)
+     * @param onSuccess obsługa wyniku (wątek JavaFX)
+     * @param onFailure obsługa błędu (wątek JavaFX); {@code null} – domyślny komunikat o błędzie
+     * @return uruchomione zadanie (można je anulować lub powiązać z jego postępem)
+     */
+    public static <T> Task<T> call(Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        return submit(progress -> work.call(), onSuccess, onFailure);
+    }
+
+    /**
+     * Wykonuje operację bez wyniku.
+     *
+     * @see #call(Callable, Consumer, Consumer)
+     */
+    public static Task<Void> run(Action work, Runnable onSuccess, Consumer<Throwable> onFailure) {
+        return submit(progress -> {
+            work.run();
+            return null;
+        }, result -> {
+            if (onSuccess != null) onSuccess.run();
+        }, onFailure);
+    }
+
+    /**
+     * Wykonuje operację raportującą postęp.
+     *
+     * @see #call(Callable, Consumer, Consumer)
+     */
+    public static <T> Task<T> submit(Work<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                updateMessage("Oczekiwanie na połączenie z bazą...");
+                BULKHEAD.acquire();
+                try {
+                    if (isCancelled()) return null;
+                    updateMessage("");
+                    return work.call(new Progress() {
+                        @Override
+                        public void update(long done, long total) {
+                            updateProgress(done, total);
+                        }
+
+                        @Override
+                        public void message(String message) {
+                            updateMessage(message);
+                        }
+
+                        @Override
+                        public boolean isCancelled() {
+                            return Thread.currentThread().isInterrupted() || isTaskCancelled();
+                        }
+                    });
+                } finally {
+                    BULKHEAD.release();
+                }
+            }
+
+            private boolean isTaskCancelled() {
+                return isCancelled();
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            if (onSuccess != null) onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            Throwable error = task.getException();
+            if (onFailure != null) {
+                onFailure.accept(error);
+            } else {
+                showDefaultError(error);
+            }
+        });
+
+        EXECUTOR.execute(task);
+        return task;
+    }
+
+    /**
+     * @return liczba operacji, które mogą jeszcze wystartować bez czekania
+     */
+    public static int availablePermits() {
+        return BULKHEAD.availablePermits();
+    }
+
+    /**
+     * Przerywa działające zadania (wywoływane przy zamykaniu aplikacji).
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    private static void showDefaultError(Throwable error) {
+        System.err.println("[ERROR] Operacja w tle nie powiodła się: " + error.getMessage());
+        Runnable show = () -> {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Błąd");
+            alert.setHeaderText("Operacja na bazie danych nie powiodła się");
+            alert.setContentText(error.getMessage());
+            alert.showAndWait();
+        };
+        if (Platform.isFxApplicationThread()) show.run(); else Platform.runLater(show);
+    }
+}
@@ -1,11 +1,11 @@
 package org.example.projekt;
 
 import backend.klasy.Doctor;
-import backend.klasy.Patient;
+import backend.klasy.PatientSummary;
 import backend.klasy.Room;
 import backend.mongo.DoctorRepository;
-import backend.mongo.MongoDatabaseConnector;
 import backend.mongo.PatientRepository;
+import backend.mongo.RepositoryContext;
 import backend.mongo.RoomRepository;
 import backend.status.Day;
 import backend.status.Diagnosis;
@@ -49,13 +49,14 @@ public class DoctorFirstContactController implements Initializable {
      * Tworzy instancję kontrolera dla danego lekarza i panelu GUI.
      * @param panel panel GUI przypisany do kontrolera
      * @param doctor lekarz zalogowany do systemu
+     * @param repositories wspólny kontekst repozytoriów
      */
-    public DoctorFirstContactController(DoctorFirstContactPanel panel, Doctor doctor) {
+    public DoctorFirstContactController(DoctorFirstContactPanel panel, Doctor doctor, RepositoryContext repositories) {
         this.panel = panel;
         this.doctor = doctor;
-        this.patientRepository = new PatientRepository(MongoDatabaseConnector.connectToDatabase());
-        this.room = new RoomRepository(MongoDatabaseConnector.connectToDatabase());
-        this.doctorRepo = new DoctorRepository(MongoDatabaseConnector.connectToDatabase());
+        this.patientRepository = repositories.patients();
+        this.room = repositories.rooms();
+        this.doctorRepo = repositories.doctors();
     }
 
     /**
@@ -77,7 +78,10 @@ public class DoctorFirstContactController implements Initializable {
         Label welcomeLabel = new Label("Witaj, Dr. " + doctor.getFirstName() + " " + doctor.getLastName());
         welcomeLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        Label scheduleLabel = new Label("Dzisiaj masz " + patientRepository.findPatientsWithAwaitingDiagnosis().size() + " pacjentów.");
+        Label scheduleLabel = new Label("Wczytywanie liczby pacjentów...");
+        BackgroundTasks.call(() -> patientRepository.countPatientsWithAwaitingDiagnosis(),
+                count -> scheduleLabel.setText("Dzisiaj masz " + count + " pacjentów."),
+                ex -> scheduleLabel.setText("Nie udało się pobrać liczby pacjentów: " + ex.getMessage()));
         scheduleLabel.setStyle("-fx-font-size: 14px;");
 
         dashboard.getChildren().addAll(welcomeLabel, scheduleLabel);
@@ -92,11 +96,11 @@ public class DoctorFirstContactController implements Initializable {
         patientsList.setPadding(new Insets(10));
         patientsList.setStyle("-fx-background-color: white; -fx-border-radius: 10; -fx-background-radius: 10;");
 
-        TableView<Patient> tableView = new TableView<>();
+        TableView<PatientSummary> tableView = new TableView<>();
         tableView.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
 
         // Kolumna Imię i Nazwisko
-        TableColumn<Patient, String> nameCol = new TableColumn<>("Imię i Nazwisko");
+        TableColumn<PatientSummary, String> nameCol = new TableColumn<>("Imię i Nazwisko");
         nameCol.setCellValueFactory(param ->
                 new SimpleStringProperty(
                         param.getValue().getFirstName() + " " + param.getValue().getLastName()
@@ -104,7 +108,7 @@ public class DoctorFirstContactController implements Initializable {
         );
 
         // Kolumna Diagnoza
-        TableColumn<Patient, String> diagnosisCol = new TableColumn<>("Diagnoza");
+        TableColumn<PatientSummary, String> diagnosisCol = new TableColumn<>("Diagnoza");
         diagnosisCol.setCellValueFactory(param -> {
             Diagnosis diagnosis = param.getValue().getDiagnosis();
             String displayText = (diagnosis == Diagnosis.AWAITING) ? "Oczekujący" : diagnosis.toString();
@@ -112,13 +116,13 @@ public class DoctorFirstContactController implements Initializable {
         });
 
         // Kolumna Akcje
-        TableColumn<Patient, Void> actionCol = new TableColumn<>("Akcje");
+        TableColumn<PatientSummary, Void> actionCol = new TableColumn<>("Akcje");
         actionCol.setCellFactory(param -> new TableCell<>() {
             private final Button diagButton = createStyledButton("Przypisz diagnozę", "#2ECC71");
 
             {
                 diagButton.setOnAction(event -> {
-                    Patient patient = getTableView().getItems().get(getIndex());
+                    PatientSummary patient = getTableView().getItems().get(getIndex());
                     showDiagnosisDialog(patient);
                 });
             }
@@ -137,8 +141,13 @@ public class DoctorFirstContactController implements Initializable {
         tableView.getColumns().addAll(nameCol, diagnosisCol, actionCol);
 
         // Pobierz tylko pacjentów ze statusem AWAITING
-        List<Patient> awaitingPatients = patientRepository.findPatientsWithAwaitingDiagnosis();
-        tableView.setItems(FXCollections.observableArrayList(awaitingPatients));
+        tableView.setPlaceholder(new Label("Wczytywanie pacjentów..."));
+        BackgroundTasks.call(patientRepository::findSummariesWithAwaitingDiagnosis,
+                awaitingPatients -> {
+                    tableView.setItems(FXCollections.observableArrayList(awaitingPatients));
+                    tableView.setPlaceholder(new Label("Brak pacjentów oczekujących na diagnozę"));
+                },
+                ex -> tableView.setPlaceholder(new Label("Nie udało się pobrać pacjentów: " + ex.getMessage())));
 
         patientsList.getChildren().addAll(
                 new Label("Lista pacjentów oczekujących na diagnozę"),
@@ -152,7 +161,7 @@ public class DoctorFirstContactController implements Initializable {
      * Pokazuje dialog umożliwiający przypisanie diagnozy pacjentowi.
      * @param patient pacjent, dla którego przypisywana jest diagnoza
      */
-    private void showDiagnosisDialog(Patient patient) {
+    private void showDiagnosisDialog(PatientSummary patient) {
         Dialog<ButtonType> dialog = new Dialog<>();
         dialog.setTitle("Przypisz diagnozę");
         dialog.setHeaderText("Wybierz diagnozę dla pacjenta: " + patient.getFirstName() + " " + patient.getLastName());
@@ -196,47 +205,49 @@ public class DoctorFirstContactController implements Initializable {
 
         Optional<ButtonType> result = dialog.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
-                Diagnosis selectedDiagnosis = diagnosisBox.getValue();
-                patient.setDiagnosis(selectedDiagnosis);
-
-                // 1. Pobierz odpowiedni oddział z diagnozy
-                TypeOfRoom department = selectedDiagnosis.getDepartment();
-                System.out.println("Szukany oddział: " + department.name());
-
-                // 2. Znajdź dostępne pokoje na oddziale
-                List<Room> availableRooms = room.findRoomsByDepartment(department).stream()
-                        .filter(r -> r.getPatientIds().size() < r.getMaxPatients())
-                        .toList();
-
-                // 3. Logowanie diagnostyczne
-                System.out.println("Znalezione pokoje: " + availableRooms.size());
-                availableRooms.forEach(r -> System.out.println(
-                        r.getId() + " - " + r.getType() + " (" + r.getPatientIds().size() + "/" + r.getMaxPatients() + ")"
-                ));
-
-                if (!availableRooms.isEmpty()) {
-                    Room selectedRoom = availableRooms.get(0);
-
-                    // 4. Przypisz pacjenta do pokoju
-                    selectedRoom.addPatientId(patient.getId());
-                    room.updateRoom(selectedRoom.getId(), selectedRoom);
-                    patientRepository.updatePatient(patient);
-
-                    showAlert(Alert.AlertType.INFORMATION, "Sukces",
-                            "Przypisano do pokoju: " + selectedRoom.getNumber());
-                } else {
-                    showAlert(Alert.AlertType.WARNING, "Brak miejsc",
-                            "Brak wolnych łóżek na oddziale " + department.getDescription());
-                }
-
-                // Odśwież listę pacjentów
-                showPatientsList();
-
-            } catch (Exception e) {
-                showAlert(Alert.AlertType.ERROR, "Błąd", "Nie można zapisać zmian: " + e.getMessage());
-                e.printStackTrace();
-            }
+            Diagnosis selectedDiagnosis = diagnosisBox.getValue();
+
+            // 1. Pobierz odpowiedni oddział z diagnozy
+            TypeOfRoom department = selectedDiagnosis.getDepartment();
+            System.out.println("Szukany oddział: " + department.name());
+
+            BackgroundTasks.call(() -> {
+                        // 2. Znajdź dostępne pokoje na oddziale
+                        List<Room> availableRooms = room.findRoomsByDepartment(department).stream()
+                                .filter(r -> r.getPatientIds().size() < r.getMaxPatients())
+                                .toList();
+
+                        // 3. Logowanie diagnostyczne
+                        System.out.println("Znalezione pokoje: " + availableRooms.size());
+                        availableRooms.forEach(r -> System.out.println(
+                                r.getId() + " - " + r.getType() + " (" + r.getPatientIds().size() + "/" + r.getMaxPatients() + ")"
+                        ));
+
+                        // 4. Przypisz pacjenta do pierwszego pokoju, w którym serwer potwierdzi wolne miejsce
+                        for (Room candidate : availableRooms) {
+                            if (room.assignPatient(candidate.getId(), patient.getId())) {
+                                patientRepository.updateDiagnosis(patient.getId(), selectedDiagnosis);
+                                return candidate;
+                            }
+                        }
+                        return null;
+                    },
+                    selectedRoom -> {
+                        if (selectedRoom != null) {
+                            showAlert(Alert.AlertType.INFORMATION, "Sukces",
+                                    "Przypisano do pokoju: " + selectedRoom.getNumber());
+                        } else {
+                            showAlert(Alert.AlertType.WARNING, "Brak miejsc",
+                                    "Brak wolnych łóżek na oddziale " + department.getDescription());
+                        }
+
+                        // Odśwież listę pacjentów
+                        showPatientsList();
+                    },
+                    e -> {
+                        showAlert(Alert.AlertType.ERROR, "Błąd", "Nie można zapisać zmian: " + e.getMessage());
+                        e.printStackTrace();
+                    });
         }
     }
 
@@ -287,36 +298,34 @@ public class DoctorFirstContactController implements Initializable {
                 }
             }
 
-            try {
-                Doctor updatedDoctor = new Doctor.Builder()
-                        .withId(doctor.getId())
-                        .firstName(doctor.getFirstName())
-                        .lastName(doctor.getLastName())
-                        .specialization(doctor.getSpecialization())
-                        .room(doctor.getRoom())
-                        .contactInformation(doctor.getContactInformation())
-                        .age(doctor.getAge())
-                        .pesel(doctor.getPesel())
-                        .passwordHash(doctor.getPasswordHash())
-                        .passwordSalt(doctor.getPasswordSalt())
-                        .availableDays(selectedDays)
-                        .build();
-
-                boolean success = doctorRepo.updateDoctor(updatedDoctor) != null;
-
-                if (success) {
-                    showSuccessAlert("Dostępność została zaktualizowana pomyślnie!");
-
-                    Optional<Doctor> refreshedDoctorOpt = Optional.ofNullable(doctorRepo.findDoctorById(doctor.getId()));
-                    if (refreshedDoctorOpt.isPresent()) {
-                        refreshDoctor(refreshedDoctorOpt.get());
-                    }
-                } else {
-                    showErrorAlert("Nie udało się zaktualizować dostępności. Spróbuj ponownie.");
-                }
-            } catch (Exception ex) {
-                showErrorAlert("Błąd podczas aktualizacji: " + ex.getMessage());
-            }
+            // Budowa, zapis i ponowne pobranie lekarza w tle; null oznacza nieudaną aktualizację
+            BackgroundTasks.call(() -> {
+                        Doctor updatedDoctor = new Doctor.Builder()
+                                .withId(doctor.getId())
+                                .firstName(doctor.getFirstName())
+                                .lastName(doctor.getLastName())
+                                .specialization(doctor.getSpecialization())
+                                .room(doctor.getRoom())
+                                .contactInformation(doctor.getContactInformation())
+                                .age(doctor.getAge())
+                                .pesel(doctor.getPesel())
+                                .passwordHash(doctor.getPasswordHash())
+                                .passwordSalt(doctor.getPasswordSalt())
+                                .availableDays(selectedDays)
+                                .build();
+                        return doctorRepo.updateDoctor(updatedDoctor) != null
+                                ? doctorRepo.findDoctorById(doctor.getId())
+                                : null;
+                    },
+                    refreshedDoctor -> {
+                        if (refreshedDoctor != null) {
+                            showSuccessAlert("Dostępność została zaktualizowana pomyślnie!");
+                            refreshDoctor(refreshedDoctor);
+                        } else {
+                            showErrorAlert("Nie udało się zaktualizować dostępności. Spróbuj ponownie.");
+                        }
+                    },
+                    ex -> showErrorAlert("Błąd podczas aktualizacji: " + ex.getMessage()));
         });
 
         Button selectAllButton = new Button("Zaznacz wszystkie");
@@ -2,6 +2,7 @@ package org.example.projekt;
 
 import backend.klasy.Doctor;
 import backend.mongo.DoctorRepository;
+import backend.mongo.RepositoryContext;
 import backend.status.Day;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
@@ -18,7 +19,6 @@ import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Klasa odpowiedzialna za panel graficzny lekarza pierwszego kontaktu.
@@ -30,18 +30,20 @@ public class DoctorFirstContactPanel {
     private DoctorFirstContactController controller;
     private final Doctor currentDoctor;
     private DoctorRepository doctorRepo;
+    private final RepositoryContext repositories;
 
     /**
      * Tworzy nowy panel lekarza pierwszego kontaktu.
      * @param stage główne okno aplikacji
      * @param doctor aktualnie zalogowany lekarz
-     * @param doctorRepository repozytorium lekarzy
+     * @param repositories wspólny kontekst repozytoriów
      */
-    public DoctorFirstContactPanel(Stage stage, Doctor doctor, DoctorRepository doctorRepository) {
+    public DoctorFirstContactPanel(Stage stage, Doctor doctor, RepositoryContext repositories) {
         this.primaryStage = stage;
         this.currentDoctor = doctor;
-        this.doctorRepo = doctorRepository;
-        this.controller = new DoctorFirstContactController(this, doctor);
+        this.repositories = repositories;
+        this.doctorRepo = repositories.doctors();
+        this.controller = new DoctorFirstContactController(this, doctor, repositories);
 
         initializePanel();
     }
@@ -146,36 +148,34 @@ public class DoctorFirstContactPanel {
                 }
             }
 
-            try {
-                Doctor updatedDoctor = new Doctor.Builder()
-                        .withId(currentDoctor.getId())
-                        .firstName(currentDoctor.getFirstName())
-                        .lastName(currentDoctor.getLastName())
-                        .specialization(currentDoctor.getSpecialization())
-                        .room(currentDoctor.getRoom())
-                        .contactInformation(currentDoctor.getContactInformation())
-                        .age(currentDoctor.getAge())
-                        .pesel(currentDoctor.getPesel())
-                        .passwordHash(currentDoctor.getPasswordHash())
-                        .passwordSalt(currentDoctor.getPasswordSalt())
-                        .availableDays(selectedDays)
-                        .build();
-
-                boolean success = doctorRepo.updateDoctor(updatedDoctor) != null;
-
-                if (success) {
-                    showSuccessAlert("Dostępność została zaktualizowana pomyślnie!");
-
-                    Optional<Doctor> refreshedDoctorOpt = Optional.ofNullable(doctorRepo.findDoctorById(currentDoctor.getId()));
-                    if (refreshedDoctorOpt.isPresent()) {
-                        refreshDoctor(refreshedDoctorOpt.get());
-                    }
-                } else {
-                    showErrorAlert("Nie udało się zaktualizować dostępności. Spróbuj ponownie.");
-                }
-            } catch (Exception ex) {
-                showErrorAlert("Błąd podczas aktualizacji: " + ex.getMessage());
-            }
+            // Budowa, zapis i ponowne pobranie lekarza w tle; null oznacza nieudaną aktualizację
+            BackgroundTasks.call(() -> {
+                        Doctor updatedDoctor = new Doctor.Builder()
+                                .withId(currentDoctor.getId())
+                                .firstName(currentDoctor.getFirstName())
+                                .lastName(currentDoctor.getLastName())
+                                .specialization(currentDoctor.getSpecialization())
+                                .room(currentDoctor.getRoom())
+                                .contactInformation(currentDoctor.getContactInformation())
+                                .age(currentDoctor.getAge())
+                                .pesel(currentDoctor.getPesel())
+                                .passwordHash(currentDoctor.getPasswordHash())
+                                .passwordSalt(currentDoctor.getPasswordSalt())
+                                .availableDays(selectedDays)
+                                .build();
+                        return doctorRepo.updateDoctor(updatedDoctor) != null
+                                ? doctorRepo.findDoctorById(currentDoctor.getId())
+                                : null;
+                    },
+                    refreshedDoctor -> {
+                        if (refreshedDoctor != null) {
+                            showSuccessAlert("Dostępność została zaktualizowana pomyślnie!");
+                            refreshDoctor(refreshedDoctor);
+                        } else {
+                            showErrorAlert("Nie udało się zaktualizować dostępności. Spróbuj ponownie.");
+                        }
+                    },
+                    ex -> showErrorAlert("Błąd podczas aktualizacji: " + ex.getMessage()));
         });
 
         Button selectAllButton = new Button("Zaznacz wszystkie");
@@ -228,7 +228,7 @@ public class DoctorFirstContactPanel {
      * @param updatedDoctor zaktualizowany obiekt lekarza
      */
     private void refreshDoctor(Doctor updatedDoctor) {
-        controller = new DoctorFirstContactController(this, updatedDoctor);
+        controller = new DoctorFirstContactController(this, updatedDoctor, repositories);
         controller.showAvailabilityCalendar();
     }
 
@@ -1,6 +1,7 @@
 package org.example.projekt;
 
 import backend.klasy.Doctor;
+import backend.mongo.RepositoryContext;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
 import javafx.animation.ScaleTransition;
@@ -28,10 +29,10 @@ public class DoctorPanel {
      * Konstruktor inicjalizujący panel lekarza.
      * @param stage główne okno aplikacji
      */
-    public DoctorPanel(Stage stage, Doctor doctor) {
+    public DoctorPanel(Stage stage, Doctor doctor, RepositoryContext repositories) {
         this.primaryStage = stage;
         this.currentDoctor  = doctor;
-        this.controller = new DoctorPanelController(this, doctor);
+        this.controller = new DoctorPanelController(this, doctor, repositories);
 
         primaryStage.setTitle("Panel lekarza");
         primaryStage.setMinWidth(700);
@@ -1,12 +1,14 @@
 package org.example.projekt;
 
 import backend.klasy.Appointment;
+import backend.klasy.AppointmentRow;
 import backend.klasy.Doctor;
 import backend.klasy.Patient;
+import backend.mongo.AppointmentReferenceResolver;
 import backend.mongo.AppointmentRepository;
+import backend.mongo.ChangeStreamWatcher;
 import backend.mongo.DoctorRepository;
-import backend.mongo.MongoDatabaseConnector;
-import backend.mongo.PatientRepository;
+import backend.mongo.RepositoryContext;
 import backend.status.Day;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
@@ -43,15 +45,18 @@ public class DoctorPanelController {
     private Doctor doctor;
     private final DateTimeFormatter formatter =
             DateTimeFormatter.ofPattern("d MMMM yyyy, HH:mm", new Locale("pl", "PL"));
-    private final AppointmentRepository appointmentRepo =
-            new AppointmentRepository(MongoDatabaseConnector.connectToDatabase());
-    private final DoctorRepository doctorRepo =
-            new DoctorRepository(MongoDatabaseConnector.connectToDatabase());
+    private final AppointmentRepository appointmentRepo;
+    private final DoctorRepository doctorRepo;
+    private final AppointmentReferenceResolver referenceResolver;
+    private AutoCloseable procedureSubscription;
 
-    public DoctorPanelController(DoctorPanel view, Doctor doctor) {
+    public DoctorPanelController(DoctorPanel view, Doctor doctor, RepositoryContext repositories) {
         this.view = view;
         this.primaryStage = view.getPrimaryStage();
         this.doctor = doctor;
+        this.appointmentRepo = repositories.appointments();
+        this.doctorRepo = repositories.doctors();
+        this.referenceResolver = repositories.referenceResolver();
     }
 
     /**
@@ -65,25 +70,27 @@ public class DoctorPanelController {
         Label hello = new Label("Witaj " + doctor.getFirstName() + " " + doctor.getLastName());
         hello.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        List<Appointment> allAppointments = appointmentRepo.findAppointmentsByDoctor(doctor);
+        Label stats = new Label("Statystyki:\nWczytywanie...");
+        stats.setStyle("-fx-font-size: 14px;");
 
-        LocalDateTime now = LocalDateTime.now();
-        List<Appointment> todaysAppointments = allAppointments.stream()
-                .filter(a -> a.getDate().toLocalDate().equals(now.toLocalDate()))
-                .toList();
+        BackgroundTasks.call(() -> appointmentRepo.findAppointmentsByDoctor(doctor), allAppointments -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Appointment> todaysAppointments = allAppointments.stream()
+                    .filter(a -> a.getDate().toLocalDate().equals(now.toLocalDate()))
+                    .toList();
 
-        Optional<Appointment> nextAppointment = allAppointments.stream()
-                .filter(a -> a.getDate().isAfter(now))
-                .min(Comparator.comparing(Appointment::getDate));
+            Optional<Appointment> nextAppointment = allAppointments.stream()
+                    .filter(a -> a.getDate().isAfter(now))
+                    .min(Comparator.comparing(Appointment::getDate));
 
-        String statsText = "- Liczba zabiegów dzisiaj: " + todaysAppointments.size() + "\n";
+            String statsText = "- Liczba zabiegów dzisiaj: " + todaysAppointments.size() + "\n";
 
-        statsText += nextAppointment
-                .map(a -> "- Najbliższy zabieg: " + a.getDate().format(formatter) + " – " + a.getDescription())
-                .orElse("- Brak nadchodzących zabiegów");
+            statsText += nextAppointment
+                    .map(a -> "- Najbliższy zabieg: " + a.getDate().format(formatter) + " – " + a.getDescription())
+                    .orElse("- Brak nadchodzących zabiegów");
 
-        Label stats = new Label("Statystyki:\n" + statsText);
-        stats.setStyle("-fx-font-size: 14px;");
+            stats.setText("Statystyki:\n" + statsText);
+        }, ex -> stats.setText("Statystyki:\nNie udało się pobrać zabiegów: " + ex.getMessage()));
 
         box.getChildren().addAll(hello, stats);
         view.setCenterPane(box);
@@ -101,7 +108,7 @@ public class DoctorPanelController {
         Label titleLabel = new Label("Moje zaplanowane zabiegi");
         titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        TableView<?> procedureTable = createProcedureTable();
+        TableView<AppointmentRow> procedureTable = createProcedureTable();
 
         HBox buttonBox = new HBox(10);
         buttonBox.setAlignment(Pos.CENTER);
@@ -118,36 +125,39 @@ public class DoctorPanelController {
     /**
      * Tworzy pustą tabelę zabiegów (do uzupełnienia).
      */
-    private TableView<Appointment> createProcedureTable() {
-        TableView<Appointment> table = new TableView<>();
-        ObservableList<Appointment> data = FXCollections.observableArrayList();
-
-        List<Appointment> todayAppointments = appointmentRepo.findAppointmentsByDoctor(doctor).stream()
-                .filter(a -> a.getDate().toLocalDate().equals(LocalDate.now()))
-                .toList();
-
-        data.addAll(todayAppointments);
-
-        TableColumn<Appointment, String> timeCol = new TableColumn<>("Godzina");
+    private TableView<AppointmentRow> createProcedureTable() {
+        TableView<AppointmentRow> table = new TableView<>();
+        ObservableList<AppointmentRow> data = FXCollections.observableArrayList();
+
+        // Słuchacz przed odczytem: zmiana zapisana w trakcie wczytywania też trafi do tabeli
+        closeProcedureSubscription();
+        procedureSubscription = ChangeStreamWatcher.shared().onAppointments(new LiveListBinding<>(
+                data, AppointmentRow::getId,
+                a -> doctor.getId().equals(a.getDoctorId()) && a.getDate().toLocalDate().equals(LocalDate.now()),
+                a -> referenceResolver.resolve(List.of(a)).getFirst(),
+                this::loadTodayProcedures));
+
+        table.setPlaceholder(new Label("Wczytywanie zabiegów..."));
+        BackgroundTasks.call(this::loadTodayProcedures, rows -> {
+                    data.setAll(rows);
+                    table.setPlaceholder(new Label("Brak zabiegów na dziś"));
+                },
+                ex -> table.setPlaceholder(new Label("Nie udało się pobrać zabiegów: " + ex.getMessage())));
+
+        TableColumn<AppointmentRow, String> timeCol = new TableColumn<>("Godzina");
         timeCol.setCellValueFactory(a -> new ReadOnlyStringWrapper(
                 a.getValue().getDate().format(DateTimeFormatter.ofPattern("HH:mm"))
         ));
 
-        TableColumn<Appointment, String> patientCol = new TableColumn<>("Pacjent");
-        patientCol.setCellValueFactory(a -> {
-            List<Patient> patients = new PatientRepository(MongoDatabaseConnector.connectToDatabase())
-                    .findPatientById(a.getValue().getPatientId());
-            return new ReadOnlyStringWrapper(
-                    patients.isEmpty() ? "Nieznany pacjent" : patients.get(0).getFirstName() + " " + patients.get(0).getLastName()
-            );
-        });
+        TableColumn<AppointmentRow, String> patientCol = new TableColumn<>("Pacjent");
+        patientCol.setCellValueFactory(a -> new ReadOnlyStringWrapper(a.getValue().getPatientName()));
 
-        TableColumn<Appointment, String> descCol = new TableColumn<>("Opis");
+        TableColumn<AppointmentRow, String> descCol = new TableColumn<>("Opis");
         descCol.setCellValueFactory(a -> new ReadOnlyStringWrapper(
                 a.getValue().getDescription()
         ));
 
-        TableColumn<Appointment, String> statusCol = new TableColumn<>("Status");
+        TableColumn<AppointmentRow, String> statusCol = new TableColumn<>("Status");
         statusCol.setCellValueFactory(a -> new ReadOnlyStringWrapper(
                 a.getValue().getStatus().toString()
         ));
@@ -158,6 +168,22 @@ public class DoctorPanelController {
         return table;
     }
 
+    /**
+     * Pobiera dzisiejsze zabiegi lekarza wraz z danymi pacjentów i sal (wywoływane w tle).
+     */
+    private List<AppointmentRow> loadTodayProcedures() {
+        return referenceResolver.resolve(appointmentRepo.findAppointmentsByDoctorIdOn(doctor.getId(), LocalDate.now()));
+    }
+
+    private void closeProcedureSubscription() {
+        if (procedureSubscription == null) return;
+        try {
+            procedureSubscription.close();
+        } catch (Exception ignored) {
+        }
+        procedureSubscription = null;
+    }
+
     /**
      * Wyświetla kalendarz dostępności lekarza z możliwością edycji.
      */
@@ -204,36 +230,34 @@ public class DoctorPanelController {
                 }
             }
 
-            try {
-                Doctor updatedDoctor = new Doctor.Builder()
-                        .withId(doctor.getId())
-                        .firstName(doctor.getFirstName())
-                        .lastName(doctor.getLastName())
-                        .specialization(doctor.getSpecialization())
-                        .room(doctor.getRoom())
-                        .contactInformation(doctor.getContactInformation())
-                        .age(doctor.getAge())
-                        .pesel(doctor.getPesel())
-                        .passwordHash(doctor.getPasswordHash())
-                        .passwordSalt(doctor.getPasswordSalt())
-                        .availableDays(selectedDays)
-                        .build();
-
-                boolean success = doctorRepo.updateDoctor(updatedDoctor) != null;
-
-                if (success) {
-                    showSuccessAlert("Dostępność została zaktualizowana pomyślnie!");
-
-                    Optional<Doctor> refreshedDoctorOpt = Optional.ofNullable(doctorRepo.findDoctorById(doctor.getId()));
-                    if (refreshedDoctorOpt.isPresent()) {
-                        refreshDoctor(refreshedDoctorOpt.get());
-                    }
-                } else {
-                    showErrorAlert("Nie udało się zaktualizować dostępności. Spróbuj ponownie.");
-                }
-            } catch (Exception ex) {
-                showErrorAlert("Błąd podczas aktualizacji: " + ex.getMessage());
-            }
+            // Budowa, zapis i ponowne pobranie lekarza w tle; null oznacza nieudaną aktualizację
+            BackgroundTasks.call(() -> {
+                        Doctor updatedDoctor = new Doctor.Builder()
+                                .withId(doctor.getId())
+                                .firstName(doctor.getFirstName())
+                                .lastName(doctor.getLastName())
+                                .specialization(doctor.getSpecialization())
+                                .room(doctor.getRoom())
+                                .contactInformation(doctor.getContactInformation())
+                                .age(doctor.getAge())
+                                .pesel(doctor.getPesel())
+                                .passwordHash(doctor.getPasswordHash())
+                                .passwordSalt(doctor.getPasswordSalt())
+                                .availableDays(selectedDays)
+                                .build();
+                        return doctorRepo.updateDoctor(updatedDoctor) != null
+                                ? doctorRepo.findDoctorById(doctor.getId())
+                                : null;
+                    },
+                    refreshedDoctor -> {
+                        if (refreshedDoctor != null) {
+                            showSuccessAlert("Dostępność została zaktualizowana pomyślnie!");
+                            refreshDoctor(refreshedDoctor);
+                        } else {
+                            showErrorAlert("Nie udało się zaktualizować dostępności. Spróbuj ponownie.");
+                        }
+                    },
+                    ex -> showErrorAlert("Błąd podczas aktualizacji: " + ex.getMessage()));
         });
 
         Button selectAllButton = new Button("Zaznacz wszystkie");
@@ -300,6 +324,7 @@ public class DoctorPanelController {
      * Wylogowuje użytkownika i otwiera panel logowania.
      */
     public void logout() {
+        closeProcedureSubscription();
         primaryStage.close();
         Stage loginStage = new Stage();
         try {
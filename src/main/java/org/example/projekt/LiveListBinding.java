@@ -0,0 +1,147 @@
+package org.example.projekt;
+
+import backend.mongo.ChangeStreamWatcher;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.bson.types.ObjectId;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Nanosi zmiany ze strumienia zmian MongoDB na listę powiązaną z tabelą JavaFX.
+ * <p>
+ * Zamiast przeładowywać całą kolekcję, podmienia, dodaje lub usuwa tylko zmieniony wiersz.
+ * Mapowanie dokumentu na wiersz (np. rozwiązanie referencji) wykonywane jest na wątku nasłuchu,
+ * a modyfikacja listy – na wątku JavaFX.
+ * </p>
+ * <p>
+ * Wiersz zmienionego dokumentu wyszukiwany jest w mapie identyfikator → pozycja zamiast przeglądania listy.
+ * Mapa odbudowywana jest leniwie, gdy listę zmieni ktoś inny (przeładowanie, sortowanie tabeli) albo gdy
+ * usunięcie wiersza przesunie pozycje kolejnych.
+ * </p>
+ * <p>
+ * W tabelach stronicowanych ({@link #paged}) podmieniane i usuwane są tylko wiersze już wczytane. Nowy dokument
+ * nie jest dopisywany na koniec – jego miejsce w sortowaniu serwera może wypadać na stronie, której tabela
+ * jeszcze nie pobrała; pojawi się po doczytaniu tej strony albo przeładowaniu.
+ * </p>
+ *
+ * @param <S> typ dokumentu w kolekcji
+ * @param <R> typ wiersza w tabeli
+ */
+public class LiveListBinding<S, R> implements ChangeStreamWatcher.ChangeListener<S> {
+
+    private final ObservableList<R> target;
+    private final Function<R, ObjectId> rowId;
+    private final Predicate<S> filter;
+    private final Function<S, R> mapper;
+    private final Runnable reset;
+    private final boolean appendNew;
+    private final Map<ObjectId, Integer> positions = new HashMap<>();
+    private boolean positionsStale = true;
+    private boolean updating;
+
+    /**
+     * @param target   lista powiązana z tabelą
+     * @param rowId    funkcja zwracająca identyfikator wiersza
+     * @param filter   które dokumenty powinny być widoczne w tabeli
+     * @param mapper   zamiana dokumentu na wiersz
+     * @param reloader pełne przeładowanie danych (używane tylko po unieważnieniu strumienia)
+     */
+    public LiveListBinding(ObservableList<R> target, Function<R, ObjectId> rowId, Predicate<S> filter,
+                           Function<S, R> mapper, Supplier<List<R>> reloader) {
+        this(target, rowId, filter, mapper, (Runnable) () -> {
+            List<R> rows = reloader.get();
+            Platform.runLater(() -> target.setAll(rows));
+        }, true);
+    }
+
+    private LiveListBinding(ObservableList<R> target, Function<R, ObjectId> rowId, Predicate<S> filter,
+                            Function<S, R> mapper, Runnable reset, boolean appendNew) {
+        this.target = target;
+        this.rowId = rowId;
+        this.filter = filter;
+        this.mapper = mapper;
+        this.reset = reset;
+        this.appendNew = appendNew;
+        target.addListener((ListChangeListener<R>) change -> {
+            if (!updating) positionsStale = true;
+        });
+    }
+
+    /**
+     * Wiązanie dla tabel, których wierszami są same dokumenty.
+     */
+    public static <T> LiveListBinding<T, T> direct(ObservableList<T> target, Function<T, ObjectId> id,
+                                                   Predicate<T> filter, Supplier<List<T>> reloader) {
+        return new LiveListBinding<>(target, id, filter, Function.identity(), reloader);
+    }
+
+    /**
+     * Wiązanie dla tabel stronicowanych – aktualizuje tylko wczytane wiersze, a po unieważnieniu strumienia
+     * tabela wczytuje od nowa pierwszą stronę zamiast całej kolekcji.
+     */
+    public static <S, R> LiveListBinding<S, R> paged(ObservableList<R> target, Function<R, ObjectId> rowId,
+                                                     Predicate<S> filter, Function<S, R> mapper,
+                                                     PagedTableLoader<?, R> loader) {
+        return new LiveListBinding<>(target, rowId, filter, mapper, (Runnable) () -> Platform.runLater(loader::reload),
+                false);
+    }
+
+    @Override
+    public void onUpsert(ObjectId id, S document) {
+        if (!filter.test(document)) {
+            onDelete(id);
+            return;
+        }
+        R row = mapper.apply(document);
+        Platform.runLater(() -> {
+            int index = indexOf(id);
+            updating = true;
+            try {
+                if (index >= 0) {
+                    target.set(index, row);
+                } else if (appendNew) {
+                    target.add(row);
+                    positions.put(id, target.size() - 1);
+                }
+            } finally {
+                updating = false;
+            }
+        });
+    }
+
+    @Override
+    public void onDelete(ObjectId id) {
+        Platform.runLater(() -> {
+            int index = indexOf(id);
+            if (index < 0) return;
+            target.remove(index);
+            // Kolejne wiersze przesunęły się o jedną pozycję
+            positionsStale = true;
+        });
+    }
+
+    @Override
+    public void onReset() {
+        reset.run();
+    }
+
+    /**
+     * Pozycja wiersza o podanym identyfikatorze (wywoływane na wątku JavaFX).
+     */
+    private int indexOf(ObjectId id) {
+        if (positionsStale) {
+            positions.clear();
+            for (int i = 0; i < target.size(); i++) positions.put(rowId.apply(target.get(i)), i);
+            positionsStale = false;
+        }
+        Integer index = positions.get(id);
+        return index != null ? index : -1;
+    }
+}
@@ -3,8 +3,9 @@ package org.example.projekt;
 import backend.klasy.Doctor;
 import backend.klasy.Login;
 import backend.klasy.Patient;
-import backend.mongo.DoctorRepository;
+import backend.metrics.MongoMetrics;
 import backend.mongo.MongoDatabaseConnector;
+import backend.mongo.RepositoryContext;
 import javafx.animation.FadeTransition;
 import javafx.application.Application;
 import javafx.geometry.HPos;
@@ -25,7 +26,8 @@ import javafx.util.Duration;
 public class LoginPanel extends Application {
 
     private Button loginBtn;
-    private final Login loginService = new Login();
+    private final RepositoryContext repositories = MongoDatabaseConnector.repositories();
+    private final Login loginService = new Login(repositories);
 
     /**
      * Główna metoda inicjalizacji interfejsu logowania.
@@ -101,39 +103,51 @@ public class LoginPanel extends Application {
             String login = userField.getText().trim();
             String password = passField.getText().trim();
 
-            Login.Role role = loginService.authenticate(login, password);
+            // Zapytanie o konto i weryfikacja hasła wykonywane są w tle
+            loginBtn.setDisable(true);
+            BackgroundTasks.call(() -> loginService.authenticate(login, password), role -> {
+                loginBtn.setDisable(false);
 
-            if (role == null) {
-                showAlert(Alert.AlertType.ERROR, "Błąd logowania",
-                        "Niepoprawny PESEL / hasło lub użytkownik nie istnieje.");
-                return;
-            }
-
-            switch (role) {
-                case ADMIN   -> {
-                    openAdminPanel();
-                }
-                case DOCTOR -> {
-                    Doctor doctor = loginService.getAuthenticatedDoctor();
-                    openDoctorPanel(doctor);
-                }
-                case DOCTOR_FIRST -> {
-                    Doctor doctor = loginService.getAuthenticatedDoctor();
-                    openDoctorFirstContactPanel(doctor);
+                if (role == null) {
+                    showAlert(Alert.AlertType.ERROR, "Błąd logowania",
+                            "Niepoprawny PESEL / hasło lub użytkownik nie istnieje.");
+                    return;
                 }
-                case PATIENT -> {
-                    Patient patient = loginService.getAuthenticatedPatient();
-                    openPatientPanel(patient);
+
+                switch (role) {
+                    case ADMIN   -> {
+                        openAdminPanel();
+                    }
+                    case DOCTOR -> {
+                        Doctor doctor = loginService.getAuthenticatedDoctor();
+                        openDoctorPanel(doctor);
+                    }
+                    case DOCTOR_FIRST -> {
+                        Doctor doctor = loginService.getAuthenticatedDoctor();
+                        openDoctorFirstContactPanel(doctor);
+                    }
+                    case PATIENT -> {
+                        Patient patient = loginService.getAuthenticatedPatient();
+                        openPatientPanel(patient);
+                    }
                 }
-            }
+            }, ex -> {
+                loginBtn.setDisable(false);
+                showAlert(Alert.AlertType.ERROR, "Błąd logowania", "Nie udało się połączyć z bazą danych: " + ex.getMessage());
+            });
         });
 
         exitBtn.setOnAction(e -> {
+            BackgroundTasks.shutdown();
             MongoDatabaseConnector.close();
             System.exit(0);
         });
 
-        registerBtn.setOnAction(e -> new RegisterPanel().start(new Stage()));
+        registerBtn.setOnAction(e -> {
+            try (MongoMetrics.ScreenTimer ignored = MongoMetrics.screen("RegisterPanel")) {
+                new RegisterPanel(repositories).start(new Stage());
+            }
+        });
 
         primaryStage.setScene(new Scene(grid, 500, 350));
         primaryStage.setTitle("Panel Logowania");
@@ -147,9 +161,9 @@ public class LoginPanel extends Application {
      * @param doctor obiekt zalogowanego lekarza
      */
     private void openDoctorFirstContactPanel(Doctor doctor) {
-        Stage doctorStage = new Stage();
-        DoctorRepository doctorRepo = new DoctorRepository(MongoDatabaseConnector.connectToDatabase());
-        new DoctorFirstContactPanel(doctorStage, doctor, doctorRepo);
+        try (MongoMetrics.ScreenTimer ignored = MongoMetrics.screen("DoctorFirstContactPanel")) {
+            new DoctorFirstContactPanel(new Stage(), doctor, repositories);
+        }
         closeLoginWindow();
     }
 
@@ -157,7 +171,9 @@ public class LoginPanel extends Application {
      * Otwiera panel administratora.
      */
     private void openAdminPanel()  {
-        new AdminPanel(new Stage());
+        try (MongoMetrics.ScreenTimer ignored = MongoMetrics.screen("AdminPanel")) {
+            new AdminPanel(new Stage(), repositories);
+        }
         closeLoginWindow();
     }
 
@@ -166,8 +182,9 @@ public class LoginPanel extends Application {
      * @param doctor obiekt lekarza
      */
     private void openDoctorPanel(Doctor doctor) {
-        Stage doctorStage = new Stage();
-        new DoctorPanel(doctorStage, doctor);
+        try (MongoMetrics.ScreenTimer ignored = MongoMetrics.screen("DoctorPanel")) {
+            new DoctorPanel(new Stage(), doctor, repositories);
+        }
         closeLoginWindow();
     }
 
@@ -176,8 +193,9 @@ public class LoginPanel extends Application {
      * @param patient obiekt pacjenta
      */
     private void openPatientPanel(Patient patient) {
-        Stage patientStage = new Stage();
-        new PatientPanel(patientStage, patient);
+        try (MongoMetrics.ScreenTimer ignored = MongoMetrics.screen("PatientPanel")) {
+            new PatientPanel(new Stage(), patient, repositories);
+        }
         closeLoginWindow();
     }
 
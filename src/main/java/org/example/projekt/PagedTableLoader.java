@@ -0,0 +1,238 @@
+package org.example.projekt;
+
+import backend.mongo.Page;
+import backend.mongo.PageCursor;
+import backend.mongo.SortField;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import org.bson.types.ObjectId;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Ładuje tabelę JavaFX stronami zamiast całej kolekcji naraz.
+ * <p>
+ * Strony pobierane są metodą keyset ({@link Page}) w tle przez {@link BackgroundTasks}. Po wyświetleniu strony
+ * od razu pobierana jest następna, więc przewinięcie do końca tabeli zwykle dokleja gotowe wiersze bez czekania.
+ * Kliknięcie nagłówka kolumny nie sortuje wierszy w pamięci, tylko pobiera pierwszą stronę posortowaną
+ * przez serwer; kolumny bez przypisanego {@link SortField} nie są sortowalne.
+ * </p>
+ *
+ * @param <S> typ dokumentu w kolekcji
+ * @param <R> typ wiersza w tabeli
+ */
+public class PagedTableLoader<S, R> {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Przewinięcie poniżej tej części tabeli dokleja następną stronę.
+     */
+    private static final double LOAD_MORE_THRESHOLD = 0.9;
+
+    /**
+     * Źródło stron – zwykle metoda {@code findPage} repozytorium.
+     */
+    @FunctionalInterface
+    public interface PageSource<S> {
+        Page<S> fetch(SortField<S> sort, boolean ascending, PageCursor after, int size) throws Exception;
+    }
+
+    /**
+     * Strona przetworzona na wiersze tabeli.
+     */
+    private static final class LoadedPage<R> {
+        private final List<R> rows;
+        private final PageCursor next;
+
+        private LoadedPage(List<R> rows, PageCursor next) {
+            this.rows = rows;
+            this.next = next;
+        }
+    }
+
+    private final TableView<R> table;
+    private final ObservableList<R> items;
+    private final Function<R, ObjectId> rowId;
+    private final PageSource<S> source;
+    private final Function<List<S>, List<R>> rowMapper;
+    private final Map<TableColumn<R, ?>, SortField<S>> sortFields = new HashMap<>();
+    private final SortField<S> defaultSort;
+    private final int pageSize;
+
+    private SortField<S> sort;
+    private boolean ascending = true;
+    private PageCursor nextCursor;
+    private boolean exhausted;
+    private long generation;
+    private Task<LoadedPage<R>> pending;
+    private boolean appendPendingWhenReady;
+    private LoadedPage<R> prefetched;
+
+    /**
+     * @param table       tabela
+     * @param items       lista powiązana z tabelą
+     * @param rowId       identyfikator wiersza (do pomijania wierszy dodanych już np. przez strumień zmian)
+     * @param source      źródło stron
+     * @param rowMapper   zamiana dokumentów strony na wiersze (wywoływana w tle)
+     * @param defaultSort sortowanie, gdy żadna kolumna nie jest wybrana
+     * @param pageSize    rozmiar strony
+     */
+    public PagedTableLoader(TableView<R> table, ObservableList<R> items, Function<R, ObjectId> rowId,
+                            PageSource<S> source, Function<List<S>, List<R>> rowMapper,
+                            SortField<S> defaultSort, int pageSize) {
+        this.table = table;
+        this.items = items;
+        this.rowId = rowId;
+        this.source = source;
+        this.rowMapper = rowMapper;
+        this.defaultSort = defaultSort;
+        this.sort = defaultSort;
+        this.pageSize = pageSize;
+
+        table.setItems(items);
+        table.setSortPolicy(t -> {
+            applySortOrder();
+            return true;
+        });
+        table.skinProperty().addListener((obs, oldSkin, newSkin) -> Platform.runLater(this::attachScrollListener));
+        table.getColumns().forEach(column -> column.setSortable(false));
+    }
+
+    /**
+     * Loader dla tabel, których wierszami są same dokumenty.
+     */
+    public static <T> PagedTableLoader<T, T> direct(TableView<T> table, ObservableList<T> items,
+                                                    Function<T, ObjectId> id, PageSource<T> source,
+                                                    SortField<T> defaultSort) {
+        return new PagedTableLoader<>(table, items, id, source, Function.identity(), defaultSort, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Pozwala sortować tabelę po kolumnie – kliknięcie nagłówka pobiera dane posortowane po {@code field}.
+     */
+    public PagedTableLoader<S, R> sortable(TableColumn<R, ?> column, SortField<S> field) {
+        sortFields.put(column, field);
+        column.setSortable(true);
+        return this;
+    }
+
+    /**
+     * Czyści tabelę i pobiera pierwszą stronę przy bieżącym sortowaniu.
+     */
+    public void reload() {
+        generation++;
+        if (pending != null) pending.cancel();
+        pending = null;
+        prefetched = null;
+        nextCursor = null;
+        exhausted = false;
+        items.clear();
+        table.setPlaceholder(new Label("Wczytywanie..."));
+        fetch(null, true);
+    }
+
+    /**
+     * Dokleja następną stronę (gotową z wyprzedzeniem albo pobieraną właśnie w tle).
+     */
+    public void loadMore() {
+        if (exhausted) return;
+        if (prefetched != null) {
+            LoadedPage<R> page = prefetched;
+            prefetched = null;
+            append(page);
+        } else if (pending != null) {
+            appendPendingWhenReady = true;
+        } else {
+            fetch(nextCursor, true);
+        }
+    }
+
+    private void fetch(PageCursor after, boolean appendWhenReady) {
+        long requestGeneration = generation;
+        SortField<S> requestSort = sort;
+        boolean requestAscending = ascending;
+        appendPendingWhenReady = appendWhenReady;
+
+        pending = BackgroundTasks.call(() -> {
+                    Page<S> page = source.fetch(requestSort, requestAscending, after, pageSize);
+                    return new LoadedPage<>(rowMapper.apply(page.getItems()), page.getNext());
+                },
+                page -> {
+                    if (requestGeneration != generation) return;
+                    pending = null;
+                    if (appendPendingWhenReady) append(page); else prefetched = page;
+                },
+                ex -> {
+                    if (requestGeneration != generation) return;
+                    pending = null;
+                    table.setPlaceholder(new Label("Nie udało się pobrać danych"));
+                    Alert alert = new Alert(Alert.AlertType.ERROR);
+                    alert.setTitle("Błąd");
+                    alert.setHeaderText("Nie udało się pobrać kolejnej strony");
+                    alert.setContentText(ex.getMessage());
+                    alert.showAndWait();
+                });
+    }
+
+    private void append(LoadedPage<R> page) {
+        Set<ObjectId> present = new HashSet<>();
+        for (R row : items) present.add(rowId.apply(row));
+        for (R row : page.rows) {
+            if (present.add(rowId.apply(row))) items.add(row);
+        }
+
+        nextCursor = page.next;
+        exhausted = page.next == null;
+        if (items.isEmpty()) table.setPlaceholder(new Label("Brak danych"));
+
+        // Następna strona jest pobierana od razu, zanim użytkownik do niej przewinie
+        if (!exhausted) fetch(nextCursor, false);
+    }
+
+    /**
+     * Zamienia kolejność sortowania wybraną w tabeli na sortowanie po stronie serwera.
+     * Wywoływane przez TableView także wtedy, gdy zmieniła się tylko zawartość listy – wtedy nic nie robi.
+     */
+    private void applySortOrder() {
+        SortField<S> newSort = defaultSort;
+        boolean newAscending = true;
+        if (!table.getSortOrder().isEmpty()) {
+            TableColumn<R, ?> column = table.getSortOrder().getFirst();
+            SortField<S> field = sortFields.get(column);
+            if (field != null) {
+                newSort = field;
+                newAscending = column.getSortType() == TableColumn.SortType.ASCENDING;
+            }
+        }
+        if (newSort == sort && newAscending == ascending) return;
+
+        sort = newSort;
+        ascending = newAscending;
+        reload();
+    }
+
+    private void attachScrollListener() {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= bar.getMax() * LOAD_MORE_THRESHOLD) loadMore();
+                });
+                return;
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.projekt;
 
 import backend.klasy.Patient;
+import backend.mongo.RepositoryContext;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
 import javafx.animation.ScaleTransition;
@@ -28,10 +29,10 @@ public class PatientPanel {
      * Inicjalizuje panel pacjenta z menu i pierwszym widokiem.
      * @param stage główne okno aplikacji
      */
-    public PatientPanel(Stage stage, Patient patient) {
+    public PatientPanel(Stage stage, Patient patient, RepositoryContext repositories) {
         this.primaryStage = stage;
         this.currentPatient  = patient;
-        this.controller = new PatientPanelController(this, patient);
+        this.controller = new PatientPanelController(this, patient, repositories);
 
         primaryStage.setTitle("Panel pacjenta");
         primaryStage.setMinWidth(700);
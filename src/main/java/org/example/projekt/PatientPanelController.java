@@ -1,10 +1,12 @@
 package org.example.projekt;
 
 import backend.klasy.Appointment;
+import backend.klasy.AppointmentRow;
 import backend.klasy.Patient;
+import backend.mongo.AppointmentReferenceResolver;
 import backend.mongo.AppointmentRepository;
 import backend.mongo.DoctorRepository;
-import backend.mongo.MongoDatabaseConnector;
+import backend.mongo.RepositoryContext;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -33,17 +35,19 @@ public class PatientPanelController {
     private final Patient      patient;
     private final DateTimeFormatter formatter =
             DateTimeFormatter.ofPattern("d MMMM yyyy, HH:mm", new Locale("pl", "PL"));
-    private final AppointmentRepository appointmentRepo =
-            new AppointmentRepository(MongoDatabaseConnector.connectToDatabase());
-    private final DoctorRepository doctorRepo =
-            new DoctorRepository(MongoDatabaseConnector.connectToDatabase());
+    private final AppointmentRepository appointmentRepo;
+    private final DoctorRepository doctorRepo;
+    private final AppointmentReferenceResolver referenceResolver;
 
 
 
-    public PatientPanelController(PatientPanel view, Patient patient) {
+    public PatientPanelController(PatientPanel view, Patient patient, RepositoryContext repositories) {
         this.view         = view;
         this.primaryStage = view.getPrimaryStage();
         this.patient      = patient;
+        this.appointmentRepo   = repositories.appointments();
+        this.doctorRepo        = repositories.doctors();
+        this.referenceResolver = repositories.referenceResolver();
     }
 
     /** Ekran powitalny. */
@@ -55,20 +59,20 @@ public class PatientPanelController {
         Label hello = new Label("Witaj " + patient.getFirstName() + " " + patient.getLastName());
         hello.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        List<Appointment> allAppointments = appointmentRepo.findAppointmentsByPatient(patient);
+        Label next = new Label("Wczytywanie zabiegów...");
+        BackgroundTasks.call(() -> appointmentRepo.findAppointmentsByPatient(patient), allAppointments -> {
+            Optional<Appointment> nextAppointment = allAppointments.stream()
+                    .filter(app -> app.getDate().isAfter(LocalDateTime.now()))
+                    .min(Comparator.comparing(Appointment::getDate));
 
-        Optional<Appointment> nextAppointment = allAppointments.stream()
-                .filter(app -> app.getDate().isAfter(LocalDateTime.now()))
-                .min(Comparator.comparing(Appointment::getDate));
-
-        Label next;
-        if (nextAppointment.isPresent()) {
-            Appointment a = nextAppointment.get();
-            next = new Label("Najbliższy zabieg: " +
-                    a.getDate().format(formatter) + " – " + a.getDescription());
-        } else {
-            next = new Label("Brak zbliżających się zabiegów");
-        }
+            if (nextAppointment.isPresent()) {
+                Appointment a = nextAppointment.get();
+                next.setText("Najbliższy zabieg: " +
+                        a.getDate().format(formatter) + " – " + a.getDescription());
+            } else {
+                next.setText("Brak zbliżających się zabiegów");
+            }
+        }, ex -> next.setText("Nie udało się pobrać zabiegów: " + ex.getMessage()));
 
         next.setStyle("-fx-font-size: 14px;");
         box.getChildren().addAll(hello, next);
@@ -86,32 +90,32 @@ public class PatientPanelController {
         Label title = new Label("Historia leczenia");
         title.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        TableView<Appointment> table = new TableView<>();
-        ObservableList<Appointment> data = FXCollections.observableArrayList(
-                appointmentRepo.findAppointmentsByPatient(patient)
-        );
-
-        TableColumn<Appointment, String> dateCol = new TableColumn<>("Data");
+        TableView<AppointmentRow> table = new TableView<>();
+        ObservableList<AppointmentRow> data = FXCollections.observableArrayList();
+        table.setPlaceholder(new Label("Wczytywanie historii..."));
+        BackgroundTasks.call(() -> referenceResolver.resolve(appointmentRepo.findAppointmentsByPatient(patient)),
+                rows -> {
+                    data.setAll(rows);
+                    table.setPlaceholder(new Label("Brak zabiegów"));
+                },
+                ex -> table.setPlaceholder(new Label("Nie udało się pobrać historii: " + ex.getMessage())));
+
+        TableColumn<AppointmentRow, String> dateCol = new TableColumn<>("Data");
         dateCol.setCellValueFactory(a -> new ReadOnlyStringWrapper(
                 a.getValue().getDate().format(formatter)
         ));
 
-        TableColumn<Appointment, String> descCol = new TableColumn<>("Opis");
+        TableColumn<AppointmentRow, String> descCol = new TableColumn<>("Opis");
         descCol.setCellValueFactory(a -> new ReadOnlyStringWrapper(
                 a.getValue().getDescription()
         ));
 
-        TableColumn<Appointment, String> doctorCol = new TableColumn<>("Lekarz");
-        doctorCol.setCellValueFactory(a -> {
-            var doc = doctorRepo.findDoctorById(a.getValue().getDoctorId());
-            if (doc != null) {
-                return new ReadOnlyStringWrapper(doc.getFirstName() + " " + doc.getLastName());
-            } else {
-                return new ReadOnlyStringWrapper("Nieznany");
-            }
-        });
+        TableColumn<AppointmentRow, String> doctorCol = new TableColumn<>("Lekarz");
+        doctorCol.setCellValueFactory(a -> new ReadOnlyStringWrapper(
+                a.getValue().getDoctor() != null ? a.getValue().getDoctorName() : "Nieznany"
+        ));
 
-        TableColumn<Appointment, String> statusCol = new TableColumn<>("Status");
+        TableColumn<AppointmentRow, String> statusCol = new TableColumn<>("Status");
         statusCol.setCellValueFactory(a -> new ReadOnlyStringWrapper(
                 a.getValue().getStatus().toString()
         ));
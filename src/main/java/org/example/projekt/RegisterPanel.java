@@ -1,8 +1,8 @@
 package org.example.projekt;
 
 import org.example.projekt.RegisterPanelController;
-import backend.mongo.MongoDatabaseConnector;
 import backend.mongo.PatientRepository;
+import backend.mongo.RepositoryContext;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -16,8 +16,11 @@ public class RegisterPanel {
     private final PatientRepository patientRepository;
     private RegisterPanelController controller;
 
-    public RegisterPanel() {
-        this.patientRepository = new PatientRepository(MongoDatabaseConnector.connectToDatabase());
+    /**
+     * @param repositories wspólny kontekst repozytoriów
+     */
+    public RegisterPanel(RepositoryContext repositories) {
+        this.patientRepository = repositories.patients();
     }
 
     /**
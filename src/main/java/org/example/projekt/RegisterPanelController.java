@@ -108,12 +108,19 @@ public class RegisterPanelController {
     public void handleSubmit(Stage stage) {
         try {
             validateForm();
-            createPatient();
-            showAlert(Alert.AlertType.INFORMATION, "Sukces", "Rejestracja zakończona pomyślnie!");
-            stage.close();
         } catch (Exception e) {
             showAlert(Alert.AlertType.ERROR, "Błąd", e.getMessage());
+            return;
         }
+
+        // Pola formularza odczytywane są na wątku JavaFX, hashowanie hasła i zapis – w tle
+        Patient.Builder builder = patientBuilder();
+        BackgroundTasks.run(() -> patientRepository.createPatient(builder.build()),
+                () -> {
+                    showAlert(Alert.AlertType.INFORMATION, "Sukces", "Rejestracja zakończona pomyślnie!");
+                    stage.close();
+                },
+                e -> showAlert(Alert.AlertType.ERROR, "Błąd", e.getMessage()));
     }
 
     /**
@@ -149,15 +156,12 @@ public class RegisterPanelController {
     }
 
     /**
-     * Tworzy i zapisuje nowego pacjenta na podstawie danych formularza.
-     * @throws PeselException jeśli PESEL jest nieprawidłowy
-     * @throws NullNameException jeśli imię lub nazwisko są puste
-     * @throws AgeException jeśli wiek pacjenta jest niepoprawny
+     * Przygotowuje budowniczego pacjenta z danych formularza. Hasło jest hashowane dopiero w {@code build()}.
      */
-    private void createPatient() throws PeselException, NullNameException, AgeException {
+    private Patient.Builder patientBuilder() {
         int age = Patient.calculateAge(birthDatePicker.getValue());
 
-        Patient patient = new Patient.Builder()
+        return new Patient.Builder()
                 .firstName(nameField.getText().trim())
                 .lastName(surnameField.getText().trim())
                 .pesel(Long.parseLong(peselField.getText()))
@@ -165,10 +169,7 @@ public class RegisterPanelController {
                 .address(addressField.getText().trim())
                 .age(age)
                 .plainPassword(passwordField.getText())
-                .diagnosis(Diagnosis.AWAITING)
-                .build();
-
-        patientRepository.createPatient(patient);
+                .diagnosis(Diagnosis.AWAITING);
     }
 
     /**
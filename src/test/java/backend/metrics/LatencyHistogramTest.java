@@ -0,0 +1,38 @@
+package backend.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Percentyle histogramu mieszczą się w błędzie względnym kubełków (~0,8%), a pomiary powyżej godziny
+ * nie wychodzą poza tablicę liczników.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) histogram.record(micros * 1_000);
+
+        assertEquals(10_000, histogram.getTotalCount());
+        assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 * 0.008);
+        assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 * 0.008);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(5_000_500, histogram.getMean(), 5_000_500 * 0.008);
+    }
+
+    @Test
+    void valuesAboveTheTrackableRangeKeepExactMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long twoHours = 2 * LatencyHistogram.HIGHEST_TRACKABLE_VALUE;
+        histogram.record(1_000);
+        histogram.record(twoHours);
+
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(twoHours, histogram.getMaxValue());
+        assertEquals(1_000, histogram.getValueAtPercentile(50), 1_000 * 0.008);
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_VALUE,
+                histogram.getValueAtPercentile(100), LatencyHistogram.HIGHEST_TRACKABLE_VALUE * 0.008);
+    }
+}
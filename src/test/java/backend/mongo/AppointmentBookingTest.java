@@ -0,0 +1,175 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.klasy.Doctor;
+import backend.klasy.Patient;
+import backend.klasy.Room;
+import backend.status.AppointmentStatus;
+import backend.status.Specialization;
+import backend.status.TypeOfRoom;
+import backend.wyjatki.DoctorIsNotAvailableException;
+import backend.wyjatki.InappropriateRoomException;
+import backend.wyjatki.PatientIsNotAvailableException;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mongodb.client.model.Filters.eq;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Gwarancje rezerwacji wizyt: równoległe rezerwacje tego samego terminu nie mogą się powieść jednocześnie,
+ * a nieudana rezerwacja nie zostawia zajętych slotów. Bez replica setu sprawdzana jest ścieżka bez transakcji.
+ */
+class AppointmentBookingTest {
+
+    private static final int CLERKS = 16;
+
+    private static MongoDatabase database;
+    private AppointmentRepository appointments;
+
+    @BeforeAll
+    static void connect() {
+        database = TestDatabase.connect();
+    }
+
+    @BeforeEach
+    void clear() {
+        TestDatabase.clear(database);
+        appointments = new RepositoryContext(database).appointments();
+    }
+
+    @Test
+    void concurrentBookingsOfOneDoctorSlotAdmitExactlyOne() throws Exception {
+        Doctor doctor = TestDatabase.doctor(database, Specialization.CARDIOLOGY);
+        Room room = TestDatabase.room(database, TypeOfRoom.CARDIOLOGY, CLERKS);
+        LocalDateTime slot = TestDatabase.tomorrowAt(10, 0);
+        List<Appointment> requests = new ArrayList<>();
+        for (int i = 0; i < CLERKS; i++) {
+            requests.add(TestDatabase.appointment(doctor, TestDatabase.patient(database), room, slot));
+        }
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger doctorBusy = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Appointment request : requests) {
+                executor.submit(() -> {
+                    start.await();
+                    try {
+                        appointments.createAppointment(request);
+                        booked.incrementAndGet();
+                    } catch (DoctorIsNotAvailableException e) {
+                        doctorBusy.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        assertEquals(1, booked.get());
+        assertEquals(CLERKS - 1, doctorBusy.get());
+        assertEquals(1, database.getCollection("appointments").countDocuments());
+        assertEquals(2, database.getCollection("slot_reservations").countDocuments());
+        assertEquals(1, database.getCollection("rooms", Room.class).find(eq("_id", room.getId())).first()
+                .getPatientIds().size());
+    }
+
+    @Test
+    void concurrentReschedulesIntoOneSlotAdmitExactlyOne() throws Exception {
+        Doctor doctor = TestDatabase.doctor(database, Specialization.NEUROLOGY);
+        Room room = TestDatabase.room(database, TypeOfRoom.NEUROLOGY, CLERKS);
+        List<Appointment> existing = new ArrayList<>();
+        for (int i = 0; i < CLERKS; i++) {
+            Appointment appointment = TestDatabase.appointment(doctor, TestDatabase.patient(database), room,
+                    TestDatabase.tomorrowAt(8, 30 * i));
+            appointments.createAppointment(appointment);
+            existing.add(appointment);
+        }
+
+        LocalDateTime target = TestDatabase.tomorrowAt(17, 0);
+        AtomicInteger moved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Appointment appointment : existing) {
+                executor.submit(() -> {
+                    start.await();
+                    appointment.setDate(target);
+                    appointment.setStatus(AppointmentStatus.RESCHEDULED);
+                    try {
+                        appointments.updateAppointment(appointment);
+                        moved.incrementAndGet();
+                    } catch (DoctorIsNotAvailableException e) {
+                        // oczekiwane dla wszystkich poza jednym
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+
+        assertEquals(1, moved.get());
+        assertEquals(1, database.getCollection("appointments").countDocuments(eq("date", target)));
+        // Każda wizyta nadal zajmuje dokładnie swoje sloty: lekarz i pacjent
+        assertEquals(2L * CLERKS, database.getCollection("slot_reservations").countDocuments());
+    }
+
+    @Test
+    void overlappingVisitOfSamePatientIsRejected() throws Exception {
+        Patient patient = TestDatabase.patient(database);
+        Doctor cardiologist = TestDatabase.doctor(database, Specialization.CARDIOLOGY);
+        Doctor neurologist = TestDatabase.doctor(database, Specialization.NEUROLOGY);
+        Room cardiology = TestDatabase.room(database, TypeOfRoom.CARDIOLOGY, 5);
+        Room neurology = TestDatabase.room(database, TypeOfRoom.NEUROLOGY, 5);
+
+        appointments.createAppointment(TestDatabase.appointment(cardiologist, patient, cardiology,
+                TestDatabase.tomorrowAt(9, 0)));
+
+        assertThrows(PatientIsNotAvailableException.class, () -> appointments.createAppointment(
+                TestDatabase.appointment(neurologist, patient, neurology, TestDatabase.tomorrowAt(9, 15))));
+        assertEquals(1, database.getCollection("appointments").countDocuments());
+    }
+
+    @Test
+    void canceledAppointmentReleasesItsSlots() throws Exception {
+        Doctor doctor = TestDatabase.doctor(database, Specialization.SURGERY);
+        Room room = TestDatabase.room(database, TypeOfRoom.SURGICAL, 5);
+        LocalDateTime slot = TestDatabase.tomorrowAt(11, 0);
+        Appointment first = TestDatabase.appointment(doctor, TestDatabase.patient(database), room, slot);
+        appointments.createAppointment(first);
+
+        first.setStatus(AppointmentStatus.CANCELED);
+        appointments.updateAppointment(first);
+
+        appointments.createAppointment(TestDatabase.appointment(doctor, TestDatabase.patient(database), room, slot));
+        assertEquals(2, database.getCollection("slot_reservations").countDocuments());
+    }
+
+    @Test
+    void fullRoomLeavesNoReservationsBehind() throws Exception {
+        Doctor doctor = TestDatabase.doctor(database, Specialization.PEDIATRICS);
+        Room room = TestDatabase.room(database, TypeOfRoom.PEDIATRIC, 1);
+        appointments.createAppointment(TestDatabase.appointment(doctor, TestDatabase.patient(database), room,
+                TestDatabase.tomorrowAt(8, 0)));
+
+        Patient second = TestDatabase.patient(database);
+        assertThrows(InappropriateRoomException.class, () -> appointments.createAppointment(
+                TestDatabase.appointment(doctor, second, room, TestDatabase.tomorrowAt(12, 0))));
+
+        assertEquals(1, database.getCollection("appointments").countDocuments());
+        assertEquals(0, database.getCollection("slot_reservations")
+                .countDocuments(new Document("owner", second.getId())));
+    }
+}
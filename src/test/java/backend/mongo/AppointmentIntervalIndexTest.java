@@ -0,0 +1,100 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.status.AppointmentStatus;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Indeks terminów bez bazy: ładowanie harmonogramów przez podany loader, wypieranie i wersjonowanie właścicieli.
+ */
+class AppointmentIntervalIndexTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+    @Test
+    void cachedTimelineAnswersWithoutLoading() {
+        AppointmentIntervalIndex index = new AppointmentIntervalIndex(Duration.ofHours(1));
+        Appointment booked = appointment(new ObjectId(), new ObjectId(), NINE);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<Appointment>> loader = () -> {
+            loads.incrementAndGet();
+            return List.of(booked);
+        };
+
+        assertFalse(index.isDoctorFree(booked.getDoctorId(), NINE.plusMinutes(15), null, loader));
+        assertTrue(index.isDoctorFree(booked.getDoctorId(), NINE.plusMinutes(30), null, loader));
+        assertTrue(index.isDoctorFree(booked.getDoctorId(), NINE, booked.getId(), loader));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void leastRecentlyUsedTimelineIsEvicted() {
+        AppointmentIntervalIndex index = new AppointmentIntervalIndex(Duration.ofHours(1), 2, 2);
+        ObjectId first = new ObjectId();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<Appointment>> loader = () -> {
+            loads.incrementAndGet();
+            return List.of();
+        };
+
+        index.isDoctorFree(first, NINE, null, loader);
+        index.isDoctorFree(new ObjectId(), NINE, null, loader);
+        index.isDoctorFree(new ObjectId(), NINE, null, loader);
+        index.isDoctorFree(first, NINE, null, loader);
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void writesKeepCachedTimelinesCurrent() {
+        AppointmentIntervalIndex index = new AppointmentIntervalIndex(Duration.ofHours(1));
+        ObjectId doctorId = new ObjectId();
+        index.isDoctorFree(doctorId, NINE, null, List::of);
+
+        Appointment booked = appointment(doctorId, new ObjectId(), NINE);
+        index.put(booked);
+        assertFalse(index.isDoctorFree(doctorId, NINE, null, List::of));
+
+        booked.setDate(NINE.plusHours(2));
+        index.put(booked);
+        assertTrue(index.isDoctorFree(doctorId, NINE, null, List::of));
+        assertFalse(index.isDoctorFree(doctorId, NINE.plusHours(2), null, List::of));
+
+        index.remove(booked.getId());
+        assertTrue(index.isDoctorFree(doctorId, NINE.plusHours(2), null, List::of));
+    }
+
+    @Test
+    void loadRacingWithOwnersWriteIsNotCached() {
+        AppointmentIntervalIndex index = new AppointmentIntervalIndex(Duration.ofHours(1));
+        ObjectId doctorId = new ObjectId();
+        Appointment racing = appointment(doctorId, new ObjectId(), NINE);
+
+        // Loader widzi stan sprzed zapisu, który trafia do indeksu w trakcie ładowania
+        assertTrue(index.isDoctorFree(doctorId, NINE, null, () -> {
+            index.put(racing);
+            return List.of();
+        }));
+        assertFalse(index.isDoctorFree(doctorId, NINE, null, () -> List.of(racing)));
+    }
+
+    private static Appointment appointment(ObjectId doctorId, ObjectId patientId, LocalDateTime date) {
+        return new Appointment.Builder()
+                .doctorId(doctorId)
+                .patientId(patientId)
+                .date(date)
+                .status(AppointmentStatus.SCHEDULED)
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.klasy.Doctor;
+import backend.klasy.Patient;
+import backend.klasy.Room;
+import backend.status.AppointmentStatus;
+import backend.status.Day;
+import backend.status.Diagnosis;
+import backend.status.Specialization;
+import backend.status.TypeOfRoom;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Zgodność formatu {@link DomainCodecs} z kodekiem POJO: dokument każdej encji zapisany jednym kodekiem
+ * i odczytany drugim daje ten sam dokument. Kodek POJO zapisuje dodatkowo wartości wyliczane z getterów
+ * ({@link #COMPUTED}), których ręczne kodeki celowo nie zapisują.
+ */
+class DomainCodecsTest {
+
+    private static final Set<String> COMPUTED = Set.of("firstContact", "full", "currentPatientCount");
+
+    private static final CodecRegistry POJO = fromRegistries(
+            MongoClientSettings.getDefaultCodecRegistry(),
+            fromProviders(PojoCodecProvider.builder().automatic(true).build())
+    );
+    private static final CodecRegistry DOMAIN = DomainCodecs.withDomainCodecs(POJO);
+
+    @Test
+    void patientMatchesPojoFormat() throws Exception {
+        LocalDate birthDate = LocalDate.of(1985, 7, 14);
+        assertRoundTrip(Patient.class, new Patient.Builder()
+                .withId(new ObjectId())
+                .firstName("Anna")
+                .lastName("Kowalczyk")
+                .pesel(85071412345L)
+                .birthDate(birthDate)
+                .address("ul. Słoneczna 12/4, 00-123 Warszawa")
+                .age(Patient.calculateAge(birthDate))
+                .plainPassword("haslo")
+                .diagnosis(Diagnosis.AWAITING)
+                .build());
+    }
+
+    @Test
+    void doctorMatchesPojoFormat() throws Exception {
+        LocalDate birthDate = LocalDate.of(1970, 2, 3);
+        assertRoundTrip(Doctor.class, new Doctor.Builder()
+                .withId(new ObjectId())
+                .firstName("Piotr")
+                .lastName("Wiśniewski")
+                .birthDate(birthDate)
+                .age(Doctor.calculateAge(birthDate))
+                .pesel(70020312345L)
+                .specialization(Specialization.CARDIOLOGY)
+                .availableDays(List.of(Day.MONDAY, Day.WEDNESDAY, Day.FRIDAY))
+                .room("105")
+                .contactInformation("600123456")
+                .plainPassword("haslo")
+                .build());
+    }
+
+    @Test
+    void appointmentMatchesPojoFormat() {
+        assertRoundTrip(Appointment.class, new Appointment.Builder()
+                .withId(new ObjectId())
+                .patientId(new ObjectId())
+                .doctorId(new ObjectId())
+                .room(new ObjectId())
+                .date(LocalDateTime.of(2025, 3, 12, 10, 30))
+                .description("Konsultacja")
+                .status(AppointmentStatus.RESCHEDULED)
+                .build());
+    }
+
+    @Test
+    void appointmentWithoutOptionalFieldsMatchesPojoFormat() {
+        assertRoundTrip(Appointment.class, new Appointment.Builder()
+                .withId(new ObjectId())
+                .patientId(new ObjectId())
+                .doctorId(new ObjectId())
+                .date(LocalDateTime.of(2025, 3, 12, 10, 30))
+                .build());
+    }
+
+    @Test
+    void roomMatchesPojoFormat() {
+        Room room = new Room("ul. Szpitalna 1", 2, 214, 6, TypeOfRoom.CARDIOLOGY,
+                List.of(new ObjectId(), new ObjectId(), new ObjectId()));
+        assertRoundTrip(Room.class, room);
+    }
+
+    /**
+     * Porównuje zapis obu kodeków oraz odczyt krzyżowy: dokument POJO odczytany kodekiem ręcznym (i odwrotnie)
+     * po ponownym zapisie musi dać ten sam dokument.
+     */
+    private static <T> void assertRoundTrip(Class<T> type, T value) {
+        Codec<T> pojo = POJO.get(type);
+        Codec<T> domain = DOMAIN.get(type);
+
+        RawBsonDocument pojoBytes = new RawBsonDocument(value, pojo);
+        RawBsonDocument domainBytes = new RawBsonDocument(value, domain);
+        BsonDocument expected = withoutComputed(pojoBytes);
+
+        assertEquals(expected, document(domainBytes));
+        assertEquals(expected, document(new RawBsonDocument(pojoBytes.decode(domain), domain)));
+        assertEquals(expected, withoutComputed(new RawBsonDocument(domainBytes.decode(pojo), pojo)));
+    }
+
+    private static BsonDocument document(RawBsonDocument bytes) {
+        return bytes.decode(new BsonDocumentCodec());
+    }
+
+    private static BsonDocument withoutComputed(RawBsonDocument bytes) {
+        BsonDocument document = document(bytes);
+        COMPUTED.forEach(document::remove);
+        return document;
+    }
+}
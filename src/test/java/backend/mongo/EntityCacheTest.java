@@ -0,0 +1,54 @@
+package backend.mongo;
+
+import backend.klasy.Room;
+import backend.status.TypeOfRoom;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Zapis wartości odczytanych z bazy tylko bez unieważnień w trakcie odczytu i niezależność zwracanych kopii.
+ */
+class EntityCacheTest {
+
+    private static final DomainCodecs.RoomCodec CODEC = new DomainCodecs.RoomCodec();
+
+    @Test
+    void valueReadBeforeInvalidationIsNotStored() {
+        EntityCache<ObjectId, Room> cache = newCache();
+        Room room = room();
+
+        long epoch = cache.epoch();
+        cache.invalidate(room.getId());
+        cache.putIfUnchanged(room.getId(), room, epoch);
+        assertNull(cache.getIfPresent(room.getId()));
+
+        cache.putIfUnchanged(room.getId(), room, cache.epoch());
+        assertEquals(room.getNumber(), cache.getIfPresent(room.getId()).getNumber());
+    }
+
+    @Test
+    void changingReturnedValueDoesNotChangeTheEntry() {
+        EntityCache<ObjectId, Room> cache = newCache();
+        Room room = room();
+        cache.putIfUnchanged(room.getId(), room, cache.epoch());
+
+        room.setNumber(999);
+        cache.getIfPresent(room.getId()).setNumber(998);
+        cache.get(room.getId(), id -> null).setNumber(997);
+
+        Room cached = cache.getIfPresent(room.getId());
+        assertEquals(101, cached.getNumber());
+    }
+
+    private static EntityCache<ObjectId, Room> newCache() {
+        return new EntityCache<>("rooms", 10, value -> new RawBsonDocument(value, CODEC).decode(CODEC));
+    }
+
+    private static Room room() {
+        return new Room("Testowa 1", 1, 101, 4, TypeOfRoom.ADMISSION);
+    }
+}
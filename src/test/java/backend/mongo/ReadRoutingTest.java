@@ -0,0 +1,64 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.klasy.Doctor;
+import backend.klasy.Patient;
+import backend.klasy.Room;
+import backend.status.Specialization;
+import backend.status.TypeOfRoom;
+import com.mongodb.client.MongoDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Odczyty tolerujące opóźnienie ({@link ReadRouting}) muszą widzieć własne zapisy aplikacji. Na replica secie
+ * z sekundariuszami ({@code -Dhospital.test.mongo.uri=...?replicaSet=rs0}) odczyt trafia na sekundariusza
+ * i czeka, aż ten zreplikuje zapis; na pojedynczym serwerze test sprawdza tylko samo kierowanie odczytów.
+ */
+class ReadRoutingTest {
+
+    private static MongoDatabase database;
+    private AppointmentRepository appointments;
+
+    @BeforeAll
+    static void connect() {
+        database = TestDatabase.connect();
+    }
+
+    @BeforeEach
+    void clear() {
+        TestDatabase.clear(database);
+        appointments = new RepositoryContext(database).appointments();
+    }
+
+    @Test
+    void relaxedReadsSeeTheLatestWrite() throws Exception {
+        Doctor doctor = TestDatabase.doctor(database, Specialization.FIRST_CONTACT);
+        Room room = TestDatabase.room(database, TypeOfRoom.ADMISSION, 50);
+
+        for (int i = 0; i < 20; i++) {
+            Patient patient = TestDatabase.patient(database);
+            Appointment appointment = TestDatabase.appointment(doctor, patient, room,
+                    TestDatabase.tomorrowAt(8, 30 * (i % 16)).plusDays(i / 16));
+            appointments.createAppointment(appointment);
+
+            assertEquals(i + 1, appointments.findAppointmentsByDoctorId(doctor.getId()).size());
+            assertTrue(appointments.findAppointmentsByPatientId(patient.getId()).stream()
+                    .anyMatch(a -> a.getId().equals(appointment.getId())));
+        }
+    }
+
+    @Test
+    void roomUsageCheckReadsThePrimary() throws Exception {
+        Doctor doctor = TestDatabase.doctor(database, Specialization.FIRST_CONTACT);
+        Room room = TestDatabase.room(database, TypeOfRoom.ADMISSION, 5);
+        appointments.createAppointment(TestDatabase.appointment(doctor, TestDatabase.patient(database), room,
+                TestDatabase.tomorrowAt(9, 0)));
+
+        assertEquals(1, appointments.countAppointmentsByRoom(room.getId()));
+    }
+}
@@ -0,0 +1,137 @@
+package backend.mongo;
+
+import backend.klasy.Appointment;
+import backend.klasy.Doctor;
+import backend.klasy.Patient;
+import backend.klasy.Room;
+import backend.status.AppointmentStatus;
+import backend.status.Day;
+import backend.status.Diagnosis;
+import backend.status.Specialization;
+import backend.status.TypeOfRoom;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Baza danych testów integracyjnych repozytoriów.
+ * <p>
+ * Testy łączą się z serwerem wskazanym przez {@code -Dhospital.test.mongo.uri} (domyślnie lokalnym) i pracują
+ * na bazie {@code hospitalTest}, czyszczonej przed każdym testem. Gdy serwer nie odpowiada, testy są pomijane.
+ * Transakcje (i ścieżka z transakcją w {@link BookingGuard}) działają tylko na replica secie, np.
+ * {@code -Dhospital.test.mongo.uri=mongodb://localhost:27017/?replicaSet=rs0}.
+ * </p>
+ */
+final class TestDatabase {
+
+    private static final String URI_PROPERTY = "hospital.test.mongo.uri";
+    private static final List<String> COLLECTIONS =
+            List.of("appointments", "patients", "doctors", "rooms", "slot_reservations");
+    private static final AtomicLong PESEL = new AtomicLong(80010100000L);
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Łączy się z bazą testową przez {@link MongoDatabaseConnector} (ten sam rejestr kodeków i nasłuchiwacze
+     * co aplikacja) albo pomija test, gdy serwer nie jest dostępny.
+     */
+    static MongoDatabase connect() {
+        System.setProperty("hospital.mongo.uri", System.getProperty(URI_PROPERTY, "mongodb://localhost:27017"));
+        System.setProperty("hospital.mongo.database", "hospitalTest");
+        System.setProperty("hospital.mongo.serverSelectionTimeoutMillis", "2000");
+        MongoDatabase database = MongoDatabaseConnector.connectToDatabase();
+        assumeTrue(database != null && reachable(database), "Serwer MongoDB niedostępny – test pominięty");
+        return database;
+    }
+
+    private static boolean reachable(MongoDatabase database) {
+        try {
+            database.runCommand(new Document("ping", 1));
+            return true;
+        } catch (MongoException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Usuwa dokumenty kolekcji (indeksy, w tym unikalny indeks rezerwacji, zostają) i czyści pamięci podręczne.
+     */
+    static void clear(MongoDatabase database) {
+        for (String name : COLLECTIONS) {
+            database.getCollection(name).deleteMany(new Document());
+        }
+        new IndexManager(database).ensureIndexes();
+        EntityCaches.invalidateAll();
+        AppointmentIntervalIndex.shared().invalidateAll();
+    }
+
+    /**
+     * Lekarz przyjmujący codziennie.
+     */
+    static Doctor doctor(MongoDatabase database, Specialization specialization) throws Exception {
+        LocalDate birthDate = LocalDate.of(1980, 1, 1);
+        Doctor doctor = new Doctor.Builder()
+                .firstName("Jan")
+                .lastName("Testowy")
+                .birthDate(birthDate)
+                .age(Doctor.calculateAge(birthDate))
+                .pesel(PESEL.incrementAndGet())
+                .specialization(specialization)
+                .availableDays(List.of(Day.values()))
+                .room("101")
+                .contactInformation("123456789")
+                .plainPassword("haslo")
+                .build();
+        database.getCollection("doctors", Doctor.class).insertOne(doctor);
+        return doctor;
+    }
+
+    static Patient patient(MongoDatabase database) throws Exception {
+        LocalDate birthDate = LocalDate.of(1990, 5, 5);
+        Patient patient = new Patient.Builder()
+                .firstName("Anna")
+                .lastName("Testowa")
+                .pesel(PESEL.incrementAndGet())
+                .birthDate(birthDate)
+                .age(Patient.calculateAge(birthDate))
+                .address("Testowa 1")
+                .plainPassword("haslo")
+                .diagnosis(Diagnosis.AWAITING)
+                .build();
+        database.getCollection("patients", Patient.class).insertOne(patient);
+        return patient;
+    }
+
+    static Room room(MongoDatabase database, TypeOfRoom type, int capacity) {
+        Room room = new Room("Testowa 1", 1, 100 + (int) (PESEL.incrementAndGet() % 800), capacity, type);
+        database.getCollection("rooms", Room.class).insertOne(room);
+        return room;
+    }
+
+    /**
+     * Termin o pełnej godzinie jutro (siatka slotów), przesunięty o podaną liczbę minut.
+     */
+    static LocalDateTime tomorrowAt(int hour, int minutes) {
+        return LocalDateTime.of(LocalDate.now().plusDays(1), LocalTime.of(hour, 0)).plusMinutes(minutes);
+    }
+
+    static Appointment appointment(Doctor doctor, Patient patient, Room room, LocalDateTime date) {
+        return new Appointment.Builder()
+                .doctorId(doctor.getId())
+                .patientId(patient.getId())
+                .room(room.getId())
+                .date(date)
+                .description("Test")
+                .status(AppointmentStatus.SCHEDULED)
+                .build();
+    }
+}